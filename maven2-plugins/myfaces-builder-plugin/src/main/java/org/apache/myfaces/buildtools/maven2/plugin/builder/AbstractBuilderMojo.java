@@ -49,11 +49,28 @@ public abstract class AbstractBuilderMojo extends AbstractMojo
      */
     private String noCache;
 
+    /**
+     * The number of threads used to merge the velocity templates of the generated
+     * classes. If not set, the number of available processors is used.
+     * 
+     * @parameter expression="${myfaces.builder.generationThreads}"
+     */
+    private int generationThreads;
+
     protected boolean isCachingEnabled()
     {
         return (!Boolean.valueOf(noCache)) && cacheFile != null;
     }
     
+    protected int getGenerationThreads()
+    {
+        if (generationThreads > 0)
+        {
+            return generationThreads;
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+    
     protected void loadCache(Properties cacheInfo) throws MojoExecutionException
     {
         try
@@ -0,0 +1,459 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.builder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Extracts a resource (usually META-INF/myfaces-metadata.xml) from a list of
+ * artifact files, which can be jar files or directories.
+ * <p>
+ * Each archive is opened with ZipFile and closed as soon as the entry is read,
+ * and the artifacts are scanned in parallel. The extracted content (or the fact
+ * that the artifact does not contain the resource) is cached in memory and,
+ * if a cache directory is given, on disk, keyed by the path, size and last
+ * modification time of the artifact, so unchanged artifacts are not opened
+ * again. Directories are not cached.
+ * </p>
+ */
+class ArtifactMetadataReader
+{
+    private static final String INDEX_FILE = "artifacts.properties";
+
+    private static final byte[] NO_METADATA = new byte[0];
+
+    /**
+     * Upper bound of the content kept in memory, in bytes.
+     */
+    private static final long MAX_CACHED_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Content already extracted in this jvm, by artifact key. Only the
+     * content used last is kept, up to MAX_CACHED_BYTES.
+     */
+    private static final Map _memoryCache = new ContentCache(MAX_CACHED_BYTES);
+
+    private final String _resourceName;
+
+    private final File _cacheDirectory;
+
+    private Properties _index;
+
+    private boolean _indexChanged;
+
+    /**
+     * @param resourceName the entry to look for in each artifact
+     * @param cacheDirectory the directory used to store the extracted content
+     *        between builds, or null to only cache it in memory.
+     */
+    public ArtifactMetadataReader(String resourceName, File cacheDirectory)
+    {
+        _resourceName = resourceName;
+        _cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Return the content of the resource for each artifact file, in the same
+     * order of the files. A null element means the artifact does not
+     * contain the resource.
+     */
+    public List read(List artifactFiles) throws IOException
+    {
+        _loadIndex();
+
+        byte[][] contents = new byte[artifactFiles.size()][];
+        List pending = new ArrayList();
+        for (int i = 0; i < artifactFiles.size(); i++)
+        {
+            File file = (File) artifactFiles.get(i);
+            if (file == null || !file.exists())
+            {
+                contents[i] = NO_METADATA;
+                continue;
+            }
+            if (file.isDirectory())
+            {
+                // Output directories of reactor projects: the timestamp of the
+                // directory does not reflect changes on the resource, so it is
+                // always read.
+                contents[i] = _extract(file);
+                continue;
+            }
+            contents[i] = _getCached(file);
+            if (contents[i] == null)
+            {
+                pending.add(Integer.valueOf(i));
+            }
+        }
+
+        if (!pending.isEmpty())
+        {
+            int threads = Math.min(pending.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try
+            {
+                List futures = new ArrayList(pending.size());
+                for (int i = 0; i < pending.size(); i++)
+                {
+                    final File file = (File) artifactFiles.get(((Integer) pending.get(i)).intValue());
+                    futures.add(executor.submit(new Callable()
+                    {
+                        public Object call() throws Exception
+                        {
+                            return _extract(file);
+                        }
+                    }));
+                }
+                for (int i = 0; i < pending.size(); i++)
+                {
+                    int index = ((Integer) pending.get(i)).intValue();
+                    byte[] content = (byte[]) _getResult((Future) futures.get(i));
+                    contents[index] = content;
+                    _putCached((File) artifactFiles.get(index), content);
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        _storeIndex();
+
+        List result = new ArrayList(contents.length);
+        for (int i = 0; i < contents.length; i++)
+        {
+            result.add(contents[i] == NO_METADATA ? null : contents[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Return the content of the resource in the given artifact, or null if it
+     * does not contain it.
+     */
+    public byte[] read(File artifactFile) throws IOException
+    {
+        List files = new ArrayList(1);
+        files.add(artifactFile);
+        return (byte[]) read(files).get(0);
+    }
+
+    private Object _getResult(Future future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted reading artifacts");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            IOException ioe = new IOException(e.getCause().getMessage());
+            ioe.initCause(e.getCause());
+            throw ioe;
+        }
+    }
+
+    private byte[] _extract(File file) throws IOException
+    {
+        if (file.isDirectory())
+        {
+            File resource = new File(file, _resourceName);
+            if (!resource.isFile())
+            {
+                return NO_METADATA;
+            }
+            InputStream is = new FileInputStream(resource);
+            try
+            {
+                return _readFully(is);
+            }
+            finally
+            {
+                IOUtil.close(is);
+            }
+        }
+
+        ZipFile zipFile = new ZipFile(file);
+        try
+        {
+            ZipEntry entry = zipFile.getEntry(_resourceName);
+            if (entry == null)
+            {
+                return NO_METADATA;
+            }
+            InputStream is = zipFile.getInputStream(entry);
+            try
+            {
+                return _readFully(is);
+            }
+            finally
+            {
+                IOUtil.close(is);
+            }
+        }
+        finally
+        {
+            zipFile.close();
+        }
+    }
+
+    private static byte[] _readFully(InputStream is) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        IOUtil.copy(is, out);
+        return out.toByteArray();
+    }
+
+    private static String _getKey(File file)
+    {
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    private byte[] _getCached(File file) throws IOException
+    {
+        String key = _getKey(file);
+        synchronized (_memoryCache)
+        {
+            byte[] content = (byte[]) _memoryCache.get(key);
+            if (content != null)
+            {
+                return content;
+            }
+        }
+
+        if (_index == null)
+        {
+            return null;
+        }
+        String value = _index.getProperty(file.getAbsolutePath());
+        if (value == null || !value.startsWith(file.length() + "|" + file.lastModified() + "|"))
+        {
+            return null;
+        }
+
+        byte[] content = NO_METADATA;
+        if (value.endsWith("|true"))
+        {
+            File cached = new File(_cacheDirectory, _getCacheFileName(file));
+            if (!cached.isFile())
+            {
+                return null;
+            }
+            InputStream is = new BufferedInputStream(new FileInputStream(cached));
+            try
+            {
+                content = _readFully(is);
+            }
+            finally
+            {
+                IOUtil.close(is);
+            }
+        }
+        synchronized (_memoryCache)
+        {
+            _memoryCache.put(key, content);
+        }
+        return content;
+    }
+
+    private void _putCached(File file, byte[] content) throws IOException
+    {
+        synchronized (_memoryCache)
+        {
+            _memoryCache.put(_getKey(file), content);
+        }
+
+        if (_index == null)
+        {
+            return;
+        }
+        if (content != NO_METADATA)
+        {
+            OutputStream os = new BufferedOutputStream(
+                    new FileOutputStream(new File(_cacheDirectory, _getCacheFileName(file))));
+            try
+            {
+                os.write(content);
+            }
+            finally
+            {
+                IOUtil.close(os);
+            }
+        }
+        _index.setProperty(file.getAbsolutePath(), file.length() + "|" + file.lastModified()
+                + "|" + (content != NO_METADATA));
+        _indexChanged = true;
+    }
+
+    private void _loadIndex() throws IOException
+    {
+        if (_cacheDirectory == null || _index != null)
+        {
+            return;
+        }
+        _cacheDirectory.mkdirs();
+        _index = new Properties();
+        File indexFile = new File(_cacheDirectory, INDEX_FILE);
+        if (indexFile.exists())
+        {
+            InputStream is = new BufferedInputStream(new FileInputStream(indexFile));
+            try
+            {
+                _index.load(is);
+            }
+            finally
+            {
+                IOUtil.close(is);
+            }
+        }
+    }
+
+    private void _storeIndex() throws IOException
+    {
+        if (_index == null || !_indexChanged)
+        {
+            return;
+        }
+        OutputStream os = new BufferedOutputStream(
+                new FileOutputStream(new File(_cacheDirectory, INDEX_FILE)));
+        try
+        {
+            _index.store(os, "Extracted " + _resourceName);
+        }
+        finally
+        {
+            IOUtil.close(os);
+        }
+        _indexChanged = false;
+    }
+
+    private static String _getCacheFileName(File file)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(file.getAbsolutePath().getBytes("UTF-8"));
+            StringBuffer sb = new StringBuffer(hash.length * 2 + 4);
+            for (int i = 0; i < hash.length; i++)
+            {
+                String hex = Integer.toHexString(hash[i] & 0xff);
+                if (hex.length() == 1)
+                {
+                    sb.append('0');
+                }
+                sb.append(hex);
+            }
+            sb.append(".xml");
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // MD5 is always available
+            throw new IllegalStateException(e.getMessage());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Access ordered map of content by artifact key, which drops the content
+     * used least recently when the size of the cached content exceeds a limit.
+     */
+    static final class ContentCache extends LinkedHashMap
+    {
+        /**
+         * Rough cost of an entry besides its content.
+         */
+        private static final int ENTRY_OVERHEAD = 128;
+
+        private final long _maxBytes;
+
+        private long _bytes;
+
+        ContentCache(long maxBytes)
+        {
+            super(16, 0.75f, true);
+            _maxBytes = maxBytes;
+        }
+
+        public Object put(Object key, Object value)
+        {
+            Object previous = super.put(key, value);
+            if (previous != null)
+            {
+                _bytes -= _size(previous);
+            }
+            _bytes += _size(value);
+
+            for (Iterator it = entrySet().iterator(); _bytes > _maxBytes && it.hasNext();)
+            {
+                Map.Entry entry = (Map.Entry) it.next();
+                _bytes -= _size(entry.getValue());
+                it.remove();
+            }
+            return previous;
+        }
+
+        long getCachedBytes()
+        {
+            return _bytes;
+        }
+
+        private static long _size(Object content)
+        {
+            return ((byte[]) content).length + ENTRY_OVERHEAD;
+        }
+    }
+}
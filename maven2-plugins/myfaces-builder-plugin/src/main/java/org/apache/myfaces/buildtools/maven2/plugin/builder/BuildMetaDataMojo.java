@@ -332,6 +332,14 @@ public class BuildMetaDataMojo extends AbstractMojo
      */
     private String noCache;
     
+    /**
+     * Directory where the metadata found on the dependencies is kept, so jar files
+     * that did not change are not opened again on later builds.
+     * 
+     * @parameter expression="${project.build.directory}/myfaces-builder-plugin-artifacts"
+     */
+    private File artifactCacheDirectory;
+    
     private File localResource;
     
     private FacesConfigBean _facesConfig;
@@ -438,7 +446,8 @@ public class BuildMetaDataMojo extends AbstractMojo
             }
         }
         
-        List models = IOUtils.getModelsFromArtifacts(project); 
+        List models = IOUtils.getModelsFromArtifacts(project,
+                isCachingEnabled() ? artifactCacheDirectory : null); 
         models = sortModels(models);
 
         Model model = new Model();
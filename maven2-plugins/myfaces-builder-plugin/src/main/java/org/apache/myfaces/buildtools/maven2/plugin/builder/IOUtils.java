@@ -18,6 +18,7 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.builder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -29,8 +30,6 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -50,12 +49,9 @@ import org.apache.myfaces.buildtools.maven2.plugin.builder.model.Model;
 import org.codehaus.plexus.components.io.fileselectors.FileInfo;
 import org.codehaus.plexus.components.io.fileselectors.FileSelector;
 import org.codehaus.plexus.components.io.fileselectors.IncludeExcludeFileSelector;
+import org.codehaus.plexus.util.IOUtil;
 import org.xml.sax.SAXException;
 
-import com.thoughtworks.qdox.directorywalker.DirectoryScanner;
-import com.thoughtworks.qdox.directorywalker.FileVisitor;
-import com.thoughtworks.qdox.directorywalker.SuffixFilter;
-
 /**
  * Utilities to write a Model as xml, and read a Model in from xml.
  */
@@ -175,57 +171,31 @@ public class IOUtils
         return existsFile;
     }
     
+    /**
+     * Check if the file exists in the source dirs, using an index of the
+     * source dirs instead of looking at the filesystem.
+     */
+    public static boolean existsSourceFile(String filename, SourceFileIndex sourceFileIndex)
+    {
+        return sourceFileIndex.exists(filename);
+    }
+    
     public static Model getModelFromArtifact(Artifact artifact) 
         throws MojoExecutionException
     {
-        Model model = null;
         File jarFile = artifact.getFile();
-
-        URLClassLoader archetypeJarLoader;
-
-        InputStream is = null;
         try
         {
-            URL[] urls = new URL[1];
-            urls[0] = jarFile.toURI().toURL();
-            archetypeJarLoader = new URLClassLoader(urls);
-
-            is = getStream(MYFACES_METADATA, archetypeJarLoader);
-
-            if (is != null)
+            byte[] content = new ArtifactMetadataReader(MYFACES_METADATA, null).read(jarFile);
+            if (content == null)
             {
-                Reader r = null;
-                try
-                {
-                    r = new InputStreamReader(is);
-                    model = readModel(r);
-                    r.close();
-                }
-                catch (IOException e)
-                {
-                    throw new MojoExecutionException(
-                            "Error reading myfaces-metadata.xml form "
-                                    + artifact.getFile().getName(), e);
-                }
-                finally
-                {
-                    if (r != null)
-                    {
-                        try
-                        {
-                            r.close();
-                        }
-                        catch (IOException e)
-                        {
-                            //ignore
-                        }
-                    }
-                }
-
-                System.out.println("Artifact: "
-                        + artifact.getFile().getName()
-                        + " have META-INF/myfaces-metadata.xml");
+                return null;
             }
+            Model model = readModel(content);
+            System.out.println("Artifact: "
+                    + artifact.getFile().getName()
+                    + " have META-INF/myfaces-metadata.xml");
+            return model;
         }
         catch (IOException e)
         {
@@ -233,22 +203,6 @@ public class IOUtils
                     "Error reading myfaces-metadata.xml form "
                             + artifact.getFile().getName(), e);
         }
-        finally
-        {
-            if (is != null)
-            {
-                try
-                {
-                    is.close();
-                }
-                catch (IOException ex)
-                {
-                    //ignore
-                }
-            }
-        }
-
-        return model;
     }
 
     /**
@@ -259,7 +213,21 @@ public class IOUtils
     public static List getModelsFromArtifacts(MavenProject project)
             throws MojoExecutionException
     {
-        List models = new ArrayList();
+        return getModelsFromArtifacts(project, null);
+    }
+
+    /**
+     * Scan every jarfile that this maven project has a dependency on, looking for metadata files.
+     * <p>
+     * Each file found is loaded into memory as a Model object and added to the list. The
+     * jarfiles are scanned in parallel, and the metadata found is kept on the cacheDirectory
+     * (if not null), so jarfiles that did not change are not opened on later builds.
+     */
+    public static List getModelsFromArtifacts(MavenProject project, File cacheDirectory)
+            throws MojoExecutionException
+    {
+        List artifacts = new ArrayList();
+        List jarFiles = new ArrayList();
         
         for (Iterator it = project.getArtifacts().iterator(); it.hasNext();)
         {
@@ -272,88 +240,52 @@ public class IOUtils
             {
                 //This is safe since we have all depencencies on the
                 //pom, so they are downloaded first by maven.
-                File jarFile = artifact.getFile();
+                artifacts.add(artifact);
+                jarFiles.add(artifact.getFile());
+            }
+        }
 
-                URLClassLoader archetypeJarLoader;
+        List contents;
+        try
+        {
+            contents = new ArtifactMetadataReader(MYFACES_METADATA, cacheDirectory).read(jarFiles);
+        }
+        catch (IOException e)
+        {
+            throw new MojoExecutionException(
+                    "Error reading myfaces-metadata.xml from artifacts", e);
+        }
 
-                InputStream is = null;
-                try
-                {
-                    URL[] urls = new URL[1];
-                    urls[0] = jarFile.toURL();
-                    archetypeJarLoader = new URLClassLoader(urls);
-
-                    is = getStream(MYFACES_METADATA, archetypeJarLoader);
-
-                    if (is != null)
-                    {
-                        Reader r = null;
-                        try
-                        {
-                            r = new InputStreamReader(is);
-                            Model m = readModel(r);
-                            models.add(m);
-                            r.close();
-                        }
-                        catch (IOException e)
-                        {
-                            throw new MojoExecutionException(
-                                    "Error reading myfaces-metadata.xml form "
-                                            + artifact.getFile().getName(), e);
-                        }
-                        finally
-                        {
-                            if (r != null)
-                            {
-                                try
-                                {
-                                    r.close();
-                                }
-                                catch (IOException e)
-                                {
-                                    //ignore
-                                }
-                            }
-                        }
-
-                        System.out.println("Artifact: "
-                                + artifact.getFile().getName()
-                                + " have META-INF/myfaces-metadata.xml");
-                    }
-                }
-                catch (IOException e)
-                {
-                    throw new MojoExecutionException(
-                            "Error reading myfaces-metadata.xml form "
-                                    + artifact.getFile().getName(), e);
-                }
-                finally
-                {
-                    if (is != null)
-                    {
-                        try
-                        {
-                            is.close();
-                        }
-                        catch (IOException ex)
-                        {
-                            //ignore
-                        }
-                    }
-                }
+        List models = new ArrayList();
+        for (int i = 0; i < artifacts.size(); i++)
+        {
+            byte[] content = (byte[]) contents.get(i);
+            if (content != null)
+            {
+                Artifact artifact = (Artifact) artifacts.get(i);
+                models.add(readModel(content));
+
+                System.out.println("Artifact: "
+                        + artifact.getFile().getName()
+                        + " have META-INF/myfaces-metadata.xml");
             }
         }
         return models;
     }
         
-    private static InputStream getStream( String name,
-            ClassLoader loader )
+    private static Model readModel(byte[] content)
+        throws MojoExecutionException
     {
-        if ( loader == null )
+        Reader r = null;
+        try
         {
-            return Thread.currentThread().getContextClassLoader().getResourceAsStream( name );
+            r = new InputStreamReader(new ByteArrayInputStream(content));
+            return readModel(r);
+        }
+        finally
+        {
+            IOUtil.close(r);
         }
-        return loader.getResourceAsStream( name );
     }
     
     /**
@@ -400,26 +332,26 @@ public class IOUtils
 
     public static void visitSources(ModelParams parameters, SourceVisitor visitor)
     {
-        getSourceClasses(visitor, parameters.getSourceDirs(),
+        getSourceClasses(visitor, parameters.getSourceFileIndex(),
                 parameters.getIncludes(), parameters.getExcludes());
     }
 
     private static void getSourceClasses(SourceVisitor visitor,
-            List sourceDirs, String includes, String excludes)
+            SourceFileIndex sourceFileIndex, String includes, String excludes)
     {
         if (StringUtils.isNotEmpty(includes)
                 || StringUtils.isNotEmpty(excludes))
         {
-            getInnerSourceClasses(visitor, sourceDirs, includes, excludes);
+            getInnerSourceClasses(visitor, sourceFileIndex, includes, excludes);
         }
         else
         {
-            getInnerSourceClasses(visitor, sourceDirs);
+            getInnerSourceClasses(visitor, sourceFileIndex);
         }
     }
 
     private static void getInnerSourceClasses(SourceVisitor visitor,
-            List sourceDirs, String includes, String excludes)
+            SourceFileIndex sourceFileIndex, String includes, String excludes)
     {
         IncludeExcludeFileSelector selector = new IncludeExcludeFileSelector();
         if (StringUtils.isNotEmpty(excludes))
@@ -430,131 +362,79 @@ public class IOUtils
         {
             selector.setIncludes(includes.split(","));
         }
-        for (Iterator i = sourceDirs.iterator(); i.hasNext();)
+        for (int i = 0; i < sourceFileIndex.getSourceDirs().size(); i++)
         {
-            Object dir = i.next();
-            File srcDir = null;
-            if (dir instanceof File)
-            {
-                srcDir = (File) dir;
-            }
-            else
+            //Scan all files on directory and add to builder
+            for (Iterator it = sourceFileIndex.getFiles(i).iterator(); it.hasNext();)
             {
-                new File((String) i.next());
+                addFileToJavaDocBuilder(visitor, selector, (File) it.next());
             }
-            //Scan all files on directory and add to builder
-            addFileToJavaDocBuilder(visitor, selector, srcDir);
-        }
-    }
-
-    private static void getInnerSourceClasses(SourceVisitor visitor,
-            List sourceDirs)
-    {
-        for (Iterator i = sourceDirs.iterator(); i.hasNext();)
-        {
-            String srcDir = (String) i.next();
-            addSourceTree(visitor, new File(srcDir));
         }
     }
 
     /**
-     * Add all files in a directory (and subdirs, recursively).
+     * Visit all java files in the source dirs (and subdirs, recursively).
      *
      * If a file cannot be read, a RuntimeException shall be thrown.
      */
-    private static void addSourceTree(SourceVisitor visitor, File file)
-    {
-        FileVisitor errorHandler = new FileVisitor()
-        {
-            public void visitFile(File badFile)
-            {
-                throw new RuntimeException("Cannot read file : "
-                        + badFile.getName());
-            }
-        };
-        addSourceTree(visitor, file, errorHandler);
-    }
-
-    /**
-     * Add all files in a directory (and subdirs, recursively).
-     *
-     * If a file cannot be read, errorHandler will be notified.
-     */
-    private static void addSourceTree(final SourceVisitor visitor,
-            File file, final FileVisitor errorHandler)
+    private static void getInnerSourceClasses(SourceVisitor visitor,
+            SourceFileIndex sourceFileIndex)
     {
-        DirectoryScanner scanner = new DirectoryScanner(file);
-        scanner.addFilter(new SuffixFilter(".java"));
-        scanner.scan(new FileVisitor()
+        for (int i = 0; i < sourceFileIndex.getSourceDirs().size(); i++)
         {
-            public void visitFile(File currentFile)
+            for (Iterator it = sourceFileIndex.getFiles(i).iterator(); it.hasNext();)
             {
+                File currentFile = (File) it.next();
+                if (!currentFile.getName().endsWith(".java"))
+                {
+                    continue;
+                }
                 try
                 {
                     visitor.processSource(currentFile);
                 }
                 catch (IOException e)
                 {
-                    errorHandler.visitFile(currentFile);
+                    throw new RuntimeException("Cannot read file : "
+                            + currentFile.getName());
                 }
             }
-        });
-    }
-
-    private static void addFileToJavaDocBuilder(SourceVisitor visitor,
-            FileSelector selector, File path)
-    {
-        addFileToJavaDocBuilder(visitor, selector, path, path.getPath());
+        }
     }
 
     private static void addFileToJavaDocBuilder(SourceVisitor visitor,
-            FileSelector selector, File path, String basePath)
+            FileSelector selector, File file)
     {
-        if (path.isDirectory())
-        {
-            File[] files = path.listFiles();
-
-            //Scan all files in directory
-            for (int i = 0; i < files.length; i++)
-            {
-                addFileToJavaDocBuilder(visitor, selector, files[i], basePath);
-            }
-        }
-        else
+        try
         {
-            File file = path;
-
-            try
+            String name = file.getPath();
+            while (name.startsWith("/"))
             {
-                String name = file.getPath();
-                while (name.startsWith("/"))
-                {
-                    name = name.substring(1);
-                }
-                while (name.startsWith("\\"))
-                {
-                    name = name.substring(1);
-                }
-                SourceFileInfo fileInfo = new SourceFileInfo(file, name);
-                if (selector.isSelected(fileInfo))
-                {
-                    //builder.addSource(file);
-                    visitor.processSource(file);
-                }
+                name = name.substring(1);
             }
-            catch (FileNotFoundException e)
+            while (name.startsWith("\\"))
             {
-                Log log = LogFactory.getLog(IOUtils.class);
-                log.error("Error reading file: " + file.getName() + " "
-                        + e.getMessage());
+                name = name.substring(1);
             }
-            catch (IOException e)
+            SourceFileInfo fileInfo = new SourceFileInfo(file, name);
+            if (selector.isSelected(fileInfo))
             {
-                Log log = LogFactory.getLog(IOUtils.class);
-                log.error("Error reading file: " + file.getName() + " "
-                        + e.getMessage());
+                //builder.addSource(file);
+                visitor.processSource(file);
             }
         }
+        catch (FileNotFoundException e)
+        {
+            Log log = LogFactory.getLog(IOUtils.class);
+            log.error("Error reading file: " + file.getName() + " "
+                    + e.getMessage());
+        }
+        catch (IOException e)
+        {
+            Log log = LogFactory.getLog(IOUtils.class);
+            log.error("Error reading file: " + file.getName() + " "
+                    + e.getMessage());
+        }
     }
 
     private static class SourceFileInfo implements FileInfo
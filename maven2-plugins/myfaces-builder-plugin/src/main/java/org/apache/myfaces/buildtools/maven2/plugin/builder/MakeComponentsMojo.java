@@ -19,11 +19,8 @@
 package org.apache.myfaces.buildtools.maven2.plugin.builder;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.StringWriter;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -34,14 +31,11 @@ import org.apache.maven.project.MavenProject;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ComponentMeta;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.Model;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.BuildException;
-import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MavenPluginConsoleLogSystem;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MyfacesUtils;
-import org.apache.velocity.Template;
+import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.VelocityGenerator;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.context.Context;
-import org.apache.velocity.runtime.RuntimeConstants;
-import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
 
 import com.thoughtworks.qdox.JavaDocBuilder;
@@ -51,6 +45,7 @@ import com.thoughtworks.qdox.model.DocletTag;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaField;
 import com.thoughtworks.qdox.model.JavaMethod;
+import com.thoughtworks.qdox.model.JavaSource;
 
 /**
  * Maven goal to generate java source code for Component classes.
@@ -246,34 +241,7 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
             getLog().info("Using template from class loader: META-INF/"+_getTemplateName());
         }
                 
-        VelocityEngine velocityEngine = null;
-        try
-        {
-            velocityEngine = new VelocityEngine();
-            velocityEngine.setProperty( "resource.loader", "file, class" );
-            velocityEngine.setProperty( "file.resource.loader.class",
-                    "org.apache.velocity.runtime.resource.loader.FileResourceLoader");
-            velocityEngine.setProperty( "file.resource.loader.path", templateSourceDirectory.getPath());
-            velocityEngine.setProperty( "class.resource.loader.class",
-                    "org.apache.myfaces.buildtools.maven2.plugin.builder.utils.RelativeClasspathResourceLoader" );
-            velocityEngine.setProperty( "class.resource.loader.path", "META-INF");            
-            velocityEngine.setProperty( "velocimacro.library", "componentClassMacros11.vm");
-            velocityEngine.setProperty( "velocimacro.permissions.allow.inline","true");
-            velocityEngine.setProperty( "velocimacro.permissions.allow.inline.local.scope", "true");
-            velocityEngine.setProperty( "directive.foreach.counter.initial.value","0");
-            //velocityEngine.setProperty( RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS,
-            //    "org.apache.myfaces.buildtools.maven2.plugin.builder.utils.ConsoleLogSystem" );
-            
-            velocityEngine.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM,
-                    new MavenPluginConsoleLogSystem(this.getLog()));
-            velocityEngine.init();
-        }
-        catch (Exception e)
-        {
-            throw new MojoExecutionException("Error creating VelocityEngine", e);
-        }
-        
-        return velocityEngine;
+        return VelocityGenerator.getVelocityEngine(templateSourceDirectory, "componentClassMacros11.vm", getLog());
     }
     
 
@@ -351,20 +319,17 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
         }
 
         
-        //Init Qdox for extract code 
-        JavaDocBuilder builder = new JavaDocBuilder();
-        
-        List sourceDirs = project.getCompileSourceRoots();
-        
-        // need a File object representing the original source tree
-        for (Iterator i = sourceDirs.iterator(); i.hasNext();)
-        {
-            String srcDir = (String) i.next();
-            builder.addSourceTree(new File(srcDir));
-        }        
+        //Init Qdox for extract code. Only the source files of the components
+        //generated from templates are needed, so the whole source tree is not
+        //parsed; the files are only parsed when the inner source is requested.
+        TemplateSourceBuilder builder = new TemplateSourceBuilder(
+                findTemplateSourceFiles(model, project.getCompileSourceRoots()),
+                project.getCompileSourceRoots());
         
         //Init velocity
         VelocityEngine velocityEngine = initVelocity();
+        VelocityGenerator generator = new VelocityGenerator(velocityEngine, _getTemplateName(),
+                getGenerationThreads(), getLog());
 
         VelocityContext baseContext = new VelocityContext();
         baseContext.put("utils", new MyfacesUtils());
@@ -390,12 +355,9 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
                             continue;
                         }
                     }
-                    getLog().info("Generating component class:"+component.getClassName());
-                    
                     try 
                     {
-                        _generateComponent(velocityEngine, builder,component,baseContext,
-                                cachedInfo, lastModifiedMetadata);
+                        _generateComponent(generator, builder, component, baseContext);
                     }
                     catch(MojoExecutionException e)
                     {
@@ -412,8 +374,14 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
                 }
             }
         }
+        List generatedFiles = generator.generate(force);
         if (isCachingEnabled())
         {
+            for (Iterator it = generatedFiles.iterator(); it.hasNext();)
+            {
+                File outFile = (File) it.next();
+                cachedInfo.put(outFile.getAbsolutePath(), Long.toString(lastModifiedMetadata));
+            }
             if (tf != null && tf.exists())
             {
                 cachedInfo.put(tf.getAbsolutePath(), Long.toString(tf.lastModified()));
@@ -421,6 +389,58 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
         }
     }
     
+    /**
+     * Return the source files of the components that will be generated from
+     * a template, so their inner source code can be extracted.
+     */
+    private List findTemplateSourceFiles(Model model, List sourceDirs)
+    {
+        List files = new ArrayList();
+        for (Iterator it = model.getComponents().iterator(); it.hasNext();)
+        {
+            ComponentMeta component = (ComponentMeta) it.next();
+            
+            if (component.getClassName() == null ||
+                !Boolean.TRUE.equals(component.isTemplate()) ||
+                !canGenerateComponent(component))
+            {
+                continue;
+            }
+            
+            // a missing file is reported when the component is generated
+            File sourceFile = findSourceFile(component.getSourceClassName(), sourceDirs);
+            if (sourceFile != null && !files.contains(sourceFile))
+            {
+                files.add(sourceFile);
+            }
+        }
+        return files;
+    }
+    
+    /**
+     * Locate the java file that declares the given class on the source dirs. If
+     * the class is a nested one, the file of the enclosing class is returned.
+     */
+    private File findSourceFile(String className, List sourceDirs)
+    {
+        String name = className;
+        while (name != null && name.length() > 0)
+        {
+            String filename = StringUtils.replace(name, ".", "/") + ".java";
+            for (Iterator i = sourceDirs.iterator(); i.hasNext();)
+            {
+                File f = new File((String) i.next(), filename);
+                if (f.exists())
+                {
+                    return f;
+                }
+            }
+            int index = name.lastIndexOf('.');
+            name = (index == -1) ? null : name.substring(0, index);
+        }
+        return null;
+    }
+    
     public boolean canGenerateComponent(ComponentMeta component)
     {
         if ( modelIds.contains(component.getModelId())
@@ -480,10 +500,9 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
      * @param component
      *            the parsed component metadata
      */
-    private void _generateComponent(VelocityEngine velocityEngine,
-            JavaDocBuilder builder,
-            ComponentMeta component, VelocityContext baseContext,
-            Properties cachedInfo, long lastModifiedMetadata)
+    private void _generateComponent(VelocityGenerator generator,
+            TemplateSourceBuilder builder,
+            ComponentMeta component, VelocityContext baseContext)
             throws MojoExecutionException
     {
         Context context = new VelocityContext(baseContext);
@@ -491,7 +510,16 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
 
         if (Boolean.TRUE.equals(component.isTemplate()))
         {
-            String source = this.getInnerSourceCode(builder, component);
+            String source = null;
+            try
+            {
+                source = this.getInnerSourceCode(builder, component);
+            }
+            catch (IOException e)
+            {
+                throw new MojoExecutionException(
+                        "Error parsing template source: " + e.getMessage(), e);
+            }
             
             if (source != null && !"".equals(source))
             {
@@ -499,42 +527,10 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
             }
         }        
         
-        Writer writer = null;
-        File outFile = null;
-
-        try
-        {
-            outFile = new File(generatedSourceDirectory, StringUtils.replace(
-                    component.getClassName(), ".", "/")+".java");
-
-            if ( !outFile.getParentFile().exists() )
-            {
-                outFile.getParentFile().mkdirs();
-            }
+        File outFile = new File(generatedSourceDirectory, StringUtils.replace(
+                component.getClassName(), ".", "/")+".java");
 
-            writer = new OutputStreamWriter(new FileOutputStream(outFile));
-
-            Template template = velocityEngine.getTemplate(_getTemplateName());
-                        
-            template.merge(context, writer);
-
-            writer.flush();
-            
-            if (isCachingEnabled())
-            {
-                cachedInfo.put(outFile.getAbsolutePath(), Long.toString(lastModifiedMetadata));
-            }
-        }
-        catch (Exception e)
-        {
-            throw new MojoExecutionException(
-                    "Error merging velocity templates: " + e.getMessage(), e);
-        }
-        finally
-        {
-            IOUtil.close(writer);
-            writer = null;
-        }
+        generator.addFile(outFile, context, "Generating component class:"+component.getClassName());
     }
         
     /**
@@ -546,11 +542,17 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
      * @param component
      * @return
      */
-    private String getInnerSourceCode(JavaDocBuilder builder, ComponentMeta component)
+    String getInnerSourceCode(TemplateSourceBuilder builder, ComponentMeta component)
+        throws IOException, MojoExecutionException
     {   
         StringWriter writer = new StringWriter();
         
         JavaClass sourceClass = builder.getClassByName(component.getSourceClassName());
+        if (sourceClass == null)
+        {
+            throw new MojoExecutionException("Cannot find source file for template class: "
+                    + component.getSourceClassName());
+        }
         
         JavaField [] fields = sourceClass.getFields();
 
@@ -764,6 +766,80 @@ public class MakeComponentsMojo extends AbstractBuilderMojo
         }
     }
     
+    /**
+     * Wraps a qdox JavaDocBuilder that only contains the given source files,
+     * which are parsed the first time a class is requested. The source
+     * directories are registered in the class library, so the types the
+     * templates use from the project (same package or wildcard imports) are
+     * still fully qualified; their files are not parsed.
+     */
+    static class TemplateSourceBuilder
+    {
+        private final List _sourceFiles;
+        private final List _sourceDirs;
+        private JavaSource[] _sources;
+
+        public TemplateSourceBuilder(List sourceFiles, List sourceDirs)
+        {
+            _sourceFiles = sourceFiles;
+            _sourceDirs = sourceDirs;
+        }
+
+        /**
+         * Return the class parsed from the template source files, or null if
+         * none of the files declares it.
+         */
+        public JavaClass getClassByName(String name) throws IOException
+        {
+            if (_sources == null)
+            {
+                JavaDocBuilder builder = new JavaDocBuilder();
+                for (Iterator it = _sourceDirs.iterator(); it.hasNext();)
+                {
+                    builder.getClassLibrary().addSourceFolder(new File((String) it.next()));
+                }
+                JavaSource[] sources = new JavaSource[_sourceFiles.size()];
+                for (int i = 0; i < sources.length; i++)
+                {
+                    sources[i] = builder.addSource((File) _sourceFiles.get(i));
+                }
+                _sources = sources;
+            }
+
+            for (int i = 0; i < _sources.length; i++)
+            {
+                JavaClass[] classes = _sources[i].getClasses();
+                for (int j = 0; j < classes.length; j++)
+                {
+                    JavaClass found = _findClass(classes[j], name);
+                    if (found != null)
+                    {
+                        return found;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static JavaClass _findClass(JavaClass javaClass, String name)
+        {
+            if (name.equals(javaClass.getFullyQualifiedName()))
+            {
+                return javaClass;
+            }
+            JavaClass[] nested = javaClass.getNestedClasses();
+            for (int i = 0; i < nested.length; i++)
+            {
+                JavaClass found = _findClass(nested[i], name);
+                if (found != null)
+                {
+                    return found;
+                }
+            }
+            return null;
+        }
+    }
+    
     private boolean _is12()
     {
         return "1.2".equals(jsfVersion) || "12".equals(jsfVersion);
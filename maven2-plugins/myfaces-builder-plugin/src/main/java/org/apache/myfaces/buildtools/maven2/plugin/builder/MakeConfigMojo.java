@@ -19,13 +19,10 @@
 package org.apache.myfaces.buildtools.maven2.plugin.builder;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringWriter;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -36,6 +33,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.Model;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.BuildException;
+import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.GeneratedFileWriter;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MavenPluginConsoleLogSystem;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MyfacesUtils;
 import org.apache.velocity.Template;
@@ -239,7 +237,7 @@ public class MakeConfigMojo extends AbstractBuilderMojo
         Properties cachedInfo, long lastModifiedMetadata) throws IOException,
         MojoExecutionException
     {    
-        Writer writer = null;
+        StringWriter writer = null;
         File outFile = null;
         File tf = new File(templateSourceDirectory, templateFile);
         
@@ -331,7 +329,7 @@ public class MakeConfigMojo extends AbstractBuilderMojo
                 }
             }
             
-            writer = new OutputStreamWriter(new FileOutputStream(outFile));
+            writer = new StringWriter();
             
             Template template = velocityEngine.getTemplate(templateFile);
             
@@ -339,6 +337,10 @@ public class MakeConfigMojo extends AbstractBuilderMojo
 
             writer.flush();
             
+            GeneratedFileWriter fileWriter = new GeneratedFileWriter();
+            fileWriter.write(outFile, writer.toString());
+            fileWriter.report(getLog());
+            
             if (isCachingEnabled())
             {
                 cachedInfo.put(outFile.getAbsolutePath(), Long.toString(lastModifiedMetadata));
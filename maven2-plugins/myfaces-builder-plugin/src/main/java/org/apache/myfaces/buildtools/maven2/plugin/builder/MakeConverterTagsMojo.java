@@ -22,10 +22,7 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -37,14 +34,11 @@ import org.apache.maven.project.MavenProject;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ConverterMeta;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.Model;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.BuildException;
-import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MavenPluginConsoleLogSystem;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MyfacesUtils;
-import org.apache.velocity.Template;
+import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.VelocityGenerator;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.context.Context;
-import org.apache.velocity.runtime.RuntimeConstants;
-import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
 
 /**
@@ -239,35 +233,7 @@ public class MakeConverterTagsMojo extends AbstractBuilderMojo
             getLog().info("Using template from class loader: META-INF/"+_getTemplateTagName());
         }
                 
-        VelocityEngine velocityEngine = new VelocityEngine();
-                
-        try
-        {
-            velocityEngine.setProperty( "resource.loader", "file, class" );
-            velocityEngine.setProperty( "file.resource.loader.class",
-                    "org.apache.velocity.runtime.resource.loader.FileResourceLoader");
-            velocityEngine.setProperty( "file.resource.loader.path", templateSourceDirectory.getPath());
-            velocityEngine.setProperty( "class.resource.loader.class",
-                    "org.apache.myfaces.buildtools.maven2.plugin.builder.utils.RelativeClasspathResourceLoader" );
-            velocityEngine.setProperty( "class.resource.loader.path", "META-INF");            
-            velocityEngine.setProperty( "velocimacro.library", "tagClassMacros11.vm");
-            velocityEngine.setProperty( "velocimacro.permissions.allow.inline","true");
-            velocityEngine.setProperty( "velocimacro.permissions.allow.inline.local.scope", "true");
-            velocityEngine.setProperty( "directive.foreach.counter.initial.value","0");
-            //velocityEngine.setProperty( RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS,
-            //    "org.apache.myfaces.buildtools.maven2.plugin.builder.utils.ConsoleLogSystem" );
-            
-            velocityEngine.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM,
-                    new MavenPluginConsoleLogSystem(this.getLog()));
-                        
-            velocityEngine.init();
-        }
-        catch (Exception e)
-        {
-            throw new MojoExecutionException("Error creating VelocityEngine", e);
-        }
-        
-        return velocityEngine;
+        return VelocityGenerator.getVelocityEngine(templateSourceDirectory, "tagClassMacros11.vm", getLog());
     }
 
     /**
@@ -341,6 +307,8 @@ public class MakeConverterTagsMojo extends AbstractBuilderMojo
         }
 
         VelocityEngine velocityEngine = initVelocity();
+        VelocityGenerator generator = new VelocityGenerator(velocityEngine, _getTemplateTagName(),
+                getGenerationThreads(), getLog());
 
         VelocityContext baseContext = new VelocityContext();
         baseContext.put("utils", new MyfacesUtils());
@@ -366,11 +334,9 @@ public class MakeConverterTagsMojo extends AbstractBuilderMojo
                             continue;
                         }
                     }
-                    getLog().info("Generating tag class:"+converter.getTagClass());
                     try
                     {
-                        _generateConverter(velocityEngine, converter,baseContext, 
-                                cachedInfo, lastModifiedMetadata);
+                        _generateConverter(generator, converter, baseContext);
                     }
                     catch(MojoExecutionException e)
                     {
@@ -387,8 +353,14 @@ public class MakeConverterTagsMojo extends AbstractBuilderMojo
                 }
             }
         }
+        List generatedFiles = generator.generate(force);
         if (isCachingEnabled())
         {
+            for (Iterator it = generatedFiles.iterator(); it.hasNext();)
+            {
+                File outFile = (File) it.next();
+                cachedInfo.put(outFile.getAbsolutePath(), Long.toString(lastModifiedMetadata));
+            }
             if (tf != null && tf.exists())
             {
                 cachedInfo.put(tf.getAbsolutePath(), Long.toString(tf.lastModified()));
@@ -455,50 +427,18 @@ public class MakeConverterTagsMojo extends AbstractBuilderMojo
      * @param converter
      *            the parsed component metadata
      */
-    private void _generateConverter(VelocityEngine velocityEngine, ConverterMeta converter, VelocityContext baseContext,
-            Properties cachedInfo, long lastModifiedMetadata)
+    private void _generateConverter(VelocityGenerator generator,
+            ConverterMeta converter, VelocityContext baseContext)
             throws MojoExecutionException
     {
 
         Context context = new VelocityContext(baseContext);
         context.put("converter", converter);
 
-        Writer writer = null;
-        File outFile = null;
-
-        try
-        {
-            outFile = new File(generatedSourceDirectory, StringUtils.replace(
-                    converter.getTagClass(), ".", "/")+".java");
+        File outFile = new File(generatedSourceDirectory, StringUtils.replace(
+                converter.getTagClass(), ".", "/")+".java");
 
-            if ( !outFile.getParentFile().exists() )
-            {
-                outFile.getParentFile().mkdirs();
-            }
-
-            writer = new OutputStreamWriter(new FileOutputStream(outFile));
-
-            Template template = velocityEngine.getTemplate(_getTemplateTagName());
-                        
-            template.merge(context, writer);
-
-            writer.flush();
-            
-            if (isCachingEnabled())
-            {
-                cachedInfo.put(outFile.getAbsolutePath(), Long.toString(lastModifiedMetadata));
-            }
-        }
-        catch (Exception e)
-        {
-            throw new MojoExecutionException(
-                    "Error merging velocity templates: " + e.getMessage(), e);
-        }
-        finally
-        {
-            IOUtil.close(writer);
-            writer = null;
-        }
+        generator.addFile(outFile, context, "Generating tag class:"+converter.getTagClass());
     }
     
     private String _getTemplateTagName()
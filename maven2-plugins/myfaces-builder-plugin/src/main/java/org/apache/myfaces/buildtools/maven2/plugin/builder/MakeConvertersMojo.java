@@ -19,10 +19,7 @@
 package org.apache.myfaces.buildtools.maven2.plugin.builder;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -33,18 +30,13 @@ import org.apache.maven.project.MavenProject;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ConverterMeta;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.Model;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.BuildException;
-import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MavenPluginConsoleLogSystem;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.MyfacesUtils;
-import org.apache.velocity.Template;
+import org.apache.myfaces.buildtools.maven2.plugin.builder.utils.VelocityGenerator;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.context.Context;
-import org.apache.velocity.runtime.RuntimeConstants;
-import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
 
-import com.thoughtworks.qdox.JavaDocBuilder;
-
 /**
  * Maven goal to generate java source code for Converter classes.
  * 
@@ -232,35 +224,7 @@ public class MakeConvertersMojo extends AbstractBuilderMojo
             getLog().info("Using template from class loader: META-INF/"+_getTemplateName());
         }
                 
-        VelocityEngine velocityEngine = new VelocityEngine();
-                
-        try
-        {
-            velocityEngine.setProperty( "resource.loader", "file, class" );
-            velocityEngine.setProperty( "file.resource.loader.class",
-                    "org.apache.velocity.runtime.resource.loader.FileResourceLoader");
-            velocityEngine.setProperty( "file.resource.loader.path", templateSourceDirectory.getPath());
-            velocityEngine.setProperty( "class.resource.loader.class",
-                    "org.apache.myfaces.buildtools.maven2.plugin.builder.utils.RelativeClasspathResourceLoader" );
-            velocityEngine.setProperty( "class.resource.loader.path", "META-INF");            
-            velocityEngine.setProperty( "velocimacro.library", "converterClassMacros11.vm");
-            velocityEngine.setProperty( "velocimacro.permissions.allow.inline","true");
-            velocityEngine.setProperty( "velocimacro.permissions.allow.inline.local.scope", "true");
-            velocityEngine.setProperty( "directive.foreach.counter.initial.value","0");
-            //velocityEngine.setProperty( RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS,
-            //    "org.apache.myfaces.buildtools.maven2.plugin.builder.utils.ConsoleLogSystem" );
-            
-            velocityEngine.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM,
-                    new MavenPluginConsoleLogSystem(this.getLog()));
-
-            velocityEngine.init();
-        }
-        catch (Exception e)
-        {
-            throw new MojoExecutionException("Error creating VelocityEngine", e);
-        }
-        
-        return velocityEngine;
+        return VelocityGenerator.getVelocityEngine(templateSourceDirectory, "converterClassMacros11.vm", getLog());
     }
     
 
@@ -338,20 +302,10 @@ public class MakeConvertersMojo extends AbstractBuilderMojo
         }
 
         
-        //Init Qdox for extract code 
-        JavaDocBuilder builder = new JavaDocBuilder();
-        
-        List sourceDirs = project.getCompileSourceRoots();
-        
-        // need a File object representing the original source tree
-        for (Iterator i = sourceDirs.iterator(); i.hasNext();)
-        {
-            String srcDir = (String) i.next();
-            builder.addSourceTree(new File(srcDir));
-        }        
-        
         //Init velocity
         VelocityEngine velocityEngine = initVelocity();
+        VelocityGenerator generator = new VelocityGenerator(velocityEngine, _getTemplateName(),
+                getGenerationThreads(), getLog());
 
         VelocityContext baseContext = new VelocityContext();
         baseContext.put("utils", new MyfacesUtils());
@@ -377,11 +331,9 @@ public class MakeConvertersMojo extends AbstractBuilderMojo
                             continue;
                         }
                     }
-                    getLog().info("Generating converter class:"+converter.getClassName());
                     try
                     {
-                        _generateConverter(velocityEngine, builder,converter,baseContext,
-                                cachedInfo, lastModifiedMetadata);
+                        _generateConverter(generator, converter, baseContext);
                     }
                     catch(MojoExecutionException e)
                     {
@@ -398,8 +350,14 @@ public class MakeConvertersMojo extends AbstractBuilderMojo
                 }
             }
         }
+        List generatedFiles = generator.generate(force);
         if (isCachingEnabled())
         {
+            for (Iterator it = generatedFiles.iterator(); it.hasNext();)
+            {
+                File outFile = (File) it.next();
+                cachedInfo.put(outFile.getAbsolutePath(), Long.toString(lastModifiedMetadata));
+            }
             if (tf != null && tf.exists())
             {
                 cachedInfo.put(tf.getAbsolutePath(), Long.toString(tf.lastModified()));
@@ -446,51 +404,17 @@ public class MakeConvertersMojo extends AbstractBuilderMojo
      * @param converter
      *            the parsed converter metadata
      */
-    private void _generateConverter(VelocityEngine velocityEngine,
-            JavaDocBuilder builder,
-            ConverterMeta converter, VelocityContext baseContext,
-            Properties cachedInfo, long lastModifiedMetadata)
+    private void _generateConverter(VelocityGenerator generator,
+            ConverterMeta converter, VelocityContext baseContext)
             throws MojoExecutionException
     {
         Context context = new VelocityContext(baseContext);
         context.put("converter", converter);
         
-        Writer writer = null;
-        File outFile = null;
+        File outFile = new File(generatedSourceDirectory, StringUtils.replace(
+                converter.getClassName(), ".", "/")+".java");
 
-        try
-        {
-            outFile = new File(generatedSourceDirectory, StringUtils.replace(
-                    converter.getClassName(), ".", "/")+".java");
-
-            if ( !outFile.getParentFile().exists() )
-            {
-                outFile.getParentFile().mkdirs();
-            }
-
-            writer = new OutputStreamWriter(new FileOutputStream(outFile));
-
-            Template template = velocityEngine.getTemplate(_getTemplateName());
-                        
-            template.merge(context, writer);
-
-            writer.flush();
-            
-            if (isCachingEnabled())
-            {
-                cachedInfo.put(outFile.getAbsolutePath(), Long.toString(lastModifiedMetadata));
-            }
-        }
-        catch (Exception e)
-        {
-            throw new MojoExecutionException(
-                    "Error merging velocity templates: " + e.getMessage(), e);
-        }
-        finally
-        {
-            IOUtil.close(writer);
-            writer = null;
-        }
+        generator.addFile(outFile, context, "Generating converter class:"+converter.getClassName());
     }
                 
     private String _getTemplateName()
@@ -38,6 +38,8 @@ public class ModelParams
     private String compositeComponentFileExtensions;
     
     private FacesConfigBean facesConfigBean;
+    
+    private SourceFileIndex sourceFileIndex;
 
     public ModelParams()
     {
@@ -66,6 +68,19 @@ public class ModelParams
     public void setSourceDirs(List sources)
     {
         this.sources = sources;
+        this.sourceFileIndex = null;
+    }
+    /**
+     * Return an index of the files in the source dirs, which are scanned
+     * the first time this method is called.
+     */
+    public SourceFileIndex getSourceFileIndex()
+    {
+        if (sourceFileIndex == null)
+        {
+            sourceFileIndex = new SourceFileIndex(sources);
+        }
+        return sourceFileIndex;
     }
     public List getCompositeComponentDirectories()
     {
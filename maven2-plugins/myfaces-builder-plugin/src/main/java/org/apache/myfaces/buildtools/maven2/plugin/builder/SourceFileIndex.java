@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.builder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The files found on a list of source directories.
+ * <p>
+ * The source directories are scanned once, so checking if a source file
+ * exists does not require to look at the filesystem for every source dir,
+ * and the java files can be visited again without scanning the directories.
+ * </p>
+ */
+public class SourceFileIndex
+{
+    private final Set _relativePaths = new HashSet();
+
+    private final List _sourceDirs = new ArrayList();
+
+    private final List _files = new ArrayList();
+
+    /**
+     * @param sourceDirs the source directories, as String or File objects
+     */
+    public SourceFileIndex(List sourceDirs)
+    {
+        for (Iterator it = sourceDirs.iterator(); it.hasNext();)
+        {
+            Object dir = it.next();
+            File srcDir = (dir instanceof File) ? (File) dir : new File((String) dir);
+            List files = new ArrayList();
+            _scan(srcDir, "", files);
+            _sourceDirs.add(srcDir);
+            _files.add(Collections.unmodifiableList(files));
+        }
+    }
+
+    private void _scan(File dir, String relativePath, List files)
+    {
+        File[] children = dir.listFiles();
+        if (children == null)
+        {
+            return;
+        }
+        for (int i = 0; i < children.length; i++)
+        {
+            File child = children[i];
+            String childPath = relativePath + child.getName();
+            _relativePaths.add(childPath);
+            if (child.isDirectory())
+            {
+                _scan(child, childPath + "/", files);
+            }
+            else
+            {
+                files.add(child);
+            }
+        }
+    }
+
+    /**
+     * Return true if a file with the given path (relative to a source dir and
+     * using '/' as separator) exists in any source dir.
+     */
+    public boolean exists(String filename)
+    {
+        String name = filename.replace('\\', '/');
+        while (name.startsWith("/"))
+        {
+            name = name.substring(1);
+        }
+        return _relativePaths.contains(name);
+    }
+
+    /**
+     * Return the scanned source directories, as File objects.
+     */
+    public List getSourceDirs()
+    {
+        return _sourceDirs;
+    }
+
+    /**
+     * Return the files found on the source dir at the given position.
+     */
+    public List getFiles(int sourceDirIndex)
+    {
+        return (List) _files.get(sourceDirIndex);
+    }
+}
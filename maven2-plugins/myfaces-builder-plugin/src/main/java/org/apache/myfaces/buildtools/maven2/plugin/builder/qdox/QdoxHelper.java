@@ -32,6 +32,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.IOUtils;
+import org.apache.myfaces.buildtools.maven2.plugin.builder.SourceFileIndex;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.BehaviorMeta;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ClassMeta;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ComponentMeta;
@@ -489,6 +490,20 @@ public class QdoxHelper
         return !IOUtils.existsSourceFile(tagClassFile, sourceDirs);
     }
     
+    /**
+     * Returns true if the tagClassName is not null, but the corresponding
+     * source file cannot be found in the source dirs of the index.
+     */
+    public static boolean isTagClassMissing(String tagClassName, SourceFileIndex sourceFileIndex)
+    {
+        if (tagClassName == null)
+        {
+            return false;
+        }
+        String tagClassFile = StringUtils.replace(tagClassName,".","/")+".java";
+        return !IOUtils.existsSourceFile(tagClassFile, sourceFileIndex);
+    }
+    
     private static class SourceFileInfo implements FileInfo
     {
         private File file;
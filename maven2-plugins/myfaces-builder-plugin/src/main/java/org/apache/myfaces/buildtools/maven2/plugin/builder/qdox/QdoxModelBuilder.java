@@ -33,6 +33,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.IOUtils;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.ModelBuilder;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.ModelParams;
+import org.apache.myfaces.buildtools.maven2.plugin.builder.SourceFileIndex;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.BehaviorMeta;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ComponentMeta;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ConverterMeta;
@@ -94,7 +95,7 @@ public class QdoxModelBuilder implements ModelBuilder
         });
         JavaClass[] classes = builder.getClasses();
 
-        buildModel(model, parameters.getSourceDirs(), classes);
+        buildModel(model, parameters.getSourceFileIndex(), classes);
         CompositeComponentModelBuilder qccmb = new CompositeComponentModelBuilder();
         qccmb.buildModel(model, parameters);
         TrinidadMavenFacesPluginModelBuilder tmfpmb = new TrinidadMavenFacesPluginModelBuilder();
@@ -103,6 +104,12 @@ public class QdoxModelBuilder implements ModelBuilder
 
     protected void buildModel(Model model, List sourceDirs, JavaClass[] classes)
         throws MojoExecutionException
+    {
+        buildModel(model, new SourceFileIndex(sourceDirs), classes);
+    }
+
+    protected void buildModel(Model model, SourceFileIndex sourceFileIndex, JavaClass[] classes)
+        throws MojoExecutionException
     {
         String currModelId = model.getModelId();
         // Sort the class array so that they are processed in a
@@ -134,13 +141,13 @@ public class QdoxModelBuilder implements ModelBuilder
             //Check if the component class java file exists in the source dirs
             String classname = component.getClassName();
             String classfile = StringUtils.replace(classname,".","/")+".java";
-            if (!IOUtils.existsSourceFile(classfile, sourceDirs))
+            if (!IOUtils.existsSourceFile(classfile, sourceFileIndex))
             {
                 component.setGeneratedComponentClass(Boolean.TRUE);
             }
 
             // Check if the tag class java file exists in the source dirs
-            if (QdoxHelper.isTagClassMissing(component.getTagClass(), sourceDirs))
+            if (QdoxHelper.isTagClassMissing(component.getTagClass(), sourceFileIndex))
             {
                 component.setGeneratedTagClass(Boolean.TRUE);
             }
@@ -158,13 +165,13 @@ public class QdoxModelBuilder implements ModelBuilder
 
             //Check if the converter class file exists
             if (!IOUtils.existsSourceFile(StringUtils.replace(
-                    converter.getClassName(),".","/")+".java", sourceDirs))
+                    converter.getClassName(),".","/")+".java", sourceFileIndex))
             {
                 converter.setGeneratedComponentClass(Boolean.TRUE);
             }
 
             // Check if the tag class java file exists in the source dirs
-            if (QdoxHelper.isTagClassMissing(converter.getTagClass(), sourceDirs))
+            if (QdoxHelper.isTagClassMissing(converter.getTagClass(), sourceFileIndex))
             {
                 converter.setGeneratedTagClass(Boolean.TRUE);
             }
@@ -182,13 +189,13 @@ public class QdoxModelBuilder implements ModelBuilder
             
             //Check if the validator class file exists
             if (!IOUtils.existsSourceFile(StringUtils.replace(
-                    validator.getClassName(),".","/")+".java", sourceDirs))
+                    validator.getClassName(),".","/")+".java", sourceFileIndex))
             {
                 validator.setGeneratedComponentClass(Boolean.TRUE);
             }
 
             // Check if the tag class java file exists in the source dirs
-            if (QdoxHelper.isTagClassMissing(validator.getTagClass(), sourceDirs))
+            if (QdoxHelper.isTagClassMissing(validator.getTagClass(), sourceFileIndex))
             {
                 validator.setGeneratedTagClass(Boolean.TRUE);
             }
@@ -206,7 +213,7 @@ public class QdoxModelBuilder implements ModelBuilder
             
             //Check if the behavior class file exists
             if (!IOUtils.existsSourceFile(StringUtils.replace(
-                    behavior.getClassName(),".","/")+".java", sourceDirs))
+                    behavior.getClassName(),".","/")+".java", sourceFileIndex))
             {
                 behavior.setGeneratedComponentClass(Boolean.TRUE);
             }
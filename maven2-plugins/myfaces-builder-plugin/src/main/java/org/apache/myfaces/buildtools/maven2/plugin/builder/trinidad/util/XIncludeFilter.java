@@ -18,11 +18,17 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.builder.trinidad.util;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Stack;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -30,6 +36,8 @@ import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
@@ -37,6 +45,14 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.NamespaceSupport;
 import org.xml.sax.helpers.XMLFilterImpl;
 
+/**
+ * Replaces xi:include elements with the content of the included documents.
+ * <p>
+ * Each included document is parsed once per filter chain and its SAX events
+ * are recorded, so documents included many times are replayed from memory.
+ * The recorded events are discarded when the document is modified.
+ * </p>
+ */
 public final class XIncludeFilter extends XMLFilterImpl
 {
   public final static String XINCLUDE_NAMESPACE = "http://www.w3.org/2001/XInclude";
@@ -130,23 +146,24 @@ public final class XIncludeFilter extends XMLFilterImpl
 
     try
     {
-      SAXParserFactory saxFactory = SAXParserFactory.newInstance();
-      SAXParser saxParser = saxFactory.newSAXParser();
-      XMLReader reader = saxParser.getXMLReader();
+      SAXEventBuffer events = getEvents(target);
+
+      ContentHandler contentHandler = this;
+      DTDHandler dtdHandler = this;
       if (xpointer != null)
       {
-        // pass all parsed SAX events through XPointerFilter
-        reader = new XPointerFilter(reader, namespaces, xpointer);
+        // pass all recorded SAX events through XPointerFilter
+        XPointerFilter filter = new XPointerFilter(null, namespaces, xpointer);
+        // pass all selected XPointer SAX events to XIncludeFilter
+        filter.setContentHandler(this);
+        filter.setDTDHandler(this);
+        contentHandler = filter;
+        dtdHandler = filter;
       }
-      // pass all selected XPointer SAX events to XIncludeFilter
-      reader.setContentHandler(this);
-      reader.setEntityResolver(this);
-      reader.setErrorHandler(this);
-      reader.setDTDHandler(this);
 
       // push on new base URL in case of nested xi:include
       bases.push(target);
-      reader.parse(new InputSource(target.openStream()));
+      events.replay(contentHandler, dtdHandler);
       bases.pop();
     }
     catch (ParserConfigurationException e)
@@ -161,6 +178,59 @@ public final class XIncludeFilter extends XMLFilterImpl
     }
   }
 
+  private SAXEventBuffer getEvents(
+    URL target) throws IOException, ParserConfigurationException, SAXException
+  {
+    String key = target.toExternalForm();
+    long lastModified = getLastModified(target);
+    SAXEventBuffer events = (SAXEventBuffer) includes.get(key);
+    if (events != null && events.getLastModified() == lastModified)
+      return events;
+
+    if (saxFactory == null)
+      saxFactory = SAXParserFactory.newInstance();
+
+    SAXParser saxParser = saxFactory.newSAXParser();
+    XMLReader reader = saxParser.getXMLReader();
+    events = new SAXEventBuffer(lastModified);
+    reader.setContentHandler(events);
+    reader.setEntityResolver(this);
+    reader.setErrorHandler(this);
+    reader.setDTDHandler(events);
+
+    InputStream in = target.openStream();
+    try
+    {
+      reader.parse(new InputSource(in));
+    }
+    finally
+    {
+      in.close();
+    }
+
+    includes.put(key, events);
+    return events;
+  }
+
+  private static long getLastModified(
+    URL target) throws IOException
+  {
+    if ("file".equals(target.getProtocol()))
+    {
+      try
+      {
+        return new File(target.toURI()).lastModified();
+      }
+      catch (URISyntaxException e)
+      {
+        return new File(target.getPath()).lastModified();
+      }
+    }
+
+    URLConnection connection = target.openConnection();
+    return connection.getLastModified();
+  }
+
   private URL resolveURL(
     String href) throws SAXException
   {
@@ -182,5 +252,9 @@ public final class XIncludeFilter extends XMLFilterImpl
   private Stack bases = new Stack();
   private Stack locators = new Stack();
   private NamespaceSupport namespaces = new NamespaceSupport();
+
+  // included documents parsed by this filter chain, by URL
+  private Map includes = new HashMap();
+  private SAXParserFactory saxFactory;
 }
 
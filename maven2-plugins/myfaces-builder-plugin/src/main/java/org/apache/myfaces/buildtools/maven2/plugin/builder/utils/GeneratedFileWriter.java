@@ -0,0 +1,149 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.builder.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Writes generated files only when their content has changed.
+ * <p>
+ * The generated content is compared with the existing file (first by length,
+ * then byte by byte) and the file is left untouched if it is the same, so its
+ * timestamp is preserved and the compiler does not consider it stale.
+ * </p>
+ * <p>
+ * This class keeps count of the files written and skipped, so it is not thread
+ * safe.
+ * </p>
+ */
+public class GeneratedFileWriter
+{
+    private int _writtenCount;
+    private int _unchangedCount;
+
+    /**
+     * Write the content to the file using the platform default encoding.
+     *
+     * @return true if the file was written, false if it was unchanged
+     */
+    public boolean write(File outFile, String content) throws IOException
+    {
+        return write(outFile, content.getBytes());
+    }
+
+    /**
+     * Write the content to the file.
+     *
+     * @return true if the file was written, false if it was unchanged
+     */
+    public boolean write(File outFile, byte[] content) throws IOException
+    {
+        if (isUnchanged(outFile, content))
+        {
+            _unchangedCount++;
+            return false;
+        }
+
+        if ( outFile.getParentFile() != null && !outFile.getParentFile().exists() )
+        {
+            outFile.getParentFile().mkdirs();
+        }
+
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream(outFile);
+            out.write(content);
+            out.flush();
+        }
+        finally
+        {
+            IOUtil.close(out);
+        }
+        _writtenCount++;
+        return true;
+    }
+
+    public int getWrittenCount()
+    {
+        return _writtenCount;
+    }
+
+    public int getUnchangedCount()
+    {
+        return _unchangedCount;
+    }
+
+    /**
+     * Log how many files were written and how many were up to date.
+     */
+    public void report(Log log)
+    {
+        log.info("Generated files written: " + _writtenCount + ", unchanged: " + _unchangedCount);
+    }
+
+    /**
+     * Return true if the file exists and has exactly the given content.
+     */
+    static boolean isUnchanged(File file, byte[] content) throws IOException
+    {
+        if (!file.isFile() || file.length() != content.length)
+        {
+            return false;
+        }
+
+        InputStream in = null;
+        try
+        {
+            in = new BufferedInputStream(new FileInputStream(file));
+            byte[] buffer = new byte[8192];
+            int offset = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                if (offset + read > content.length)
+                {
+                    return false;
+                }
+                for (int i = 0; i < read; i++)
+                {
+                    if (buffer[i] != content[offset + i])
+                    {
+                        return false;
+                    }
+                }
+                offset += read;
+            }
+            return offset == content.length;
+        }
+        finally
+        {
+            IOUtil.close(in);
+        }
+    }
+}
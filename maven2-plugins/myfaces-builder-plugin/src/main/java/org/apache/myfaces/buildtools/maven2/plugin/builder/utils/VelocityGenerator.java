@@ -0,0 +1,354 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.builder.utils;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.velocity.Template;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.context.Context;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.log.LogChute;
+
+/**
+ * Merges a velocity template for a set of files.
+ * <p>
+ * The velocity engines are created once per template directory and macro
+ * library and shared by all the builder goals, so templates are only parsed
+ * the first time they are used. Only the engines used last are kept. The
+ * merge of each file is done on a bounded pool of threads, each one with its
+ * own context and output buffer, and the generated files are written (and
+ * logged) in the order they were added. Files whose content did not change
+ * are not written again.
+ * </p>
+ */
+public class VelocityGenerator
+{
+    private static final int _MAX_ENGINES = 8;
+
+    private static final Map _engines = new LRUMap(_MAX_ENGINES);
+
+    private final Template _template;
+    private final int _threads;
+    private final Log _log;
+    private final List _files = new ArrayList();
+    private final GeneratedFileWriter _fileWriter = new GeneratedFileWriter();
+
+    /**
+     * Return the shared VelocityEngine that loads templates from the given
+     * directory (falling back to META-INF on the classpath) and uses the
+     * given macro library.
+     */
+    public static VelocityEngine getVelocityEngine(File templateSourceDirectory,
+            String macroLibrary, Log log) throws MojoExecutionException
+    {
+        String key = templateSourceDirectory.getAbsolutePath() + "|" + macroLibrary;
+        synchronized (_engines)
+        {
+            SharedEngine engine = (SharedEngine) _engines.get(key);
+            if (engine == null)
+            {
+                SharedLogChute logChute = new SharedLogChute();
+                engine = new SharedEngine(
+                        _createVelocityEngine(templateSourceDirectory, macroLibrary, logChute),
+                        logChute);
+                _engines.put(key, engine);
+            }
+            engine.logChute.setLog(log);
+            return engine.velocityEngine;
+        }
+    }
+
+    private static VelocityEngine _createVelocityEngine(File templateSourceDirectory,
+            String macroLibrary, LogChute logChute) throws MojoExecutionException
+    {
+        VelocityEngine velocityEngine = new VelocityEngine();
+        try
+        {
+            velocityEngine.setProperty( "resource.loader", "file, class" );
+            velocityEngine.setProperty( "file.resource.loader.class",
+                    "org.apache.velocity.runtime.resource.loader.FileResourceLoader");
+            velocityEngine.setProperty( "file.resource.loader.path",
+                    templateSourceDirectory.getPath());
+            // Keep parsed templates, but look for changes on files
+            velocityEngine.setProperty( "file.resource.loader.cache", "true");
+            velocityEngine.setProperty( "file.resource.loader.modificationCheckInterval", "2");
+            velocityEngine.setProperty( "class.resource.loader.class",
+                    "org.apache.myfaces.buildtools.maven2.plugin.builder.utils."
+                    + "RelativeClasspathResourceLoader" );
+            velocityEngine.setProperty( "class.resource.loader.path", "META-INF");
+            velocityEngine.setProperty( "class.resource.loader.cache", "true");
+            velocityEngine.setProperty( "velocimacro.library", macroLibrary);
+            velocityEngine.setProperty( "velocimacro.permissions.allow.inline","true");
+            velocityEngine.setProperty( "velocimacro.permissions.allow.inline.local.scope", "true");
+            velocityEngine.setProperty( "directive.foreach.counter.initial.value","0");
+
+            velocityEngine.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM, logChute);
+            velocityEngine.init();
+        }
+        catch (Exception e)
+        {
+            throw new MojoExecutionException("Error creating VelocityEngine", e);
+        }
+        return velocityEngine;
+    }
+
+    /**
+     * @param velocityEngine the engine used to load the template
+     * @param templateName the template merged for every file
+     * @param threads the maximum number of threads used to merge the template
+     * @param log the log where the generated files are reported
+     */
+    public VelocityGenerator(VelocityEngine velocityEngine, String templateName,
+            int threads, Log log) throws MojoExecutionException
+    {
+        try
+        {
+            _template = velocityEngine.getTemplate(templateName);
+        }
+        catch (Exception e)
+        {
+            throw new MojoExecutionException(
+                    "Error loading velocity template " + templateName + ": " + e.getMessage(), e);
+        }
+        _threads = threads;
+        _log = log;
+    }
+
+    /**
+     * Add a file to generate. The context must not be shared with other files.
+     *
+     * @param outFile the file to generate
+     * @param context the context used to merge the template
+     * @param message the message logged when the file is generated
+     */
+    public void addFile(File outFile, Context context, String message)
+    {
+        _files.add(new GeneratedFile(outFile, context, message));
+    }
+
+    /**
+     * Merge the template for all the files added and write them.
+     *
+     * @param force if true, errors are logged and the generation continues,
+     *        otherwise the first error stops the generation
+     * @return the files that were generated successfully, including the
+     *         ones that were already up to date
+     */
+    public List generate(boolean force) throws MojoExecutionException
+    {
+        List generated = new ArrayList();
+        if (_files.isEmpty())
+        {
+            return generated;
+        }
+
+        int threads = Math.min(_threads, _files.size());
+        ExecutorService executor = null;
+        if (threads > 1)
+        {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+
+        try
+        {
+            List results = new ArrayList(_files.size());
+            for (Iterator it = _files.iterator(); it.hasNext();)
+            {
+                GeneratedFile file = (GeneratedFile) it.next();
+                if (executor != null)
+                {
+                    results.add(executor.submit(new MergeTask(_template, file.getContext())));
+                }
+                else
+                {
+                    results.add(null);
+                }
+            }
+
+            for (int i = 0; i < _files.size(); i++)
+            {
+                GeneratedFile file = (GeneratedFile) _files.get(i);
+                _log.info(file.getMessage());
+                try
+                {
+                    String content;
+                    if (executor != null)
+                    {
+                        content = (String) ((Future) results.get(i)).get();
+                    }
+                    else
+                    {
+                        content = new MergeTask(_template, file.getContext()).call();
+                    }
+                    _fileWriter.write(file.getOutFile(), content);
+                    generated.add(file.getOutFile());
+                }
+                catch (Exception e)
+                {
+                    Throwable cause = e;
+                    if (e instanceof ExecutionException && e.getCause() != null)
+                    {
+                        cause = e.getCause();
+                    }
+                    MojoExecutionException me = new MojoExecutionException(
+                            "Error merging velocity templates: " + cause.getMessage(), cause);
+                    if (force)
+                    {
+                        _log.error(me.getMessage());
+                    }
+                    else
+                    {
+                        //Stop execution throwing exception
+                        throw me;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            if (executor != null)
+            {
+                executor.shutdownNow();
+            }
+            _files.clear();
+        }
+        _fileWriter.report(_log);
+        return generated;
+    }
+
+    private static class GeneratedFile
+    {
+        private final File _outFile;
+        private final Context _context;
+        private final String _message;
+
+        public GeneratedFile(File outFile, Context context, String message)
+        {
+            _outFile = outFile;
+            _context = context;
+            _message = message;
+        }
+
+        public File getOutFile()
+        {
+            return _outFile;
+        }
+
+        public Context getContext()
+        {
+            return _context;
+        }
+
+        public String getMessage()
+        {
+            return _message;
+        }
+    }
+
+    private static class MergeTask implements Callable
+    {
+        private final Template _template;
+        private final Context _context;
+
+        public MergeTask(Template template, Context context)
+        {
+            _template = template;
+            _context = context;
+        }
+
+        public String call() throws Exception
+        {
+            StringWriter writer = new StringWriter();
+            _template.merge(_context, writer);
+            return writer.toString();
+        }
+    }
+
+    private static final class SharedEngine
+    {
+        final VelocityEngine velocityEngine;
+        final SharedLogChute logChute;
+
+        SharedEngine(VelocityEngine velocityEngine, SharedLogChute logChute)
+        {
+            this.velocityEngine = velocityEngine;
+            this.logChute = logChute;
+        }
+    }
+
+    /**
+     * Logs the messages of a shared engine to the log of the goal that asked
+     * for the engine last. The log is weakly referenced, so a cached engine
+     * does not keep a finished goal alive.
+     */
+    private static final class SharedLogChute extends MavenPluginConsoleLogSystem
+    {
+        private volatile WeakReference _log = new WeakReference(null);
+
+        SharedLogChute()
+        {
+            super(null);
+        }
+
+        void setLog(Log log)
+        {
+            _log = new WeakReference(log);
+        }
+
+        public Log getLogger()
+        {
+            Log log = (Log) _log.get();
+            return (log != null) ? log : _FALLBACK_LOG;
+        }
+
+        private static final Log _FALLBACK_LOG = new SystemStreamLog();
+    }
+
+    private static final class LRUMap extends LinkedHashMap
+    {
+        private final int _maxSize;
+
+        LRUMap(int maxSize)
+        {
+            super(16, 0.75f, true);
+            _maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry eldest)
+        {
+            return size() > _maxSize;
+        }
+    }
+}
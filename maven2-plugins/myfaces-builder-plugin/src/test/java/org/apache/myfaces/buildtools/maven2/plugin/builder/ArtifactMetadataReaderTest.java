@@ -0,0 +1,243 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.builder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the artifact metadata reader and its caches.
+ */
+public class ArtifactMetadataReaderTest extends TestCase
+{
+    private static final String RESOURCE = "META-INF/myfaces-metadata.xml";
+
+    private File directory;
+
+    private File cacheDirectory;
+
+    protected void setUp() throws Exception
+    {
+        directory = new File("target/artifact-metadata-test/" + getName()).getAbsoluteFile();
+        FileUtils.deleteDirectory(directory);
+        directory.mkdirs();
+        cacheDirectory = new File(directory, "cache");
+    }
+
+    public void testReadJars() throws Exception
+    {
+        File withMetadata = createJar("with.jar", "<model>jar</model>");
+        File withoutMetadata = createJar("without.jar", null);
+        File missing = new File(directory, "missing.jar");
+
+        List contents = new ArtifactMetadataReader(RESOURCE, null).read(
+            Arrays.asList(new File[] { withoutMetadata, withMetadata, missing }));
+
+        assertEquals(3, contents.size());
+        assertNull(contents.get(0));
+        assertEquals("<model>jar</model>", new String((byte[]) contents.get(1), "UTF-8"));
+        assertNull(contents.get(2));
+    }
+
+    public void testReadDirectory() throws Exception
+    {
+        File classes = new File(directory, "classes");
+        File resource = new File(classes, RESOURCE);
+        resource.getParentFile().mkdirs();
+        FileUtils.fileWrite(resource.getPath(), "<model>directory</model>");
+
+        ArtifactMetadataReader reader = new ArtifactMetadataReader(RESOURCE, cacheDirectory);
+        assertContent("<model>directory</model>", reader.read(classes));
+
+        // a directory is read again, whatever its timestamp
+        long lastModified = resource.lastModified();
+        FileUtils.fileWrite(resource.getPath(), "<model>changed</model>");
+        resource.setLastModified(lastModified);
+        classes.setLastModified(lastModified);
+        assertContent("<model>changed</model>", reader.read(classes));
+        assertContent("<model>changed</model>",
+                       new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(classes));
+
+        assertTrue(resource.delete());
+        assertNull(reader.read(classes));
+    }
+
+    public void testDiskCacheIsUsed() throws Exception
+    {
+        File withMetadata = createJar("with.jar", "<model>jar</model>");
+        File withoutMetadata = createJar("without.jar", null);
+        List files = Arrays.asList(new File[] { withMetadata, withoutMetadata });
+        new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(files);
+
+        // the jars cannot be opened again, but have their size and date
+        corrupt(withMetadata);
+        corrupt(withoutMetadata);
+        clearMemoryCache();
+
+        List contents = new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(files);
+        assertContent("<model>jar</model>", (byte[]) contents.get(0));
+        assertNull(contents.get(1));
+    }
+
+    public void testDiskCacheSizeChange() throws Exception
+    {
+        File jar = createJar("artifact.jar", "<model>jar</model>");
+        long lastModified = jar.lastModified();
+        long length = jar.length();
+        new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(jar);
+
+        createJar("artifact.jar", "<model>a larger jar</model>");
+        jar.setLastModified(lastModified);
+        assertTrue(length != jar.length());
+        clearMemoryCache();
+
+        assertContent("<model>a larger jar</model>",
+                       new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(jar));
+    }
+
+    public void testDiskCacheDateChange() throws Exception
+    {
+        File jar = createJar("artifact.jar", "<model>jar1</model>");
+        long lastModified = jar.lastModified();
+        long length = jar.length();
+        new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(jar);
+
+        createJar("artifact.jar", "<model>jar2</model>");
+        jar.setLastModified(lastModified - 10000);
+        assertEquals(length, jar.length());
+        clearMemoryCache();
+
+        assertContent("<model>jar2</model>",
+                       new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(jar));
+
+        // the index records the new date
+        corrupt(jar);
+        clearMemoryCache();
+        assertContent("<model>jar2</model>",
+                       new ArtifactMetadataReader(RESOURCE, cacheDirectory).read(jar));
+    }
+
+    public void testMemoryCacheSizeAndDateChange() throws Exception
+    {
+        File jar = createJar("artifact.jar", "<model>jar1</model>");
+        long lastModified = jar.lastModified();
+        ArtifactMetadataReader reader = new ArtifactMetadataReader(RESOURCE, null);
+        assertContent("<model>jar1</model>", reader.read(jar));
+
+        createJar("artifact.jar", "<model>jar2</model>");
+        jar.setLastModified(lastModified - 10000);
+        assertContent("<model>jar2</model>", reader.read(jar));
+
+        createJar("artifact.jar", "<model>larger jar3</model>");
+        jar.setLastModified(lastModified - 10000);
+        assertContent("<model>larger jar3</model>", reader.read(jar));
+    }
+
+    public void testContentCacheIsBounded() throws Exception
+    {
+        ArtifactMetadataReader.ContentCache cache =
+            new ArtifactMetadataReader.ContentCache(3000);
+
+        cache.put("a", new byte[1000]);
+        cache.put("b", new byte[1000]);
+        // a is now the most recently used entry
+        assertNotNull(cache.get("a"));
+        cache.put("c", new byte[1000]);
+
+        assertFalse(cache.containsKey("b"));
+        assertTrue(cache.containsKey("a"));
+        assertTrue(cache.containsKey("c"));
+        assertTrue(cache.getCachedBytes() <= 3000);
+
+        // replacing an entry does not count its content twice
+        cache.put("c", new byte[10]);
+        assertEquals(1000 + 10 + 2 * 128, cache.getCachedBytes());
+    }
+
+    private File createJar(String name, String metadata) throws IOException
+    {
+        File file = new File(directory, name);
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+        try
+        {
+            out.putNextEntry(new ZipEntry("org/example/Component.class"));
+            out.write(new byte[100]);
+            out.closeEntry();
+            if (metadata != null)
+            {
+                out.putNextEntry(new ZipEntry(RESOURCE));
+                out.write(metadata.getBytes("UTF-8"));
+                out.closeEntry();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Writes over a jar file, keeping its size and date.
+     */
+    private static void corrupt(File file) throws IOException
+    {
+        long lastModified = file.lastModified();
+        byte[] content = new byte[(int) file.length()];
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content);
+        }
+        finally
+        {
+            out.close();
+        }
+        file.setLastModified(lastModified);
+    }
+
+    private static void clearMemoryCache() throws Exception
+    {
+        Field field = ArtifactMetadataReader.class.getDeclaredField("_memoryCache");
+        field.setAccessible(true);
+        Map cache = (Map) field.get(null);
+        synchronized (cache)
+        {
+            cache.clear();
+        }
+    }
+
+    private static void assertContent(String expected, byte[] content) throws IOException
+    {
+        assertNotNull(content);
+        assertEquals(expected, new String(content, "UTF-8"));
+    }
+}
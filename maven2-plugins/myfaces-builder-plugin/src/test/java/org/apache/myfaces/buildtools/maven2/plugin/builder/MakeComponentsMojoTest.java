@@ -18,8 +18,17 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.builder;
 
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import junit.framework.TestCase;
 
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.myfaces.buildtools.maven2.plugin.builder.model.ComponentMeta;
+
 /**
  * Tests the component generation mojo
  */
@@ -39,4 +48,54 @@ public class MakeComponentsMojoTest extends TestCase
         assertEquals(null, MakeComponentsMojo.cleanInitializationExpression("  "));
         assertEquals(null, MakeComponentsMojo.cleanInitializationExpression("  // blah"));
     }
+
+    public void testInnerSourceQualifiesProjectTypes() throws Exception
+    {
+        File sourceDir = _getTemplateSourceDir();
+        List sourceDirs = Collections.singletonList(sourceDir.getAbsolutePath());
+        List sourceFiles = new ArrayList();
+        sourceFiles.add(new File(sourceDir, "templatepkg/ComponentTemplate.java"));
+
+        ComponentMeta component = new ComponentMeta();
+        component.setSourceClassName("templatepkg.ComponentTemplate");
+
+        String source = new MakeComponentsMojo().getInnerSourceCode(
+            new MakeComponentsMojo.TemplateSourceBuilder(sourceFiles, sourceDirs),
+            component);
+
+        // same package type
+        assertTrue(source, source.indexOf("private templatepkg.TemplateHelper helper") >= 0);
+        assertTrue(source, source.indexOf("public templatepkg.TemplateHelper getHelper()") >= 0);
+        // wildcard imported type
+        assertTrue(source, source.indexOf(
+            "public helperpkg.OtherHelper createOther(templatepkg.TemplateHelper source)") >= 0);
+    }
+
+    public void testMissingTemplateSourceFails() throws Exception
+    {
+        File sourceDir = _getTemplateSourceDir();
+        List sourceDirs = Collections.singletonList(sourceDir.getAbsolutePath());
+
+        ComponentMeta component = new ComponentMeta();
+        component.setSourceClassName("templatepkg.MissingTemplate");
+
+        try
+        {
+            new MakeComponentsMojo().getInnerSourceCode(
+                new MakeComponentsMojo.TemplateSourceBuilder(new ArrayList(), sourceDirs),
+                component);
+            fail("missing template source accepted");
+        }
+        catch (MojoExecutionException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().indexOf("templatepkg.MissingTemplate") >= 0);
+        }
+    }
+
+    private File _getTemplateSourceDir()
+    {
+        URL sourceUrl = this.getClass().getClassLoader().getResource(
+                "builder/template/templatepkg/ComponentTemplate.java");
+        return new File(sourceUrl.getFile()).getParentFile().getParentFile();
+    }
 }
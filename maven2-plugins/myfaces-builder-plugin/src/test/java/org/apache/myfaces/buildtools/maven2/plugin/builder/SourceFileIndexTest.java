@@ -0,0 +1,53 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.builder;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the index of files in the source directories.
+ */
+public class SourceFileIndexTest extends TestCase
+{
+    public void testExists() throws Exception
+    {
+        URL sourceUrl = this.getClass().getClassLoader().getResource(
+                "builder/generation/testpkg/ComponentBase.java");
+        File baseDir = new File(sourceUrl.getFile()).getParentFile().getParentFile();
+        List sourceDirs = new ArrayList();
+        sourceDirs.add(baseDir.getAbsolutePath());
+        sourceDirs.add(new File(baseDir, "missing"));
+
+        SourceFileIndex index = new SourceFileIndex(sourceDirs);
+
+        assertTrue(index.exists("testpkg/ComponentBase.java"));
+        assertTrue(index.exists("/testpkg/ComponentBase.java"));
+        assertFalse(index.exists("testpkg/ComponentMissing.java"));
+        assertFalse(index.exists("ComponentBase.java"));
+
+        assertEquals(2, index.getSourceDirs().size());
+        assertTrue(index.getFiles(0).contains(new File(baseDir, "testpkg/ComponentBase.java")));
+        assertEquals(0, index.getFiles(1).size());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.builder.utils;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that generated files are only written when their content changes.
+ */
+public class GeneratedFileWriterTest extends TestCase
+{
+    public void testWriteIfChanged() throws Exception
+    {
+        File outFile = new File("target/generated-file-writer/Foo.java");
+        outFile.delete();
+
+        GeneratedFileWriter writer = new GeneratedFileWriter();
+        assertTrue(writer.write(outFile, "class Foo {}"));
+        assertFalse(writer.write(outFile, "class Foo {}"));
+        assertTrue(writer.write(outFile, "class Foo {} "));
+        assertTrue(writer.write(outFile, "class Bar {} "));
+
+        assertEquals(3, writer.getWrittenCount());
+        assertEquals(1, writer.getUnchangedCount());
+    }
+
+    public void testIsUnchanged() throws Exception
+    {
+        File outFile = new File("target/generated-file-writer/Bar.java");
+        outFile.delete();
+
+        assertFalse(GeneratedFileWriter.isUnchanged(outFile, "abc".getBytes()));
+        new GeneratedFileWriter().write(outFile, "abc");
+        assertTrue(GeneratedFileWriter.isUnchanged(outFile, "abc".getBytes()));
+        assertFalse(GeneratedFileWriter.isUnchanged(outFile, "abd".getBytes()));
+        assertFalse(GeneratedFileWriter.isUnchanged(outFile, "abcd".getBytes()));
+    }
+}
@@ -0,0 +1,8 @@
+package helperpkg;
+
+/**
+ * A type imported by the template with a wildcard import.
+ */
+public class OtherHelper
+{
+}
@@ -0,0 +1,22 @@
+package templatepkg;
+
+import helperpkg.*;
+
+/**
+ * A component template whose inner source uses project types that are
+ * not imported by name.
+ */
+public abstract class ComponentTemplate
+{
+    private TemplateHelper helper;
+
+    public TemplateHelper getHelper()
+    {
+        return helper;
+    }
+
+    public OtherHelper createOther(TemplateHelper source)
+    {
+        return new OtherHelper();
+    }
+}
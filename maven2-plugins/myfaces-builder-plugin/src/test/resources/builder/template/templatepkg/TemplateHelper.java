@@ -0,0 +1,8 @@
+package templatepkg;
+
+/**
+ * A type of the same package as the template.
+ */
+public class TemplateHelper
+{
+}
@@ -32,6 +32,7 @@ import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.AttributeBean;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ComponentBean;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ConverterBean;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.FacesConfigParser;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.FacesConfigSnapshot;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ValidatorBean;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.AttributeFilter;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.ComponentFilter;
@@ -53,7 +54,6 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.net.URLConnection;
 import java.util.*;
 
 abstract public class AbstractFacesMojo extends AbstractMojo
@@ -136,6 +136,24 @@ abstract public class AbstractFacesMojo extends AbstractMojo
       }
       else
       {
+        // the index is shared by all the goals of the build, as long
+        // as the master configs are not modified
+        URL[] masterURLs = (URL[])masters.toArray(new URL[masters.size()]);
+        long[] masterModified = FacesConfigSnapshot.getLastModified(masterURLs);
+        StringBuffer key = new StringBuffer();
+        for (int i=0; i < masterURLs.length; i++)
+        {
+          key.append(masterURLs[i].toExternalForm()).append('|');
+          key.append(masterModified[i]).append('\n');
+        }
+
+        synchronized (_INDEXES)
+        {
+          URL[] index = (URL[])_INDEXES.get(key.toString());
+          if (index != null)
+            return (URL[])index.clone();
+        }
+
         List entries = new LinkedList();
 
         SAXParserFactory spf = SAXParserFactory.newInstance();
@@ -161,7 +179,12 @@ abstract public class AbstractFacesMojo extends AbstractMojo
           digester.parse(url.openStream());
         }
 
-        return (URL[])entries.toArray(new URL[0]);
+        URL[] index = (URL[])entries.toArray(new URL[0]);
+        synchronized (_INDEXES)
+        {
+          _INDEXES.put(key.toString(), index.clone());
+        }
+        return index;
       }
     }
     catch (ParserConfigurationException e)
@@ -182,10 +205,10 @@ abstract public class AbstractFacesMojo extends AbstractMojo
     URL[] urls,
     long  lastModified) throws IOException
   {
-    for (int i=0; i < urls.length; i++)
+    long[] modified = FacesConfigSnapshot.getLastModified(urls);
+    for (int i=0; i < modified.length; i++)
     {
-      URLConnection conn = urls[i].openConnection();
-      if (conn.getLastModified() > lastModified)
+      if (modified[i] > lastModified)
         return true;
     }
 
@@ -275,12 +298,57 @@ abstract public class AbstractFacesMojo extends AbstractMojo
     MavenProject project,
     String       resourcePath) throws MojoExecutionException
   {
-    _facesConfig = new FacesConfigBean();
-
     URL[] index = readIndex(project, resourcePath);
+
+    StringBuffer key = new StringBuffer();
     for (int i=0; i < index.length; i++)
     {
-      processIndexEntry(index[i]);
+      key.append(index[i].toExternalForm()).append('\n');
+    }
+
+    try
+    {
+      FacesConfigSnapshot snapshot;
+      synchronized (_SNAPSHOTS)
+      {
+        snapshot = (FacesConfigSnapshot)_SNAPSHOTS.get(key.toString());
+      }
+
+      if (snapshot == null && indexCacheFile != null)
+      {
+        snapshot = FacesConfigSnapshot.read(indexCacheFile);
+        if (snapshot != null && !key.toString().equals(snapshot.getKey()))
+          snapshot = null;
+      }
+
+      if (snapshot != null && snapshot.isUpToDate())
+      {
+        if (getLog().isDebugEnabled())
+          getLog().debug("Using parsed faces config index");
+      }
+      else
+      {
+        _facesConfig = new FacesConfigBean();
+        for (int i=0; i < index.length; i++)
+        {
+          processIndexEntry(index[i]);
+        }
+
+        snapshot = new FacesConfigSnapshot(key.toString(), index, _facesConfig);
+        if (indexCacheFile != null)
+          snapshot.write(indexCacheFile);
+      }
+
+      synchronized (_SNAPSHOTS)
+      {
+        _SNAPSHOTS.put(key.toString(), snapshot);
+      }
+
+      _facesConfig = snapshot.getFacesConfig();
+    }
+    catch (IOException e)
+    {
+      throw new MojoExecutionException("Failed to process faces config index", e);
     }
   }
 
@@ -646,11 +714,43 @@ abstract public class AbstractFacesMojo extends AbstractMojo
    */
   private File localResource;
 
+  /**
+   * File where the merged faces config index is stored, so it is not
+   * parsed again by later builds while the faces config documents are
+   * not modified.  When not set, the merged index is only shared by the
+   * goals executed in the same build.
+   *
+   * @parameter expression="${maven.faces.indexCacheFile}"
+   */
+  private File indexCacheFile;
 
 
   private FacesConfigBean _facesConfig;
   private String _licenseHeader;
 
+  // index and merged faces config of the last projects, shared by all
+  // the goals of the build
+  static final private Map _INDEXES = new _LRUMap(8);
+  static final private Map _SNAPSHOTS = new _LRUMap(8);
+
+  static final private class _LRUMap extends LinkedHashMap
+  {
+    public _LRUMap(
+      int maxSize)
+    {
+      super(16, 0.75f, true);
+      _maxSize = maxSize;
+    }
+
+    protected boolean removeEldestEntry(
+      Map.Entry eldest)
+    {
+      return size() > _maxSize;
+    }
+
+    private final int _maxSize;
+  }
+
   static final private String _AUTO_GENERATE_WARNING =
 "// WARNING: This file was automatically generated. Do not edit it directly,\n"+
 "//          or you will lose your changes.\n\n";
@@ -19,24 +19,46 @@
 package org.apache.myfaces.buildtools.maven2.plugin.faces;
 
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.generator.component.AbstractComponentGenerator;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.generator.component.ComponentGenerator;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.generator.component.MyFacesComponentGenerator;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.generator.component.TrinidadComponentGenerator;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.io.PrettyWriter;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ComponentBean;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ComponentFingerprint;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.FacesConfigBean;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.FacesConfigSnapshot;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.util.BufferedLog;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.ComponentFilter;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.FilteredIterator;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.SourceTemplate;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.Util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @version $Id$
@@ -88,10 +110,16 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
       components = new FilteredIterator(components,
                                         new ComponentTypeFilter(typePrefix));
 
+      ComponentFingerprint fingerprint =
+                      new ComponentFingerprint(_getGeneratorVersion());
+      Properties manifest = _readManifest();
+      Map fingerprints = new HashMap();
+
       // incremental unless forced
       if (!force)
       {
-        components = new FilteredIterator(components, new IfModifiedFilter());
+        components = new FilteredIterator(components,
+                  new IfModifiedFilter(fingerprint, manifest, fingerprints));
       }
 
       if (!components.hasNext())
@@ -100,16 +128,124 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
       }
       else
       {
-        int count = 0;
+        List generated = new ArrayList();
         while (components.hasNext())
         {
           ComponentBean component = (ComponentBean)components.next();
           if (!component.isComponentClassExcluded()){
-              _generateComponent(component);
-              count++;
+              generated.add(component);
           }          
         }
-        getLog().info("Generated " + count + " component(s)");
+        boolean[] written = _generateComponents(generated);
+        getLog().info("Generated " + generated.size() + " component(s)");
+
+        // remember the fingerprints of the components written,
+        // so they are not generated again until they change
+        for (int i=0; i < written.length; i++)
+        {
+          if (written[i])
+          {
+            ComponentBean component = (ComponentBean)generated.get(i);
+            String componentClass = component.getComponentClass();
+            String hash = (String)fingerprints.get(componentClass);
+            if (hash == null)
+              hash = fingerprint.getFingerprint(component,
+                                                _getTemplateFile(component));
+            manifest.setProperty(componentClass, hash);
+          }
+        }
+        _writeManifest(manifest);
+      }
+    }
+  }
+
+  /**
+   * Generates the parsed components on a pool of threads. The messages
+   * of each component are logged in the order of the components.
+   *
+   * @param components  the parsed components metadata
+   *
+   * @return  for each component, true if its source has been written
+   */
+  private boolean[] _generateComponents(
+    List components) throws MojoExecutionException
+  {
+    boolean[] written = new boolean[components.size()];
+
+    int threads = generationThreads;
+    if (threads <= 0)
+      threads = Runtime.getRuntime().availableProcessors();
+    threads = Math.min(threads, components.size());
+
+    if (threads <= 1)
+    {
+      for (int i=0; i < components.size(); i++)
+      {
+        written[i] = _generateComponent((ComponentBean)components.get(i),
+                                        getLog());
+      }
+      return written;
+    }
+
+    // read the license header before the components share it
+    getLicenseHeader();
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List logs = new ArrayList(components.size());
+    List results = new ArrayList(components.size());
+    try
+    {
+      for (int i=0; i < components.size(); i++)
+      {
+        final ComponentBean component = (ComponentBean)components.get(i);
+        final BufferedLog log = new BufferedLog(getLog());
+        logs.add(log);
+        results.add(executor.submit(new Callable()
+          {
+            public Object call() throws MojoExecutionException
+            {
+              return Boolean.valueOf(_generateComponent(component, log));
+            }
+          }));
+      }
+
+      for (int i=0; i < results.size(); i++)
+      {
+        try
+        {
+          Boolean result = (Boolean)((Future)results.get(i)).get();
+          written[i] = result.booleanValue();
+        }
+        finally
+        {
+          ((BufferedLog)logs.get(i)).flush();
+        }
+      }
+
+      return written;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted generating components", e);
+    }
+    catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof MojoExecutionException)
+        throw (MojoExecutionException)e.getCause();
+
+      throw new MojoExecutionException("Error generating components", e.getCause());
+    }
+    finally
+    {
+      executor.shutdownNow();
+
+      // after a failure, the messages of the components already generated
+      // are still written; flushing a log twice writes nothing the second time
+      for (int i=0; i < results.size(); i++)
+      {
+        if (((Future)results.get(i)).isDone())
+          ((BufferedLog)logs.get(i)).flush();
       }
     }
   }
@@ -118,9 +254,13 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
    * Generates a parsed component.
    *
    * @param component  the parsed component metadata
+   * @param log        the log for the component messages
+   *
+   * @return  true if the component source has been written
    */
-  private void _generateComponent(
-    ComponentBean component) throws MojoExecutionException
+  private boolean _generateComponent(
+    ComponentBean component,
+    Log           log) throws MojoExecutionException
   {
     ComponentGenerator generator;
 
@@ -128,16 +268,16 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
 
     if (component.isTrinidadComponent())
     {
-      generator = new TrinidadComponentGenerator(getLog(), _is12());
+      generator = new TrinidadComponentGenerator(log, _is12());
     }
     else 
     {
-      generator = new MyFacesComponentGenerator(getLog(),_is12() );
+      generator = new MyFacesComponentGenerator(log,_is12() );
     }
 
     try
     {
-      getLog().debug("Generating " + fullClassName+", with generator: "+generator.getClass().getName());
+      log.debug("Generating " + fullClassName+", with generator: "+generator.getClass().getName());
 
       String sourcePath = Util.convertClassToSourcePath(fullClassName, ".java");
       File targetFile = new File(generatedSourceDirectory, sourcePath);
@@ -150,8 +290,9 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
 
       if (componentFamily == null)
       {
-        getLog().warn("Missing <component-family> for \"" +
+        log.warn("Missing <component-family> for \"" +
                        fullClassName + "\", generation of this Component is skipped");
+        return false;
       }
       else
       {
@@ -177,13 +318,12 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
         String componentType = component.getComponentType();
 
         // Use template file if it exists
-        String templatePath = Util.convertClassToSourcePath(fullClassName, "Template.java");
-        File templateFile = new File(templateSourceDirectory, templatePath);
+        File templateFile = _getTemplateFile(component);
 
         SourceTemplate template = null;
         if (templateFile.exists())
         {
-          getLog().debug("Using template " + templatePath);
+          log.debug("Using template " + templateFile.getName());
           template = new SourceTemplate(templateFile);
           template.substitute(className + "Template", className);
           template.readPreface();
@@ -259,29 +399,136 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
         fw.write(buf.toString());
         fw.close();
         targetFile.setReadOnly();
+        return true;
       }
     }
     catch (IOException e)
     {
-      getLog().error("Error generating " + fullClassName, e);
+      log.error("Error generating " + fullClassName, e);
+      return false;
+    }
+  }
+
+  private File _getTemplateFile(
+    ComponentBean component)
+  {
+    String templatePath =
+      Util.convertClassToSourcePath(component.getComponentClass(), "Template.java");
+    return new File(templateSourceDirectory, templatePath);
+  }
+
+  /**
+   * Returns the version of the generated sources: the classes that
+   * generate them, and the options that change them.
+   */
+  private String _getGeneratorVersion() throws IOException, MojoExecutionException
+  {
+    Class[] generatorClasses = new Class[]
+    {
+      GenerateComponentsMojo.class,
+      AbstractComponentGenerator.class,
+      MyFacesComponentGenerator.class,
+      TrinidadComponentGenerator.class
+    };
+
+    List classFiles = new ArrayList();
+    for (int i=0; i < generatorClasses.length; i++)
+    {
+      String className = generatorClasses[i].getName();
+      URL classFile = generatorClasses[i].getClassLoader().getResource(
+                                   className.replace('.', '/') + ".class");
+      if (classFile != null)
+        classFiles.add(classFile);
+    }
+
+    URL[] urls = (URL[])classFiles.toArray(new URL[classFiles.size()]);
+    long[] lastModified = FacesConfigSnapshot.getLastModified(urls);
+
+    StringBuffer version = new StringBuffer();
+    for (int i=0; i < urls.length; i++)
+    {
+      version.append(urls[i].toExternalForm()).append('|');
+      version.append(lastModified[i]).append('\n');
+    }
+    version.append(_is12()).append('|');
+    version.append(suppressListenerMethods).append('\n');
+    version.append(getLicenseHeader());
+    return version.toString();
+  }
+
+  private Properties _readManifest() throws IOException
+  {
+    Properties manifest = new Properties();
+    if (fingerprintFile.isFile())
+    {
+      InputStream in = new BufferedInputStream(new FileInputStream(fingerprintFile));
+      try
+      {
+        manifest.load(in);
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    return manifest;
+  }
+
+  private void _writeManifest(
+    Properties manifest) throws IOException
+  {
+    fingerprintFile.getParentFile().mkdirs();
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(fingerprintFile));
+    try
+    {
+      manifest.store(out, "Fingerprints of the generated components");
+    }
+    finally
+    {
+      out.close();
     }
   }
 
   private class IfModifiedFilter extends ComponentFilter
   {
+    public IfModifiedFilter(
+      ComponentFingerprint fingerprint,
+      Properties           manifest,
+      Map                  fingerprints)
+    {
+      _fingerprint = fingerprint;
+      _manifest = manifest;
+      _fingerprints = fingerprints;
+    }
+
     protected boolean accept(
       ComponentBean component)
     {
       String componentClass = component.getComponentClass();
       String sourcePath = Util.convertClassToSourcePath(componentClass, ".java");
-      String templatePath = Util.convertClassToSourcePath(componentClass, "Template.java");
       File targetFile = new File(generatedSourceDirectory, sourcePath);
-      File templateFile = new File(templateSourceDirectory, templatePath);
 
-      // accept if templateFile is newer or component has been modified
-      return (templateFile.lastModified() > targetFile.lastModified() ||
-              component.isModifiedSince(targetFile.lastModified()));
+      String hash;
+      try
+      {
+        hash = _fingerprint.getFingerprint(component,
+                                           _getTemplateFile(component));
+      }
+      catch (IOException e)
+      {
+        getLog().warn("Cannot compute the fingerprint of " + componentClass, e);
+        return true;
+      }
+      _fingerprints.put(componentClass, hash);
+
+      // accept if the target is missing or the fingerprint has changed
+      return (!targetFile.exists() ||
+              !hash.equals(_manifest.getProperty(componentClass)));
     }
+
+    private final ComponentFingerprint _fingerprint;
+    private final Properties           _manifest;
+    private final Map                  _fingerprints;
   }
 
   private boolean _is12()
@@ -340,4 +587,21 @@ public class GenerateComponentsMojo extends AbstractFacesMojo
    * @parameter
    */
   private String jsfVersion;
+
+  /**
+   * Number of threads used to generate the components. Defaults to the
+   * number of available processors.
+   *
+   * @parameter expression="${maven.faces.generationThreads}"
+   */
+  private int generationThreads;
+
+  /**
+   * File with the fingerprints of the generated components, used to
+   * generate only the components that have changed since the last build.
+   *
+   * @parameter expression="${project.build.directory}/maven-faces-plugin/generate-components.properties"
+   * @required
+   */
+  private File fingerprintFile;
 }
@@ -18,31 +18,17 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.faces;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 
 import java.util.Iterator;
 import java.util.Map;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.sax.SAXSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ComponentBean;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ConverterBean;
@@ -50,17 +36,13 @@ import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.FacesConfigBean;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.ValidatorBean;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.FilteredIterator;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.XIncludeFilter;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.util.XIncludeStreamWriter;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 
 import org.codehaus.plexus.util.FileUtils;
 
-import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
-
 /**
  * @version $Id$
  * @requiresDependencyResolution compile
@@ -112,59 +94,32 @@ public class GenerateFaceletsTaglibsMojo extends AbstractFacesMojo
         if ((components.hasNext()||validators.hasNext()||converters.hasNext())
             && configFile.exists())
         {
-          ByteArrayOutputStream out = new ByteArrayOutputStream();
-          XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
-          XMLStreamWriter stream = outputFactory.createXMLStreamWriter(out);
-
-          _writeStartTagLibrary(stream, _XINCLUDE_FACELETS_TAG_LIBRARY_DTD);
-          // base goes first
-          stream.writeStartElement("xi", "include",
-                                   XIncludeFilter.XINCLUDE_NAMESPACE);
-          stream.writeNamespace("xi", XIncludeFilter.XINCLUDE_NAMESPACE);
-          stream.writeAttribute("href", configFile.toURL().toExternalForm());
-          stream.writeAttribute("xpointer", "/facelet-taglib/*");
-          stream.writeEndElement();
-          _writeTags(components, validators, converters, stream);
-
-          _writeEndTagLibrary(stream);
-          stream.close();
-
-          InputStream mergedStream = new ByteArrayInputStream(out.toByteArray());
-
-          // expand all the xi:include elements
-          SAXParserFactory saxFactory = SAXParserFactory.newInstance();
-          saxFactory.setNamespaceAware(true);
-          saxFactory.setValidating(false);
-          SAXParser saxParser = saxFactory.newSAXParser();
-          XMLReader mergedReader = saxParser.getXMLReader();
-          mergedReader = new XIncludeFilter(mergedReader, configFile.toURL());
-          // even with validating=false, DTD is still downloaded so that
-          // any entities contained in the document can be expanded.
-          // the following disables that behavior, also saving the time
-          // spent to parse the DTD
-          mergedReader.setEntityResolver(new EntityResolver()
-            {
-              public InputSource resolveEntity(
-                String publicId,
-                String systemId)
-              {
-                return new InputSource(new ByteArrayInputStream(new byte[0]));
-              }
-            });
-          InputSource mergedInput = new InputSource(mergedStream);
-          Source mergedSource = new SAXSource(mergedReader, mergedInput);
-
-          targetFile.delete();
           targetFile.getParentFile().mkdirs();
-          Result mergedResult = new StreamResult(targetFile);
-
-          TransformerFactory transFactory = TransformerFactory.newInstance();
-          Transformer identity = transFactory.newTransformer();
-          identity.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC,
-                                     _FACELETS_TAG_LIBRARY_DOCTYPE_PUBLIC);
-          identity.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM,
-                                     _FACELETS_TAG_LIBRARY_DOCTYPE_SYSTEM);
-          identity.transform(mergedSource, mergedResult);
+          OutputStream out = new FileOutputStream(targetFile);
+          try
+          {
+            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+            XMLStreamWriter stream = outputFactory.createXMLStreamWriter(out);
+            // expand all the xi:include elements while writing
+            stream = new XIncludeStreamWriter(stream, configFile.toURL());
+
+            _writeStartTagLibrary(stream, _FACELETS_TAG_LIBRARY_DTD);
+            // base goes first
+            stream.writeStartElement("xi", "include",
+                                     XIncludeFilter.XINCLUDE_NAMESPACE);
+            stream.writeNamespace("xi", XIncludeFilter.XINCLUDE_NAMESPACE);
+            stream.writeAttribute("href", configFile.toURL().toExternalForm());
+            stream.writeAttribute("xpointer", "/facelet-taglib/*");
+            stream.writeEndElement();
+            _writeTags(components, validators, converters, stream);
+
+            _writeEndTagLibrary(stream);
+            stream.close();
+          }
+          finally
+          {
+            out.close();
+          }
 
           targetFile.setReadOnly();
         }
@@ -204,18 +159,6 @@ public class GenerateFaceletsTaglibsMojo extends AbstractFacesMojo
     {
       throw new MojoExecutionException("Error during generation", e);
     }
-    catch (SAXException e)
-    {
-      throw new MojoExecutionException("Error during generation", e);
-    }
-    catch (TransformerException e)
-    {
-      throw new MojoExecutionException("Error during generation", e);
-    }
-    catch (ParserConfigurationException e)
-    {
-      throw new MojoExecutionException("Error during generation", e);
-    }
     catch (IOException e)
     {
       throw new MojoExecutionException("Error during generation", e);
@@ -419,15 +362,4 @@ public class GenerateFaceletsTaglibsMojo extends AbstractFacesMojo
     "<!DOCTYPE facelet-taglib PUBLIC \n" +
     "  \"" + _FACELETS_TAG_LIBRARY_DOCTYPE_PUBLIC + "\"\n" +
     "  \"" + _FACELETS_TAG_LIBRARY_DOCTYPE_SYSTEM + "\" >\n";
-
-  static final private String _XINCLUDE_FACELETS_TAG_LIBRARY_DTD =
-    "<!DOCTYPE taglib PUBLIC\n" +
-    "  \"" + _FACELETS_TAG_LIBRARY_DOCTYPE_PUBLIC + "\"\n" +
-    "  \"" + _FACELETS_TAG_LIBRARY_DOCTYPE_SYSTEM + "\" [\n" +
-    "      <!ELEMENT xi:include EMPTY>\n" +
-    "      <!ATTLIST xi:include\n" +
-    "          xmlns:xi CDATA #FIXED  \"" + XIncludeFilter.XINCLUDE_NAMESPACE + "\"\n" +
-    "          href     CDATA #IMPLIED\n" +
-    "          xpointer CDATA #IMPLIED>\n" +
-    "]>\n";
 }
@@ -43,33 +43,16 @@ import org.apache.myfaces.buildtools.maven2.plugin.faces.util.FilteredIterator;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.Util;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.ValidatorFilter;
 import org.apache.myfaces.buildtools.maven2.plugin.faces.util.XIncludeFilter;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.util.XIncludeStreamWriter;
 import org.codehaus.plexus.util.FileUtils;
-import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
-
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.sax.SAXSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.reflect.Modifier;
@@ -169,77 +152,46 @@ public class GenerateJspTaglibsMojo extends AbstractFacesMojo
 
         if (hasGeneratedTags && configFile.exists())
         {
-          ByteArrayOutputStream out = new ByteArrayOutputStream();
-          XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
-          XMLStreamWriter stream = outputFactory.createXMLStreamWriter(out);
-
-          _writeStartTagLibrary(stream, _XINCLUDE_JSP_TAG_LIBRARY_DTD);
-          // base goes first
-          stream.writeStartElement("xi", "include",
-                                   XIncludeFilter.XINCLUDE_NAMESPACE);
-          stream.writeNamespace("xi", XIncludeFilter.XINCLUDE_NAMESPACE);
-          stream.writeAttribute("href", configFile.toURL().toExternalForm());
-          stream.writeAttribute("xpointer", "/taglib/*");
-          stream.writeEndElement();
-          while (components.hasNext())
-          {
-            ComponentBean component = (ComponentBean)components.next();
-            _writeTag(stream, component);
-          }
-          while (converters.hasNext())
-          {
-            ConverterBean converter = (ConverterBean)converters.next();
-            _writeTag(stream, converter);
-          }
-          while (validators.hasNext())
+          targetFile.getParentFile().mkdirs();
+          OutputStream out = new FileOutputStream(targetFile);
+          try
           {
-            ValidatorBean validator = (ValidatorBean)validators.next();
-            _writeTag(stream, validator);
-          }
-          _writeEndTagLibrary(stream);
-          stream.close();
-
-          InputStream mergedStream = new ByteArrayInputStream(out.toByteArray());
-
-          // expand all the xi:include elements
-          SAXParserFactory saxFactory = SAXParserFactory.newInstance();
-          saxFactory.setNamespaceAware(true);
-          saxFactory.setValidating(false);
-          SAXParser saxParser = saxFactory.newSAXParser();
-          XMLReader mergedReader = saxParser.getXMLReader();
-          mergedReader = new XIncludeFilter(mergedReader, configFile.toURL());
-          // even with validating=false, DTD is still downloaded so that
-          // any entities contained in the document can be expanded.
-          // the following disables that behavior, also saving the time
-          // spent to parse the DTD
-          mergedReader.setEntityResolver(new EntityResolver()
+            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+            XMLStreamWriter stream = outputFactory.createXMLStreamWriter(out);
+            // expand all the xi:include elements while writing
+            stream = new XIncludeStreamWriter(stream, configFile.toURL());
+
+            _writeStartTagLibrary(stream, _JSP_TAG_LIBRARY_DTD);
+            // base goes first
+            stream.writeStartElement("xi", "include",
+                                     XIncludeFilter.XINCLUDE_NAMESPACE);
+            stream.writeNamespace("xi", XIncludeFilter.XINCLUDE_NAMESPACE);
+            stream.writeAttribute("href", configFile.toURL().toExternalForm());
+            stream.writeAttribute("xpointer", "/taglib/*");
+            stream.writeEndElement();
+            while (components.hasNext())
             {
-              public InputSource resolveEntity(
-                String publicId,
-                String systemId)
-              {
-                return new InputSource(new ByteArrayInputStream(new byte[0]));
-              }
-            });
-          InputSource mergedInput = new InputSource(mergedStream);
-          Source mergedSource = new SAXSource(mergedReader, mergedInput);
-
-          targetFile.delete();
-          targetFile.getParentFile().mkdirs();
-          Result mergedResult = new StreamResult(new FileOutputStream(targetFile));
-
-          TransformerFactory transFactory = TransformerFactory.newInstance();
-          Transformer identity = transFactory.newTransformer();
-          if (!_is12())
+              ComponentBean component = (ComponentBean)components.next();
+              _writeTag(stream, component);
+            }
+            while (converters.hasNext())
+            {
+              ConverterBean converter = (ConverterBean)converters.next();
+              _writeTag(stream, converter);
+            }
+            while (validators.hasNext())
+            {
+              ValidatorBean validator = (ValidatorBean)validators.next();
+              _writeTag(stream, validator);
+            }
+            _writeEndTagLibrary(stream);
+            stream.close();
+          }
+          finally
           {
-            identity.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC,
-                                       _JSP_TAG_LIBRARY_DOCTYPE_PUBLIC);
-            identity.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM,
-                                       _JSP_TAG_LIBRARY_DOCTYPE_SYSTEM);
+            out.close();
           }
 
-          identity.transform(mergedSource, mergedResult);
-
           targetFile.setReadOnly();
         }
         else if (hasGeneratedTags)
@@ -281,18 +233,6 @@ public class GenerateJspTaglibsMojo extends AbstractFacesMojo
         }
       }
     }
-    catch (SAXException e)
-    {
-      throw new MojoExecutionException("Error generating tag library", e);
-    }
-    catch (ParserConfigurationException e)
-    {
-      throw new MojoExecutionException("Error generating tag library", e);
-    }
-    catch (TransformerException e)
-    {
-      throw new MojoExecutionException("Error generating tag library", e);
-    }
     catch (XMLStreamException e)
     {
       throw new MojoExecutionException("Error generating tag library", e);
@@ -1095,17 +1035,6 @@ public class GenerateJspTaglibsMojo extends AbstractFacesMojo
     "  \"" + _JSP_TAG_LIBRARY_DOCTYPE_PUBLIC + "\"\n" +
     "  \"" + _JSP_TAG_LIBRARY_DOCTYPE_SYSTEM + "\" >\n";
 
-  static final private String _XINCLUDE_JSP_TAG_LIBRARY_DTD =
-    "<!DOCTYPE taglib PUBLIC\n" +
-    "  \"" + _JSP_TAG_LIBRARY_DOCTYPE_PUBLIC + "\"\n" +
-    "  \"" + _JSP_TAG_LIBRARY_DOCTYPE_SYSTEM + "\" [\n" +
-    "      <!ELEMENT xi:include EMPTY>\n" +
-    "      <!ATTLIST xi:include\n" +
-    "          xmlns:xi CDATA #FIXED  \"" + XIncludeFilter.XINCLUDE_NAMESPACE + "\"\n" +
-    "          href     CDATA #IMPLIED\n" +
-    "          xpointer CDATA #IMPLIED>\n" +
-    "]>\n";
-
   static final private Set _CAN_COERCE = new HashSet();
   static
   {
@@ -18,11 +18,13 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
 
-import org.apache.myfaces.buildtools.maven2.plugin.faces.util.CompoundIterator;
-
 import javax.xml.namespace.QName;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -344,6 +346,7 @@ public class ComponentBean extends ObjectBean
     String componentSupertype)
   {
     _componentSupertype = componentSupertype;
+    _modified();
   }
 
   /**
@@ -429,6 +432,7 @@ public class ComponentBean extends ObjectBean
     PropertyBean property)
   {
     _properties.put(property.getPropertyName(), property);
+    _modified();
   }
 
   /**
@@ -518,14 +522,13 @@ public class ComponentBean extends ObjectBean
   public Iterator properties(
     boolean flatten)
   {
-    Iterator properties = properties();
     if (flatten)
     {
-      ComponentBean parent = resolveSupertype();
-      if (parent != null)
-        properties = new CompoundIterator(parent.properties(true), properties);
+      Flattened flattened = _getFlattened();
+      if (flattened != null)
+        return flattened.properties.iterator();
     }
-    return properties;
+    return properties();
   }
 
  /**
@@ -546,6 +549,7 @@ public class ComponentBean extends ObjectBean
     FacetBean facet)
   {
     _facets.put(facet.getFacetName(), facet);
+    _modified();
   }
 
   /**
@@ -630,14 +634,13 @@ public class ComponentBean extends ObjectBean
   public Iterator facets(
    boolean flatten)
   {
-    Iterator facets = facets();
     if (flatten)
     {
-      ComponentBean parent = resolveSupertype();
-      if (parent != null)
-        facets = new CompoundIterator(facets, parent.facets(true));
+      Flattened flattened = _getFlattened();
+      if (flattened != null)
+        return flattened.facets.iterator();
     }
-    return facets;
+    return facets();
   }
 
   /**
@@ -783,6 +786,7 @@ public class ComponentBean extends ObjectBean
     else
     {
       _events.put(eventRef.getEventType(), eventRef);
+      _modified();
     }
   }
 
@@ -868,14 +872,99 @@ public class ComponentBean extends ObjectBean
   public Iterator events(
    boolean flatten)
   {
-    Iterator events = events();
     if (flatten)
     {
-      ComponentBean parent = resolveSupertype();
-      if (parent != null)
-        events = new CompoundIterator(events, parent.events(true));
+      Flattened flattened = _getFlattened();
+      if (flattened != null)
+        return flattened.events.iterator();
+    }
+    return events();
+  }
+
+  /**
+   * Returns the properties, facets and events of this component and its
+   * supertypes, computed once for the current state of the owner.
+   * Returns null if the component is not attached to a faces config.
+   */
+  private Flattened _getFlattened()
+  {
+    FacesConfigBean owner = getOwner();
+    if (owner == null)
+      return null;
+
+    int modificationCount = owner.getModificationCount();
+    Flattened flattened = _flattened;
+    if (flattened != null && flattened.owner == owner &&
+        flattened.modificationCount == modificationCount)
+      return flattened;
+
+    // supertype properties go first, supertype facets and events go last
+    List properties = new ArrayList();
+    List facets = new ArrayList(_facets.values());
+    List events = new ArrayList(_events.values());
+    ComponentBean parent = resolveSupertype();
+    if (parent != null)
+    {
+      _addAll(properties, parent.properties(true));
+      _addAll(facets, parent.facets(true));
+      _addAll(events, parent.events(true));
+    }
+    properties.addAll(_properties.values());
+
+    flattened = new Flattened(owner, modificationCount,
+                              properties, facets, events);
+    _flattened = flattened;
+    return flattened;
+  }
+
+  static private void _addAll(
+    List     list,
+    Iterator values)
+  {
+    while (values.hasNext())
+      list.add(values.next());
+  }
+
+  /**
+   * Invalidates the flattened views of all the components of the owner.
+   */
+  private void _modified()
+  {
+    FacesConfigBean owner = getOwner();
+    if (owner != null)
+      owner.modified();
+  }
+
+  /**
+   * Immutable flattened views of a component.
+   */
+  static private final class Flattened
+  {
+    public Flattened(
+      FacesConfigBean owner,
+      int             modificationCount,
+      List            properties,
+      List            facets,
+      List            events)
+    {
+      this.owner = owner;
+      this.modificationCount = modificationCount;
+      this.properties = _toList(properties);
+      this.facets = _toList(facets);
+      this.events = _toList(events);
     }
-    return events;
+
+    static private List _toList(
+      List values)
+    {
+      return Collections.unmodifiableList(Arrays.asList(values.toArray()));
+    }
+
+    public final FacesConfigBean owner;
+    public final int             modificationCount;
+    public final List            properties;
+    public final List            facets;
+    public final List            events;
   }
 
   /**
@@ -1111,6 +1200,7 @@ public class ComponentBean extends ObjectBean
   private int     _componentClassModifiers;
   private int     _tagClassModifiers;
   private String[] _unsupportedAgents = new String[0];
+  private transient volatile Flattened _flattened;
 
   static private final String _TRINIDAD_COMPONENT_BASE =
                          "org.apache.myfaces.trinidad.component.UIXComponentBase";
@@ -0,0 +1,262 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * ComponentFingerprint computes a digest of everything the generated
+ * source of a component depends on: the effective component definition,
+ * including the inherited supertypes and the referenced events, the
+ * template file, and the generator version.
+ * <p>
+ * The generated source only needs to be written again when the
+ * fingerprint of the component changes.
+ */
+public class ComponentFingerprint
+{
+  /**
+   * Creates a new ComponentFingerprint.
+   *
+   * @param generatorVersion  the version of the generator and of the
+   *                          generation options
+   */
+  public ComponentFingerprint(
+    String generatorVersion)
+  {
+    _generatorVersion = generatorVersion;
+  }
+
+  /**
+   * Returns the fingerprint of a component, as an hex string.
+   *
+   * @param component     the parsed component
+   * @param templateFile  the template file of the component, which
+   *                      does not need to exist
+   */
+  public String getFingerprint(
+    ComponentBean component,
+    File          templateFile) throws IOException
+  {
+    MessageDigest digest = _createDigest();
+
+    StringBuffer definition = new StringBuffer();
+    _append(definition, _generatorVersion);
+    _appendValue(definition, component, new IdentityHashMap());
+    digest.update(definition.toString().getBytes("UTF-8"));
+
+    if (templateFile.isFile())
+    {
+      digest.update((byte)1);
+      InputStream in = new FileInputStream(templateFile);
+      try
+      {
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = in.read(buffer)) != -1)
+        {
+          digest.update(buffer, 0, length);
+        }
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+
+    byte[] hash = digest.digest();
+    StringBuffer sb = new StringBuffer(hash.length * 2);
+    for (int i=0; i < hash.length; i++)
+    {
+      sb.append(_HEX[(hash[i] >> 4) & 0xf]);
+      sb.append(_HEX[hash[i] & 0xf]);
+    }
+    return sb.toString();
+  }
+
+  private void _appendValue(
+    StringBuffer buffer,
+    Object       value,
+    Map          visited)
+  {
+    if (value == null)
+    {
+      buffer.append('-');
+    }
+    else if (value instanceof ObjectBean)
+    {
+      Integer position = (Integer)visited.get(value);
+      if (position != null)
+      {
+        // already described, e.g. a supertype shared by two ancestors
+        buffer.append('@').append(position).append(';');
+        return;
+      }
+      visited.put(value, new Integer(visited.size()));
+
+      Class beanClass = value.getClass();
+      _append(buffer, beanClass.getName());
+      buffer.append('{');
+      for (Class type = beanClass; type != ObjectBean.class;
+           type = type.getSuperclass())
+      {
+        Field[] fields = _getFields(type);
+        for (int i=0; i < fields.length; i++)
+        {
+          _append(buffer, fields[i].getName());
+          try
+          {
+            _appendValue(buffer, fields[i].get(value), visited);
+          }
+          catch (IllegalAccessException e)
+          {
+            throw new IllegalStateException(e.getMessage());
+          }
+        }
+      }
+
+      // the generated source also depends on the beans
+      // referenced by name from this bean
+      if (value instanceof ComponentBean)
+      {
+        _appendValue(buffer, ((ComponentBean)value).resolveSupertype(), visited);
+      }
+      else if (value instanceof EventRefBean)
+      {
+        _appendValue(buffer, ((EventRefBean)value).resolveEventType(), visited);
+      }
+      buffer.append('}');
+    }
+    else if (value instanceof Map)
+    {
+      buffer.append('<');
+      Iterator entries = ((Map)value).entrySet().iterator();
+      while (entries.hasNext())
+      {
+        Map.Entry entry = (Map.Entry)entries.next();
+        _appendValue(buffer, entry.getKey(), visited);
+        _appendValue(buffer, entry.getValue(), visited);
+      }
+      buffer.append('>');
+    }
+    else if (value instanceof Collection)
+    {
+      buffer.append('(');
+      Iterator elements = ((Collection)value).iterator();
+      while (elements.hasNext())
+      {
+        _appendValue(buffer, elements.next(), visited);
+      }
+      buffer.append(')');
+    }
+    else if (value.getClass().isArray())
+    {
+      buffer.append('[');
+      int length = Array.getLength(value);
+      for (int i=0; i < length; i++)
+      {
+        _appendValue(buffer, Array.get(value, i), visited);
+      }
+      buffer.append(']');
+    }
+    else
+    {
+      // strings, primitive wrappers, qualified names
+      _append(buffer, value.getClass().getName());
+      _append(buffer, value.toString());
+    }
+  }
+
+  static private void _append(
+    StringBuffer buffer,
+    String       value)
+  {
+    buffer.append(value.length()).append(':').append(value);
+  }
+
+  static private Field[] _getFields(
+    Class type)
+  {
+    synchronized (_FIELDS)
+    {
+      Field[] fields = (Field[])_FIELDS.get(type);
+      if (fields == null)
+      {
+        Field[] declared = type.getDeclaredFields();
+        int count = 0;
+        for (int i=0; i < declared.length; i++)
+        {
+          int modifiers = declared[i].getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers))
+          {
+            declared[i].setAccessible(true);
+            declared[count++] = declared[i];
+          }
+        }
+
+        fields = new Field[count];
+        System.arraycopy(declared, 0, fields, 0, count);
+        Arrays.sort(fields, _FIELD_ORDER);
+        _FIELDS.put(type, fields);
+      }
+      return fields;
+    }
+  }
+
+  static private MessageDigest _createDigest()
+  {
+    try
+    {
+      return MessageDigest.getInstance("MD5");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // MD5 is always available
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+  private final String _generatorVersion;
+
+  static private final Map _FIELDS = new IdentityHashMap();
+
+  static private final Comparator _FIELD_ORDER = new Comparator()
+  {
+    public int compare(Object a, Object b)
+    {
+      return ((Field)a).getName().compareTo(((Field)b).getName());
+    }
+  };
+
+  static private final char[] _HEX = "0123456789abcdef".toCharArray();
+}
@@ -19,7 +19,9 @@
 package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
 
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Logger;
@@ -134,6 +136,7 @@ public class FacesConfigBean extends ObjectBean
     {
       component.attach(this);
       _components.put(component.getComponentType(), component);
+      modified();
     }
   }
 
@@ -292,6 +295,48 @@ public class FacesConfigBean extends ObjectBean
     return _renderKits.values().iterator();
   }
 
+  /**
+   * Adds a document included by the parsed faces config documents.
+   *
+   * @param resource  the included document
+   */
+  public void addIncludedResource(
+    URL resource)
+  {
+    _includedResources.add(resource);
+  }
+
+  /**
+   * Returns an iterator for all documents included by the parsed
+   * faces config documents.
+   *
+   * @return  the included document iterator
+   */
+  public Iterator includedResources()
+  {
+    return _includedResources.iterator();
+  }
+
+  /**
+   * Returns a counter incremented each time a component of this faces
+   * config is added or modified, so the views computed from the
+   * component hierarchy can be invalidated.
+   *
+   * @return  the modification count
+   */
+  public int getModificationCount()
+  {
+    return _modificationCount;
+  }
+
+  /**
+   * Records a modification of the components of this faces config.
+   */
+  void modified()
+  {
+    _modificationCount++;
+  }
+
   public URL getCurrentResource()
   {
     return _currentResource;
@@ -309,7 +354,9 @@ public class FacesConfigBean extends ObjectBean
   private Map _components = new TreeMap();
   private Map _events = new TreeMap();
   private Map _renderKits = new TreeMap();
+  private List _includedResources = new ArrayList();
   private URL _currentResource = null;
+  private volatile int _modificationCount;
 
   static private final Logger _LOG = Logger.getLogger(FacesConfigBean.class.getName());
 }
@@ -418,6 +418,18 @@ public class FacesConfigParser
       includedDigester.parse(is);
       is.close();
 
+      // remember the included document, so merged configs can be
+      // checked for changes
+      for (int i=0; i < digester.getCount(); i++)
+      {
+        Object object = digester.peek(i);
+        if (object instanceof FacesConfigBean)
+        {
+          ((FacesConfigBean)object).addIncludedResource(included);
+          break;
+        }
+      }
+
       // We don't really want the included object - but return it anyway
       return included;
     }
@@ -0,0 +1,248 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FacesConfigSnapshot is a merged faces config, together with the
+ * modification times of all the documents parsed to build it.
+ * <p>
+ * A snapshot can be written to a file and read back in a later build,
+ * and it is up to date while none of its documents has been modified.
+ */
+public class FacesConfigSnapshot implements Serializable
+{
+  /**
+   * Creates a snapshot of a merged faces config.
+   *
+   * @param key          the key of the merged documents
+   * @param index        the merged faces config documents
+   * @param facesConfig  the merged faces config
+   */
+  public FacesConfigSnapshot(
+    String          key,
+    URL[]           index,
+    FacesConfigBean facesConfig) throws IOException
+  {
+    List resources = new ArrayList();
+    for (int i=0; i < index.length; i++)
+    {
+      resources.add(index[i]);
+    }
+    for (Iterator it = facesConfig.includedResources(); it.hasNext();)
+    {
+      resources.add(it.next());
+    }
+
+    _key = key;
+    _facesConfig = facesConfig;
+    _resources = (URL[])resources.toArray(new URL[resources.size()]);
+    _lastModified = getLastModified(_resources);
+  }
+
+  /**
+   * Returns the key of the merged documents.
+   */
+  public String getKey()
+  {
+    return _key;
+  }
+
+  /**
+   * Returns the merged faces config.
+   */
+  public FacesConfigBean getFacesConfig()
+  {
+    return _facesConfig;
+  }
+
+  /**
+   * Returns true if none of the parsed documents has been modified
+   * since the snapshot was created.
+   */
+  public boolean isUpToDate() throws IOException
+  {
+    return Arrays.equals(getLastModified(_resources), _lastModified);
+  }
+
+  /**
+   * Writes this snapshot to a file.
+   */
+  public void write(
+    File file) throws IOException
+  {
+    file.getParentFile().mkdirs();
+    ObjectOutputStream out = new ObjectOutputStream(
+                   new BufferedOutputStream(new FileOutputStream(file)));
+    try
+    {
+      out.writeObject(this);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads a snapshot written to a file.
+   *
+   * @return  the snapshot, or null if the file does not exist or
+   *          cannot be read by this version of the plugin
+   */
+  static public FacesConfigSnapshot read(
+    File file)
+  {
+    if (!file.isFile())
+      return null;
+
+    try
+    {
+      ObjectInputStream in = new ObjectInputStream(
+                   new BufferedInputStream(new FileInputStream(file)));
+      try
+      {
+        return (FacesConfigSnapshot)in.readObject();
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch (IOException e)
+    {
+      return null;
+    }
+    catch (ClassNotFoundException e)
+    {
+      return null;
+    }
+    catch (ClassCastException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the last modified time of a resource. Resources in jar files
+   * use the time of the jar file, so the jar does not need to be opened.
+   */
+  static public long getLastModified(
+    URL url) throws IOException
+  {
+    File jarFile = _toJarFile(url);
+    if (jarFile != null)
+      return jarFile.lastModified();
+
+    if ("file".equals(url.getProtocol()))
+      return _toFile(url).lastModified();
+
+    URLConnection conn = url.openConnection();
+    return conn.getLastModified();
+  }
+
+  /**
+   * Returns the last modified times of a list of resources. The time
+   * of each jar file is read once, however many resources it contains.
+   */
+  static public long[] getLastModified(
+    URL[] urls) throws IOException
+  {
+    Map jarTimes = new HashMap();
+    long[] lastModified = new long[urls.length];
+    for (int i=0; i < urls.length; i++)
+    {
+      File jarFile = _toJarFile(urls[i]);
+      if (jarFile == null)
+      {
+        lastModified[i] = getLastModified(urls[i]);
+      }
+      else
+      {
+        Long time = (Long)jarTimes.get(jarFile);
+        if (time == null)
+        {
+          time = new Long(jarFile.lastModified());
+          jarTimes.put(jarFile, time);
+        }
+        lastModified[i] = time.longValue();
+      }
+    }
+
+    return lastModified;
+  }
+
+  static private File _toJarFile(
+    URL url) throws IOException
+  {
+    if (!"jar".equals(url.getProtocol()))
+      return null;
+
+    String path = url.getPath();
+    int separator = path.indexOf("!/");
+    if (separator == -1)
+      return null;
+
+    URL jarURL = new URL(path.substring(0, separator));
+    if (!"file".equals(jarURL.getProtocol()))
+      return null;
+
+    return _toFile(jarURL);
+  }
+
+  static private File _toFile(
+    URL url)
+  {
+    try
+    {
+      return new File(url.toURI());
+    }
+    catch (URISyntaxException e)
+    {
+      return new File(url.getPath());
+    }
+    catch (IllegalArgumentException e)
+    {
+      return new File(url.getPath());
+    }
+  }
+
+  private final String          _key;
+  private final FacesConfigBean _facesConfig;
+  private final URL[]           _resources;
+  private final long[]          _lastModified;
+}
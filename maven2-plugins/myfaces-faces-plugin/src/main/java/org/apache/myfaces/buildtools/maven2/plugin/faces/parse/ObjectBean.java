@@ -18,10 +18,12 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
 
+import java.io.Serializable;
+
 /**
  * ObjectBean is the base class for all parsed beans.
  */
-public class ObjectBean
+public class ObjectBean implements Serializable
 {
   /**
    * Creates a new ObjectBean.
@@ -0,0 +1,214 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Log that keeps the messages until they are flushed to another log.
+ * Work done on other threads uses a BufferedLog each, so the messages
+ * can be written in the same order as if the work was done serially.
+ */
+public final class BufferedLog implements Log
+{
+  public BufferedLog(
+    Log log)
+  {
+    _log = log;
+  }
+
+  /**
+   * Writes the buffered messages to the log and clears the buffer.
+   */
+  public void flush()
+  {
+    for (int i = 0; i < _messages.size(); i++)
+    {
+      Message message = (Message)_messages.get(i);
+      switch (message.level)
+      {
+        case _DEBUG:
+          if (message.content == null)
+            _log.debug(message.error);
+          else if (message.error == null)
+            _log.debug(message.content);
+          else
+            _log.debug(message.content, message.error);
+          break;
+        case _INFO:
+          if (message.content == null)
+            _log.info(message.error);
+          else if (message.error == null)
+            _log.info(message.content);
+          else
+            _log.info(message.content, message.error);
+          break;
+        case _WARN:
+          if (message.content == null)
+            _log.warn(message.error);
+          else if (message.error == null)
+            _log.warn(message.content);
+          else
+            _log.warn(message.content, message.error);
+          break;
+        default:
+          if (message.content == null)
+            _log.error(message.error);
+          else if (message.error == null)
+            _log.error(message.content);
+          else
+            _log.error(message.content, message.error);
+          break;
+      }
+    }
+    _messages.clear();
+  }
+
+  public boolean isDebugEnabled()
+  {
+    return _log.isDebugEnabled();
+  }
+
+  public void debug(
+    CharSequence content)
+  {
+    _add(_DEBUG, content, null);
+  }
+
+  public void debug(
+    CharSequence content,
+    Throwable    error)
+  {
+    _add(_DEBUG, content, error);
+  }
+
+  public void debug(
+    Throwable error)
+  {
+    _add(_DEBUG, null, error);
+  }
+
+  public boolean isInfoEnabled()
+  {
+    return _log.isInfoEnabled();
+  }
+
+  public void info(
+    CharSequence content)
+  {
+    _add(_INFO, content, null);
+  }
+
+  public void info(
+    CharSequence content,
+    Throwable    error)
+  {
+    _add(_INFO, content, error);
+  }
+
+  public void info(
+    Throwable error)
+  {
+    _add(_INFO, null, error);
+  }
+
+  public boolean isWarnEnabled()
+  {
+    return _log.isWarnEnabled();
+  }
+
+  public void warn(
+    CharSequence content)
+  {
+    _add(_WARN, content, null);
+  }
+
+  public void warn(
+    CharSequence content,
+    Throwable    error)
+  {
+    _add(_WARN, content, error);
+  }
+
+  public void warn(
+    Throwable error)
+  {
+    _add(_WARN, null, error);
+  }
+
+  public boolean isErrorEnabled()
+  {
+    return _log.isErrorEnabled();
+  }
+
+  public void error(
+    CharSequence content)
+  {
+    _add(_ERROR, content, null);
+  }
+
+  public void error(
+    CharSequence content,
+    Throwable    error)
+  {
+    _add(_ERROR, content, error);
+  }
+
+  public void error(
+    Throwable error)
+  {
+    _add(_ERROR, null, error);
+  }
+
+  private void _add(
+    int          level,
+    CharSequence content,
+    Throwable    error)
+  {
+    _messages.add(new Message(level, content, error));
+  }
+
+  static private final class Message
+  {
+    public Message(
+      int          level,
+      CharSequence content,
+      Throwable    error)
+    {
+      this.level = level;
+      this.content = content;
+      this.error = error;
+    }
+
+    public final int          level;
+    public final CharSequence content;
+    public final Throwable    error;
+  }
+
+  private final Log  _log;
+  private final List _messages = new ArrayList();
+
+  static private final int _DEBUG = 0;
+  static private final int _INFO = 1;
+  static private final int _WARN = 2;
+  static private final int _ERROR = 3;
+}
@@ -0,0 +1,296 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.util;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.LocatorImpl;
+
+/**
+ * Records the content and DTD events of a parsed document, so they can
+ * be replayed later without parsing the document again.
+ */
+public final class SAXEventBuffer implements ContentHandler, DTDHandler
+{
+  public SAXEventBuffer(
+    long lastModified)
+  {
+    _lastModified = lastModified;
+  }
+
+  /**
+   * Returns the modification time of the document when it was recorded.
+   */
+  public long getLastModified()
+  {
+    return _lastModified;
+  }
+
+  /**
+   * Sends the recorded events to the given handlers.
+   */
+  public void replay(
+    ContentHandler contentHandler,
+    DTDHandler     dtdHandler) throws SAXException
+  {
+    int arg = 0;
+    for (int i = 0; i < _eventCount; i++)
+    {
+      switch (_events[i])
+      {
+        case _SET_DOCUMENT_LOCATOR:
+          contentHandler.setDocumentLocator((Locator) _args[arg++]);
+          break;
+        case _START_DOCUMENT:
+          contentHandler.startDocument();
+          break;
+        case _END_DOCUMENT:
+          contentHandler.endDocument();
+          break;
+        case _START_PREFIX_MAPPING:
+          contentHandler.startPrefixMapping((String) _args[arg++],
+                                            (String) _args[arg++]);
+          break;
+        case _END_PREFIX_MAPPING:
+          contentHandler.endPrefixMapping((String) _args[arg++]);
+          break;
+        case _START_ELEMENT:
+          contentHandler.startElement((String) _args[arg++],
+                                      (String) _args[arg++],
+                                      (String) _args[arg++],
+                                      (Attributes) _args[arg++]);
+          break;
+        case _END_ELEMENT:
+          contentHandler.endElement((String) _args[arg++],
+                                    (String) _args[arg++],
+                                    (String) _args[arg++]);
+          break;
+        case _CHARACTERS:
+        {
+          char[] ch = (char[]) _args[arg++];
+          contentHandler.characters(ch, 0, ch.length);
+          break;
+        }
+        case _IGNORABLE_WHITESPACE:
+        {
+          char[] ch = (char[]) _args[arg++];
+          contentHandler.ignorableWhitespace(ch, 0, ch.length);
+          break;
+        }
+        case _PROCESSING_INSTRUCTION:
+          contentHandler.processingInstruction((String) _args[arg++],
+                                               (String) _args[arg++]);
+          break;
+        case _SKIPPED_ENTITY:
+          contentHandler.skippedEntity((String) _args[arg++]);
+          break;
+        case _NOTATION_DECL:
+          dtdHandler.notationDecl((String) _args[arg++],
+                                  (String) _args[arg++],
+                                  (String) _args[arg++]);
+          break;
+        case _UNPARSED_ENTITY_DECL:
+          dtdHandler.unparsedEntityDecl((String) _args[arg++],
+                                        (String) _args[arg++],
+                                        (String) _args[arg++],
+                                        (String) _args[arg++]);
+          break;
+        default:
+          throw new IllegalStateException("Unknown event " + _events[i]);
+      }
+    }
+  }
+
+  public void setDocumentLocator(
+    Locator locator)
+  {
+    // the parser's locator is only valid during the parse
+    _addEvent(_SET_DOCUMENT_LOCATOR);
+    _addArg(new LocatorImpl(locator));
+  }
+
+  public void startDocument()
+  {
+    _addEvent(_START_DOCUMENT);
+  }
+
+  public void endDocument()
+  {
+    _addEvent(_END_DOCUMENT);
+  }
+
+  public void startPrefixMapping(
+    String prefix,
+    String namespaceURI)
+  {
+    _addEvent(_START_PREFIX_MAPPING);
+    _addArg(prefix);
+    _addArg(namespaceURI);
+  }
+
+  public void endPrefixMapping(
+    String prefix)
+  {
+    _addEvent(_END_PREFIX_MAPPING);
+    _addArg(prefix);
+  }
+
+  public void startElement(
+    String     namespaceURI,
+    String     localName,
+    String     qualifiedName,
+    Attributes attributes)
+  {
+    _addEvent(_START_ELEMENT);
+    _addArg(namespaceURI);
+    _addArg(localName);
+    _addArg(qualifiedName);
+    _addArg((attributes.getLength() == 0) ? _EMPTY_ATTRIBUTES
+                                          : new AttributesImpl(attributes));
+  }
+
+  public void endElement(
+    String namespaceURI,
+    String localName,
+    String qualifiedName)
+  {
+    _addEvent(_END_ELEMENT);
+    _addArg(namespaceURI);
+    _addArg(localName);
+    _addArg(qualifiedName);
+  }
+
+  public void characters(
+    char[] ch,
+    int    start,
+    int    length)
+  {
+    _addEvent(_CHARACTERS);
+    _addArg(_copy(ch, start, length));
+  }
+
+  public void ignorableWhitespace(
+    char[] ch,
+    int    start,
+    int    length)
+  {
+    _addEvent(_IGNORABLE_WHITESPACE);
+    _addArg(_copy(ch, start, length));
+  }
+
+  public void processingInstruction(
+    String target,
+    String data)
+  {
+    _addEvent(_PROCESSING_INSTRUCTION);
+    _addArg(target);
+    _addArg(data);
+  }
+
+  public void skippedEntity(
+    String name)
+  {
+    _addEvent(_SKIPPED_ENTITY);
+    _addArg(name);
+  }
+
+  public void notationDecl(
+    String name,
+    String publicId,
+    String systemId)
+  {
+    _addEvent(_NOTATION_DECL);
+    _addArg(name);
+    _addArg(publicId);
+    _addArg(systemId);
+  }
+
+  public void unparsedEntityDecl(
+    String name,
+    String publicId,
+    String systemId,
+    String notationName)
+  {
+    _addEvent(_UNPARSED_ENTITY_DECL);
+    _addArg(name);
+    _addArg(publicId);
+    _addArg(systemId);
+    _addArg(notationName);
+  }
+
+  private static char[] _copy(
+    char[] ch,
+    int    start,
+    int    length)
+  {
+    char[] copy = new char[length];
+    System.arraycopy(ch, start, copy, 0, length);
+    return copy;
+  }
+
+  private void _addEvent(
+    byte event)
+  {
+    if (_eventCount == _events.length)
+    {
+      byte[] events = new byte[_events.length * 2];
+      System.arraycopy(_events, 0, events, 0, _eventCount);
+      _events = events;
+    }
+    _events[_eventCount++] = event;
+  }
+
+  private void _addArg(
+    Object arg)
+  {
+    if (_argCount == _args.length)
+    {
+      Object[] args = new Object[_args.length * 2];
+      System.arraycopy(_args, 0, args, 0, _argCount);
+      _args = args;
+    }
+    _args[_argCount++] = arg;
+  }
+
+  private final long _lastModified;
+  private byte[]     _events = new byte[64];
+  private int        _eventCount;
+  private Object[]   _args = new Object[128];
+  private int        _argCount;
+
+  private static final Attributes _EMPTY_ATTRIBUTES = new AttributesImpl();
+
+  private static final byte _SET_DOCUMENT_LOCATOR = 0;
+  private static final byte _START_DOCUMENT = 1;
+  private static final byte _END_DOCUMENT = 2;
+  private static final byte _START_PREFIX_MAPPING = 3;
+  private static final byte _END_PREFIX_MAPPING = 4;
+  private static final byte _START_ELEMENT = 5;
+  private static final byte _END_ELEMENT = 6;
+  private static final byte _CHARACTERS = 7;
+  private static final byte _IGNORABLE_WHITESPACE = 8;
+  private static final byte _PROCESSING_INSTRUCTION = 9;
+  private static final byte _SKIPPED_ENTITY = 10;
+  private static final byte _NOTATION_DECL = 11;
+  private static final byte _UNPARSED_ENTITY_DECL = 12;
+}
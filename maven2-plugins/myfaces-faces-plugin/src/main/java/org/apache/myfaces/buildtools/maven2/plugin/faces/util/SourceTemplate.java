@@ -19,8 +19,19 @@
 package org.apache.myfaces.buildtools.maven2.plugin.faces.util;
 
 import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
+/**
+ * SourceTemplate reads the preface and the content of a component
+ * template.
+ * <p>
+ * Templates are parsed once per build: the parsed preface and content
+ * are cached by file, and by content digest for files that are touched
+ * without being modified. Substitutions are applied when the content is
+ * written, so a parsed template is shared by all the uses of the file.
+ */
 public class SourceTemplate
 {
   public SourceTemplate(File file)
@@ -45,12 +56,130 @@ public class SourceTemplate
 
   public void readPreface() throws IOException
   {
-    _reader = new BufferedReader(new FileReader(_file));
+    _parsed = _getParsed(_file);
+    if (!_parsed.prefaceComplete)
+      throw new EOFException("File " + _file + " ended prematurely");
+
+    _imports.addAll(_parsed.imports);
+    _implements.addAll(_parsed.implementz);
+  }
+
+
+  public void writeContent(Writer out) throws IOException
+  {
+    String[] content = _parsed.content;
+    for (int i=0; i < content.length; i++)
+    {
+      String line = _substitute(content[i]);
+      out.write(line);
+      out.write("\n");
+    }
+    _ignoreMethods.addAll(_parsed.ignoreMethods);
+
+    if (!_parsed.contentComplete)
+      throw new EOFException("File " + _file + " ended prematurely");
+  }
+
+  public void close() throws IOException
+  {
+    _parsed = null;
+  }
+
+  private String _substitute(String in)
+  {
+    Iterator keys = _substitutions.keySet().iterator();
+    while (keys.hasNext())
+    {
+      String key = (String) keys.next();
+      String value = (String) _substitutions.get(key);
+      in = _substitute(in, key, value);
+    }
+
+    return in;
+  }
+
+  static private String _substitute(String in, String from, String to)
+  {
+    int index = in.indexOf(from);
+    if (index < 0)
+      return in;
+
+    StringBuffer buffer = new StringBuffer(in.length() +
+                                           to.length() - from.length());
+    int start = 0;
+    do
+    {
+      buffer.append(in, start, index);
+      buffer.append(to);
+      start = index + from.length();
+      index = in.indexOf(from, start);
+    }
+    while (index >= 0);
+    buffer.append(in, start, in.length());
+
+    return buffer.toString();
+  }
+
+  /**
+   * Returns the parsed template, reading the file only if it has been
+   * modified since it was last parsed.
+   */
+  static private Parsed _getParsed(File file) throws IOException
+  {
+    String path = file.getAbsolutePath();
+    long length = file.length();
+    long lastModified = file.lastModified();
+
+    synchronized (_PARSED_BY_FILE)
+    {
+      Parsed parsed = (Parsed) _PARSED_BY_FILE.get(path);
+      if (parsed != null &&
+          parsed.length == length &&
+          parsed.lastModified == lastModified)
+      {
+        return parsed;
+      }
+    }
+
+    byte[] bytes = _readFully(file);
+    String digest = _digest(bytes);
+
+    Parsed parsed;
+    synchronized (_PARSED_BY_DIGEST)
+    {
+      parsed = (Parsed) _PARSED_BY_DIGEST.get(digest);
+    }
+
+    if (parsed == null)
+    {
+      parsed = _parse(bytes);
+      synchronized (_PARSED_BY_DIGEST)
+      {
+        _PARSED_BY_DIGEST.put(digest, parsed);
+      }
+    }
+
+    parsed = new Parsed(parsed, length, lastModified);
+    synchronized (_PARSED_BY_FILE)
+    {
+      _PARSED_BY_FILE.put(path, parsed);
+    }
+
+    return parsed;
+  }
+
+  static private Parsed _parse(byte[] bytes) throws IOException
+  {
+    BufferedReader reader = new BufferedReader(
+                  new InputStreamReader(new ByteArrayInputStream(bytes)));
+
+    Parsed parsed = new Parsed();
+    Map fqcnMap = new HashMap();
     while (true)
     {
-      String line = _reader.readLine();
+      String line = reader.readLine();
       if (line == null)
-        throw new EOFException("File " + _file + " ended prematurely");
+        return parsed;
 
       if (line.equals("{"))
         break;
@@ -60,8 +189,8 @@ public class SourceTemplate
         line = line.trim();
         String imported = line.substring("import ".length(),
                                          line.length() - 1);
-        _imports.add(imported);
-        _fqcnMap.put(Util.getClassFromFullClass(imported), imported);
+        parsed.imports.add(imported);
+        fqcnMap.put(Util.getClassFromFullClass(imported), imported);
       }
 
       int index = line.indexOf(" implements ");
@@ -74,86 +203,127 @@ public class SourceTemplate
           String className = interfaces[i];
           if (!Util.isFullClass(className))
           {
-            String importedName = (String)_fqcnMap.get(className);
+            String importedName = (String)fqcnMap.get(className);
             if (importedName != null)
               className = importedName;
           }
-          _implements.add(className);
+          parsed.implementz.add(className);
         }
       }
     }
-  }
+    parsed.prefaceComplete = true;
 
-
-  public void writeContent(Writer out) throws IOException
-  {
+    List content = new ArrayList();
     while (true)
     {
-      String line = _reader.readLine();
+      String line = reader.readLine();
       if (line == null)
-        throw new EOFException("File " + _file + " ended prematurely");
+        break;
 
       if (line.trim().startsWith(_IGNORE_PREFIX)){
           if (line.trim().startsWith(_IGNORE_PREFIX2)){
               String method = line.trim().substring(_IGNORE_PREFIX2.length()).trim();
               if (method.length() > 0 ){
-                  _ignoreMethods.add(method);
+                  parsed.ignoreMethods.add(method);
               }
           }
           continue;
       }
 
       if (line.equals("}"))
+      {
+        parsed.contentComplete = true;
         break;
+      }
 
-      line = _substitute(line);
-      out.write(line);
-      out.write("\n");
+      content.add(line);
     }
-  }
+    parsed.content = (String[]) content.toArray(new String[content.size()]);
 
-  public void close() throws IOException
-  {
-    _reader.close();
+    return parsed;
   }
 
-  private String _substitute(String in)
+  static private byte[] _readFully(File file) throws IOException
   {
-    Iterator keys = _substitutions.keySet().iterator();
-    while (keys.hasNext())
+    InputStream in = new FileInputStream(file);
+    try
     {
-      String key = (String) keys.next();
-      String value = (String) _substitutions.get(key);
-      in = _substitute(in, key, value);
+      ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+      byte[] buffer = new byte[8192];
+      int length;
+      while ((length = in.read(buffer)) != -1)
+      {
+        out.write(buffer, 0, length);
+      }
+      return out.toByteArray();
+    }
+    finally
+    {
+      in.close();
     }
-
-    return in;
   }
 
-  static private String _substitute(String in, String from, String to)
+  static private String _digest(byte[] bytes)
   {
-    int index = in.indexOf(from);
-    if (index < 0)
-      return in;
-
-    StringBuffer buffer = new StringBuffer(in.length() +
-                                           to.length() - from.length());
-    buffer.append(in.substring(0, index));
-    buffer.append(to);
-    String suffix = in.substring(index + from.length());
-    buffer.append(_substitute(suffix, from, to));
-
-    return buffer.toString();
+    try
+    {
+      byte[] hash = MessageDigest.getInstance("MD5").digest(bytes);
+      StringBuffer sb = new StringBuffer(hash.length * 2);
+      for (int i=0; i < hash.length; i++)
+      {
+        sb.append(Character.forDigit((hash[i] >> 4) & 0xf, 16));
+        sb.append(Character.forDigit(hash[i] & 0xf, 16));
+      }
+      return sb.toString();
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // MD5 is always available
+      throw new IllegalStateException(e.getMessage());
+    }
   }
 
     public Collection getIgnoreMethods() {
         return _ignoreMethods;
     }
 
+  /**
+   * The parsed preface and content of a template file.
+   */
+  static private final class Parsed
+  {
+    public Parsed()
+    {
+      imports = new HashSet();
+      implementz = new HashSet();
+      ignoreMethods = new HashSet();
+    }
+
+    public Parsed(Parsed parsed, long length, long lastModified)
+    {
+      imports = parsed.imports;
+      implementz = parsed.implementz;
+      ignoreMethods = parsed.ignoreMethods;
+      content = parsed.content;
+      prefaceComplete = parsed.prefaceComplete;
+      contentComplete = parsed.contentComplete;
+      this.length = length;
+      this.lastModified = lastModified;
+    }
+
+    public final Set imports;
+    public final Set implementz;
+    public final Set ignoreMethods;
+    public String[]  content;
+    public boolean   prefaceComplete;
+    public boolean   contentComplete;
+    public long      length;
+    public long      lastModified;
+  }
+
     private File           _file;
-  private BufferedReader _reader;
+  private Parsed         _parsed;
   private Set            _imports = new HashSet();
-  private Map            _fqcnMap = new HashMap();
   private Set            _implements = new HashSet();
   private Map            _substitutions = new HashMap();
   private Set            _ignoreMethods = new HashSet();
@@ -161,4 +331,8 @@ public class SourceTemplate
   // Magic syntax indicating "please ignore this line"
   static private final String _IGNORE_PREFIX = "/**/";
   static private final String _IGNORE_PREFIX2 = "/**///";
+
+  // Parsed templates, by absolute path and by content digest
+  static private final Map _PARSED_BY_FILE = new HashMap();
+  static private final Map _PARSED_BY_DIGEST = new HashMap();
 }
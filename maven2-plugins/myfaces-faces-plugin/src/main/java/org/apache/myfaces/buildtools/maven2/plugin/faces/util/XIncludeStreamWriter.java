@@ -0,0 +1,559 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.net.URL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * XMLStreamWriter that expands xi:include elements while they are written.
+ * <p>
+ * The included document is parsed when the xi:include element is closed,
+ * and its content (selected by the optional xpointer attribute, and with any
+ * nested xi:include expanded by XIncludeFilter) is written to the underlying
+ * stream in place of the xi:include element.  External DTDs of the included
+ * documents are never loaded.
+ * </p>
+ */
+public final class XIncludeStreamWriter implements XMLStreamWriter
+{
+  public XIncludeStreamWriter(
+    XMLStreamWriter out,
+    URL             base)
+  {
+    _out = out;
+    _base = base;
+  }
+
+  public void writeStartElement(
+    String localName) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _namespaces.pushContext();
+    _out.writeStartElement(localName);
+  }
+
+  public void writeStartElement(
+    String namespaceURI,
+    String localName) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _namespaces.pushContext();
+    _out.writeStartElement(namespaceURI, localName);
+  }
+
+  public void writeStartElement(
+    String prefix,
+    String localName,
+    String namespaceURI) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    if (XIncludeFilter.XINCLUDE_NAMESPACE.equals(namespaceURI) &&
+        "include".equals(localName))
+    {
+      _including = true;
+      _href = null;
+      _xpointer = null;
+    }
+    else
+    {
+      _namespaces.pushContext();
+      _out.writeStartElement(prefix, localName, namespaceURI);
+    }
+  }
+
+  public void writeEmptyElement(
+    String localName) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeEmptyElement(localName);
+  }
+
+  public void writeEmptyElement(
+    String namespaceURI,
+    String localName) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeEmptyElement(namespaceURI, localName);
+  }
+
+  public void writeEmptyElement(
+    String prefix,
+    String localName,
+    String namespaceURI) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeEmptyElement(prefix, localName, namespaceURI);
+  }
+
+  public void writeEndElement() throws XMLStreamException
+  {
+    if (_including)
+    {
+      _including = false;
+      if (_href == null)
+        throw new XMLStreamException("Missing href attribute");
+
+      _include(_href, _xpointer);
+    }
+    else
+    {
+      _out.writeEndElement();
+      _namespaces.popContext();
+    }
+  }
+
+  public void writeEndDocument() throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeEndDocument();
+  }
+
+  public void close() throws XMLStreamException
+  {
+    _out.close();
+  }
+
+  public void flush() throws XMLStreamException
+  {
+    _out.flush();
+  }
+
+  public void writeAttribute(
+    String localName,
+    String value) throws XMLStreamException
+  {
+    if (_including)
+    {
+      if ("href".equals(localName))
+        _href = value;
+      else if ("xpointer".equals(localName))
+        _xpointer = value;
+    }
+    else
+    {
+      _out.writeAttribute(localName, value);
+    }
+  }
+
+  public void writeAttribute(
+    String prefix,
+    String namespaceURI,
+    String localName,
+    String value) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeAttribute(prefix, namespaceURI, localName, value);
+  }
+
+  public void writeAttribute(
+    String namespaceURI,
+    String localName,
+    String value) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeAttribute(namespaceURI, localName, value);
+  }
+
+  public void writeNamespace(
+    String prefix,
+    String namespaceURI) throws XMLStreamException
+  {
+    // the xi:include element is not written, nor its namespace
+    if (!_including)
+    {
+      _namespaces.declarePrefix(_toPrefix(prefix), namespaceURI);
+      _out.writeNamespace(prefix, namespaceURI);
+    }
+  }
+
+  public void writeDefaultNamespace(
+    String namespaceURI) throws XMLStreamException
+  {
+    if (!_including)
+    {
+      _namespaces.declarePrefix("", namespaceURI);
+      _out.writeDefaultNamespace(namespaceURI);
+    }
+  }
+
+  public void writeComment(
+    String data) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeComment(data);
+  }
+
+  public void writeProcessingInstruction(
+    String target) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeProcessingInstruction(target);
+  }
+
+  public void writeProcessingInstruction(
+    String target,
+    String data) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeProcessingInstruction(target, data);
+  }
+
+  public void writeCData(
+    String data) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeCData(data);
+  }
+
+  public void writeDTD(
+    String dtd) throws XMLStreamException
+  {
+    _out.writeDTD(dtd);
+  }
+
+  public void writeEntityRef(
+    String name) throws XMLStreamException
+  {
+    _checkNotIncluding();
+    _out.writeEntityRef(name);
+  }
+
+  public void writeStartDocument() throws XMLStreamException
+  {
+    _out.writeStartDocument();
+  }
+
+  public void writeStartDocument(
+    String version) throws XMLStreamException
+  {
+    _out.writeStartDocument(version);
+  }
+
+  public void writeStartDocument(
+    String encoding,
+    String version) throws XMLStreamException
+  {
+    _out.writeStartDocument(encoding, version);
+  }
+
+  public void writeCharacters(
+    String text) throws XMLStreamException
+  {
+    // xi:fallback is not supported, so the content of xi:include is ignored
+    if (!_including)
+      _out.writeCharacters(text);
+  }
+
+  public void writeCharacters(
+    char[] text,
+    int    start,
+    int    len) throws XMLStreamException
+  {
+    if (!_including)
+      _out.writeCharacters(text, start, len);
+  }
+
+  public String getPrefix(
+    String uri) throws XMLStreamException
+  {
+    return _out.getPrefix(uri);
+  }
+
+  public void setPrefix(
+    String prefix,
+    String uri) throws XMLStreamException
+  {
+    _out.setPrefix(prefix, uri);
+  }
+
+  public void setDefaultNamespace(
+    String uri) throws XMLStreamException
+  {
+    _out.setDefaultNamespace(uri);
+  }
+
+  public void setNamespaceContext(
+    NamespaceContext context) throws XMLStreamException
+  {
+    _out.setNamespaceContext(context);
+  }
+
+  public NamespaceContext getNamespaceContext()
+  {
+    return _out.getNamespaceContext();
+  }
+
+  public Object getProperty(
+    String name) throws IllegalArgumentException
+  {
+    return _out.getProperty(name);
+  }
+
+  private void _include(
+    String href,
+    String xpointer) throws XMLStreamException
+  {
+    try
+    {
+      URL target = new URL(_base, href);
+
+      if (_saxFactory == null)
+      {
+        _saxFactory = SAXParserFactory.newInstance();
+        _saxFactory.setNamespaceAware(true);
+        _saxFactory.setValidating(false);
+      }
+
+      XMLReader reader = _saxFactory.newSAXParser().getXMLReader();
+      // expand the nested xi:include elements
+      reader = new XIncludeFilter(reader, target);
+      if (xpointer != null)
+      {
+        // xpointer prefixes are resolved against the written document
+        reader = new XPointerFilter(reader, _namespaces, xpointer);
+      }
+      reader.setContentHandler(new StreamWriterHandler());
+      // even with validating=false, DTD is still downloaded so that
+      // any entities contained in the document can be expanded.
+      // the following disables that behavior, also saving the time
+      // spent to parse the DTD
+      reader.setEntityResolver(new EntityResolver()
+        {
+          public InputSource resolveEntity(
+            String publicId,
+            String systemId)
+          {
+            return new InputSource(new ByteArrayInputStream(new byte[0]));
+          }
+        });
+
+      InputStream in = target.openStream();
+      try
+      {
+        InputSource input = new InputSource(in);
+        input.setSystemId(target.toExternalForm());
+        reader.parse(input);
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    catch (SAXException e)
+    {
+      Exception cause = e.getException();
+      if (cause instanceof XMLStreamException)
+        throw (XMLStreamException) cause;
+
+      throw new XMLStreamException("Error during xinclude of " + href, e);
+    }
+    catch (ParserConfigurationException e)
+    {
+      throw new XMLStreamException("Error during xinclude of " + href, e);
+    }
+    catch (IOException e)
+    {
+      throw new XMLStreamException("Error during xinclude of " + href, e);
+    }
+  }
+
+  private void _checkNotIncluding() throws XMLStreamException
+  {
+    if (_including)
+      throw new XMLStreamException("Unsupported content in xi:include");
+  }
+
+  private static String _toPrefix(
+    String prefix)
+  {
+    return (prefix == null) ? "" : prefix;
+  }
+
+  /**
+   * Writes the SAX events of the included document to the underlying
+   * stream, declaring the namespaces not already in scope.
+   */
+  private final class StreamWriterHandler extends DefaultHandler
+  {
+    public void startPrefixMapping(
+      String prefix,
+      String namespaceURI)
+    {
+      _pendingPrefixes.add(prefix);
+      _pendingPrefixes.add(namespaceURI);
+    }
+
+    public void startElement(
+      String     namespaceURI,
+      String     localName,
+      String     qualifiedName,
+      Attributes attributes) throws SAXException
+    {
+      try
+      {
+        String prefix = _getPrefix(qualifiedName);
+        _out.writeStartElement(prefix, localName, namespaceURI);
+        _namespaces.pushContext();
+
+        for (int i = 0; i < _pendingPrefixes.size(); i += 2)
+        {
+          _declare((String) _pendingPrefixes.get(i),
+                   (String) _pendingPrefixes.get(i + 1));
+        }
+        _pendingPrefixes.clear();
+
+        _declare(prefix, namespaceURI);
+        for (int i = 0; i < attributes.getLength(); i++)
+        {
+          String attrNamespaceURI = attributes.getURI(i);
+          if (attrNamespaceURI.length() > 0)
+            _declare(_getPrefix(attributes.getQName(i)), attrNamespaceURI);
+        }
+
+        for (int i = 0; i < attributes.getLength(); i++)
+        {
+          String attrNamespaceURI = attributes.getURI(i);
+          if (attrNamespaceURI.length() > 0)
+          {
+            _out.writeAttribute(_getPrefix(attributes.getQName(i)),
+                                attrNamespaceURI,
+                                attributes.getLocalName(i),
+                                attributes.getValue(i));
+          }
+          else
+          {
+            _out.writeAttribute(attributes.getQName(i),
+                                attributes.getValue(i));
+          }
+        }
+      }
+      catch (XMLStreamException e)
+      {
+        throw new SAXException(e);
+      }
+    }
+
+    public void endElement(
+      String namespaceURI,
+      String localName,
+      String qualifiedName) throws SAXException
+    {
+      try
+      {
+        _out.writeEndElement();
+        _namespaces.popContext();
+      }
+      catch (XMLStreamException e)
+      {
+        throw new SAXException(e);
+      }
+    }
+
+    public void characters(
+      char[] ch,
+      int    start,
+      int    length) throws SAXException
+    {
+      try
+      {
+        _out.writeCharacters(ch, start, length);
+      }
+      catch (XMLStreamException e)
+      {
+        throw new SAXException(e);
+      }
+    }
+
+    public void ignorableWhitespace(
+      char[] ch,
+      int    start,
+      int    length) throws SAXException
+    {
+      characters(ch, start, length);
+    }
+
+    public void processingInstruction(
+      String target,
+      String data) throws SAXException
+    {
+      try
+      {
+        _out.writeProcessingInstruction(target, data);
+      }
+      catch (XMLStreamException e)
+      {
+        throw new SAXException(e);
+      }
+    }
+
+    private void _declare(
+      String prefix,
+      String namespaceURI) throws XMLStreamException
+    {
+      String current = _namespaces.getURI(prefix);
+      if (namespaceURI.equals((current == null) ? "" : current))
+        return;
+
+      _namespaces.declarePrefix(prefix, namespaceURI);
+      if (prefix.length() == 0)
+        _out.writeDefaultNamespace(namespaceURI);
+      else
+        _out.writeNamespace(prefix, namespaceURI);
+    }
+
+    private String _getPrefix(
+      String qualifiedName)
+    {
+      int colon = qualifiedName.indexOf(':');
+      return (colon == -1) ? "" : qualifiedName.substring(0, colon);
+    }
+
+    private final List _pendingPrefixes = new ArrayList();
+  }
+
+  private final XMLStreamWriter  _out;
+  private final URL              _base;
+  private final NamespaceSupport _namespaces = new NamespaceSupport();
+  private SAXParserFactory       _saxFactory;
+
+  private boolean _including;
+  private String  _href;
+  private String  _xpointer;
+}
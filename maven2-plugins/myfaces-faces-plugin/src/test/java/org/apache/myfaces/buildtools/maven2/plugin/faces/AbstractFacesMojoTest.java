@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.FacesConfigBean;
+import org.apache.myfaces.buildtools.maven2.plugin.faces.parse.FacesConfigSnapshot;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the merged faces config index shared by the faces goals.
+ */
+public class AbstractFacesMojoTest extends AbstractMojoTestCase
+{
+  /**
+   * Creates a new AbstractFacesMojoTest.
+   *
+   * @param testName  the test to execute
+   */
+  public AbstractFacesMojoTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp() throws IOException
+  {
+    _directory = new File("target/index-cache-test");
+    FileUtils.deleteDirectory(_directory);
+    _directory.mkdirs();
+    _cacheFile = new File(_directory, "index.ser");
+
+    File source = new File("src/test/resources/META-INF/maven-faces-plugin/" +
+                           "components/trinidad/faces");
+    FileUtils.copyFile(new File(source, "Command.xml"),
+                       new File(_directory, "Command.xml"));
+    FileUtils.copyFile(new File(source, "TestInclude.xml"),
+                       new File(_directory, "TestInclude.xml"));
+    FileUtils.fileWrite(new File(_directory, "Other.xml").getPath(),
+      "<faces-config xmlns=\"http://java.sun.com/xml/ns/javaee\">\n" +
+      "  <component>\n" +
+      "    <component-type>test.Other</component-type>\n" +
+      "    <component-class>test.UIXOther</component-class>\n" +
+      "  </component>\n" +
+      "</faces-config>\n");
+
+    _writeMaster("master-a.xml", "Command.xml");
+    _writeMaster("master-b.xml", "Other.xml");
+  }
+
+  public void tearDown()
+  {
+    _directory = null;
+    _cacheFile = null;
+  }
+
+  public void testIndexCacheFileKeyMismatch() throws MojoExecutionException
+  {
+    FacesConfigBean config = _processIndex("master-a.xml");
+    assertNotNull(config.findComponent("org.apache.myfaces.trinidad.Command"));
+    assertNull(config.findComponent("test.Other"));
+
+    FacesConfigSnapshot cached = FacesConfigSnapshot.read(_cacheFile);
+    assertNotNull(cached);
+    assertTrue(cached.getKey().indexOf("Command.xml") != -1);
+
+    // the cache file holds another index, so it must not be used
+    config = _processIndex("master-b.xml");
+    assertNotNull(config.findComponent("test.Other"));
+    assertNull(config.findComponent("org.apache.myfaces.trinidad.Command"));
+
+    cached = FacesConfigSnapshot.read(_cacheFile);
+    assertTrue(cached.getKey().indexOf("Other.xml") != -1);
+    assertTrue(cached.getKey().indexOf("Command.xml") == -1);
+  }
+
+  private FacesConfigBean _processIndex(
+    String master) throws MojoExecutionException
+  {
+    IndexMojo mojo = new IndexMojo();
+    setMojoField(mojo, "localResource", new File(_directory, master));
+    setMojoField(mojo, "indexCacheFile", _cacheFile);
+    mojo.execute();
+    return mojo.getFacesConfig();
+  }
+
+  private void _writeMaster(
+    String master,
+    String entry) throws IOException
+  {
+    FileUtils.fileWrite(new File(_directory, master).getPath(),
+      "<faces-config xmlns=\"http://java.sun.com/xml/ns/javaee\"\n" +
+      "              xmlns:xi=\"http://www.w3.org/2001/XInclude\">\n" +
+      "  <xi:include href=\"" + entry + "\" xpointer=\"/faces-config/*\"/>\n" +
+      "</faces-config>\n");
+  }
+
+  static private class IndexMojo extends AbstractFacesMojo
+  {
+    public void execute() throws MojoExecutionException
+    {
+      processIndex(null, null);
+    }
+
+    public FacesConfigBean getFacesConfig()
+    {
+      return super.getFacesConfig();
+    }
+  }
+
+  private File _directory;
+  private File _cacheFile;
+}
@@ -64,15 +64,25 @@ abstract public class AbstractMojoTestCase extends TestCase
   {
     try
     {
-      Class mojoClass = mojo.getClass();
-      Field field = mojoClass.getDeclaredField(name);
-      field.setAccessible(true);
-      field.set(mojo, value);
-    }
-    catch (NoSuchFieldException e)
-    {
+      // the field can be declared by a base mojo class
+      for (Class mojoClass = mojo.getClass(); mojoClass != null;
+           mojoClass = mojoClass.getSuperclass())
+      {
+        try
+        {
+          Field field = mojoClass.getDeclaredField(name);
+          field.setAccessible(true);
+          field.set(mojo, value);
+          return;
+        }
+        catch (NoSuchFieldException e)
+        {
+          // look in the superclass
+        }
+      }
+
       throw new MojoExecutionException("Unknown Mojo property " +
-                                       "\"" + name + "\"", e);
+                                       "\"" + name + "\"");
     }
     catch (IllegalAccessException e)
     {
@@ -53,6 +53,8 @@ public class GenerateComponentsMojoTest extends AbstractMojoTestCase
     setMojoField(mojo, "templateSourceDirectory",
                            new File("src/test/java-templates"));
     setMojoField(mojo, "generatedSourceDirectory", genSrcDir);
+    setMojoField(mojo, "fingerprintFile",
+                 new File("target/mojo-test-output/generate-components.properties"));
     setMojoField(mojo, "force", Boolean.TRUE);
 
     _mojo = mojo;
@@ -0,0 +1,301 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.maven.plugin.Mojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.FileUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests the JSP and Facelets tag library generation mojos, for tag
+ * libraries merged with a base document that includes other documents.
+ * The expected documents were generated by the mojos before they expanded
+ * the xi:include elements while writing, so only the parsed content is
+ * compared, not the serialization.
+ */
+public class GenerateTaglibsMojoTest extends AbstractMojoTestCase
+{
+  /**
+   * Creates a new GenerateTaglibsMojoTest.
+   *
+   * @param testName  the test to execute
+   */
+  public GenerateTaglibsMojoTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp() throws Exception
+  {
+    _targetDir = new File("target/taglib-test", getName());
+    FileUtils.deleteDirectory(_targetDir);
+  }
+
+  public void tearDown()
+  {
+    _targetDir = null;
+  }
+
+  public void testJsp12Taglib() throws Exception
+  {
+    Mojo mojo = _createJspMojo("test", null);
+    mojo.execute();
+
+    _assertGenerated("META-INF/test.tld");
+  }
+
+  public void testJsp21Taglib() throws Exception
+  {
+    Mojo mojo = _createJspMojo("test21", "1.2");
+    mojo.execute();
+
+    _assertGenerated("META-INF/test21.tld");
+  }
+
+  public void testFaceletsTaglib() throws Exception
+  {
+    Mojo mojo = new GenerateFaceletsTaglibsMojo();
+    _setCommonFields(mojo, "test");
+    mojo.execute();
+
+    _assertGenerated("META-INF/test.taglib.xml");
+  }
+
+  private Mojo _createJspMojo(
+    String shortName,
+    String jsfVersion) throws MojoExecutionException
+  {
+    Mojo mojo = new GenerateJspTaglibsMojo();
+    _setCommonFields(mojo, shortName);
+    setMojoField(mojo, "templateSourceDirectory",
+                 new File("src/test/java-templates"));
+    setMojoField(mojo, "generatedSourceDirectory",
+                 new File(_targetDir, "java"));
+    // the tag handlers are not generated
+    setMojoField(mojo, "packageContains", "none");
+    setMojoField(mojo, "jsfVersion", jsfVersion);
+    return mojo;
+  }
+
+  private void _setCommonFields(
+    Mojo   mojo,
+    String shortName) throws MojoExecutionException
+  {
+    Map taglibs = new HashMap();
+    taglibs.put(shortName, "http://myfaces.apache.org/test");
+
+    setMojoProject(mojo, "project");
+    setMojoField(mojo, "localResource",
+                 new File(_FIXTURE_DIR, "faces-config.xml"));
+    setMojoField(mojo, "taglibs", taglibs);
+    setMojoField(mojo, "configSourceDirectory", new File(_FIXTURE_DIR, "conf"));
+    setMojoField(mojo, "generatedResourcesDirectory",
+                 new File(_targetDir, "resources"));
+    setMojoField(mojo, "force", Boolean.TRUE);
+  }
+
+  private void _assertGenerated(
+    String path) throws Exception
+  {
+    File targetFile = new File(new File(_targetDir, "resources"), path);
+    assertTrue("Missing " + targetFile, targetFile.isFile());
+
+    File expectedFile = new File(new File(_FIXTURE_DIR, "expected"), path);
+    assertEquals(_readDocument(expectedFile), _readDocument(targetFile));
+  }
+
+  /**
+   * Returns the parsed content of a document, one event per line.
+   */
+  static private String _readDocument(
+    File file) throws Exception
+  {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+    XMLReader reader = factory.newSAXParser().getXMLReader();
+
+    DocumentRecorder recorder = new DocumentRecorder();
+    reader.setContentHandler(recorder);
+    reader.setEntityResolver(recorder);
+    reader.setProperty("http://xml.org/sax/properties/lexical-handler",
+                       recorder);
+    InputStream in = new FileInputStream(file);
+    try
+    {
+      reader.parse(new InputSource(in));
+    }
+    finally
+    {
+      in.close();
+    }
+    return recorder.toString();
+  }
+
+  static private class DocumentRecorder extends DefaultHandler
+                                        implements LexicalHandler
+  {
+    public InputSource resolveEntity(
+      String publicId,
+      String systemId)
+    {
+      // the DTDs are never loaded
+      return new InputSource(new StringReader(""));
+    }
+
+    public void startPrefixMapping(
+      String prefix,
+      String uri)
+    {
+      _add("xmlns:" + prefix + "=" + uri);
+    }
+
+    public void startElement(
+      String     uri,
+      String     localName,
+      String     qName,
+      Attributes attributes)
+    {
+      List names = new ArrayList();
+      for (int i=0; i < attributes.getLength(); i++)
+      {
+        names.add("{" + attributes.getURI(i) + "}" +
+                  attributes.getLocalName(i) + "=" + attributes.getValue(i));
+      }
+      Collections.sort(names);
+      _add("<{" + uri + "}" + localName + " " + names);
+    }
+
+    public void endElement(
+      String uri,
+      String localName,
+      String qName)
+    {
+      _add("</{" + uri + "}" + localName);
+    }
+
+    public void characters(
+      char[] ch,
+      int    start,
+      int    length)
+    {
+      // CDATA sections and adjacent text are the same characters
+      _text.append(ch, start, length);
+    }
+
+    public void ignorableWhitespace(
+      char[] ch,
+      int    start,
+      int    length)
+    {
+      _text.append(ch, start, length);
+    }
+
+    public void processingInstruction(
+      String target,
+      String data)
+    {
+      _add("<?" + target + " " + data);
+    }
+
+    public void startDTD(
+      String name,
+      String publicId,
+      String systemId)
+    {
+      _add("<!DOCTYPE " + name + " " + publicId + " " + systemId);
+    }
+
+    public void endDTD()
+    {
+    }
+
+    public void startEntity(
+      String name)
+    {
+    }
+
+    public void endEntity(
+      String name)
+    {
+    }
+
+    public void startCDATA()
+    {
+    }
+
+    public void endCDATA()
+    {
+    }
+
+    public void comment(
+      char[] ch,
+      int    start,
+      int    length)
+    {
+      _add("<!--" + new String(ch, start, length));
+    }
+
+    public String toString()
+    {
+      _flushText();
+      return _document.toString();
+    }
+
+    private void _add(
+      String event)
+    {
+      _flushText();
+      _document.append(event).append('\n');
+    }
+
+    private void _flushText()
+    {
+      if (_text.length() > 0)
+      {
+        _document.append("text:").append(_text).append('\n');
+        _text.setLength(0);
+      }
+    }
+
+    private final StringBuffer _document = new StringBuffer();
+    private final StringBuffer _text = new StringBuffer();
+  }
+
+  private File _targetDir;
+
+  static private final File _FIXTURE_DIR = new File("src/test/resources/taglib");
+}
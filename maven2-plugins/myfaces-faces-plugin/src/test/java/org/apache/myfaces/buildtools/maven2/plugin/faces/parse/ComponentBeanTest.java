@@ -0,0 +1,211 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.myfaces.buildtools.maven2.plugin.faces.util.CompoundIterator;
+
+/**
+ * Tests the flattened properties, facets and events of components.
+ */
+public class ComponentBeanTest extends TestCase
+{
+  public ComponentBeanTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp()
+  {
+    _config = new FacesConfigBean();
+    _base = _addComponent("test.Base", null,
+                          new String[] { "id", "rendered" },
+                          new String[] { "header" },
+                          new String[] { "test.Action" });
+    _middle = _addComponent("test.Middle", "test.Base",
+                            new String[] { "value", "converter" },
+                            new String[] { "footer", "separator" },
+                            new String[] { "test.Value" });
+    _leaf = _addComponent("test.Leaf", "test.Middle",
+                          new String[] { "text" },
+                          new String[] { "icon" },
+                          new String[] { "test.Launch", "test.Return" });
+  }
+
+  public void tearDown()
+  {
+    _config = null;
+    _base = null;
+    _middle = null;
+    _leaf = null;
+  }
+
+  public void testFlattenedOrder()
+  {
+    ComponentBean[] components = new ComponentBean[] { _leaf, _middle, _base };
+    for (int i = 0; i < components.length; i++)
+    {
+      ComponentBean component = components[i];
+      // called twice, the second call uses the stored views
+      for (int j = 0; j < 2; j++)
+      {
+        assertEquals(_toList(_compoundProperties(component)),
+                     _toList(component.properties(true)));
+        assertEquals(_toList(_compoundFacets(component)),
+                     _toList(component.facets(true)));
+        assertEquals(_toList(_compoundEvents(component)),
+                     _toList(component.events(true)));
+      }
+    }
+
+    assertEquals(5, _toList(_leaf.properties(true)).size());
+    assertEquals(4, _toList(_leaf.facets(true)).size());
+    assertEquals(4, _toList(_leaf.events(true)).size());
+  }
+
+  public void testSupertypeChangeAfterFirstCall()
+  {
+    List properties = _toList(_leaf.properties(true));
+    List facets = _toList(_leaf.facets(true));
+    List events = _toList(_leaf.events(true));
+
+    PropertyBean property = new PropertyBean();
+    property.setPropertyName("styleClass");
+    _base.addProperty(property);
+
+    FacetBean facet = new FacetBean();
+    facet.setFacetName("toolbar");
+    _middle.addFacet(facet);
+
+    EventRefBean event = new EventRefBean();
+    event.setEventType("test.Focus");
+    _base.addEvent(event);
+
+    List newProperties = _toList(_leaf.properties(true));
+    assertEquals(properties.size() + 1, newProperties.size());
+    assertTrue(newProperties.contains(property));
+    assertEquals(_toList(_compoundProperties(_leaf)), newProperties);
+
+    List newFacets = _toList(_leaf.facets(true));
+    assertEquals(facets.size() + 1, newFacets.size());
+    assertTrue(newFacets.contains(facet));
+    assertEquals(_toList(_compoundFacets(_leaf)), newFacets);
+
+    List newEvents = _toList(_leaf.events(true));
+    assertEquals(events.size() + 1, newEvents.size());
+    assertTrue(newEvents.contains(event));
+    assertEquals(_toList(_compoundEvents(_leaf)), newEvents);
+
+    // a new supertype is picked up as well
+    ComponentBean other = _addComponent("test.Other", null,
+                                        new String[] { "title" },
+                                        new String[0],
+                                        new String[0]);
+    _middle.setComponentSupertype(other.getComponentType());
+    assertEquals(_toList(_compoundProperties(_leaf)),
+                 _toList(_leaf.properties(true)));
+    assertEquals(4, _toList(_leaf.properties(true)).size());
+  }
+
+  /**
+   * The flattened properties as computed with nested compound iterators.
+   */
+  static private Iterator _compoundProperties(
+    ComponentBean component)
+  {
+    Iterator properties = component.properties();
+    ComponentBean parent = component.resolveSupertype();
+    if (parent != null)
+      properties = new CompoundIterator(_compoundProperties(parent), properties);
+    return properties;
+  }
+
+  static private Iterator _compoundFacets(
+    ComponentBean component)
+  {
+    Iterator facets = component.facets();
+    ComponentBean parent = component.resolveSupertype();
+    if (parent != null)
+      facets = new CompoundIterator(facets, _compoundFacets(parent));
+    return facets;
+  }
+
+  static private Iterator _compoundEvents(
+    ComponentBean component)
+  {
+    Iterator events = component.events();
+    ComponentBean parent = component.resolveSupertype();
+    if (parent != null)
+      events = new CompoundIterator(events, _compoundEvents(parent));
+    return events;
+  }
+
+  private ComponentBean _addComponent(
+    String   componentType,
+    String   componentSupertype,
+    String[] propertyNames,
+    String[] facetNames,
+    String[] eventTypes)
+  {
+    ComponentBean component = new ComponentBean();
+    component.setComponentType(componentType);
+    component.setComponentSupertype(componentSupertype);
+    _config.addComponent(component);
+
+    for (int i = 0; i < propertyNames.length; i++)
+    {
+      PropertyBean property = new PropertyBean();
+      property.setPropertyName(propertyNames[i]);
+      component.addProperty(property);
+    }
+    for (int i = 0; i < facetNames.length; i++)
+    {
+      FacetBean facet = new FacetBean();
+      facet.setFacetName(facetNames[i]);
+      component.addFacet(facet);
+    }
+    for (int i = 0; i < eventTypes.length; i++)
+    {
+      EventRefBean event = new EventRefBean();
+      event.setEventType(eventTypes[i]);
+      component.addEvent(event);
+    }
+    return component;
+  }
+
+  static private List _toList(
+    Iterator values)
+  {
+    List list = new ArrayList();
+    while (values.hasNext())
+      list.add(values.next());
+    return list;
+  }
+
+  private FacesConfigBean _config;
+  private ComponentBean   _base;
+  private ComponentBean   _middle;
+  private ComponentBean   _leaf;
+}
@@ -0,0 +1,186 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the fingerprints of the generated components.
+ */
+public class ComponentFingerprintTest extends TestCase
+{
+  public ComponentFingerprintTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp() throws IOException
+  {
+    _templateFile = File.createTempFile("ComponentTemplate", ".java");
+    _write(_templateFile, "public class ComponentTemplate {}");
+    _fingerprint = new ComponentFingerprint("1.0");
+  }
+
+  public void tearDown()
+  {
+    _templateFile.delete();
+    _templateFile = null;
+    _fingerprint = null;
+  }
+
+  public void testStable() throws IOException
+  {
+    String hash = _getFingerprint(_createConfig());
+    assertEquals(32, hash.length());
+
+    // a config parsed again gives the same fingerprint
+    assertEquals(hash, _getFingerprint(_createConfig()));
+    assertEquals(hash, new ComponentFingerprint("1.0").getFingerprint(
+                         _createConfig().findComponent("test.Leaf"),
+                         _templateFile));
+
+    // the flattened views computed by the generator are not part of it
+    FacesConfigBean config = _createConfig();
+    ComponentBean leaf = config.findComponent("test.Leaf");
+    leaf.properties(true);
+    leaf.events(true);
+    assertEquals(hash, _fingerprint.getFingerprint(leaf, _templateFile));
+
+    assertFalse(hash.equals(new ComponentFingerprint("1.1").getFingerprint(
+                              leaf, _templateFile)));
+  }
+
+  public void testInheritedPropertyChange() throws IOException
+  {
+    String hash = _getFingerprint(_createConfig());
+
+    FacesConfigBean config = _createConfig();
+    PropertyBean property = new PropertyBean();
+    property.setPropertyName("styleClass");
+    property.setPropertyClass("java.lang.String");
+    config.findComponent("test.Base").addProperty(property);
+    String added = _getFingerprint(config);
+    assertFalse(hash.equals(added));
+
+    config = _createConfig();
+    PropertyBean inherited =
+      config.findComponent("test.Base").findProperty("rendered");
+    inherited.setPropertyClass("java.lang.Boolean");
+    assertFalse(hash.equals(_getFingerprint(config)));
+  }
+
+  public void testReferencedEventChange() throws IOException
+  {
+    String hash = _getFingerprint(_createConfig());
+
+    FacesConfigBean config = _createConfig();
+    config.findEvent("test.Launch").setEventClass("test.OtherLaunchEvent");
+    assertFalse(hash.equals(_getFingerprint(config)));
+
+    config = _createConfig();
+    config.findEvent("test.Launch").setEventListenerClass(
+                                       "test.OtherLaunchListener");
+    assertFalse(hash.equals(_getFingerprint(config)));
+  }
+
+  public void testTemplateChange() throws IOException
+  {
+    String hash = _getFingerprint(_createConfig());
+
+    _write(_templateFile, "public class ComponentTemplate { int i; }");
+    String changed = _getFingerprint(_createConfig());
+    assertFalse(hash.equals(changed));
+
+    _templateFile.delete();
+    String missing = _getFingerprint(_createConfig());
+    assertFalse(hash.equals(missing));
+    assertFalse(changed.equals(missing));
+  }
+
+  private String _getFingerprint(
+    FacesConfigBean config) throws IOException
+  {
+    return _fingerprint.getFingerprint(config.findComponent("test.Leaf"),
+                                       _templateFile);
+  }
+
+  static private FacesConfigBean _createConfig()
+  {
+    FacesConfigBean config = new FacesConfigBean();
+
+    EventBean event = new EventBean();
+    event.setEventType("test.Launch");
+    event.setEventClass("test.LaunchEvent");
+    event.setEventListenerClass("test.LaunchListener");
+    config.addEvent(event);
+
+    ComponentBean base = new ComponentBean();
+    base.setComponentType("test.Base");
+    base.setComponentClass("test.UIXBase");
+    base.addProperty(_createProperty("id", "java.lang.String"));
+    base.addProperty(_createProperty("rendered", "boolean"));
+    config.addComponent(base);
+
+    ComponentBean leaf = new ComponentBean();
+    leaf.setComponentType("test.Leaf");
+    leaf.setComponentClass("test.UIXLeaf");
+    leaf.setComponentSupertype("test.Base");
+    leaf.addProperty(_createProperty("text", "java.lang.String"));
+    EventRefBean eventRef = new EventRefBean();
+    eventRef.setEventType("test.Launch");
+    leaf.addEvent(eventRef);
+    config.addComponent(leaf);
+
+    return config;
+  }
+
+  static private PropertyBean _createProperty(
+    String propertyName,
+    String propertyClass)
+  {
+    PropertyBean property = new PropertyBean();
+    property.setPropertyName(propertyName);
+    property.setPropertyClass(propertyClass);
+    return property;
+  }
+
+  static private void _write(
+    File   file,
+    String content) throws IOException
+  {
+    Writer out = new FileWriter(file);
+    try
+    {
+      out.write(content);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  private File                 _templateFile;
+  private ComponentFingerprint _fingerprint;
+}
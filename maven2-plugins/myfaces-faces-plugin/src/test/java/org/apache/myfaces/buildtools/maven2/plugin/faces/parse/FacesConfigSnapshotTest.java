@@ -0,0 +1,280 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.parse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the snapshots of merged faces configs.
+ */
+public class FacesConfigSnapshotTest extends TestCase
+{
+  public FacesConfigSnapshotTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp() throws IOException
+  {
+    _directory = new File("target/snapshot-test");
+    FileUtils.deleteDirectory(_directory);
+    _directory.mkdirs();
+  }
+
+  public void tearDown()
+  {
+    _directory = null;
+  }
+
+  public void testSerialization() throws Exception
+  {
+    URL[] index = new URL[_INDEX.length];
+    for (int i=0; i < index.length; i++)
+    {
+      index[i] = getClass().getClassLoader().getResource(_INDEX[i]);
+      assertNotNull(_INDEX[i], index[i]);
+    }
+
+    FacesConfigBean config = _parse(index);
+    _addOtherBeans(config);
+
+    FacesConfigSnapshot snapshot =
+      new FacesConfigSnapshot("test-key", index, config);
+    File file = new File(_directory, "index.ser");
+    snapshot.write(file);
+
+    FacesConfigSnapshot copy = FacesConfigSnapshot.read(file);
+    assertNotNull(copy);
+    assertEquals("test-key", copy.getKey());
+    assertTrue(copy.isUpToDate());
+
+    // every kind of bean is part of the serialized config
+    Set beanClasses = _getSerializedClasses(copy.getFacesConfig());
+    for (int i=0; i < _BEAN_CLASSES.length; i++)
+    {
+      assertTrue(_BEAN_CLASSES[i].getName(),
+                 beanClasses.contains(_BEAN_CLASSES[i]));
+    }
+
+    // the components, with their supertypes and events, are the same
+    FacesConfigBean configCopy = copy.getFacesConfig();
+    ComponentFingerprint fingerprint = new ComponentFingerprint("1.0");
+    File template = new File(_directory, "missing");
+    int count = 0;
+    for (Iterator it = config.components(); it.hasNext(); count++)
+    {
+      ComponentBean component = (ComponentBean)it.next();
+      ComponentBean componentCopy =
+        configCopy.findComponent(component.getComponentType());
+      assertNotNull(componentCopy);
+      assertEquals(fingerprint.getFingerprint(component, template),
+                   fingerprint.getFingerprint(componentCopy, template));
+      assertEquals(_count(component.properties(true)),
+                   _count(componentCopy.properties(true)));
+    }
+    assertTrue(count > 0);
+    assertNotNull(configCopy.findComponent("org.apache.myfaces.trinidad.Command")
+                            .findProperty("includedProperty"));
+    assertEquals(_count(config.events()), _count(configCopy.events()));
+    assertEquals(_count(config.includedResources()),
+                 _count(configCopy.includedResources()));
+
+    ConverterBean converter = configCopy.findConverter("test.Converter");
+    assertEquals("test.ConverterImpl", converter.getConverterClass());
+    assertEquals("java.lang.String",
+                 converter.findProperty("pattern").getPropertyClass());
+    ValidatorBean validator = configCopy.findValidator("test.Validator");
+    assertEquals(new QName("http://test", "validator"), validator.getTagName());
+    RendererBean renderer =
+      configCopy.findRenderKit("test.RenderKit").findRenderer("test.Family",
+                                                              "test.Renderer");
+    assertEquals("test.RendererImpl", renderer.getRendererClass());
+    assertEquals("boolean", renderer.findAttribute("disabled").getAttributeClass());
+  }
+
+  public void testIncludedResourceModified() throws Exception
+  {
+    File source = new File("src/test/resources/META-INF/maven-faces-plugin/" +
+                           "components/trinidad/faces");
+    File component = new File(_directory, "Command.xml");
+    File included = new File(_directory, "TestInclude.xml");
+    FileUtils.copyFile(new File(source, "Command.xml"), component);
+    FileUtils.copyFile(new File(source, "TestInclude.xml"), included);
+
+    URL[] index = new URL[] { component.toURI().toURL() };
+    FacesConfigBean config = _parse(index);
+    assertEquals(included.toURI().toURL().toExternalForm(),
+                 ((URL)config.includedResources().next()).toExternalForm());
+
+    FacesConfigSnapshot snapshot = new FacesConfigSnapshot("key", index, config);
+    File file = new File(_directory, "index.ser");
+    snapshot.write(file);
+    assertTrue(snapshot.isUpToDate());
+
+    included.setLastModified(included.lastModified() + 10000);
+    assertFalse(snapshot.isUpToDate());
+    assertFalse(FacesConfigSnapshot.read(file).isUpToDate());
+  }
+
+  public void testReadInvalidFile() throws IOException
+  {
+    File file = new File(_directory, "index.ser");
+    assertNull(FacesConfigSnapshot.read(file));
+
+    FileUtils.fileWrite(file.getPath(), "not a snapshot");
+    assertNull(FacesConfigSnapshot.read(file));
+  }
+
+  static private FacesConfigBean _parse(
+    URL[] index) throws MojoExecutionException
+  {
+    FacesConfigBean config = new FacesConfigBean();
+    for (int i=0; i < index.length; i++)
+    {
+      URL old = config.setCurrentResource(index[i]);
+      try
+      {
+        new FacesConfigParser().merge(config, index[i]);
+      }
+      finally
+      {
+        config.setCurrentResource(old);
+      }
+    }
+    return config;
+  }
+
+  /**
+   * Adds the beans the test documents do not declare.
+   */
+  static private void _addOtherBeans(
+    FacesConfigBean config)
+  {
+    ConverterBean converter = new ConverterBean();
+    converter.setConverterId("test.Converter");
+    converter.setConverterClass("test.ConverterImpl");
+    PropertyBean pattern = new PropertyBean();
+    pattern.setPropertyName("pattern");
+    pattern.setPropertyClass("java.lang.String");
+    converter.addProperty(pattern);
+    config.addConverter(converter);
+
+    ValidatorBean validator = new ValidatorBean();
+    validator.setValidatorId("test.Validator");
+    validator.setValidatorClass("test.ValidatorImpl");
+    validator.setTagName(new QName("http://test", "validator"));
+    config.addValidator(validator);
+
+    RendererBean renderer = new RendererBean();
+    renderer.setComponentFamily("test.Family");
+    renderer.setRendererType("test.Renderer");
+    renderer.setRendererClass("test.RendererImpl");
+    AttributeBean disabled = new AttributeBean();
+    disabled.setAttributeName("disabled");
+    disabled.setAttributeClass("boolean");
+    MethodSignatureBean signature = new MethodSignatureBean();
+    signature.setReturnType("void");
+    signature.addParameterType("java.lang.Object");
+    disabled.setMethodBindingSignature(signature);
+    renderer.addAttribute(disabled);
+    FacetBean facet = new FacetBean();
+    facet.setFacetName("header");
+    renderer.addFacet(facet);
+
+    RenderKitBean renderKit = new RenderKitBean();
+    renderKit.setRenderKitId("test.RenderKit");
+    renderKit.addRenderer(renderer);
+    config.addRenderKit(renderKit);
+  }
+
+  /**
+   * Returns the classes of all the objects serialized with a config.
+   */
+  static private Set _getSerializedClasses(
+    FacesConfigBean config) throws IOException
+  {
+    final Set classes = new HashSet();
+    ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream())
+    {
+      {
+        enableReplaceObject(true);
+      }
+
+      protected Object replaceObject(
+        Object object)
+      {
+        classes.add(object.getClass());
+        return object;
+      }
+    };
+    out.writeObject(config);
+    out.close();
+    return classes;
+  }
+
+  static private int _count(
+    Iterator values)
+  {
+    int count = 0;
+    for (; values.hasNext(); values.next())
+      count++;
+    return count;
+  }
+
+  private File _directory;
+
+  static private final String[] _INDEX = new String[]
+  {
+    "META-INF/maven-faces-plugin/components/trinidad/faces/Command.xml",
+    "META-INF/maven-faces-plugin/events/javax/faces/Action.xml",
+    "META-INF/maven-faces-plugin/events/trinidad/faces/Launch.xml",
+    "META-INF/maven-faces-plugin/events/trinidad/faces/Return.xml"
+  };
+
+  static private final Class[] _BEAN_CLASSES = new Class[]
+  {
+    FacesConfigBean.class,
+    ComponentBean.class,
+    PropertyBean.class,
+    FacetBean.class,
+    EventRefBean.class,
+    EventBean.class,
+    ConverterBean.class,
+    ValidatorBean.class,
+    RenderKitBean.class,
+    RendererBean.class,
+    AttributeBean.class,
+    MethodSignatureBean.class
+  };
+}
@@ -0,0 +1,133 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the uses of the test template and of a synthetic template,
+ * read line by line as they were before they were cached, read from the
+ * cache, and read again after the file was touched.  It is not run by
+ * the build; after <code>mvn test-compile</code>, run it with:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;junit jar&gt;
+ *   org.apache.myfaces.buildtools.maven2.plugin.faces.util.SourceTemplateBenchmark [lines]
+ * </pre>
+ * The default synthetic template has 44000 lines.
+ */
+public class SourceTemplateBenchmark
+{
+  static public void main(
+    String[] args) throws Throwable
+  {
+    int lines = (args.length > 0) ? Integer.parseInt(args[0]) : 44000;
+    File testTemplate = new File("src/test/java-templates/org/apache/" +
+                                 "myfaces/trinidad/component/" +
+                                 "UIXCommandTemplate.java");
+    File synthetic = File.createTempFile("SyntheticTemplate", ".java");
+    try
+    {
+      _writeSynthetic(synthetic, lines);
+
+      Map substitutions = new HashMap();
+      substitutions.put("UIXCommandTemplate", "UIXCommand");
+      substitutions.put("SyntheticTemplate", "Synthetic");
+
+      // the first rounds warm up the reads
+      for (int round = 0; round < 5; round++)
+      {
+        System.out.println("test template: " +
+                           _run(testTemplate, substitutions, 2000));
+        System.out.println(lines + " lines: " +
+                           _run(synthetic, substitutions, 20));
+      }
+    }
+    finally
+    {
+      synthetic.delete();
+    }
+  }
+
+  /**
+   * @return the time per use of a template, read in each of the ways
+   */
+  static private String _run(
+    File file,
+    Map  substitutions,
+    int  uses) throws IOException
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < uses; i++)
+    {
+      SourceTemplateTest.readBefore(file, substitutions);
+    }
+    long before = (System.nanoTime() - start) / uses;
+
+    start = System.nanoTime();
+    for (int i = 0; i < uses; i++)
+    {
+      SourceTemplateTest.read(file, substitutions);
+    }
+    long cached = (System.nanoTime() - start) / uses;
+
+    long lastModified = file.lastModified();
+    start = System.nanoTime();
+    for (int i = 0; i < uses; i++)
+    {
+      file.setLastModified(lastModified + ((i % 2 == 0) ? 1000 : 0));
+      SourceTemplateTest.read(file, substitutions);
+    }
+    long touched = (System.nanoTime() - start) / uses;
+    file.setLastModified(lastModified);
+
+    return (before / 1000) + "us before, " + (cached / 1000) +
+           "us cached, " + (touched / 1000) + "us touched";
+  }
+
+  static private void _writeSynthetic(
+    File file,
+    int  lines) throws IOException
+  {
+    Writer out = new FileWriter(file);
+    try
+    {
+      out.write("package org.example;\n\n");
+      out.write("import java.io.Serializable;\n");
+      out.write("import java.util.List;\n\n");
+      out.write("public class SyntheticTemplate implements Serializable\n");
+      out.write("{\n");
+      out.write("/**///getChildren\n");
+      for (int i = 0; i < lines; i++)
+      {
+        out.write("  private String _field" + i +
+                  " = \"SyntheticTemplate.field" + i + "\";\n");
+      }
+      out.write("}\n");
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+}
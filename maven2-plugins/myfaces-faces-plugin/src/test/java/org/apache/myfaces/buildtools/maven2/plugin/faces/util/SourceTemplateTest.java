@@ -0,0 +1,435 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.faces.util;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the templates read by <code>SourceTemplate</code> with the
+ * templates read line by line, as they were read before they were
+ * cached, and tests the caches.
+ */
+public class SourceTemplateTest extends TestCase
+{
+  public SourceTemplateTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp() throws IOException
+  {
+    _templateFile = File.createTempFile("ComponentTemplate", ".java");
+  }
+
+  public void tearDown()
+  {
+    _templateFile.delete();
+    _templateFile = null;
+  }
+
+  public void testReadTemplate() throws IOException
+  {
+    _write(_templateFile, _TEMPLATE);
+
+    Map substitutions = new HashMap();
+    substitutions.put("ComponentTemplate", "UIXComponent");
+    Template expected = readBefore(_templateFile, substitutions);
+    Template template = read(_templateFile, substitutions);
+    _assertEquals(expected, template);
+
+    assertEquals(new HashSet(Arrays.asList(new String[] {
+                   "java.io.Serializable", "java.util.List" })),
+                 template.imports);
+    assertEquals(new HashSet(Arrays.asList(new String[] {
+                   "java.io.Serializable", "java.lang.Cloneable" })),
+                 template.implementz);
+    assertEquals(new HashSet(Arrays.asList(new String[] {
+                   "getChildren" })),
+                 template.ignoreMethods);
+    assertEquals("  public UIXComponent()\n" +
+                 "  {\n" +
+                 "    super(\"UIXComponent.UIXComponent\");\n" +
+                 "  }\n" +
+                 "\n" +
+                 "  public List getChildren() { return null; }\n",
+                 template.content);
+  }
+
+  public void testReadTestTemplate() throws IOException
+  {
+    File file = new File("src/test/java-templates/org/apache/myfaces/" +
+                         "trinidad/component/UIXCommandTemplate.java");
+    Map substitutions = new HashMap();
+    substitutions.put("RequestContext", "TestRequestContext");
+    substitutions.put("Listener", "ListenerProxy");
+
+    Template template = read(file, substitutions);
+    _assertEquals(readBefore(file, substitutions), template);
+    assertTrue(template.content.indexOf("TestRequestContext") >= 0);
+
+    // the parsed template is shared, the substitutions are not
+    template = read(file, new HashMap());
+    _assertEquals(readBefore(file, new HashMap()), template);
+    assertTrue(template.content.indexOf("TestRequestContext") < 0);
+  }
+
+  public void testUnchangedFileIsNotParsed() throws Exception
+  {
+    _write(_templateFile, _TEMPLATE);
+    SourceTemplate template = new SourceTemplate(_templateFile);
+    template.readPreface();
+    Object parsed = _getParsed(template);
+    template.close();
+
+    SourceTemplate again = new SourceTemplate(_templateFile);
+    again.readPreface();
+    assertSame(parsed, _getParsed(again));
+    again.close();
+  }
+
+  public void testTouchedFileReusesDigest() throws Exception
+  {
+    _write(_templateFile, _TEMPLATE);
+    SourceTemplate template = new SourceTemplate(_templateFile);
+    template.readPreface();
+    Object content = _getContent(template);
+    template.close();
+
+    _templateFile.setLastModified(_templateFile.lastModified() - 10000);
+    SourceTemplate touched = new SourceTemplate(_templateFile);
+    touched.readPreface();
+    assertSame(content, _getContent(touched));
+    touched.close();
+
+    // another file with the same content
+    File copy = File.createTempFile("ComponentTemplate", ".java");
+    try
+    {
+      _write(copy, _TEMPLATE);
+      SourceTemplate copied = new SourceTemplate(copy);
+      copied.readPreface();
+      assertSame(content, _getContent(copied));
+      copied.close();
+    }
+    finally
+    {
+      copy.delete();
+    }
+  }
+
+  public void testModifiedFileIsParsed() throws Exception
+  {
+    _write(_templateFile, _TEMPLATE);
+    long lastModified = _templateFile.lastModified();
+    Template template = read(_templateFile, new HashMap());
+
+    // the same length, another date
+    String modified = _TEMPLATE.replace("getChildren() {", "getFacetMap() {");
+    assertEquals(_TEMPLATE.length(), modified.length());
+    _write(_templateFile, modified);
+    _templateFile.setLastModified(lastModified - 10000);
+
+    Template expected = readBefore(_templateFile, new HashMap());
+    Template reparsed = read(_templateFile, new HashMap());
+    _assertEquals(expected, reparsed);
+    assertFalse(template.content.equals(reparsed.content));
+    assertTrue(reparsed.content.indexOf("getFacetMap()") >= 0);
+  }
+
+  public void testPrefaceEndedPrematurely() throws IOException
+  {
+    _write(_templateFile, "package org.example;\n" +
+                          "import java.util.List;\n" +
+                          "public class ComponentTemplate\n");
+    SourceTemplate template = new SourceTemplate(_templateFile);
+    try
+    {
+      template.readPreface();
+      fail("EOFException expected");
+    }
+    catch (EOFException e)
+    {
+      // expected
+    }
+
+    // the file is parsed again, and still ends prematurely
+    template = new SourceTemplate(_templateFile);
+    try
+    {
+      template.readPreface();
+      fail("EOFException expected");
+    }
+    catch (EOFException e)
+    {
+      // expected
+    }
+  }
+
+  public void testContentEndedPrematurely() throws IOException
+  {
+    _write(_templateFile, "public class ComponentTemplate\n" +
+                          "{\n" +
+                          "/**///getChildren\n" +
+                          "  private int _count;\n");
+    SourceTemplate template = new SourceTemplate(_templateFile);
+    template.readPreface();
+
+    // the content is written before the end is found missing
+    StringWriter out = new StringWriter();
+    try
+    {
+      template.writeContent(out);
+      fail("EOFException expected");
+    }
+    catch (EOFException e)
+    {
+      // expected
+    }
+    assertEquals("  private int _count;\n", out.toString());
+    assertEquals(new HashSet(Arrays.asList(new String[] { "getChildren" })),
+                 new HashSet(template.getIgnoreMethods()));
+    template.close();
+  }
+
+  /**
+   * Reads a template line by line, as it was read before it was cached.
+   */
+  static Template readBefore(
+    File file,
+    Map  substitutions) throws IOException
+  {
+    Template template = new Template();
+    Map fqcnMap = new HashMap();
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try
+    {
+      while (true)
+      {
+        String line = reader.readLine();
+        if (line == null)
+          throw new EOFException("File " + file + " ended prematurely");
+
+        if (line.equals("{"))
+          break;
+
+        if (line.startsWith("import "))
+        {
+          line = line.trim();
+          String imported = line.substring("import ".length(),
+                                           line.length() - 1);
+          template.imports.add(imported);
+          fqcnMap.put(Util.getClassFromFullClass(imported), imported);
+        }
+
+        int index = line.indexOf(" implements ");
+        if (index != -1)
+        {
+          String clause = line.substring(index + " implements ".length());
+          String[] interfaces = clause.split(", ");
+          for (int i=0; i < interfaces.length; i++)
+          {
+            String className = interfaces[i];
+            if (!Util.isFullClass(className))
+            {
+              String importedName = (String)fqcnMap.get(className);
+              if (importedName != null)
+                className = importedName;
+            }
+            template.implementz.add(className);
+          }
+        }
+      }
+
+      StringBuffer content = new StringBuffer();
+      while (true)
+      {
+        String line = reader.readLine();
+        if (line == null)
+          throw new EOFException("File " + file + " ended prematurely");
+
+        if (line.trim().startsWith("/**/"))
+        {
+          if (line.trim().startsWith("/**///"))
+          {
+            String method = line.trim().substring("/**///".length()).trim();
+            if (method.length() > 0)
+              template.ignoreMethods.add(method);
+          }
+          continue;
+        }
+
+        if (line.equals("}"))
+          break;
+
+        Iterator keys = substitutions.keySet().iterator();
+        while (keys.hasNext())
+        {
+          String key = (String) keys.next();
+          line = _substituteBefore(line, key,
+                                   (String) substitutions.get(key));
+        }
+        content.append(line).append('\n');
+      }
+      template.content = content.toString();
+    }
+    finally
+    {
+      reader.close();
+    }
+
+    return template;
+  }
+
+  static private String _substituteBefore(
+    String in,
+    String from,
+    String to)
+  {
+    int index = in.indexOf(from);
+    if (index < 0)
+      return in;
+
+    StringBuffer buffer = new StringBuffer(in.length() +
+                                           to.length() - from.length());
+    buffer.append(in.substring(0, index));
+    buffer.append(to);
+    String suffix = in.substring(index + from.length());
+    buffer.append(_substituteBefore(suffix, from, to));
+
+    return buffer.toString();
+  }
+
+  static Template read(
+    File file,
+    Map  substitutions) throws IOException
+  {
+    SourceTemplate sourceTemplate = new SourceTemplate(file);
+    Iterator keys = substitutions.keySet().iterator();
+    while (keys.hasNext())
+    {
+      String key = (String) keys.next();
+      sourceTemplate.substitute(key, (String) substitutions.get(key));
+    }
+
+    Template template = new Template();
+    sourceTemplate.readPreface();
+    StringWriter out = new StringWriter();
+    sourceTemplate.writeContent(out);
+    sourceTemplate.close();
+
+    template.imports.addAll(sourceTemplate.getImports());
+    template.implementz.addAll(sourceTemplate.getImplements());
+    template.ignoreMethods.addAll(sourceTemplate.getIgnoreMethods());
+    template.content = out.toString();
+    return template;
+  }
+
+  static private void _assertEquals(
+    Template expected,
+    Template template)
+  {
+    assertEquals(expected.imports, template.imports);
+    assertEquals(expected.implementz, template.implementz);
+    assertEquals(expected.ignoreMethods, template.ignoreMethods);
+    assertEquals(expected.content, template.content);
+  }
+
+  static private Object _getParsed(
+    SourceTemplate template) throws Exception
+  {
+    Field field = SourceTemplate.class.getDeclaredField("_parsed");
+    field.setAccessible(true);
+    return field.get(template);
+  }
+
+  static private Object _getContent(
+    SourceTemplate template) throws Exception
+  {
+    Object parsed = _getParsed(template);
+    Field field = parsed.getClass().getDeclaredField("content");
+    field.setAccessible(true);
+    return field.get(parsed);
+  }
+
+  static private void _write(
+    File   file,
+    String content) throws IOException
+  {
+    Writer out = new FileWriter(file);
+    try
+    {
+      out.write(content);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /**
+   * The preface and the content of a template, once read.
+   */
+  static class Template
+  {
+    public final Set imports = new HashSet();
+    public final Set implementz = new HashSet();
+    public final Set ignoreMethods = new HashSet();
+    public String    content;
+  }
+
+  private File _templateFile;
+
+  static private final String _TEMPLATE =
+    "package org.example;\n" +
+    "\n" +
+    "import java.io.Serializable;\n" +
+    "import java.util.List;\n" +
+    "\n" +
+    "public class ComponentTemplate implements Serializable, " +
+    "java.lang.Cloneable\n" +
+    "{\n" +
+    "/**/  // ignored\n" +
+    "/**///getChildren\n" +
+    "/**///\n" +
+    "  public ComponentTemplate()\n" +
+    "  {\n" +
+    "    super(\"ComponentTemplate.ComponentTemplate\");\n" +
+    "  }\n" +
+    "\n" +
+    "  public List getChildren() { return null; }\n" +
+    "}\n" +
+    "// after the end\n";
+}
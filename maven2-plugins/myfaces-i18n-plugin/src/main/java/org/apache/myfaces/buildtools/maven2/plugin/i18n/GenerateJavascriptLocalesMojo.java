@@ -18,11 +18,22 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.i18n;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.URL;
+import java.net.URLConnection;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Properties;
 
 import org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools.JSLocaleElementsGenerator;
 
@@ -50,41 +61,34 @@ public class GenerateJavascriptLocalesMojo extends AbstractMojo
 
       File outputDirectory = new File(targetDirectory, targetPath);
 
-      // Incremental check
-      boolean uptodate = false;
-
-      // TODO: determine how best to check for incremental
-//      if (!force)
-//      {
-//        String[] localeStrings = getLocaleStrings();
-//        String bundlePath = JSLocaleElementsGenerator._DEFAULT_BUNDLE_LOCATION_PATH;
-//        for (int i=0; i < localeStrings.length; i++)
-//        {
-//          String path = bundlePath + "LocaleElements" +
-//                        localeStrings[i] + ".java";
-//          File targetFile = new File(targetDirectory, path);
-//          if (!targetFile.exists())
-//          {
-//            uptodate = false;
-//            break;
-//          }
-//        }
-//      }
-
-      if (force || !uptodate)
+      List argsList = new ArrayList();
+
+      argsList.add("outDir=" + outputDirectory.getCanonicalPath());
+      argsList.add("writeJavascript=true");
+      argsList.add("writeSource=false");
+      argsList.add("verbose=false");
+      argsList.add("prettyPrint=true");
+      argsList.add("deltas=" + deltas);
+      if (generationThreads > 0)
       {
-        getLog().info("Generating Javascript Locales");
+        argsList.add("threads=" + generationThreads);
+      }
 
-        List argsList = new ArrayList();
+      String[] args = (String[])argsList.toArray(new String[0]);
 
-        argsList.add("outDir=" + outputDirectory.getCanonicalPath());
-        argsList.add("writeJavascript=true");
-        argsList.add("writeSource=false");
-        argsList.add("verbose=false");
-        argsList.add("prettyPrint=true");
+      // Incremental check: the generated files only depend on the JDK
+      // and on the generator, which are recorded in the manifest
+      Properties manifest = getManifest(args);
+      boolean uptodate = !force &&
+                         manifest.equals(readManifest()) &&
+                         isGenerated(outputDirectory);
+
+      if (!uptodate)
+      {
+        getLog().info("Generating Javascript Locales");
 
-        String[] args = (String[])argsList.toArray(new String[0]);
-        JSLocaleElementsGenerator.main(args);
+        JSLocaleElementsGenerator.generate(args);
+        writeManifest(manifest);
       }
       else
       {
@@ -108,22 +112,92 @@ public class GenerateJavascriptLocalesMojo extends AbstractMojo
     resources.add(resource);
   }
 
-  private String[] getLocaleStrings()
+  /**
+   * Returns the manifest of the generation: the JDK providing the
+   * Locale information, the generator and its arguments.
+   */
+  private Properties getManifest(
+    String[] args) throws IOException
   {
-    if ("en_US".equals(locale))
+    Properties manifest = new Properties();
+    manifest.setProperty("java.vendor", System.getProperty("java.vendor"));
+    manifest.setProperty("java.version", System.getProperty("java.version"));
+    manifest.setProperty("java.home", System.getProperty("java.home"));
+
+    String className = JSLocaleElementsGenerator.class.getName();
+    URL classFile = JSLocaleElementsGenerator.class.getClassLoader().getResource(
+                                   className.replace('.', '/') + ".class");
+    if (classFile != null)
     {
-      return new String[] { "" };
+      URLConnection conn = classFile.openConnection();
+      manifest.setProperty("generator", classFile.toExternalForm() + "|" +
+                                        conn.getLastModified());
     }
 
-    Locale[] locales = Locale.getAvailableLocales();
-    String[] localeStrings = new String[locales.length];
+    StringBuffer arguments = new StringBuffer();
+    for (int i=0; i < args.length; i++)
+    {
+      // the number of threads does not change the generated files
+      if (!args[i].startsWith("threads="))
+      {
+        arguments.append(args[i]).append(' ');
+      }
+    }
+    manifest.setProperty("arguments", arguments.toString());
+
+    return manifest;
+  }
+
+  private Properties readManifest() throws IOException
+  {
+    Properties manifest = new Properties();
+    if (manifestFile.isFile())
+    {
+      InputStream in = new BufferedInputStream(new FileInputStream(manifestFile));
+      try
+      {
+        manifest.load(in);
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    return manifest;
+  }
 
-    for (int i=0; i < localeStrings.length; i++)
+  private void writeManifest(
+    Properties manifest) throws IOException
+  {
+    manifestFile.getParentFile().mkdirs();
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(manifestFile));
+    try
     {
-      localeStrings[i] = locales[i].getDisplayName();
+      manifest.store(out, "Javascript Locales generation");
     }
+    finally
+    {
+      out.close();
+    }
+  }
 
-    return localeStrings;
+  /**
+   * Returns true if the files of all the available Locales exist.
+   */
+  private boolean isGenerated(
+    File outputDirectory)
+  {
+    Locale[] locales = Locale.getAvailableLocales();
+    for (int i=0; i < locales.length; i++)
+    {
+      String fileName = JSLocaleElementsGenerator.getJavascriptFileName(locales[i], null);
+      if (!new File(outputDirectory, fileName).exists())
+      {
+        return false;
+      }
+    }
+
+    return true;
   }
 
   /**
@@ -153,4 +227,31 @@ public class GenerateJavascriptLocalesMojo extends AbstractMojo
    * @parameter
    */
   private boolean force;
+
+  /**
+   * File recording the JDK and the generator used for the last
+   * generation, which is skipped while they do not change.
+   *
+   * @parameter expression="${project.build.directory}/maven-i18n-plugin/javascript-locales.properties"
+   * @required
+   */
+  private File manifestFile;
+
+  /**
+   * Number of threads used to generate the Locales. Defaults to the
+   * number of available processors.
+   *
+   * @parameter expression="${maven.i18n.generationThreads}"
+   */
+  private int generationThreads;
+
+  /**
+   * Whether the file of a Locale only contains the differences from its
+   * parent Locale.  A delta file merges with the LocaleElements_&lt;parent&gt;
+   * variable of its parent's file, so it throws a ReferenceError unless
+   * the parent's file is loaded first.
+   *
+   * @parameter expression="${maven.i18n.deltas}"
+   */
+  private boolean deltas;
 }
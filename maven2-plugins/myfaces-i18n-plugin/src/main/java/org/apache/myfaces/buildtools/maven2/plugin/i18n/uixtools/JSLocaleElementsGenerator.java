@@ -20,17 +20,33 @@ package org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Generates JavaScript libraries containing the Locale information from
@@ -63,9 +79,34 @@ public class JSLocaleElementsGenerator
           "ResourceBundles for this variant, and nothing else.");
       System.out.println("\tverbose=true\t\tTurns on verbose output");
       System.out.println("\tgenerateBundleBaseOnly=true\t\tGenerates the base LocaleElement.java file only");
+      System.out.println("\tthreads=[count]\t\tNumber of locales generated in parallel (defaults to the processors)");
+      System.out.println("\tlocaleElements=[base name]\tResourceBundle with the Locale information (defaults to " +
+                         _LOCALE_ELEMENTS_PATH + ")");
+      System.out.println("\tdeltas=true\t\tWrites only the differences of each locale from its parent locale");
+      System.out.println("\t\t\t\t(the parent's file must be loaded first, or LocaleElements_<parent> is a ReferenceError)");
       System.exit(0);
     }
 
+    try
+    {
+      generate(args);
+    }
+    catch (IOException e)
+    {
+      System.err.println(e);
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Generates the Locale information files.
+   *
+   * @param args  the parameters, as described by the "?" parameter
+   */
+  public static void generate(
+    String[] args
+    ) throws IOException
+  {
     // whether the output should be pretty printed for legibility
     boolean prettyPrint = getArgBooleanValue(args, "prettyPrint", true);
 
@@ -130,6 +171,21 @@ public class JSLocaleElementsGenerator
     String version = getArgStringValue(args, "version", null);
     version = VersionUtils.normalizeVersionSuffix(version);
 
+    int threads = Runtime.getRuntime().availableProcessors();
+    String threadsValue = getArgStringValue(args, "threads", null);
+    if (threadsValue != null)
+    {
+      threads = Math.max(1, Integer.parseInt(threadsValue));
+    }
+
+    // whether the JavaScript libraries only contain the differences
+    // from the parent locale
+    boolean deltas = getArgBooleanValue(args, "deltas", false);
+
+    // the ResourceBundle the Locale information is read from
+    String localeElements = getArgStringValue(args, "localeElements",
+                                              _LOCALE_ELEMENTS_PATH);
+
     if (verbose)
     {
       System.out.println("Writing files to: " + outDir);
@@ -140,76 +196,65 @@ public class JSLocaleElementsGenerator
       System.out.println("Writing bundles to: " + fullBundleOutDir);
     }
 
-    try
+    File localeListFile = null;
+
+    if (writeSource)
     {
-      File localeListFile = null;
+      (new File(fullBundleOutDir)).mkdirs();
+    }
 
-      if (writeSource)
-      {
-        (new File(fullBundleOutDir)).mkdirs();
-      }
+    if (writeJavascript)
+    {
+      (new File(outDir)).mkdirs();
+    }
 
-      if (writeJavascript)
-      {
-        (new File(outDir)).mkdirs();
-      }
+    if (writeAll && writeSource && !generateBundleBaseOnly)
+    {
+      localeListFile = new File(sourceDir, _LOCALE_LIST_PATH);
+      localeListFile.getParentFile().mkdirs();
+      localeListFile.createNewFile();
+    }
 
-      if (writeAll && writeSource && !generateBundleBaseOnly)
-      {
-        localeListFile = new File(sourceDir, _LOCALE_LIST_PATH);
-        localeListFile.getParentFile().mkdirs();
-        localeListFile.createNewFile();
-      }
+    Locale[] locales = null;
 
-      Locale[] locales = null;
+    if (generateBundleBaseOnly)
+    {
+       locales = new Locale[1];
+       locales[0] = Locale.US;
+    }
+    else
+    {
+      locales = Locale.getAvailableLocales();
+    }
 
-      if (generateBundleBaseOnly)
-      {
-         locales = new Locale[1];
-         locales[0] = Locale.US;
-      }
-      else
-      {
-        locales = Locale.getAvailableLocales();
-      }
+    //
+    // loop through the available Locales, writing their contents out
+    // as JavaScript libraries and/or ResourceBundles
+    //
+    _generateJSLocaleElements(outDir, fullBundleOutDir, locales,
+                              variant, prettyPrint, verbose,
+                              writeJavascript, writeSource, generateBundleBaseOnly, version,
+                              localeElements, deltas, threads);
+
+    // And write out a listing of all the locales, but  not when we want to
+    // just generate the base Resource file.
+    if (writeAll && writeSource && !generateBundleBaseOnly)
+    {
+      Writer sourceWriter = new FileWriter(localeListFile);
+      sourceWriter.write(_LOCALE_LIST_CODE_START);
 
-      //
-      // loop through the available Locales, writing their contents out
-      // as JavaScript libraries and/or ResourceBundles
-      //
       for (int i = 0; i < locales.length; i++)
       {
-        // write the JavaSCript library for this locale
-        _generateJSLocaleElements(outDir, fullBundleOutDir, locales[i],
-                                  variant, prettyPrint, verbose,
-                                  writeJavascript, writeSource, generateBundleBaseOnly, version);
-      }
-
-      // And write out a listing of all the locales, but  not when we want to
-      // just generate the base Resource file.
-      if (writeAll && writeSource && !generateBundleBaseOnly)
-      {
-        Writer sourceWriter = new FileWriter(localeListFile);
-        sourceWriter.write(_LOCALE_LIST_CODE_START);
-
-        for (int i = 0; i < locales.length; i++)
-        {
-          sourceWriter.write("    new Locale(\"");
-          sourceWriter.write(locales[i].getLanguage());
-          sourceWriter.write("\",\"");
-          sourceWriter.write(locales[i].getCountry());
-          sourceWriter.write("\",\"");
-          sourceWriter.write(locales[i].getVariant());
-          sourceWriter.write("\"),\n");
-        }
-        sourceWriter.write(_LOCALE_LIST_CODE_END);
-        sourceWriter.close();
+        sourceWriter.write("    new Locale(\"");
+        sourceWriter.write(locales[i].getLanguage());
+        sourceWriter.write("\",\"");
+        sourceWriter.write(locales[i].getCountry());
+        sourceWriter.write("\",\"");
+        sourceWriter.write(locales[i].getVariant());
+        sourceWriter.write("\"),\n");
       }
-    }
-    catch (IOException e)
-    {
-      System.err.println(e);
-      e.printStackTrace();
+      sourceWriter.write(_LOCALE_LIST_CODE_END);
+      sourceWriter.close();
     }
 
     if (verbose)
@@ -294,6 +339,259 @@ public class JSLocaleElementsGenerator
     return defaultValue;
   }
 
+  /**
+   * Returns the name of the JavaScript library generated for a Locale.
+   *
+   * @param locale   the Locale
+   * @param version  the version suffix, or null
+   */
+  public static String getJavascriptFileName(
+    Locale locale,
+    String version
+    )
+  {
+    return _getFileName(locale, VersionUtils.normalizeVersionSuffix(version),
+                        false) + _JAVASCRIPT_EXTENSION;
+  }
+
+  private static void _generateJSLocaleElements(
+    final String  outDir,
+    final String  bundleOutDir,
+    Locale[]      targetLocales,
+    final String  variant,
+    final boolean prettyPrint,
+    final boolean verbose,
+    final boolean writeJavascript,
+    final boolean writeSource,
+    final boolean generateBundleBaseOnly,
+    final String  version,
+    final String  localeElements,
+    boolean       deltas,
+    int           threads
+    ) throws IOException
+  {
+    if (deltas && variant == null && writeJavascript && !generateBundleBaseOnly)
+    {
+      _generateJSLocaleDeltas(outDir, targetLocales, prettyPrint, verbose,
+                              version, localeElements, threads);
+      return;
+    }
+
+    // the Locales are independent of each other, so they are generated
+    // on a pool of threads
+    List tasks = new ArrayList(targetLocales.length);
+    for (int i = 0; i < targetLocales.length; i++)
+    {
+      final Locale targetLocale = targetLocales[i];
+      tasks.add(new Callable()
+      {
+        public Object call() throws IOException
+        {
+          _generateJSLocaleElements(outDir, bundleOutDir, targetLocale,
+                                    variant, prettyPrint, verbose,
+                                    writeJavascript, writeSource,
+                                    generateBundleBaseOnly, version,
+                                    localeElements);
+          return null;
+        }
+      });
+    }
+
+    _invokeAll(tasks, threads);
+  }
+
+  /**
+   * Writes the JavaScript libraries with the differences of each Locale
+   * from its parent Locale.
+   */
+  private static void _generateJSLocaleDeltas(
+    final String  outDir,
+    Locale[]      targetLocales,
+    final boolean prettyPrint,
+    final boolean verbose,
+    final String  version,
+    final String  localeElements,
+    int           threads
+    ) throws IOException
+  {
+    // read the information of all the Locales first,
+    // so each Locale can be compared with its parent
+    List tasks = new ArrayList(targetLocales.length);
+    for (int i = 0; i < targetLocales.length; i++)
+    {
+      final Locale targetLocale = targetLocales[i];
+      tasks.add(new Callable()
+      {
+        public Object call()
+        {
+          return getLocaleElements(targetLocale, localeElements, prettyPrint);
+        }
+      });
+    }
+
+    List elements = _invokeAll(tasks, threads);
+    final Map elementsByLocale = new HashMap();
+    final Set parentLocales = new HashSet();
+    for (int i = 0; i < targetLocales.length; i++)
+    {
+      elementsByLocale.put(targetLocales[i], elements.get(i));
+      parentLocales.add(getParentLocale(targetLocales[i]));
+    }
+
+    tasks.clear();
+    for (int i = 0; i < targetLocales.length; i++)
+    {
+      final Locale targetLocale = targetLocales[i];
+      tasks.add(new Callable()
+      {
+        public Object call() throws IOException
+        {
+          Map localeElements = (Map)elementsByLocale.get(targetLocale);
+
+          Locale parentLocale = getParentLocale(targetLocale);
+          Map parentElements = (Map)elementsByLocale.get(parentLocale);
+          Map delta = null;
+          if (parentElements != null)
+          {
+            delta = getLocaleDelta(parentElements, localeElements);
+          }
+
+          // the elements are only kept in a variable of their own
+          // when other Locales are merged with them
+          StringWriter localeWriter = new StringWriter(_DEFAULT_BUFFER_SIZE);
+          if (parentLocales.contains(targetLocale))
+          {
+            _writeLocaleElements(localeWriter, targetLocale, null,
+                                 localeElements, prettyPrint);
+          }
+          else
+          {
+            _writeLocaleSymbols(localeWriter, targetLocale, localeElements,
+                                prettyPrint);
+          }
+          String content = localeWriter.toString();
+
+          // the differences are only written when they are smaller
+          if (delta != null)
+          {
+            StringWriter deltaWriter = new StringWriter(_DEFAULT_BUFFER_SIZE);
+            _writeLocaleElements(deltaWriter, targetLocale, parentLocale,
+                                 delta, prettyPrint);
+            if (deltaWriter.getBuffer().length() < content.length())
+            {
+              content = deltaWriter.toString();
+            }
+          }
+
+          String fileName = _getFileName(targetLocale, version, false) +
+                            _JAVASCRIPT_EXTENSION;
+          _writeFile(new File(outDir + fileName), content, verbose);
+
+          StringWriter fullWriter = new StringWriter(_DEFAULT_BUFFER_SIZE);
+          _writeLocaleSymbols(fullWriter, targetLocale, localeElements,
+                              prettyPrint);
+
+          return new long[] { fullWriter.getBuffer().length(),
+                              content.length() };
+        }
+      });
+    }
+
+    List sizes = _invokeAll(tasks, threads);
+    long fullSize = 0;
+    long deltaSize = 0;
+    for (int i = 0; i < sizes.size(); i++)
+    {
+      long[] size = (long[])sizes.get(i);
+      fullSize += size[0];
+      deltaSize += size[1];
+    }
+
+    System.out.println("Javascript Locales: " + deltaSize + " bytes with deltas, " +
+                       fullSize + " bytes without deltas");
+  }
+
+  /**
+   * Runs the tasks on a pool of threads.
+   *
+   * @return the results of the tasks, in the same order as the tasks
+   */
+  private static List _invokeAll(
+    List tasks,
+    int  threads
+    ) throws IOException
+  {
+    List results = new ArrayList(tasks.size());
+
+    threads = Math.min(threads, tasks.size());
+    if (threads <= 1)
+    {
+      for (int i = 0; i < tasks.size(); i++)
+      {
+        try
+        {
+          results.add(((Callable)tasks.get(i)).call());
+        }
+        catch (Exception e)
+        {
+          _rethrow(e);
+        }
+      }
+      return results;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try
+    {
+      List futures = new ArrayList(tasks.size());
+      for (int i = 0; i < tasks.size(); i++)
+      {
+        futures.add(executor.submit((Callable)tasks.get(i)));
+      }
+
+      for (int i = 0; i < futures.size(); i++)
+      {
+        results.add(((Future)futures.get(i)).get());
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted generating locales");
+    }
+    catch (ExecutionException e)
+    {
+      _rethrow(e.getCause());
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    return results;
+  }
+
+  private static void _rethrow(
+    Throwable t
+    ) throws IOException
+  {
+    if (t instanceof IOException)
+    {
+      throw (IOException)t;
+    }
+    if (t instanceof RuntimeException)
+    {
+      throw (RuntimeException)t;
+    }
+    if (t instanceof Error)
+    {
+      throw (Error)t;
+    }
+    IOException ioe = new IOException(t.getMessage());
+    ioe.initCause(t);
+    throw ioe;
+  }
+
   private static void _generateJSLocaleElements(
     String  outDir,
     String  bundleOutDir,
@@ -304,28 +602,349 @@ public class JSLocaleElementsGenerator
     boolean writeJavascript,
     boolean writeSource,
     boolean generateBundleBaseOnly,
-    String version
+    String version,
+    String localeElements
     ) throws IOException
   {
     String fileName;
-    PrintWriter localeWriter;
 
     if (variant == null && writeJavascript)
     {
       fileName = _getFileName(targetLocale, version, generateBundleBaseOnly) + _JAVASCRIPT_EXTENSION;
 
-      if (verbose)
+      _writeFile(new File(outDir + fileName),
+                 getLocaleSource(targetLocale, localeElements, prettyPrint),
+                 verbose);
+    }
+  }
+
+  private static void _writeFile(
+    File    file,
+    String  content,
+    boolean verbose
+    ) throws IOException
+  {
+    // leave the file untouched if its content has not changed,
+    // so its timestamp only changes with the Locale information
+    if (_hasContent(file, content))
+    {
+      return;
+    }
+
+    if (verbose)
+    {
+      System.out.println("Writing " + file.getName());
+    }
+
+    // create the file to write to
+    Writer fileWriter = new BufferedWriter(new FileWriter(file),
+                                           _DEFAULT_BUFFER_SIZE);
+    try
+    {
+      fileWriter.write(content);
+    }
+    finally
+    {
+      fileWriter.close();
+    }
+  }
+
+  /**
+   * Returns the JavaScript library of a Locale, as written without deltas.
+   *
+   * @param localeElements  the base name of the ResourceBundle with the
+   *                        Locale information
+   */
+  static String getLocaleSource(
+    Locale  targetLocale,
+    String  localeElements,
+    boolean prettyPrint
+    ) throws IOException
+  {
+    StringWriter localeWriter = new StringWriter(_DEFAULT_BUFFER_SIZE);
+    _writeLocale(localeWriter, targetLocale, localeElements, prettyPrint);
+    return localeWriter.toString();
+  }
+
+  /**
+   * Returns the JavaScript library of a Locale written from its elements,
+   * which is the same as getLocaleSource(targetLocale, localeElements,
+   * prettyPrint) for the elements of getLocaleElements(targetLocale,
+   * localeElements, prettyPrint).
+   */
+  static String getLocaleSource(
+    Locale  targetLocale,
+    Map     elements,
+    boolean prettyPrint
+    ) throws IOException
+  {
+    StringWriter localeWriter = new StringWriter(_DEFAULT_BUFFER_SIZE);
+    _writeLocaleSymbols(localeWriter, targetLocale, elements, prettyPrint);
+    return localeWriter.toString();
+  }
+
+  /**
+   * Returns the Locale information written to the JavaScript library of
+   * a Locale, as the JavaScript source of each value by key.
+   *
+   * @param localeElements  the base name of the ResourceBundle with the
+   *                        Locale information
+   */
+  static Map getLocaleElements(
+    Locale  targetLocale,
+    String  localeElements,
+    boolean prettyPrint
+    )
+  {
+    Map elements = new LinkedHashMap();
+    _addResourceContents(elements, localeElements,
+                         LOCALE_ELEMENTS_GET_KEYS, targetLocale, prettyPrint);
+    _addResourceContents(elements, _DATE_FORMAT_ZONE_PATH,
+                         DATE_FORMAT_ZONE_GET_KEYS, targetLocale, prettyPrint);
+    return elements;
+  }
+
+  /**
+   * Returns the Locale the information of a Locale is compared with:
+   * the Locale without the variant, or else without the country.
+   *
+   * @return the parent Locale, or null for a language Locale
+   */
+  static Locale getParentLocale(
+    Locale locale
+    )
+  {
+    if (locale.getVariant().length() > 0)
+    {
+      return new Locale(locale.getLanguage(), locale.getCountry());
+    }
+    if (locale.getCountry().length() > 0)
+    {
+      return new Locale(locale.getLanguage());
+    }
+    return null;
+  }
+
+  /**
+   * Returns the elements of a Locale that differ from its parent Locale.
+   *
+   * @return the differing elements, or null if the Locales do not have
+   *         the same elements and so must be written in full
+   */
+  static Map getLocaleDelta(
+    Map parentElements,
+    Map elements
+    )
+  {
+    if (!parentElements.keySet().equals(elements.keySet()))
+    {
+      return null;
+    }
+
+    Map delta = new LinkedHashMap();
+    Iterator entries = elements.entrySet().iterator();
+    while (entries.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entries.next();
+      if (!entry.getValue().equals(parentElements.get(entry.getKey())))
+      {
+        delta.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return delta;
+  }
+
+  /**
+   * Merges the differences of a Locale into the elements of its parent,
+   * the same way the generated JavaScript does.
+   */
+  static Map mergeLocaleElements(
+    Map parentElements,
+    Map delta
+    )
+  {
+    Map elements = new LinkedHashMap(parentElements);
+    elements.putAll(delta);
+    return elements;
+  }
+
+  private static void _addResourceContents(
+    Map      elements,
+    String   baseName,
+    String[] keys,
+    Locale   targetLocale,
+    boolean  prettyPrint
+    )
+  {
+    try
+    {
+      ResourceBundle elementsData = ResourceBundle.getBundle(baseName,
+                                                             targetLocale);
+
+      for (int i = 0; i < keys.length; i++)
+      {
+        String currKey = keys[i];
+
+        Object data = null;
+
+        if("CurrencyElements".equals(currKey))
+        {
+          data = _getCurrencyData(targetLocale);
+        }
+        else
+        {
+          data = _getElementData(currKey, elementsData, targetLocale);
+        }
+
+        StringWriter value = new StringWriter();
+        _writeResourceElement(value, null, data, false, prettyPrint);
+        elements.put(currKey, value.toString());
+      }
+    }
+    catch (MissingResourceException e)
+    {
+      System.err.println(e);
+    }
+    catch (IOException e)
+    {
+      // StringWriter does not throw
+      throw new IllegalStateException(e.toString());
+    }
+  }
+
+  /**
+   * Writes the elements of a Locale, either in full or as the
+   * differences from its parent Locale.
+   */
+  private static void _writeLocaleElements(
+    Writer  output,
+    Locale  targetLocale,
+    Locale  parentLocale,
+    Map     elements,
+    boolean prettyPrint
+    ) throws IOException
+  {
+    String newLine = prettyPrint ? "\n" : "";
+
+    if (parentLocale != null)
+    {
+      output.write(prettyPrint ? _MERGE_FUNCTION : _MERGE_FUNCTION_COMPACT);
+    }
+
+    output.write("var LocaleElements_");
+    output.write(targetLocale.toString());
+    output.write(" = ");
+    if (parentLocale != null)
+    {
+      output.write("_mergeLocaleElements(LocaleElements_");
+      output.write(parentLocale.toString());
+      output.write(", ");
+    }
+    output.write('{');
+    output.write(newLine);
+    _writeElements(output, elements, prettyPrint);
+    output.write('}');
+    if (parentLocale != null)
+    {
+      output.write(')');
+    }
+    output.write(';');
+    output.write(newLine);
+
+    output.write("var LocaleSymbols_");
+    output.write(targetLocale.toString());
+    output.write(" = new LocaleSymbols(LocaleElements_");
+    output.write(targetLocale.toString());
+    output.write(");");
+    output.write(newLine);
+  }
+
+  /**
+   * Writes the elements of a Locale the same way as _writeLocale.
+   */
+  private static void _writeLocaleSymbols(
+    Writer  output,
+    Locale  targetLocale,
+    Map     elements,
+    boolean prettyPrint
+    ) throws IOException
+  {
+    output.write("var LocaleSymbols_");
+    output.write(targetLocale.toString());
+    output.write(" = new LocaleSymbols({");
+    if (prettyPrint)
+    {
+      output.write('\n');
+    }
+    _writeElements(output, elements, prettyPrint);
+    output.write("});");
+    if (prettyPrint)
+    {
+      output.write('\n');
+    }
+  }
+
+  private static void _writeElements(
+    Writer  output,
+    Map     elements,
+    boolean prettyPrint
+    ) throws IOException
+  {
+    Iterator entries = elements.entrySet().iterator();
+    while (entries.hasNext())
+    {
+      Map.Entry entry = (Map.Entry)entries.next();
+      output.write((String)entry.getKey());
+      output.write(':');
+      output.write((String)entry.getValue());
+      if (entries.hasNext())
       {
-        System.out.println("Writing " + fileName);
+        output.write(',');
+        if (prettyPrint)
+        {
+          output.write(' ');
+        }
       }
+      if (prettyPrint)
+      {
+        output.write('\n');
+      }
+    }
+  }
 
-      // create the file to write to
-      localeWriter = new PrintWriter
-        (new BufferedWriter(new FileWriter(outDir + fileName),
-                            _DEFAULT_BUFFER_SIZE));
-      _writeLocale(localeWriter, targetLocale, prettyPrint);
-      localeWriter.close();
+  private static boolean _hasContent(
+    File   file,
+    String content
+    ) throws IOException
+  {
+    // the content is encoded the same way as FileWriter does
+    byte[] expected = content.getBytes();
+    if (file.length() != expected.length || !file.isFile())
+    {
+      return false;
     }
+
+    byte[] actual = new byte[expected.length];
+    InputStream in = new FileInputStream(file);
+    try
+    {
+      int offset = 0;
+      while (offset < actual.length)
+      {
+        int read = in.read(actual, offset, actual.length - offset);
+        if (read < 0)
+        {
+          return false;
+        }
+        offset += read;
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+
+    return Arrays.equals(expected, actual);
   }
 
   private static void _writeJavaBundle(
@@ -383,6 +1002,7 @@ public class JSLocaleElementsGenerator
   private static void _writeLocale(
     Writer      output,
     Locale      targetLocale,
+    String      localeElements,
     boolean     prettyPrint
     ) throws IOException
   {
@@ -401,7 +1021,7 @@ public class JSLocaleElementsGenerator
 
     // write the locale elements into the file
     _writeResourceContents(output,
-                           _LOCALE_ELEMENTS_PATH,
+                           localeElements,
                            new ArrayEnumeration(LOCALE_ELEMENTS_GET_KEYS),
                            targetLocale,
                            zoneEnumeration.hasMoreElements(),
@@ -877,6 +1497,25 @@ public class JSLocaleElementsGenerator
     + "import java.util.ListResourceBundle;\n";
 
   private static final String _JAVASCRIPT_EXTENSION = ".js";
+
+  // copies the elements of the parent Locale, then the differences
+  private static final String _MERGE_FUNCTION =
+    "function _mergeLocaleElements(parent, delta)\n" +
+    "{\n" +
+    "  var elements = new Object();\n" +
+    "  for (var key in parent)\n" +
+    "    elements[key] = parent[key];\n" +
+    "  for (var key in delta)\n" +
+    "    elements[key] = delta[key];\n" +
+    "  return elements;\n" +
+    "}\n";
+
+  private static final String _MERGE_FUNCTION_COMPACT =
+    "function _mergeLocaleElements(parent, delta){" +
+    "var elements=new Object();" +
+    "for(var key in parent)elements[key]=parent[key];" +
+    "for(var key in delta)elements[key]=delta[key];" +
+    "return elements;}";
   private static final String _JAVA_EXTENSION = ".java";
  
   //Introduced to remove the dependency on bali-share in the api side.
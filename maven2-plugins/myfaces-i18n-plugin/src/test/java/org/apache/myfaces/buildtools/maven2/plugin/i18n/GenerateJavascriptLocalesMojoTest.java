@@ -0,0 +1,203 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.i18n;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools.JSLocaleElementsGenerator;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the incremental generation of the Javascript Locales.
+ */
+public class GenerateJavascriptLocalesMojoTest extends TestCase
+{
+  /**
+   * Creates a new GenerateJavascriptLocalesMojoTest.
+   *
+   * @param testName  the test to execute
+   */
+  public GenerateJavascriptLocalesMojoTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp() throws Exception
+  {
+    _directory = new File("target/javascript-locales-test/" + getName());
+    FileUtils.deleteDirectory(_directory);
+    _targetDirectory = new File(_directory, "javascript");
+    _manifestFile = new File(_directory, "javascript-locales.properties");
+
+    _execute(false, false, 0);
+    assertTrue(_manifestFile.isFile());
+
+    // a file changed since the generation tells whether it ran again
+    _localeFile = _getLocaleFile(Locale.US);
+    _write(_localeFile, _CHANGED);
+  }
+
+  public void tearDown()
+  {
+    _directory = null;
+    _targetDirectory = null;
+    _manifestFile = null;
+    _localeFile = null;
+  }
+
+  public void testSecondRunIsSkipped() throws Exception
+  {
+    long manifestModified = _setModifiedInPast(_manifestFile);
+
+    _execute(false, false, 0);
+    assertEquals(_CHANGED, FileUtils.fileRead(_localeFile));
+    assertEquals(manifestModified, _manifestFile.lastModified());
+
+    // the number of threads does not change the generated files
+    _execute(false, false, 1);
+    assertEquals(_CHANGED, FileUtils.fileRead(_localeFile));
+  }
+
+  public void testChangedArgumentRegenerates() throws Exception
+  {
+    _execute(false, true, 0);
+    assertFalse(_CHANGED.equals(FileUtils.fileRead(_localeFile)));
+
+    // and back
+    _write(_localeFile, _CHANGED);
+    _execute(false, false, 0);
+    assertFalse(_CHANGED.equals(FileUtils.fileRead(_localeFile)));
+  }
+
+  public void testMissingLocaleFileRegenerates() throws Exception
+  {
+    File frenchFile = _getLocaleFile(Locale.FRENCH);
+    assertTrue(frenchFile.delete());
+
+    _execute(false, false, 0);
+    assertTrue(frenchFile.isFile());
+    assertFalse(_CHANGED.equals(FileUtils.fileRead(_localeFile)));
+  }
+
+  public void testChangedManifestRegenerates() throws Exception
+  {
+    _write(_manifestFile, "generator=another\n");
+
+    _execute(false, false, 0);
+    assertFalse(_CHANGED.equals(FileUtils.fileRead(_localeFile)));
+  }
+
+  public void testForceRegenerates() throws Exception
+  {
+    _execute(true, false, 0);
+    assertFalse(_CHANGED.equals(FileUtils.fileRead(_localeFile)));
+  }
+
+  public void testUnchangedFileIsNotWritten() throws Exception
+  {
+    File frenchFile = _getLocaleFile(Locale.FRENCH);
+    long frenchModified = _setModifiedInPast(frenchFile);
+    long localeModified = _setModifiedInPast(_localeFile);
+
+    _execute(true, false, 0);
+
+    // only the changed file is written again
+    assertEquals(frenchModified, frenchFile.lastModified());
+    assertTrue(_localeFile.lastModified() != localeModified);
+    assertFalse(_CHANGED.equals(FileUtils.fileRead(_localeFile)));
+  }
+
+  private void _execute(
+    boolean force,
+    boolean deltas,
+    int     generationThreads) throws Exception
+  {
+    Model model = new Model();
+    model.setBuild(new Build());
+
+    GenerateJavascriptLocalesMojo mojo = new GenerateJavascriptLocalesMojo();
+    _setField(mojo, "project", new MavenProject(model));
+    _setField(mojo, "targetDirectory", _targetDirectory);
+    _setField(mojo, "manifestFile", _manifestFile);
+    _setField(mojo, "force", Boolean.valueOf(force));
+    _setField(mojo, "deltas", Boolean.valueOf(deltas));
+    _setField(mojo, "generationThreads", new Integer(generationThreads));
+    mojo.execute();
+  }
+
+  private File _getLocaleFile(
+    Locale locale)
+  {
+    return new File(_targetDirectory,
+                    JSLocaleElementsGenerator.getJavascriptFileName(locale, null));
+  }
+
+  private static long _setModifiedInPast(
+    File file)
+  {
+    // rounded to the second, the precision of some file systems
+    long lastModified = (file.lastModified() / 1000 - 60) * 1000;
+    assertTrue(file.setLastModified(lastModified));
+    return lastModified;
+  }
+
+  private static void _setField(
+    Object object,
+    String name,
+    Object value) throws Exception
+  {
+    Field field = object.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(object, value);
+  }
+
+  private static void _write(
+    File   file,
+    String content) throws IOException
+  {
+    Writer out = new FileWriter(file);
+    try
+    {
+      out.write(content);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  private File _directory;
+  private File _targetDirectory;
+  private File _manifestFile;
+  private File _localeFile;
+
+  private static final String _CHANGED = "// changed since the generation\n";
+}
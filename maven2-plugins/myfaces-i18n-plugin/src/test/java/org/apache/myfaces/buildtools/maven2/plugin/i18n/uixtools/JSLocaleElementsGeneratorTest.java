@@ -0,0 +1,187 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the Locale differences written by the JSLocaleElementsGenerator.
+ */
+public class JSLocaleElementsGeneratorTest extends TestCase
+{
+  /**
+   * Creates a new JSLocaleElementsGeneratorTest.
+   *
+   * @param testName  the test to execute
+   */
+  public JSLocaleElementsGeneratorTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void testMergedDataEqualsFullData() throws Exception
+  {
+    // the test bundle has the data of the fr and fr_CA Locales,
+    // the others fall back to the base data
+    Locale[] locales = _getLocales();
+    Map elementsByLocale = new HashMap();
+    for (int i=0; i < locales.length; i++)
+    {
+      Map elements = JSLocaleElementsGenerator.getLocaleElements(locales[i], _LOCALE_ELEMENTS, true);
+      assertFalse(locales[i].toString(), elements.isEmpty());
+      assertEquals(locales[i].toString(),
+                   JSLocaleElementsGenerator.getLocaleSource(locales[i], _LOCALE_ELEMENTS, true),
+                   JSLocaleElementsGenerator.getLocaleSource(locales[i], elements, true));
+      elementsByLocale.put(locales[i], elements);
+    }
+
+    int merges = 0;
+    for (int i=0; i < locales.length; i++)
+    {
+      Map elements = (Map)elementsByLocale.get(locales[i]);
+      Locale parentLocale = JSLocaleElementsGenerator.getParentLocale(locales[i]);
+      Map parentElements = (Map)elementsByLocale.get(parentLocale);
+      if (parentElements == null)
+        continue;
+
+      Map delta = JSLocaleElementsGenerator.getLocaleDelta(parentElements, elements);
+      if (delta != null)
+      {
+        Map merged = JSLocaleElementsGenerator.mergeLocaleElements(parentElements, delta);
+        assertEquals(locales[i].toString(),
+                     new ArrayList(elements.entrySet()),
+                     new ArrayList(merged.entrySet()));
+        assertEquals(locales[i].toString(),
+                     JSLocaleElementsGenerator.getLocaleSource(locales[i], _LOCALE_ELEMENTS, true),
+                     JSLocaleElementsGenerator.getLocaleSource(locales[i], merged, true));
+        merges++;
+      }
+    }
+    assertTrue(merges > 0);
+
+    // fr_CA only differs from fr in its dates and currency
+    Locale frenchCanada = new Locale("fr", "CA");
+    Map delta = JSLocaleElementsGenerator.getLocaleDelta(
+                  (Map)elementsByLocale.get(new Locale("fr")),
+                  (Map)elementsByLocale.get(frenchCanada));
+    assertEquals(Arrays.asList(new String[] { "DateTimePatterns",
+                                              "DateTimeElements",
+                                              "CurrencyElements" }),
+                 new ArrayList(delta.keySet()));
+  }
+
+  public void testDeltaKeepsDifferences()
+  {
+    Map parent = new LinkedHashMap();
+    parent.put("MonthNames", "[\"janvier\"]");
+    parent.put("NumberElements", "[\",\", \" \"]");
+    parent.put("CurrencyElements", "[\"\\x80\", \"EUR\"]");
+
+    Map elements = new LinkedHashMap(parent);
+    elements.put("CurrencyElements", "[\"$\", \"CAD\"]");
+
+    Map delta = JSLocaleElementsGenerator.getLocaleDelta(parent, elements);
+    assertEquals(1, delta.size());
+    assertEquals("[\"$\", \"CAD\"]", delta.get("CurrencyElements"));
+
+    Map merged = JSLocaleElementsGenerator.mergeLocaleElements(parent, delta);
+    assertEquals(new ArrayList(elements.entrySet()),
+                 new ArrayList(merged.entrySet()));
+  }
+
+  public void testDeltaRequiresSameElements()
+  {
+    Map parent = new LinkedHashMap();
+    parent.put("MonthNames", "[\"janvier\"]");
+    parent.put("DayNames", "[\"lundi\"]");
+
+    Map elements = new LinkedHashMap();
+    elements.put("MonthNames", "[\"janvier\"]");
+
+    assertNull(JSLocaleElementsGenerator.getLocaleDelta(parent, elements));
+  }
+
+  public void testParentLocale()
+  {
+    assertEquals(new Locale("fr", "CA"),
+           JSLocaleElementsGenerator.getParentLocale(new Locale("fr", "CA", "X")));
+    assertEquals(new Locale("fr"),
+           JSLocaleElementsGenerator.getParentLocale(new Locale("fr", "CA")));
+    assertNull(JSLocaleElementsGenerator.getParentLocale(new Locale("fr")));
+  }
+
+  public void testGenerateDeltas() throws Exception
+  {
+    File outDir = new File("target/test-output/javascript-locales");
+
+    List args = new ArrayList();
+    args.add("outDir=" + outDir.getPath());
+    args.add("writeJavascript=true");
+    args.add("writeSource=false");
+    args.add("deltas=true");
+    args.add("localeElements=" + _LOCALE_ELEMENTS);
+    JSLocaleElementsGenerator.generate((String[])args.toArray(new String[0]));
+
+    Locale[] locales = Locale.getAvailableLocales();
+    for (int i=0; i < locales.length; i++)
+    {
+      String fileName = JSLocaleElementsGenerator.getJavascriptFileName(locales[i], null);
+      if (!new File(outDir, fileName).exists())
+        fail("Locale " + locales[i] + " not generated");
+    }
+
+    // the fr_CA file merges with the elements of the fr file
+    String frenchCanada = FileUtils.fileRead(new File(outDir,
+      JSLocaleElementsGenerator.getJavascriptFileName(new Locale("fr", "CA"), null)));
+    assertTrue(frenchCanada.indexOf("_mergeLocaleElements(LocaleElements_fr, ") != -1);
+    String french = FileUtils.fileRead(new File(outDir,
+      JSLocaleElementsGenerator.getJavascriptFileName(new Locale("fr"), null)));
+    assertTrue(french.indexOf("var LocaleElements_fr = {") != -1);
+    assertTrue(french.indexOf("MonthNames:[\"janvier\", \"f\\xe9vrier\"") != -1);
+  }
+
+  /**
+   * Returns the available Locales, with the fr and fr_CA Locales.
+   */
+  static private Locale[] _getLocales()
+  {
+    Set locales = new LinkedHashSet(Arrays.asList(Locale.getAvailableLocales()));
+    locales.add(new Locale("fr"));
+    locales.add(new Locale("fr", "CA"));
+    return (Locale[])locales.toArray(new Locale[locales.size()]);
+  }
+
+  // the J2SE 1.4 Locale information, which newer JDKs no longer ship
+  static private final String _LOCALE_ELEMENTS =
+    "org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools.resources.LocaleElements";
+}
@@ -0,0 +1,58 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools.resources;
+
+import java.util.ListResourceBundle;
+
+/**
+ * The Locale information J2SE 1.4 shipped in
+ * sun.text.resources.LocaleElements, which newer JDKs no longer provide,
+ * so the tests have real data to generate the JavaScript Locales from.
+ */
+public class LocaleElements extends ListResourceBundle
+{
+  protected Object[][] getContents()
+  {
+    return new Object[][]
+    {
+      { "MonthNames",
+        new String[] { "January", "February", "March", "April", "May",
+                       "June", "July", "August", "September", "October",
+                       "November", "December", "" } },
+      { "MonthAbbreviations",
+        new String[] { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul",
+                       "Aug", "Sep", "Oct", "Nov", "Dec", "" } },
+      { "DayNames",
+        new String[] { "Sunday", "Monday", "Tuesday", "Wednesday",
+                       "Thursday", "Friday", "Saturday" } },
+      { "DayAbbreviations",
+        new String[] { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" } },
+      { "AmPmMarkers", new String[] { "AM", "PM" } },
+      { "Eras", new String[] { "BC", "AD" } },
+      { "DateTimePatterns",
+        new String[] { "h:mm:ss a z", "h:mm:ss a z", "h:mm:ss a", "h:mm a",
+                       "EEEE, MMMM d, yyyy", "MMMM d, yyyy", "MMM d, yyyy",
+                       "M/d/yy", "{1} {0}" } },
+      { "DateTimeElements", new String[] { "1", "1" } },
+      { "NumberElements",
+        new String[] { ".", ",", ";", "%", "0", "#", "-", "E", "\u2030",
+                       "\u221e", "\ufffd" } }
+    };
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools.resources;
+
+import java.util.ListResourceBundle;
+
+public class LocaleElements_fr extends ListResourceBundle
+{
+  protected Object[][] getContents()
+  {
+    return new Object[][]
+    {
+      { "MonthNames",
+        new String[] { "janvier", "f\u00e9vrier", "mars", "avril", "mai",
+                       "juin", "juillet", "ao\u00fbt", "septembre",
+                       "octobre", "novembre", "d\u00e9cembre", "" } },
+      { "MonthAbbreviations",
+        new String[] { "janv.", "f\u00e9vr.", "mars", "avr.", "mai", "juin",
+                       "juil.", "ao\u00fbt", "sept.", "oct.", "nov.",
+                       "d\u00e9c.", "" } },
+      { "DayNames",
+        new String[] { "dimanche", "lundi", "mardi", "mercredi", "jeudi",
+                       "vendredi", "samedi" } },
+      { "DayAbbreviations",
+        new String[] { "dim.", "lun.", "mar.", "mer.", "jeu.", "ven.",
+                       "sam." } },
+      { "Eras", new String[] { "BC", "ap. J.-C." } },
+      { "DateTimePatterns",
+        new String[] { "HH' h 'mm z", "HH:mm:ss z", "HH:mm:ss", "HH:mm",
+                       "EEEE d MMMM yyyy", "d MMMM yyyy", "d MMM yy",
+                       "dd/MM/yy", "{1} {0}" } },
+      { "DateTimeElements", new String[] { "2", "4" } },
+      { "NumberElements",
+        new String[] { ",", "\u00a0", ";", "%", "0", "#", "-", "E",
+                       "\u2030", "\u221e", "\ufffd" } }
+    };
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.i18n.uixtools.resources;
+
+import java.util.ListResourceBundle;
+
+public class LocaleElements_fr_CA extends ListResourceBundle
+{
+  protected Object[][] getContents()
+  {
+    return new Object[][]
+    {
+      { "DateTimePatterns",
+        new String[] { "H' h 'mm z", "HH:mm:ss z", "HH:mm:ss", "HH:mm",
+                       "EEEE d MMMM yyyy", "d MMMM yyyy", "yy-MM-dd",
+                       "yy-MM-dd", "{1} {0}" } },
+      { "DateTimeElements", new String[] { "1", "1" } }
+    };
+  }
+}
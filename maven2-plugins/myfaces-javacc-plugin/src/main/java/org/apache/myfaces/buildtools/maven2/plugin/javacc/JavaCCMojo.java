@@ -18,21 +18,42 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.javacc;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Properties;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 
-import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
-import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
-import org.codehaus.plexus.compiler.util.scan.StaleSourceScanner;
-import org.codehaus.plexus.compiler.util.scan.mapping.SuffixMapping;
+import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.FileUtils;
 
 
@@ -196,19 +217,19 @@ public class JavaCCMojo
   private String outputPath;
 
   /**
-   * the directory to store the processed .jj files
+   * the directory to store the digests of the processed .jj files
    *
    * @parameter expression="${project.build.directory}/maven-javacc-plugin/src/main/conf"
    */
   private File timestampDirectory;
 
   /**
-   * The granularity in milliseconds of the last modification
-   * date for testing whether a source needs recompilation
+   * Number of threads processing the grammars. Defaults to the
+   * number of available processors.
    *
-   * @parameter expression="${lastModGranularityMs}" default-value="0"
+   * @parameter expression="${maven.javacc.generationThreads}"
    */
-  private int staleMillis;
+  private int generationThreads;
 
   /**
    * @parameter expression="${project}"
@@ -237,50 +258,271 @@ public class JavaCCMojo
       timestampDirectory.mkdirs();
     }
 
-    Set staleGrammars = computeStaleGrammars();
+    try
+    {
+      File manifestFile = new File(timestampDirectory, _MANIFEST_NAME);
+      Properties oldManifest = readManifest(manifestFile);
+      // the manifest may be shared with other executions of the goal,
+      // so their entries are kept
+      Properties manifest = new Properties();
+      manifest.putAll(oldManifest);
+      removeDeletedGrammars(manifest);
+
+      List staleGrammars = computeStaleGrammars(outDir, oldManifest, manifest);
+
+      if (staleGrammars.isEmpty())
+      {
+        getLog().info("Nothing to process - all grammars are up to date");
+      }
+      else
+      {
+        List generatedDirs = generateGrammars(staleGrammars);
+
+        // the grammars may generate the same support files (Token.java...),
+        // so the generated files are copied one grammar after the other
+        for (int i = 0; i < staleGrammars.size(); i++)
+        {
+          File generatedDir = (File) generatedDirs.get(i);
+          String files = copyChangedFiles(generatedDir, outDir);
+          FileUtils.deleteDirectory(generatedDir);
+
+          String name = getGrammarName((File) staleGrammars.get(i));
+          manifest.setProperty(_FILES_PREFIX + name, files);
+        }
+      }
+
+      if (!manifest.equals(oldManifest))
+      {
+        writeManifest(manifestFile, manifest);
+      }
+    }
+    catch (IOException e)
+    {
+      throw new MojoExecutionException("JavaCC execution failed", e);
+    }
+
+    if (project != null)
+    {
+      project.addCompileSourceRoot(outputDirectory.getPath());
+    }
+  }
+
+  /**
+   * Runs JavaCC for the grammars on a pool of threads, each grammar
+   * generates into its own directory.
+   *
+   * @return the directories holding the generated files, in the order
+   *         of the grammars
+   */
+  private List generateGrammars(List grammars)
+    throws MojoExecutionException
+  {
+    final URL javaccJar =
+      org.javacc.parser.Main.class.getProtectionDomain().getCodeSource().getLocation();
+
+    int threads = generationThreads;
+    if (threads <= 0)
+    {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    threads = Math.min(threads, grammars.size());
+
+    List results = new ArrayList(grammars.size());
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try
+    {
+      List futures = new ArrayList(grammars.size());
+      for (int i = 0; i < grammars.size(); i++)
+      {
+        final File javaccFile = (File) grammars.get(i);
+        final File generatedDir = new File(timestampDirectory, "generated" + File.separator + i);
+        futures.add(executor.submit(new Callable()
+        {
+          public Object call() throws Exception
+          {
+            if (generatedDir.exists())
+            {
+              FileUtils.deleteDirectory(generatedDir);
+            }
+            generatedDir.mkdirs();
+
+            runJavaCC(javaccJar, generateJavaCCArgumentList(
+                        javaccFile.getAbsolutePath(), generatedDir));
+            return generatedDir;
+          }
+        }));
+      }
 
-    if (staleGrammars.isEmpty())
+      for (int i = 0; i < futures.size(); i++)
+      {
+        results.add(((Future) futures.get(i)).get());
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("JavaCC execution interrupted");
+    }
+    catch (ExecutionException e)
     {
-      getLog().info("Nothing to process - all grammars are up to date");
-      if (project != null)
+      Throwable cause = e.getCause();
+      if (cause instanceof MojoExecutionException)
       {
-        project.addCompileSourceRoot(outputDirectory.getPath());
+        throw (MojoExecutionException) cause;
       }
-      return;
+      throw new MojoExecutionException("JavaCC execution failed", cause);
+    }
+    finally
+    {
+      executor.shutdownNow();
     }
 
-    for (Iterator i = staleGrammars.iterator(); i.hasNext(); )
+    return results;
+  }
+
+  /**
+   * Runs JavaCC in a class loader of its own: JavaCC keeps the state of
+   * a run in static fields, so grammars processed at the same time
+   * cannot share the JavaCC classes.
+   */
+  private void runJavaCC(URL javaccJar, String[] args)
+    throws Exception
+  {
+    ClassLoader loader = new URLClassLoader(new URL[] { javaccJar }, null);
+    Class main = loader.loadClass("org.javacc.parser.Main");
+    Method mainProgram = main.getMethod("mainProgram", new Class[] { String[].class });
+
+    Object result;
+    try
     {
-      File javaccFile = (File) i.next();
-      try
+      result = mainProgram.invoke(null, new Object[] { args });
+    }
+    catch (InvocationTargetException e)
+    {
+      Throwable target = e.getTargetException();
+      if (target instanceof Exception)
       {
-        org.javacc.parser.Main.mainProgram(generateJavaCCArgumentList(javaccFile.getAbsolutePath()));
+        throw (Exception) target;
+      }
+      throw (Error) target;
+    }
+
+    if (((Integer) result).intValue() != 0)
+    {
+      throw new MojoExecutionException("JavaCC reported errors processing " +
+                                       args[args.length - 1]);
+    }
+  }
+
+  /**
+   * Copies the generated files whose content differs from the files
+   * in the output directory, so unchanged files keep their date.
+   *
+   * @return the names of the generated files, separated by commas
+   */
+  private String copyChangedFiles(File generatedDir, File outDir)
+    throws IOException
+  {
+    String[] names = generatedDir.list();
+    Arrays.sort(names);
 
-        FileUtils.copyFileToDirectory(javaccFile, timestampDirectory);
-        if (doNotGenerateTokenFile == true)
+    StringBuffer files = new StringBuffer();
+    for (int i = 0; i < names.length; i++)
+    {
+      File targetFile = new File(outDir, names[i]);
+      if (doNotGenerateTokenFile && "Token.java".equals(names[i]))
+      {
+        if (targetFile.exists())
         {
-          File tokenFile  = new File(outDir, "Token.java");
-          FileUtils.forceDelete(tokenFile);
+          FileUtils.forceDelete(targetFile);
         }
+        continue;
       }
-      catch (Exception e)
+
+      byte[] content = readFile(new File(generatedDir, names[i]));
+      if (!targetFile.isFile() || !Arrays.equals(content, readFile(targetFile)))
       {
-        throw new MojoExecutionException("JavaCC execution failed", e);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(targetFile));
+        try
+        {
+          out.write(content);
+        }
+        finally
+        {
+          out.close();
+        }
       }
+
+      if (files.length() > 0)
+      {
+        files.append(',');
+      }
+      files.append(names[i]);
     }
 
-    if (project != null)
+    return files.toString();
+  }
+
+  private static byte[] readFile(File file)
+    throws IOException
+  {
+    byte[] content = new byte[(int) file.length()];
+    InputStream in = new FileInputStream(file);
+    try
     {
-      project.addCompileSourceRoot(outputDirectory.getPath());
+      int offset = 0;
+      while (offset < content.length)
+      {
+        int length = in.read(content, offset, content.length - offset);
+        if (length == -1)
+        {
+          throw new IOException("Unexpected end of " + file);
+        }
+        offset += length;
+      }
+    }
+    finally
+    {
+      in.close();
     }
+    return content;
   }
 
-
-  private String[] generateJavaCCArgumentList(String javaccInput)
+  private static Properties readManifest(File manifestFile)
+    throws IOException
   {
+    Properties manifest = new Properties();
+    if (manifestFile.isFile())
+    {
+      InputStream in = new BufferedInputStream(new FileInputStream(manifestFile));
+      try
+      {
+        manifest.load(in);
+      }
+      finally
+      {
+        in.close();
+      }
+    }
+    return manifest;
+  }
 
-    File outDir = new File(outputDirectory, outputPath);
+  private static void writeManifest(File manifestFile, Properties manifest)
+    throws IOException
+  {
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(manifestFile));
+    try
+    {
+      manifest.store(out, "Digests of the processed grammars");
+    }
+    finally
+    {
+      out.close();
+    }
+  }
 
+  private String[] generateJavaCCArgumentList(String javaccInput, File outDir)
+  {
     ArrayList argsList = new ArrayList();
 
     argsList.add("-LOOKAHEAD=" + lookAhead);
@@ -312,37 +554,135 @@ public class JavaCCMojo
     return (String[]) argsList.toArray(new String[argsList.size()]);
   }
 
-  private Set computeStaleGrammars()
-    throws MojoExecutionException
+  /**
+   * Returns the grammars whose content, JavaCC options or generated files
+   * changed since they were last processed, and records the digests of
+   * all the grammars in the new manifest.
+   */
+  private List computeStaleGrammars(File outDir, Properties oldManifest, Properties manifest)
+    throws IOException
   {
-    SuffixMapping mapping = new SuffixMapping(".jj", ".jj");
-    SuffixMapping mappingCAP = new SuffixMapping(".JJ", ".JJ");
+    File sourceDir = new File(sourceDirectory, sourcePath);
 
-    SourceInclusionScanner scanner = new StaleSourceScanner(staleMillis);
+    List grammars = new ArrayList();
+    if (sourceDir.isDirectory())
+    {
+      DirectoryScanner scanner = new DirectoryScanner();
+      scanner.setBasedir(sourceDir);
+      scanner.setIncludes(new String[] { "**/*.jj", "**/*.JJ" });
+      scanner.scan();
 
-    scanner.addSourceMapping(mapping);
-    scanner.addSourceMapping(mappingCAP);
+      String[] files = scanner.getIncludedFiles();
+      for (int i = 0; i < files.length; i++)
+      {
+        grammars.add(new File(sourceDir, files[i]));
+      }
+    }
+    Collections.sort(grammars);
 
-    Set staleSources = new HashSet();
+    // the generated files depend on the options too
+    String[] options = generateJavaCCArgumentList("", outDir);
+    StringBuffer optionsKey = new StringBuffer();
+    for (int i = 0; i < options.length - 1; i++)
+    {
+      optionsKey.append(options[i]).append(' ');
+    }
+    optionsKey.append("-DO_NOT_GENERATE_TOKEN_FILE=").append(doNotGenerateTokenFile);
 
-    File sourceDir = new File(sourceDirectory, sourcePath);
+    List staleGrammars = new ArrayList();
+    for (Iterator i = grammars.iterator(); i.hasNext();)
+    {
+      File grammar = (File) i.next();
+      String name = getGrammarName(grammar);
+      String digest = getDigest(optionsKey.toString(), grammar);
+      manifest.setProperty(_DIGEST_PREFIX + name, digest);
+
+      String files = oldManifest.getProperty(_FILES_PREFIX + name);
+      if (digest.equals(oldManifest.getProperty(_DIGEST_PREFIX + name)) &&
+          files != null && filesExist(outDir, files))
+      {
+        manifest.setProperty(_FILES_PREFIX + name, files);
+      }
+      else
+      {
+        manifest.remove(_FILES_PREFIX + name);
+        staleGrammars.add(grammar);
+      }
+    }
+
+    return staleGrammars;
+  }
 
+  /**
+   * Returns the key of a grammar in the manifest, the grammars of all the
+   * executions sharing the manifest are told apart by their absolute path.
+   */
+  private static String getGrammarName(File grammar)
+  {
+    return grammar.getAbsolutePath().replace(File.separatorChar, '/');
+  }
+
+  /**
+   * Removes the entries of the grammars that no longer exist.
+   */
+  private static void removeDeletedGrammars(Properties manifest)
+  {
+    List names = new ArrayList(manifest.keySet());
+    for (Iterator i = names.iterator(); i.hasNext();)
+    {
+      String key = (String) i.next();
+      if (key.startsWith(_DIGEST_PREFIX))
+      {
+        String name = key.substring(_DIGEST_PREFIX.length());
+        if (!new File(name).isFile())
+        {
+          manifest.remove(key);
+          manifest.remove(_FILES_PREFIX + name);
+        }
+      }
+    }
+  }
+
+  private static boolean filesExist(File outDir, String files)
+  {
+    String[] names = files.split(",");
+    for (int i = 0; i < names.length; i++)
+    {
+      if (names[i].length() > 0 && !new File(outDir, names[i]).isFile())
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String getDigest(String options, File grammar)
+    throws IOException
+  {
+    MessageDigest digest;
     try
     {
-      staleSources.addAll(scanner.getIncludedSources(sourceDir, 
-                                                     timestampDirectory));
+      digest = MessageDigest.getInstance("MD5");
     }
-    catch (InclusionScanException e)
+    catch (NoSuchAlgorithmException e)
     {
-      throw new MojoExecutionException("Error scanning source root: \'" + 
-                                       sourceDir + 
-                                       "\' for stale grammars to reprocess.", 
-                                       e);
+      throw new IOException(e.getMessage());
     }
 
-    return staleSources;
-  }
+    digest.update(options.getBytes("UTF-8"));
+    digest.update(readFile(grammar));
 
+    byte[] hash = digest.digest();
+    StringBuffer hex = new StringBuffer(hash.length * 2);
+    for (int i = 0; i < hash.length; i++)
+    {
+      hex.append(Character.forDigit((hash[i] >> 4) & 0xf, 16));
+      hex.append(Character.forDigit(hash[i] & 0xf, 16));
+    }
+    return hex.toString();
+  }
 
+  static private final String _MANIFEST_NAME = "grammars.properties";
+  static private final String _DIGEST_PREFIX = "digest.";
+  static private final String _FILES_PREFIX = "files.";
 }
-
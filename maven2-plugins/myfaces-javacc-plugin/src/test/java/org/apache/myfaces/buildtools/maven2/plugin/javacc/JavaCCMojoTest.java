@@ -19,23 +19,202 @@
 package org.apache.myfaces.buildtools.maven2.plugin.javacc;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.StringTokenizer;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import junit.framework.TestCase;
 
-
 import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.myfaces.buildtools.maven2.plugin.javacc.JavaCCMojo;
-
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
 
 public class JavaCCMojoTest extends TestCase
 {
-  public void testExecution() throws MojoExecutionException
+  public void setUp() throws IOException
+  {
+    _directory = new File("target/javacc-test", getName());
+    FileUtils.deleteDirectory(_directory);
+    _sourceDir = new File(_directory, "src");
+    _outDir = new File(_directory, "out");
+    _grammar = new File(_sourceDir, "SelectorParser.jj");
+    FileUtils.copyFile(new File("src/test/resources/SelectorParser.jj"), _grammar);
+  }
+
+  public void tearDown()
+  {
+    _directory = null;
+    _sourceDir = null;
+    _outDir = null;
+    _grammar = null;
+  }
+
+  public void testExecution() throws Exception
+  {
+    _execute(_createMojo(_sourceDir, _outDir));
+
+    File expectedDir = new File("src/test/resources/validator");
+    String[] names = expectedDir.list();
+    Arrays.sort(names);
+    String[] generated = _outDir.list();
+    Arrays.sort(generated);
+    assertEquals(Arrays.asList(names), Arrays.asList(generated));
+
+    for (int i = 0; i < names.length; i++)
+    {
+      List expected = _readLines(new File(expectedDir, names[i]));
+      // the expected files have a license header
+      expected = expected.subList(_LICENSE_LINES, expected.size());
+      List actual = _readLines(new File(_outDir, names[i]));
+
+      // JavaCC writes the lookahead methods of the parser in hash order
+      if ("SelectorParser.java".equals(names[i]))
+      {
+        Collections.sort(expected);
+        Collections.sort(actual);
+      }
+      assertEquals(names[i], expected, actual);
+    }
+  }
+
+  public void testTouchedGrammar() throws Exception
+  {
+    _execute(_createMojo(_sourceDir, _outDir));
+
+    _grammar.setLastModified(_grammar.lastModified() + 10000);
+    assertFalse(_execute(_createMojo(_sourceDir, _outDir)));
+  }
+
+  public void testEditedGrammar() throws Exception
+  {
+    _execute(_createMojo(_sourceDir, _outDir));
+
+    String content = FileUtils.fileRead(_grammar.getPath());
+    FileUtils.fileWrite(_grammar.getPath(),
+                        content.replaceFirst("package org.activemq.selector;",
+                                            "package org.activemq.selector2;"));
+    assertTrue(_execute(_createMojo(_sourceDir, _outDir)));
+    assertTrue(_readParser().indexOf("package org.activemq.selector2;") != -1);
+  }
+
+  public void testChangedOption() throws Exception
+  {
+    _execute(_createMojo(_sourceDir, _outDir));
+    assertTrue(_readParser().indexOf("static final public BooleanExpression") == -1);
+
+    JavaCCMojo mojo = _createMojo(_sourceDir, _outDir);
+    _setField(mojo, "isStatic", Boolean.TRUE);
+    assertTrue(_execute(mojo));
+    assertTrue(_readParser().indexOf("static final public BooleanExpression") != -1);
+  }
+
+  public void testDeletedOutput() throws Exception
+  {
+    _execute(_createMojo(_sourceDir, _outDir));
+
+    new File(_outDir, "Token.java").delete();
+    assertTrue(_execute(_createMojo(_sourceDir, _outDir)));
+    assertTrue(new File(_outDir, "Token.java").isFile());
+  }
+
+  public void testSharedManifest() throws Exception
+  {
+    File otherSourceDir = new File(_directory, "other-src");
+    File otherOutDir = new File(_directory, "other-out");
+    FileUtils.copyFile(_grammar, new File(otherSourceDir, "SelectorParser.jj"));
+
+    assertTrue(_execute(_createMojo(_sourceDir, _outDir)));
+    assertTrue(_execute(_createMojo(otherSourceDir, otherOutDir)));
+
+    // each execution keeps the grammars of the other one
+    assertFalse(_execute(_createMojo(_sourceDir, _outDir)));
+    assertFalse(_execute(_createMojo(otherSourceDir, otherOutDir)));
+  }
+
+  /**
+   * Runs the mojo.
+   *
+   * @return true if grammars were processed
+   */
+  private boolean _execute(JavaCCMojo mojo) throws MojoExecutionException
+  {
+    final boolean[] upToDate = new boolean[1];
+    mojo.setLog(new SystemStreamLog()
+    {
+      public void info(CharSequence content)
+      {
+        if (content.toString().startsWith("Nothing to process"))
+        {
+          upToDate[0] = true;
+        }
+        super.info(content);
+      }
+    });
+    mojo.execute();
+    return !upToDate[0];
+  }
+
+  /**
+   * Creates a mojo with the default values of the parameters, and
+   * the options the expected files were generated with.
+   */
+  private JavaCCMojo _createMojo(File sourceDir, File outDir)
+    throws MojoExecutionException
   {
     JavaCCMojo mojo = new JavaCCMojo();
-    //TODO: write a test here...
+    _setField(mojo, "lookAhead", new Integer(1));
+    _setField(mojo, "choiceAmbiguityCheck", new Integer(2));
+    _setField(mojo, "otherAmbiguityCheck", new Integer(1));
+    _setField(mojo, "isStatic", Boolean.FALSE);
+    _setField(mojo, "optimizeTokenManager", Boolean.TRUE);
+    _setField(mojo, "errorReporting", Boolean.FALSE);
+    _setField(mojo, "unicodeInput", Boolean.TRUE);
+    _setField(mojo, "buildParser", Boolean.TRUE);
+    _setField(mojo, "buildTokenManager", Boolean.TRUE);
+    _setField(mojo, "sanityCheck", Boolean.TRUE);
+    _setField(mojo, "keepLineColumn", Boolean.TRUE);
+    _setField(mojo, "sourceDirectory", sourceDir);
+    _setField(mojo, "sourcePath", "");
+    _setField(mojo, "outputDirectory", outDir);
+    _setField(mojo, "outputPath", "");
+    _setField(mojo, "timestampDirectory", new File(_directory, "conf"));
+    return mojo;
+  }
+
+  private String _readParser() throws IOException
+  {
+    return FileUtils.fileRead(new File(_outDir, "SelectorParser.java").getPath());
+  }
+
+  static private void _setField(JavaCCMojo mojo, String fieldName, Object value)
+    throws MojoExecutionException
+  {
+    try
+    {
+      Field field = JavaCCMojo.class.getDeclaredField(fieldName);
+      field.setAccessible(true);
+      field.set(mojo, value);
+    }
+    catch (Exception e)
+    {
+      throw new MojoExecutionException("Could not set " + fieldName, e);
+    }
+  }
+
+  static private List _readLines(File file) throws IOException
+  {
+    String content = FileUtils.fileRead(file.getPath());
+    return new ArrayList(Arrays.asList(content.split("\r?\n", -1)));
   }
+
+  private File _directory;
+  private File _sourceDir;
+  private File _outDir;
+  private File _grammar;
+
+  // the number of lines of the license header of the expected files
+  static private final int _LICENSE_LINES = 18;
 }
@@ -20,10 +20,13 @@
 package org.apache.myfaces.buildtools.maven2.plugin.jdeveloper;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 
 import java.net.URL;
@@ -32,6 +35,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -40,7 +45,6 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -253,6 +257,23 @@ public class JDeveloperMojo
    */
   private Properties[] distributedTagLibraries;
 
+  /**
+   * Index of the tag libraries found in the jar dependencies, shared
+   * by the projects and the builds using the same local repository.
+   *
+   * @parameter expression="${jdev.tld.index.file}"
+   *            default-value="${settings.localRepository}/org/apache/myfaces/buildtools/myfaces-jdev-plugin/tld-index.properties"
+   */
+  private File tldIndexFile;
+
+  /**
+   * Number of threads scanning the jar dependencies missing from the
+   * tag library index.  Defaults to the number of available processors.
+   *
+   * @parameter expression="${jdev.tld.scan.threads}"
+   */
+  private int tldScanThreads;
+
   /**
    * Execute the Mojo.
    */
@@ -434,6 +455,9 @@ public class JDeveloperMojo
   {
     try
     {
+      // the views of the previous project's DOM are no longer needed
+      _namedChildren.clear();
+
       File projectDir = projectFile.getParentFile();
       Xpp3Dom projectDOM = readProjectDOM(projectFile);
       replaceWebappInfo(projectName, projectDOM);
@@ -1426,65 +1450,97 @@ public class JDeveloperMojo
     }
 
 
-    Map sourceMap = new TreeMap();
-
+    List jarFiles = new ArrayList();
     for (Iterator i = artifacts.iterator(); i.hasNext(); )
     {
       Artifact artifact = (Artifact) i.next();
       if (!isDependentProject(artifact.getDependencyConflictId()) &&
           "jar".equals(artifact.getType()))
       {
-        File file = artifact.getFile();
-        JarFile jarFile = new JarFile(file);
-        Enumeration jarEntries = jarFile.entries();
-        while (jarEntries.hasMoreElements())
-        {
-          JarEntry jarEntry = (JarEntry) jarEntries.nextElement();
-          String name = jarEntry.getName();
-          if (name.startsWith("META-INF/") && name.endsWith(".tld"))
-          {
-            List taglibs = (List) sourceMap.get(name);
-            if (taglibs == null)
-            {
-              taglibs = new ArrayList();
-              sourceMap.put(name, taglibs);
-            }
+        jarFiles.add(artifact.getFile());
+      }
+    }
 
-            taglibs.add(file);
-          }
+    Map tagLibraries =
+      TldIndex.getInstance(tldIndexFile).getTagLibraries(jarFiles,
+                                                         tldScanThreads);
+
+    Map sourceMap = new TreeMap();
+
+    for (Iterator i = tagLibraries.entrySet().iterator(); i.hasNext(); )
+    {
+      Map.Entry e = (Map.Entry) i.next();
+      File file = (File) e.getKey();
+      String[] names = (String[]) e.getValue();
+      for (int j = 0; j < names.length; j++)
+      {
+        List taglibs = (List) sourceMap.get(names[j]);
+        if (taglibs == null)
+        {
+          taglibs = new ArrayList();
+          sourceMap.put(names[j], taglibs);
         }
+
+        taglibs.add(file);
       }
     }
 
-    for (Iterator i = sourceMap.entrySet().iterator(); i.hasNext(); )
+    for (Iterator i = tagLibraries.entrySet().iterator(); i.hasNext(); )
     {
       Map.Entry e = (Map.Entry) i.next();
-      List taglibs = (List) e.getValue();
-      String name = (String) e.getKey();
+      File file = (File) e.getKey();
+      String[] names = (String[]) e.getValue();
+      if (names.length == 0)
+        continue;
 
-      for (Iterator ti = taglibs.iterator(); ti.hasNext(); )
+      JarFile jarFile = new JarFile(file);
+      try
       {
-        File file = (File) ti.next();
-        File sourceFile = new File(name);
-        StringBuffer buff = new StringBuffer(sourceFile.getName());
-        if (taglibs.size() > 1)
+        for (int j = 0; j < names.length; j++)
         {
-          String jarName =
-            file.getName().substring(0, file.getName().length() -
-                                     ".jar".length());
-          buff.insert(buff.length() - ".tld".length(), "-" + jarName);
-        }
+          String name = names[j];
+          List taglibs = (List) sourceMap.get(name);
 
-        URL jarURL = file.toURL();
-        URL sourceURL =
-          new URL("jar:" + jarURL.toExternalForm() + "!/" + name);
-        File targetFile = new File(targetDir, buff.toString());
-        if (targetFile.exists())
-        {
-          targetFile.delete();
+          File sourceFile = new File(name);
+          StringBuffer buff = new StringBuffer(sourceFile.getName());
+          if (taglibs.size() > 1)
+          {
+            String jarName =
+              file.getName().substring(0, file.getName().length() -
+                                       ".jar".length());
+            buff.insert(buff.length() - ".tld".length(), "-" + jarName);
+          }
+
+          File targetFile = new File(targetDir, buff.toString());
+          if (targetFile.exists())
+          {
+            targetFile.delete();
+          }
+          targetFile.getParentFile().mkdirs();
+
+          InputStream in = jarFile.getInputStream(jarFile.getEntry(name));
+          try
+          {
+            OutputStream out = new FileOutputStream(targetFile);
+            try
+            {
+              IOUtil.copy(in, out);
+            }
+            finally
+            {
+              out.close();
+            }
+          }
+          finally
+          {
+            in.close();
+          }
+          targetFile.setReadOnly();
         }
-        FileUtils.copyURLToFile(sourceURL, targetFile);
-        targetFile.setReadOnly();
+      }
+      finally
+      {
+        jarFile.close();
       }
     }
   }
@@ -1736,51 +1792,134 @@ public class JDeveloperMojo
     }
   }
 
-  private Xpp3Dom findNamedChild(Xpp3Dom parent, String childName,
-                                 String attrValue)
+  Xpp3Dom findNamedChild(Xpp3Dom parent, String childName,
+                         String attrValue)
   {
-    Xpp3Dom[] hash = parent.getChildren(childName);
-    for (int i = 0; i < hash.length; i++)
+    Map children = _getNamedChildren(parent);
+    String key = childName + '\n' + attrValue;
+    Xpp3Dom child = (Xpp3Dom) children.get(key);
+
+    // the child may have been removed or renamed since it was indexed
+    if ((child != null) &&
+        ((child.getParent() != parent) ||
+         !attrValue.equals(child.getAttribute("n"))))
+    {
+      children.remove(key);
+      child = null;
+    }
+
+    if (child == null)
     {
-      if (attrValue.equals(hash[i].getAttribute("n")))
+      // the child may have been named after it was indexed
+      child = _scanNamedChild(parent, childName, attrValue);
+      if (child == null)
       {
-        return hash[i];
+        child = new Xpp3Dom(childName);
+        child.setAttribute("n", attrValue);
+        parent.addChild(child);
       }
+      children.put(key, child);
     }
 
-    Xpp3Dom child = new Xpp3Dom(childName);
-    child.setAttribute("n", attrValue);
-    parent.addChild(child);
-
     return child;
   }
 
-  private MavenProject findDependentProject(String dependencyManagementKey)
+  private Xpp3Dom _scanNamedChild(Xpp3Dom parent, String childName,
+                                  String attrValue)
   {
-    for (Iterator i = reactorProjects.iterator(); i.hasNext(); )
+    int count = parent.getChildCount();
+    for (int i = 0; i < count; i++)
     {
-      MavenProject reactorProject = (MavenProject) i.next();
-      String ident =
-        reactorProject.getArtifact().getDependencyConflictId();
-      if (ident.equals(dependencyManagementKey))
+      Xpp3Dom child = parent.getChild(i);
+      if (childName.equals(child.getName()) &&
+          attrValue.equals(child.getAttribute("n")))
       {
-        return reactorProject.getExecutionProject();
+        return child;
       }
     }
 
     return null;
   }
 
+  /**
+   * Returns the children of an element by element name and "n" attribute.
+   * The view picks up the children appended since it was built, and is
+   * dropped when the children are removed. A child found in the view is
+   * checked before it is used, and a child missing from the view is
+   * looked for among all the children before one is created.
+   */
+  private Map _getNamedChildren(Xpp3Dom parent)
+  {
+    NamedChildren view = (NamedChildren) _namedChildren.get(parent);
+    if (view == null)
+    {
+      view = new NamedChildren();
+      _namedChildren.put(parent, view);
+    }
+
+    int count = parent.getChildCount();
+    if (count < view.indexedCount)
+    {
+      view.children.clear();
+      view.indexedCount = 0;
+    }
+
+    for (int i = view.indexedCount; i < count; i++)
+    {
+      Xpp3Dom child = parent.getChild(i);
+      String attrValue = child.getAttribute("n");
+      if (attrValue != null)
+      {
+        String key = child.getName() + '\n' + attrValue;
+        // the first matching child wins
+        if (!view.children.containsKey(key))
+        {
+          view.children.put(key, child);
+        }
+      }
+    }
+    view.indexedCount = count;
+
+    return view.children;
+  }
+
+  MavenProject findDependentProject(String dependencyManagementKey)
+  {
+    if (_reactorProjectsById == null)
+    {
+      _reactorProjectsById = new HashMap();
+      for (Iterator i = reactorProjects.iterator(); i.hasNext(); )
+      {
+        MavenProject reactorProject = (MavenProject) i.next();
+        String ident =
+          reactorProject.getArtifact().getDependencyConflictId();
+        // the first project with an id wins
+        if (!_reactorProjectsById.containsKey(ident))
+        {
+          _reactorProjectsById.put(ident, reactorProject);
+        }
+      }
+    }
+
+    MavenProject reactorProject =
+      (MavenProject) _reactorProjectsById.get(dependencyManagementKey);
+    return (reactorProject != null) ? reactorProject.getExecutionProject()
+                                    : null;
+  }
+
   private boolean isDependentProject(String dependencyManagementKey)
   {
     return (findDependentProject(dependencyManagementKey) != null);
   }
 
-  private void removeChildren(Xpp3Dom parent)
+  void removeChildren(Xpp3Dom parent)
   {
-    while (parent.getChildCount() != 0)
+    _namedChildren.remove(parent);
+
+    // removed from the end, so the remaining children are not shifted
+    for (int i = parent.getChildCount() - 1; i >= 0; i--)
     {
-      parent.removeChild(0);
+      parent.removeChild(i);
     }
   }
 
@@ -1817,10 +1956,22 @@ public class JDeveloperMojo
     }
   }
 
+  static private class NamedChildren
+  {
+    public final Map children = new HashMap();
+    public int       indexedCount;
+  }
+
   private int     _releaseMajor = 0;
   private boolean _addLibraries = true;
   private boolean _addTagLibs   = true;
 
+  // reactor projects by dependency conflict id, built on first use
+  private Map     _reactorProjectsById;
+
+  // name-indexed views of the children of the DOM elements, by element
+  private final Map _namedChildren = new IdentityHashMap();
+
   private static final String _PROPERTY_ADD_LIBRARY = "jdev.plugin.add.libraries";
   private static final String _PROPERTY_ADD_TAGLIBS = "jdev.plugin.add.taglibs";
 
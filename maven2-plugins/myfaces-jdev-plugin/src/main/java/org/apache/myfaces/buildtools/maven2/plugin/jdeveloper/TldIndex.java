@@ -0,0 +1,330 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.jdeveloper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Index of the tag library descriptors (META-INF/*.tld) of jar files,
+ * stored in a properties file.  A jar file is only scanned again when
+ * its size or modification date changed.
+ */
+public class TldIndex
+{
+  /**
+   * Returns the index stored in a file.  The index is shared by the
+   * projects of a build, so the file is only read once.
+   */
+  static public TldIndex getInstance(File indexFile)
+    throws IOException
+  {
+    indexFile = indexFile.getAbsoluteFile();
+    synchronized (_INSTANCES)
+    {
+      TldIndex index = (TldIndex) _INSTANCES.get(indexFile);
+      if (index == null)
+      {
+        index = new TldIndex(indexFile);
+        _INSTANCES.put(indexFile, index);
+      }
+      return index;
+    }
+  }
+
+  TldIndex(File indexFile)
+    throws IOException
+  {
+    _indexFile = indexFile;
+
+    if (indexFile.isFile())
+    {
+      Properties properties = new Properties();
+      InputStream in = new BufferedInputStream(new FileInputStream(indexFile));
+      try
+      {
+        properties.load(in);
+      }
+      finally
+      {
+        in.close();
+      }
+
+      for (Enumeration e = properties.propertyNames(); e.hasMoreElements(); )
+      {
+        String path = (String) e.nextElement();
+        Entry entry = Entry.parse(properties.getProperty(path));
+        if (entry != null)
+        {
+          _entries.put(path, entry);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the tag library descriptors of jar files.
+   * The jar files missing from the index are scanned on a pool of
+   * threads, and the index file is written again if any was.
+   *
+   * @param jarFiles  the jar files
+   * @param threads   the number of threads scanning the jar files
+   * @return the names of the descriptors by jar file, in the order
+   *         of the jar files
+   */
+  public synchronized Map getTagLibraries(List jarFiles, int threads)
+    throws IOException
+  {
+    List missingFiles = new ArrayList();
+    for (Iterator i = jarFiles.iterator(); i.hasNext(); )
+    {
+      File file = (File) i.next();
+      Entry entry = (Entry) _entries.get(file.getAbsolutePath());
+      if (entry == null || !entry.isCurrent(file))
+      {
+        missingFiles.add(file);
+      }
+    }
+
+    if (!missingFiles.isEmpty())
+    {
+      _scan(missingFiles, threads);
+      _save();
+    }
+
+    Map tagLibraries = new LinkedHashMap();
+    for (Iterator i = jarFiles.iterator(); i.hasNext(); )
+    {
+      File file = (File) i.next();
+      Entry entry = (Entry) _entries.get(file.getAbsolutePath());
+      tagLibraries.put(file, entry.names);
+    }
+    return tagLibraries;
+  }
+
+  private void _scan(List files, int threads)
+    throws IOException
+  {
+    if (threads <= 0)
+    {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    threads = Math.min(threads, files.size());
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try
+    {
+      List futures = new ArrayList(files.size());
+      for (Iterator i = files.iterator(); i.hasNext(); )
+      {
+        final File file = (File) i.next();
+        futures.add(executor.submit(new Callable()
+        {
+          public Object call() throws IOException
+          {
+            return _scanJarFile(file);
+          }
+        }));
+      }
+
+      for (int i = 0; i < futures.size(); i++)
+      {
+        File file = (File) files.get(i);
+        Entry entry = (Entry) ((Future) futures.get(i)).get();
+        _entries.put(file.getAbsolutePath(), entry);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted scanning tag libraries");
+    }
+    catch (ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+      {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause.getMessage());
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  static private Entry _scanJarFile(File file)
+    throws IOException
+  {
+    // the date is taken first, a jar changed while scanned is scanned again
+    long size = file.length();
+    long lastModified = file.lastModified();
+
+    List names = new ArrayList();
+    JarFile jarFile = new JarFile(file);
+    try
+    {
+      Enumeration jarEntries = jarFile.entries();
+      while (jarEntries.hasMoreElements())
+      {
+        JarEntry jarEntry = (JarEntry) jarEntries.nextElement();
+        String name = jarEntry.getName();
+        if (name.startsWith("META-INF/") && name.endsWith(".tld"))
+        {
+          names.add(name);
+        }
+      }
+    }
+    finally
+    {
+      jarFile.close();
+    }
+
+    return new Entry(size, lastModified,
+                     (String[]) names.toArray(new String[names.size()]));
+  }
+
+  /**
+   * Writes the index to a temporary file first, so builds running
+   * at the same time never read a partial index.
+   */
+  private void _save()
+    throws IOException
+  {
+    Properties properties = new Properties();
+    for (Iterator i = _entries.entrySet().iterator(); i.hasNext(); )
+    {
+      Map.Entry e = (Map.Entry) i.next();
+      properties.setProperty((String) e.getKey(), e.getValue().toString());
+    }
+
+    File directory = _indexFile.getAbsoluteFile().getParentFile();
+    directory.mkdirs();
+
+    File tempFile = File.createTempFile("tld-index", ".tmp", directory);
+    try
+    {
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+      try
+      {
+        properties.store(out, "Tag libraries of jar files");
+      }
+      finally
+      {
+        out.close();
+      }
+
+      if (!tempFile.renameTo(_indexFile))
+      {
+        _indexFile.delete();
+        if (!tempFile.renameTo(_indexFile))
+        {
+          throw new IOException("Cannot write " + _indexFile);
+        }
+      }
+    }
+    finally
+    {
+      tempFile.delete();
+    }
+  }
+
+  static private class Entry
+  {
+    public Entry(long size, long lastModified, String[] names)
+    {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.names = names;
+    }
+
+    public boolean isCurrent(File file)
+    {
+      return (file.length() == size && file.lastModified() == lastModified);
+    }
+
+    /**
+     * Parses "size|lastModified|name|name...", returns null
+     * for a malformed value.
+     */
+    static public Entry parse(String value)
+    {
+      String[] parts = value.split("\\|", -1);
+      if (parts.length < 2)
+        return null;
+
+      try
+      {
+        String[] names = new String[parts.length - 2];
+        System.arraycopy(parts, 2, names, 0, names.length);
+        return new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                         names);
+      }
+      catch (NumberFormatException e)
+      {
+        return null;
+      }
+    }
+
+    public String toString()
+    {
+      StringBuffer buff = new StringBuffer();
+      buff.append(size).append('|').append(lastModified);
+      for (int i = 0; i < names.length; i++)
+      {
+        buff.append('|').append(names[i]);
+      }
+      return buff.toString();
+    }
+
+    public final long     size;
+    public final long     lastModified;
+    public final String[] names;
+  }
+
+  private final File _indexFile;
+  private final Map  _entries = new HashMap();
+
+  static private final Map _INSTANCES = new HashMap();
+}
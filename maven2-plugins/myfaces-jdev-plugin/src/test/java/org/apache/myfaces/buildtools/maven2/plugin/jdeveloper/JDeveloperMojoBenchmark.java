@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.jdeveloper;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Measures the lookups of the reactor projects and of the named children
+ * in a synthetic reactor, where every module depends on every module.  It
+ * is not run by the build; after <code>mvn test-compile</code>, run it
+ * with:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;test classpath&gt;
+ *   org.apache.myfaces.buildtools.maven2.plugin.jdeveloper.JDeveloperMojoBenchmark [modules]
+ * </pre>
+ * The default is 500 modules.  Each module adds 4 named children to the
+ * project DOM and looks them up twice.  The indexed lookups of the mojo
+ * are compared with scans of the reactor and of the children, the
+ * lookups the mojo did before.
+ */
+public class JDeveloperMojoBenchmark
+{
+  static public void main(
+    String[] args) throws Throwable
+  {
+    int count = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+    List reactorProjects = new ArrayList(count);
+    String[] keys = new String[count];
+    for (int i = 0; i < count; i++)
+    {
+      String artifactId = "module" + i;
+      reactorProjects.add(
+        JDeveloperMojoTest._createProject("org.example", artifactId, "jar"));
+      keys[i] = "org.example:" + artifactId + ":jar";
+    }
+
+    // the first rounds warm up the lookups
+    for (int round = 0; round < 5; round++)
+    {
+      long indexed = _runIndexed(reactorProjects, keys);
+      long scanned = _runScanned(reactorProjects, keys);
+      System.out.println(count + " modules: indexed " +
+                         (indexed / 1000000) + "ms, scanned " +
+                         (scanned / 1000000) + "ms");
+    }
+  }
+
+  static private long _runIndexed(
+    List     reactorProjects,
+    String[] keys) throws Exception
+  {
+    long start = System.nanoTime();
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    JDeveloperMojoTest._setField(mojo, "reactorProjects", reactorProjects);
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    for (int i = 0; i < keys.length; i++)
+    {
+      for (int j = 0; j < keys.length; j++)
+      {
+        if (mojo.findDependentProject(keys[j]) == null)
+        {
+          throw new IllegalStateException(keys[j]);
+        }
+      }
+
+      for (int pass = 0; pass < 2; pass++)
+      {
+        for (int k = 0; k < _CHILD_NAMES.length; k++)
+        {
+          mojo.findNamedChild(parent, _CHILD_NAMES[k], keys[i]);
+        }
+      }
+    }
+
+    return System.nanoTime() - start;
+  }
+
+  static private long _runScanned(
+    List     reactorProjects,
+    String[] keys)
+  {
+    long start = System.nanoTime();
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    for (int i = 0; i < keys.length; i++)
+    {
+      for (int j = 0; j < keys.length; j++)
+      {
+        if (_scanDependentProject(reactorProjects, keys[j]) == null)
+        {
+          throw new IllegalStateException(keys[j]);
+        }
+      }
+
+      for (int pass = 0; pass < 2; pass++)
+      {
+        for (int k = 0; k < _CHILD_NAMES.length; k++)
+        {
+          _scanNamedChild(parent, _CHILD_NAMES[k], keys[i]);
+        }
+      }
+    }
+
+    return System.nanoTime() - start;
+  }
+
+  static private MavenProject _scanDependentProject(
+    List   reactorProjects,
+    String dependencyManagementKey)
+  {
+    for (Iterator i = reactorProjects.iterator(); i.hasNext(); )
+    {
+      MavenProject reactorProject = (MavenProject) i.next();
+      String ident = reactorProject.getArtifact().getDependencyConflictId();
+      if (ident.equals(dependencyManagementKey))
+      {
+        return reactorProject.getExecutionProject();
+      }
+    }
+
+    return null;
+  }
+
+  static private Xpp3Dom _scanNamedChild(
+    Xpp3Dom parent,
+    String  childName,
+    String  attrValue)
+  {
+    Xpp3Dom[] children = parent.getChildren(childName);
+    for (int i = 0; i < children.length; i++)
+    {
+      if (attrValue.equals(children[i].getAttribute("n")))
+      {
+        return children[i];
+      }
+    }
+
+    Xpp3Dom child = new Xpp3Dom(childName);
+    child.setAttribute("n", attrValue);
+    parent.addChild(child);
+    return child;
+  }
+
+  static private final String[] _CHILD_NAMES =
+    { "list", "hash", "url", "value" };
+}
@@ -0,0 +1,205 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.jdeveloper;
+
+import java.lang.reflect.Field;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Tests the lookups of the named children and of the reactor projects.
+ */
+public class JDeveloperMojoTest extends TestCase
+{
+  public void testFindNamedChild()
+  {
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    Xpp3Dom list = _addChild(parent, "list", "libraryReferences");
+    Xpp3Dom hash = _addChild(parent, "hash", "libraryReferences");
+
+    assertSame(list, mojo.findNamedChild(parent, "list", "libraryReferences"));
+    assertSame(hash, mojo.findNamedChild(parent, "hash", "libraryReferences"));
+
+    Xpp3Dom created = mojo.findNamedChild(parent, "list", "sourcePath");
+    assertSame(parent, created.getParent());
+    assertEquals("sourcePath", created.getAttribute("n"));
+    assertEquals(3, parent.getChildCount());
+    assertSame(created, mojo.findNamedChild(parent, "list", "sourcePath"));
+    assertEquals(3, parent.getChildCount());
+  }
+
+  public void testFindNamedChildDuplicates()
+  {
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    Xpp3Dom first = _addChild(parent, "list", "libraryReferences");
+    _addChild(parent, "list", "libraryReferences");
+
+    // the first matching child wins, as it did with a scan of the children
+    assertSame(first, mojo.findNamedChild(parent, "list", "libraryReferences"));
+
+    Xpp3Dom appended = _addChild(parent, "list", "libraryReferences");
+    assertSame(first, mojo.findNamedChild(parent, "list", "libraryReferences"));
+    assertNotSame(appended,
+                  mojo.findNamedChild(parent, "list", "libraryReferences"));
+    assertEquals(3, parent.getChildCount());
+  }
+
+  public void testFindNamedChildAfterRemoveChildren()
+  {
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    Xpp3Dom list = mojo.findNamedChild(parent, "list", "libraryReferences");
+    mojo.findNamedChild(parent, "hash", "libraryReferences");
+
+    mojo.removeChildren(parent);
+    assertEquals(0, parent.getChildCount());
+    assertNull(list.getParent());
+
+    // the children are added again, fewer and in another order
+    Xpp3Dom hash = _addChild(parent, "hash", "libraryReferences");
+    assertSame(hash, mojo.findNamedChild(parent, "hash", "libraryReferences"));
+
+    Xpp3Dom recreated =
+      mojo.findNamedChild(parent, "list", "libraryReferences");
+    assertNotSame(list, recreated);
+    assertSame(parent, recreated.getParent());
+    assertEquals(2, parent.getChildCount());
+  }
+
+  public void testFindNamedChildRemovedOutside()
+  {
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    Xpp3Dom list = mojo.findNamedChild(parent, "list", "libraryReferences");
+    mojo.findNamedChild(parent, "hash", "libraryReferences");
+
+    // the count of the children is the one the view was built with
+    parent.removeChild(0);
+    Xpp3Dom readded = _addChild(parent, "list", "libraryReferences");
+
+    assertSame(readded,
+               mojo.findNamedChild(parent, "list", "libraryReferences"));
+    assertNotSame(list, readded);
+    assertEquals(2, parent.getChildCount());
+  }
+
+  public void testFindNamedChildNamedLater()
+  {
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    Xpp3Dom unnamed = new Xpp3Dom("list");
+    parent.addChild(unnamed);
+    mojo.findNamedChild(parent, "hash", "libraryReferences");
+
+    unnamed.setAttribute("n", "libraryReferences");
+    assertSame(unnamed,
+               mojo.findNamedChild(parent, "list", "libraryReferences"));
+    assertEquals(2, parent.getChildCount());
+  }
+
+  public void testFindNamedChildRenamed()
+  {
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    Xpp3Dom parent = new Xpp3Dom("hash");
+    Xpp3Dom list = mojo.findNamedChild(parent, "list", "libraryReferences");
+
+    list.setAttribute("n", "sourcePath");
+    assertSame(list, mojo.findNamedChild(parent, "list", "sourcePath"));
+
+    Xpp3Dom created =
+      mojo.findNamedChild(parent, "list", "libraryReferences");
+    assertNotSame(list, created);
+    assertEquals("libraryReferences", created.getAttribute("n"));
+    assertEquals(2, parent.getChildCount());
+  }
+
+  public void testFindDependentProject() throws Exception
+  {
+    MavenProject first = _createProject("org.example", "module", "jar");
+    MavenProject second = _createProject("org.example", "module", "jar");
+    MavenProject war = _createProject("org.example", "module", "war");
+    MavenProject notExecuted = _createProject("org.example", "other", "jar");
+    notExecuted.setExecutionProject(null);
+
+    List reactorProjects = new ArrayList();
+    reactorProjects.add(first);
+    reactorProjects.add(second);
+    reactorProjects.add(war);
+    reactorProjects.add(notExecuted);
+
+    JDeveloperMojo mojo = new JDeveloperMojo();
+    _setField(mojo, "reactorProjects", reactorProjects);
+
+    // the first project with an id wins
+    assertSame(first.getExecutionProject(),
+               mojo.findDependentProject("org.example:module:jar"));
+    assertSame(war.getExecutionProject(),
+               mojo.findDependentProject("org.example:module:war"));
+    assertNull(mojo.findDependentProject("org.example:other:jar"));
+    assertNull(mojo.findDependentProject("org.example:missing:jar"));
+  }
+
+  static private Xpp3Dom _addChild(Xpp3Dom parent, String childName,
+                                   String attrValue)
+  {
+    Xpp3Dom child = new Xpp3Dom(childName);
+    child.setAttribute("n", attrValue);
+    parent.addChild(child);
+    return child;
+  }
+
+  static MavenProject _createProject(String groupId, String artifactId,
+                                     String type)
+  {
+    Model model = new Model();
+    model.setGroupId(groupId);
+    model.setArtifactId(artifactId);
+    model.setVersion("1.0");
+    model.setPackaging(type);
+
+    MavenProject project = new MavenProject(model);
+    project.setArtifact(
+      new DefaultArtifact(groupId, artifactId,
+                          VersionRange.createFromVersion("1.0"), null, type,
+                          null, new DefaultArtifactHandler(type)));
+    project.setExecutionProject(new MavenProject(model));
+    return project;
+  }
+
+  static void _setField(Object object, String name, Object value)
+    throws Exception
+  {
+    Field field = object.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(object, value);
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.jdeveloper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the index of the tag library descriptors of jar files.
+ */
+public class TldIndexTest extends TestCase
+{
+  protected void setUp() throws Exception
+  {
+    _directory = new File("target/tld-index/" + getName()).getAbsoluteFile();
+    FileUtils.deleteDirectory(_directory);
+    _directory.mkdirs();
+    _indexFile = new File(_directory, "tld-index.properties");
+  }
+
+  public void testGetTagLibraries() throws IOException
+  {
+    File tlds = _createJar("tlds.jar", new String[] {
+                             "META-INF/a.tld", "META-INF/b.tld",
+                             "META-INF/MANIFEST.MF", "a.tld",
+                             "org/example/A.class" });
+    File none = _createJar("none.jar", new String[] {
+                             "org/example/B.class" });
+
+    Map tagLibraries = new TldIndex(_indexFile).getTagLibraries(
+                         Arrays.asList(new File[] { none, tlds }), 2);
+
+    assertEquals(Arrays.asList(new File[] { none, tlds }),
+                 Arrays.asList(tagLibraries.keySet().toArray()));
+    _assertNames(new String[0], tagLibraries, none);
+    _assertNames(new String[] { "META-INF/a.tld", "META-INF/b.tld" },
+                 tagLibraries, tlds);
+    assertTrue(_indexFile.isFile());
+  }
+
+  public void testIndexedLookup() throws IOException
+  {
+    File tlds = _createJar("tlds.jar", new String[] { "META-INF/a.tld" });
+    List jarFiles = Arrays.asList(new File[] { tlds });
+    TldIndex index = new TldIndex(_indexFile);
+    index.getTagLibraries(jarFiles, 1);
+    long indexModified = _indexFile.lastModified();
+    _indexFile.setLastModified(indexModified - 10000);
+
+    // the jar cannot be scanned again, but has its size and date
+    _corrupt(tlds);
+
+    _assertNames(new String[] { "META-INF/a.tld" },
+                 index.getTagLibraries(jarFiles, 1), tlds);
+    _assertNames(new String[] { "META-INF/a.tld" },
+                 new TldIndex(_indexFile).getTagLibraries(jarFiles, 1), tlds);
+
+    // nothing was scanned, so the index is not written again
+    assertEquals(indexModified - 10000, _indexFile.lastModified());
+  }
+
+  public void testChangedJarIsScanned() throws IOException
+  {
+    File tlds = _createJar("tlds.jar", new String[] { "META-INF/a.tld" });
+    List jarFiles = Arrays.asList(new File[] { tlds });
+    TldIndex index = new TldIndex(_indexFile);
+    index.getTagLibraries(jarFiles, 1);
+
+    // the same size, another date
+    long lastModified = tlds.lastModified();
+    _createJar("tlds.jar", new String[] { "META-INF/b.tld" });
+    tlds.setLastModified(lastModified - 10000);
+    _assertNames(new String[] { "META-INF/b.tld" },
+                 index.getTagLibraries(jarFiles, 1), tlds);
+
+    // the same date, another size
+    lastModified = tlds.lastModified();
+    _createJar("tlds.jar", new String[] { "META-INF/b.tld",
+                                          "META-INF/c.tld" });
+    tlds.setLastModified(lastModified);
+    _assertNames(new String[] { "META-INF/b.tld", "META-INF/c.tld" },
+                 index.getTagLibraries(jarFiles, 1), tlds);
+
+    _assertNames(new String[] { "META-INF/b.tld", "META-INF/c.tld" },
+                 new TldIndex(_indexFile).getTagLibraries(jarFiles, 1), tlds);
+  }
+
+  public void testJarWithoutDescriptors() throws IOException
+  {
+    File none = _createJar("none.jar", new String[] {
+                             "org/example/B.class" });
+    List jarFiles = Arrays.asList(new File[] { none });
+    new TldIndex(_indexFile).getTagLibraries(jarFiles, 1);
+
+    Properties properties = _loadIndex();
+    assertEquals(none.length() + "|" + none.lastModified(),
+                 properties.getProperty(none.getAbsolutePath()));
+
+    // the entry is read back, and the jar is not scanned again
+    _corrupt(none);
+    _assertNames(new String[0],
+                 new TldIndex(_indexFile).getTagLibraries(jarFiles, 1), none);
+  }
+
+  public void testMalformedEntryIsScanned() throws IOException
+  {
+    File tlds = _createJar("tlds.jar", new String[] { "META-INF/a.tld" });
+    Properties properties = new Properties();
+    properties.setProperty(tlds.getAbsolutePath(), "garbage");
+    _storeIndex(properties);
+
+    _assertNames(new String[] { "META-INF/a.tld" },
+                 new TldIndex(_indexFile).getTagLibraries(
+                   Arrays.asList(new File[] { tlds }), 1), tlds);
+    assertEquals(tlds.length() + "|" + tlds.lastModified() +
+                 "|META-INF/a.tld",
+                 _loadIndex().getProperty(tlds.getAbsolutePath()));
+  }
+
+  public void testIndexIsReplaced() throws Exception
+  {
+    File tlds = _createJar("tlds.jar", new String[] { "META-INF/a.tld" });
+    Properties properties = new Properties();
+    properties.setProperty("/previous.jar", "1|2|META-INF/previous.tld");
+    _storeIndex(properties);
+
+    // a link to the former index keeps its content when it is replaced,
+    // not when it is written over
+    File link = new File(_directory, "link.properties");
+    Process process = Runtime.getRuntime().exec(new String[] {
+                        "ln", _indexFile.getPath(), link.getPath() });
+    assertEquals(0, process.waitFor());
+
+    new TldIndex(_indexFile).getTagLibraries(
+      Arrays.asList(new File[] { tlds }), 1);
+
+    Properties index = _loadIndex();
+    assertEquals("1|2|META-INF/previous.tld",
+                 index.getProperty("/previous.jar"));
+    assertNotNull(index.getProperty(tlds.getAbsolutePath()));
+    assertEquals(properties, _load(link));
+
+    // no temporary file is left behind
+    assertEquals(Arrays.asList(new String[] { "link.properties",
+                                              "tld-index.properties",
+                                              "tlds.jar" }),
+                 _list(_directory));
+  }
+
+  public void testMissingJar() throws IOException
+  {
+    File missing = new File(_directory, "missing.jar");
+    try
+    {
+      new TldIndex(_indexFile).getTagLibraries(
+        Arrays.asList(new File[] { missing }), 1);
+      fail("IOException expected");
+    }
+    catch (IOException e)
+    {
+      // expected
+    }
+    assertFalse(_indexFile.exists());
+  }
+
+  private File _createJar(String name, String[] entryNames)
+    throws IOException
+  {
+    File file = new File(_directory, name);
+    JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+    try
+    {
+      for (int i = 0; i < entryNames.length; i++)
+      {
+        out.putNextEntry(new ZipEntry(entryNames[i]));
+        out.write(entryNames[i].getBytes("UTF-8"));
+        out.closeEntry();
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+    return file;
+  }
+
+  /**
+   * Writes over a jar file, keeping its size and date.
+   */
+  static private void _corrupt(File file) throws IOException
+  {
+    long lastModified = file.lastModified();
+    byte[] content = new byte[(int) file.length()];
+    FileOutputStream out = new FileOutputStream(file);
+    try
+    {
+      out.write(content);
+    }
+    finally
+    {
+      out.close();
+    }
+    file.setLastModified(lastModified);
+  }
+
+  private Properties _loadIndex() throws IOException
+  {
+    return _load(_indexFile);
+  }
+
+  static private Properties _load(File file) throws IOException
+  {
+    Properties properties = new Properties();
+    InputStream in = new FileInputStream(file);
+    try
+    {
+      properties.load(in);
+    }
+    finally
+    {
+      in.close();
+    }
+    return properties;
+  }
+
+  private void _storeIndex(Properties properties) throws IOException
+  {
+    FileOutputStream out = new FileOutputStream(_indexFile);
+    try
+    {
+      properties.store(out, null);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  static private List _list(File directory)
+  {
+    String[] names = directory.list();
+    Arrays.sort(names);
+    return Arrays.asList(names);
+  }
+
+  static private void _assertNames(String[] expected, Map tagLibraries,
+                                   File file)
+  {
+    assertEquals(Arrays.asList(expected),
+                 Arrays.asList((String[]) tagLibraries.get(file)));
+  }
+
+  private File _directory;
+  private File _indexFile;
+}
@@ -23,10 +23,12 @@ import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -37,6 +39,8 @@ import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.reporting.MavenReportException;
 import org.apache.myfaces.plugins.jsdoc.util.HTMLFileContentFilter;
+import org.apache.myfaces.plugins.jsdoc.util.JSDocEngine;
+import org.apache.myfaces.plugins.jsdoc.util.JSDocManifest;
 import org.apache.myfaces.plugins.jsdoc.util.JSDocPackMaven;
 import org.apache.myfaces.plugins.jsdoc.util.JSFileNameFilter;
 import org.apache.myfaces.plugins.jsdoc.util.XMLConfig;
@@ -140,6 +144,31 @@ public abstract class AbstractJSDocMojo extends AbstractMojo
      * @parameter expression="${myfaces.jsdoc.skip}" default-value="false"
      */
     protected boolean skip;
+
+    /**
+     * Directory the jsdoc toolkit is unpacked to, once per toolkit version,
+     * and shared by all the modules and builds using the same directory.
+     *
+     * @parameter expression="${myfaces.jsdoc.toolkitCacheDirectory}" default-value="${user.home}/.m2/myfaces-jsdoc-toolkit"
+     */
+    protected File toolkitCacheDirectory;
+
+    /**
+     * Number of threads fixing the generated html files. Defaults to the
+     * number of available processors.
+     *
+     * @parameter expression="${myfaces.jsdoc.htmlFilterThreads}"
+     */
+    protected int htmlFilterThreads;
+
+    /**
+     * File recording the inputs of the last generation: the digests of the
+     * javascript sources, templates and assembly file, the jsdoc options and
+     * the toolkit version. Nothing is generated while these do not change.
+     *
+     * @parameter expression="${project.build.directory}/jsdoc-manifest.properties"
+     */
+    protected File manifestFile;
     
     // ----------------------------------------------------------------------
     // Standard JSDoc Options
@@ -190,10 +219,6 @@ public abstract class AbstractJSDocMojo extends AbstractMojo
         {
             throw new MavenReportException(e.toString());
         }
-        finally
-        {
-            _tearDown(helper);
-        }  
     }
 
     /**
@@ -237,199 +262,190 @@ public abstract class AbstractJSDocMojo extends AbstractMojo
         //unpacker = new JSDocPackResources();
 
         helper.setJsdocRunPath(projectBuildDir + File.separator + JSDocMojoConst.JSDOC);
-        helper.setJsdocEngineUnpacked(projectBuildDir + File.separator + JSDocMojoConst.TEMP
-                + File.separator + JSDocMojoConst.JSDOC);
 
         helper.setJavascriptTargetPath(helper.getJsdocRunPath() + File.separator + JSDocMojoConst.JAVASCRIPT);
 
-        File pathCreator = new File(helper.getJsdocEngineUnpacked());
         File jsdocPathCreator = new File(helper.getJavascriptTargetPath());
-        pathCreator.mkdirs();
         jsdocPathCreator.mkdirs();
         return helper;
     }
 
-    public void _tearDown(JSDocHelper helper) throws MavenReportException
+    protected void _execute(JSDocHelper helper) throws MavenReportException, IOException
     {
-        try
-        {
-            FileUtils.deleteDirectory(new File(helper.getJsdocEngineUnpacked()));
-        }
-        catch (IOException e)
+        //the toolkit holds the default templates, which are part of the manifest
+        unpackJSDoc(helper);
+
+        JSDocManifest manifest = createManifest(helper);
+        if (new File(getOutputDirectory()).isDirectory() && manifest.matches(manifestFile))
         {
-            throw new MavenReportException(e.toString());
+            getLog().info("[JSDOC] Nothing to generate - the documentation is up to date");
+            return;
         }
-    }
-
-    protected void _execute(JSDocHelper helper) throws MavenReportException, IOException
-    {
+        //a failed run must not look up to date
+        manifestFile.delete();
 
         copyJavascripts(helper);
 
         //fetchJavascriptSources(helper);
         //now we have all files we now can now work on our plugin call
-        unpackJSDoc(helper);
+        executeJSDoc(helper);
 
-        String systemJsdocDir = setenvJSDocDir(helper);
-        String userDir = setenvUserDir(helper);
-        try
-        {
-            executeJSDoc(helper);
-        }
-        finally
-        {
-            resetSysenvVars(systemJsdocDir, userDir);
-        }
-    }
-
-    private void resetSysenvVars(String systemJsdocDir, String userDir)
-    {
-        if (systemJsdocDir != null)
-        {
-            System.setProperty(JSDocMojoConst.JSDOC_DIR, systemJsdocDir);
-        }
-        if (userDir != null)
-        {
-            System.setProperty("user.dir", userDir);
-        }
+        manifest.write(manifestFile);
     }
 
-    private void executeJSDoc(JSDocHelper helper)
+    private void executeJSDoc(JSDocHelper helper) throws IOException
     {
+        String runJsPath = getRunJsPath(helper);
         List args = _initArguments(helper);
 
-        getLog().info("[JSDOC] Executing within maven: '" + args.toString().replaceAll(",", "") + "'");
+        getLog().info("[JSDOC] Executing within maven: '" + runJsPath + " "
+                + args.toString().replaceAll(",", "") + "'");
 
-        // tell Rhino to run JSDoc with the provided params
-        // without calling System.exit
-
-        org.mozilla.javascript.tools.shell.Main.main((String[]) args.toArray(new String[0]));
+        // run JSDoc in its own Rhino scope, the toolkit finds itself through
+        // the -j argument and all other paths are absolute, so neither
+        // user.dir nor jsdoc.dir have to be changed for the whole JVM
+        JSDocEngine.run(runJsPath, (String[]) args.toArray(new String[0]));
 
         this.fixHTML(helper);
     }
 
-    private String setenvUserDir(JSDocHelper helper)
-    {
-        String userDir = System.getProperty("user.dir");
-        System.setProperty("user.dir", helper.getJsdocEngineUnpacked() + File.separator);
-        return userDir;
-    }
-
-    private String setenvJSDocDir(JSDocHelper helper)
-    {
-        String systemJsdocDir = System.getProperty(JSDocMojoConst.JSDOC_DIR);
-        System.setProperty(JSDocMojoConst.JSDOC_DIR, helper.getJsdocEngineUnpacked() + File.separator);
-        return systemJsdocDir;
-    }
-
     private void unpackJSDoc(JSDocHelper helper) throws IOException
     {
         getLog().info("[JSDOC] Unpacking jsdoc toolkit for further processing");
-        helper.getUnpacker().unpack(helper.getJsdocEngineUnpacked(), getLog());
-        getLog().info("[JSDOC] Unpacking jsdoc toolkit for further processing done");
+        //the toolkit is only read by jsdoc, so the unpacked copy is shared
+        File unpacked = helper.getUnpacker().unpackCached(toolkitCacheDirectory, getLog());
+        helper.setJsdocEngineUnpacked(unpacked.getAbsolutePath());
+        getLog().info("[JSDOC] Using jsdoc toolkit unpacked in " + unpacked);
     }
 
     /**
      * initially copies all source files from the given source dir to the target
-     * dir so that the files can be referenced later on by the html files
+     * dir so that the files can be referenced later on by the html files,
+     * only the files which have changed since the last run are copied again
+     * and the files whose source is gone are removed
      */
     private void copyJavascripts(JSDocHelper helper) throws IOException
     {
         getLog().info("[JSDOC] Copying all javascript sources to the target dir for later reference");
-        
+
+        Set targetFiles = new HashSet();
         if (!StringUtils.isEmpty(sourceDirectory))
         {
-            File buildSourceDirFile = new File(sourceDirectory);
-            if (buildSourceDirFile.exists())
-            {
-                FileUtils.copyDirectory(
-                        buildSourceDirFile, 
-                        new File(helper.getJavascriptTargetPath()+'/'+relativeSourceDirectory), 
-                        new FileFilter()
-                {
-                    
-                    public boolean accept(File pathname)
-                    {
-                        if (pathname.getName().endsWith(".svn"))
-                        {
-                            return false;
-                        }
-                        return true;
-                    }
-                });
-            }
+            syncDirectory(new File(sourceDirectory),
+                    new File(helper.getJavascriptTargetPath()+'/'+relativeSourceDirectory),
+                    SOURCE_FILTER, targetFiles);
         }
 
         if (resourceDirectory != null)
         {
-            if (resourceDirectory.exists())
+            syncDirectory(resourceDirectory,
+                    new File(helper.getJavascriptTargetPath()+'/'+relativeResourceDirectory),
+                    JAVASCRIPT_FILTER, targetFiles);
+        }
+
+        if (!StringUtils.isEmpty(webappDirectory))
+        {
+            syncDirectory(new File(webappDirectory),
+                    new File(helper.getJavascriptTargetPath()+'/'+relativeWebappDirectory),
+                    JAVASCRIPT_FILTER, targetFiles);
+        }
+
+        removeStaleFiles(new File(helper.getJavascriptTargetPath()), targetFiles);
+
+        getLog().info("[JSDOC] Copying done without any errors");
+    }
+
+    private void syncDirectory(File sourceDir, File targetDir, FileFilter filter, Set targetFiles)
+            throws IOException
+    {
+        File[] files = sourceDir.listFiles(filter);
+        if (files == null)
+        {
+            return;
+        }
+        for (int i = 0; i < files.length; i++)
+        {
+            File targetFile = new File(targetDir, files[i].getName());
+            if (files[i].isDirectory())
+            {
+                syncDirectory(files[i], targetFile, filter, targetFiles);
+            }
+            else
             {
-                FileUtils.copyDirectory(
-                        resourceDirectory, 
-                        new File(helper.getJavascriptTargetPath()+'/'+relativeResourceDirectory), 
-                        new FileFilter()
+                targetFiles.add(targetFile.getAbsoluteFile());
+                if (!targetFile.isFile() || targetFile.length() != files[i].length()
+                        || targetFile.lastModified() != files[i].lastModified())
                 {
-                    
-                    public boolean accept(File pathname)
-                    {
-                        if (pathname.getName().endsWith(".svn"))
-                        {
-                            return false;
-                        }
-                        if (pathname.isDirectory())
-                        {
-                            return true;
-                        }
-                        if (pathname.getName().endsWith(".js"))
-                        {
-                            return true;
-                        }
-                        return false;
-                    }
-                });
+                    //the copy keeps the file date, so unchanged files are recognized next time
+                    FileUtils.copyFile(files[i], targetFile);
+                }
             }
         }
-        
-        if (!StringUtils.isEmpty(webappDirectory))
+    }
+
+    private void removeStaleFiles(File targetDir, Set targetFiles)
+    {
+        File[] files = targetDir.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (int i = 0; i < files.length; i++)
         {
-            File buildWebappSourceDirFile = new File(webappDirectory);
-            if (buildWebappSourceDirFile.exists())
+            if (files[i].isDirectory())
             {
-                FileUtils.copyDirectory(
-                        buildWebappSourceDirFile, 
-                        new File(helper.getJavascriptTargetPath()+'/'+relativeWebappDirectory), 
-                        new FileFilter()
-                {
-                    
-                    public boolean accept(File pathname)
-                    {
-                        if (pathname.getName().endsWith(".svn"))
-                        {
-                            return false;
-                        }
-                        if (pathname.isDirectory())
-                        {
-                            return true;
-                        }
-                        if (pathname.getName().endsWith(".js"))
-                        {
-                            return true;
-                        }
-                        return false;
-                    }
-                });
+                removeStaleFiles(files[i], targetFiles);
+            }
+            else if (!targetFiles.contains(files[i].getAbsoluteFile()))
+            {
+                files[i].delete();
             }
         }
-        
-        getLog().info("[JSDOC] Copying done without any errors");
+    }
+
+    /**
+     * @return the manifest of everything the generated documentation depends on
+     */
+    private JSDocManifest createManifest(JSDocHelper helper) throws IOException
+    {
+        JSDocManifest manifest = new JSDocManifest();
+        manifest.addOption("plugin", String.valueOf(AbstractJSDocMojo.class.getResource("AbstractJSDocMojo.class")));
+        //the name of the unpacked toolkit contains the checksum of the toolkit
+        manifest.addOption("toolkit", new File(helper.getJsdocEngineUnpacked()).getName());
+        manifest.addOption("includePrivate", String.valueOf(includePrivate));
+        manifest.addOption("includeUndocumented", String.valueOf(includeUndocumented));
+        manifest.addOption("includeUndocumentedUnderscored", String.valueOf(includeUndocumentedUnderscored));
+        manifest.addOption("outputDirectory", getOutputDirectory());
+        manifest.addOption("javascriptTargetPath", helper.getJavascriptTargetPath());
+        manifest.addOption("relativeSourceDirectory", relativeSourceDirectory);
+        manifest.addOption("relativeResourceDirectory", relativeResourceDirectory);
+        manifest.addOption("relativeWebappDirectory", relativeWebappDirectory);
+        manifest.addOption("templates", getTemplateDirectory(helper));
+
+        manifest.addFile("assembly", new File(assemblyFile));
+        manifest.addDirectory("templates", new File(getTemplateDirectory(helper)), null);
+        if (!StringUtils.isEmpty(sourceDirectory))
+        {
+            manifest.addDirectory("source", new File(sourceDirectory), SOURCE_FILTER);
+        }
+        manifest.addDirectory("resource", resourceDirectory, JAVASCRIPT_FILTER);
+        if (!StringUtils.isEmpty(webappDirectory))
+        {
+            manifest.addDirectory("webapp", new File(webappDirectory), JAVASCRIPT_FILTER);
+        }
+        return manifest;
+    }
+
+    private String getRunJsPath(JSDocHelper helper)
+    {
+        return helper.getJsdocEngineUnpacked() + File.separator + JSDocMojoConst.APP
+                + File.separator + JSDocMojoConst.RUN_JS;
     }
 
     private final List _initArguments(JSDocHelper helper)
     {
         List args = new ArrayList();
-        String runJsPath = helper.getJsdocEngineUnpacked() + File.separator + JSDocMojoConst.APP
-                + File.separator + JSDocMojoConst.RUN_JS;
-        args.add(runJsPath);
+        String runJsPath = getRunJsPath(helper);
 
         if (this.includeUndocumented)
         {
@@ -454,13 +470,19 @@ public abstract class AbstractJSDocMojo extends AbstractMojo
     }
 
     /**
-     * @return the directory as absolute path holding the jsdoc toolkit templates
+     * @return the directory as absolute path holding the jsdoc toolkit templates,
+     *         relative template directories are resolved against the jsdoc toolkit
      */
     private final String getTemplateDirectory(JSDocHelper helper)
     {
-        return (JSDocMojoConst.TEMPLATES_JSDOC.equals(this.templates)) ?
-                helper.getJsdocEngineUnpacked() + File.separator + this.templates :
-                this.templates;
+        if (JSDocMojoConst.TEMPLATES_JSDOC.equals(this.templates))
+        {
+            return helper.getJsdocEngineUnpacked() + File.separator + this.templates;
+        }
+        File templateDirectory = new File(this.templates);
+        return templateDirectory.isAbsolute() ?
+                this.templates :
+                new File(helper.getJsdocEngineUnpacked(), this.templates).getAbsolutePath();
     }
 
     /**
@@ -528,11 +550,48 @@ public abstract class AbstractJSDocMojo extends AbstractMojo
         }
     }
 
-    private void fixHTML(JSDocHelper helper)
+    private void fixHTML(JSDocHelper helper) throws IOException
     {
-        FileUtils.iterateFiles(new File(getOutputDirectory()), 
-                new HTMLFileContentFilter(helper.getJavascriptTargetPath()),
-                TrueFileFilter.INSTANCE);
+        new HTMLFileContentFilter(helper.getJavascriptTargetPath())
+                .fixDirectory(new File(getOutputDirectory()), htmlFilterThreads);
     }
 
+    /**
+     * the javascript sources, all files except the svn metadata
+     */
+    private static final FileFilter SOURCE_FILTER = new FileFilter()
+    {
+        public boolean accept(File pathname)
+        {
+            if (pathname.getName().endsWith(".svn"))
+            {
+                return false;
+            }
+            return true;
+        }
+    };
+
+    /**
+     * the javascript files of the resource and webapp directories
+     */
+    private static final FileFilter JAVASCRIPT_FILTER = new FileFilter()
+    {
+        public boolean accept(File pathname)
+        {
+            if (pathname.getName().endsWith(".svn"))
+            {
+                return false;
+            }
+            if (pathname.isDirectory())
+            {
+                return true;
+            }
+            if (pathname.getName().endsWith(".js"))
+            {
+                return true;
+            }
+            return false;
+        }
+    };
+
 }
@@ -20,13 +20,20 @@ package org.apache.myfaces.plugins.jsdoc.util;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @author Werner Punz (latest modification by $Author$)
@@ -47,52 +54,142 @@ public class HTMLFileContentFilter implements IOFileFilter
         this.substitutionName = substitutionDir.replace('/', '_').replace('\\', '_').replace(':', '_');
     }
 
+    /**
+     * fixes all files below a directory, the files are processed
+     * on a pool of threads
+     *
+     * @param directory the directory holding the generated html
+     * @param threads   the number of threads, the number of available processors if 0 or less
+     * @throws IOException if a file cannot be fixed or the processing is interrupted
+     */
+    public void fixDirectory(File directory, int threads) throws IOException
+    {
+        Collection files = FileUtils.listFiles(directory, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE);
+        if (threads <= 0)
+        {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        threads = Math.max(1, Math.min(threads, files.size()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List futures = new ArrayList(files.size());
+            Iterator it = files.iterator();
+            while (it.hasNext())
+            {
+                final File file = (File) it.next();
+                futures.add(executor.submit(new Callable()
+                {
+                    public Object call() throws IOException
+                    {
+                        fix(file);
+                        return null;
+                    }
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++)
+            {
+                ((Future) futures.get(i)).get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted fixing the generated html");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
     private boolean fixFile(String fileName) throws IOException
     {
         if (!fileName.toLowerCase().endsWith(".html"))
         {
             return false;
         }
-        String fileContents = FileUtils.readFileToString(new File(fileName));
-        List currFile = FileUtils.readLines(new File(fileName));
-        List targetLines = new ArrayList(currFile.size());
-        Iterator it = currFile.iterator();
-        while (it.hasNext())
+        File file = new File(fileName);
+        String fileContents = new String(FileUtils.readFileToByteArray(file));
+        String targetContents = removeSubstitutions(fileContents);
+        if (targetContents == null)
         {
-            Object line = it.next();
-            String sLine = (String) line;
-            //targetLines.add(sLine.replaceAll(substitutionDir, ""));
-            String targetLine = StringUtils.replace(sLine, substitutionDir, "");
-            targetLine =  StringUtils.replace(targetLine, substitutionName, "");
-            targetLines.add(targetLine);
+            return false;
         }
-        FileUtils.writeLines(new File(fileName), targetLines);
+        FileUtils.writeByteArrayToFile(file, targetContents.getBytes());
         return true;
     }
 
-    public boolean accept(File file)
+    /**
+     * removes the substitution dir and then the substitution name from the contents,
+     * a name which only appears once the dir is removed is removed as well
+     *
+     * @return the new contents, or null if there is nothing to remove
+     */
+    String removeSubstitutions(String contents)
     {
-        if (file.isDirectory())
+        String targetContents = StringUtils.replace(contents, substitutionDir, "");
+        targetContents = StringUtils.replace(targetContents, substitutionName, "");
+        //removing anything makes the contents shorter
+        if (targetContents.length() == contents.length())
         {
-            return false;
+            return null;
         }
-        try
+        return targetContents;
+    }
+
+    /**
+     * renames a file named after the substitution dir, or removes the
+     * substitutions from its contents
+     *
+     * @throws IOException if the file cannot be read or written
+     */
+    private void fix(File file) throws IOException
+    {
+        if (file.getName().startsWith(substitutionName))
         {
-            if (file.getName().startsWith(substitutionName))
+            String newName = file.getName().substring(substitutionName.length());
+            File renameFile = new File(file.getParentFile(), newName);
+            if (renameFile.exists())
             {
-                String newName = file.getName().substring(substitutionName.length());
-                File renameFile = new File(file.getParentFile(), newName);
-                if (renameFile.exists())
-                {
-                    renameFile.delete();
-                }
-                file.renameTo(renameFile);
+                renameFile.delete();
             }
-            else
+            if (!file.renameTo(renameFile))
             {
-                fixFile(file.getAbsolutePath());
+                throw new IOException("Cannot rename " + file + " to " + renameFile);
             }
         }
+        else
+        {
+            fixFile(file.getAbsolutePath());
+        }
+    }
+
+    public boolean accept(File file)
+    {
+        if (file.isDirectory())
+        {
+            return false;
+        }
+        try
+        {
+            fix(file);
+        }
         catch (IOException e)
         {
             e.printStackTrace();
@@ -0,0 +1,195 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.plugins.jsdoc.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.WrappedException;
+import org.mozilla.javascript.tools.shell.Global;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ *          <p/>
+ *          Runs the jsdoc toolkit in its own Rhino context and scope instead of
+ *          going through the Rhino shell, so several runs can share one JVM.
+ *          <p/>
+ *          The toolkit scripts are compiled once and the compiled scripts are
+ *          kept for the lifetime of the plugin, the <code>load</code> function
+ *          of the scope takes them from this cache. The arguments are passed
+ *          in the <code>arguments</code> variable of the scope, and
+ *          <code>quit</code> ends the run instead of exiting the JVM.
+ */
+public class JSDocEngine
+{
+    /**
+     * compiled scripts, by absolute path
+     */
+    private static final Map _scripts = new HashMap();
+
+    private JSDocEngine()
+    {
+    }
+
+    /**
+     * runs a script of the jsdoc toolkit in a new scope
+     *
+     * @param scriptPath the script to run, usually <code>app/run.js</code>
+     * @param arguments  the arguments of the script
+     * @throws IOException if a script cannot be read or the run fails
+     */
+    public static void run(String scriptPath, String[] arguments) throws IOException
+    {
+        Context cx = Context.enter();
+        try
+        {
+            Global global = new Global(cx);
+            global.defineFunctionProperties(new String[] {"load", "quit"},
+                    JSDocEngine.class, ScriptableObject.DONTENUM);
+            //newArray only takes an Object[], not a String[]
+            Object[] args = new Object[arguments.length];
+            System.arraycopy(arguments, 0, args, 0, arguments.length);
+            global.defineProperty("arguments", cx.newArray(global, args), ScriptableObject.DONTENUM);
+
+            _getScript(cx, new File(scriptPath)).exec(cx, global);
+        }
+        catch (WrappedException e)
+        {
+            Throwable cause = e.getWrappedException();
+            if (cause instanceof Quit)
+            {
+                int exitCode = ((Quit) cause).exitCode;
+                if (exitCode != 0)
+                {
+                    throw new IOException("jsdoc ended with exit code " + exitCode);
+                }
+            }
+            else if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            else
+            {
+                throw new IOException(e.getMessage());
+            }
+        }
+        catch (RhinoException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    /**
+     * replaces the <code>load</code> function of the shell,
+     * loads the scripts from the cache
+     */
+    public static void load(Context cx, Scriptable thisObj, Object[] args, Function funObj)
+            throws IOException
+    {
+        Scriptable scope = ScriptableObject.getTopLevelScope(thisObj);
+        for (int i = 0; i < args.length; i++)
+        {
+            _getScript(cx, new File(Context.toString(args[i]))).exec(cx, scope);
+        }
+    }
+
+    /**
+     * replaces the <code>quit</code> function of the shell,
+     * ends the current run
+     */
+    public static void quit(Context cx, Scriptable thisObj, Object[] args, Function funObj)
+    {
+        int exitCode = (args.length > 0) ? (int) Context.toNumber(args[0]) : 0;
+        throw new Quit(exitCode);
+    }
+
+    private static Script _getScript(Context cx, File file) throws IOException
+    {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        synchronized (_scripts)
+        {
+            CompiledScript compiled = (CompiledScript) _scripts.get(path);
+            if (compiled != null && compiled.lastModified == lastModified)
+            {
+                return compiled.script;
+            }
+        }
+
+        // compiled outside the lock, a script compiled twice by two runs is harmless
+        Reader reader = new InputStreamReader(new FileInputStream(file));
+        Script script;
+        try
+        {
+            script = cx.compileReader(reader, path, 1, null);
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        synchronized (_scripts)
+        {
+            _scripts.put(path, new CompiledScript(script, lastModified));
+        }
+        return script;
+    }
+
+    private static final class CompiledScript
+    {
+        final Script script;
+        final long lastModified;
+
+        CompiledScript(Script script, long lastModified)
+        {
+            this.script = script;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * thrown by <code>quit</code> to end the run
+     */
+    private static final class Quit extends RuntimeException
+    {
+        final int exitCode;
+
+        Quit(int exitCode)
+        {
+            super("quit(" + exitCode + ")");
+            this.exitCode = exitCode;
+        }
+    }
+}
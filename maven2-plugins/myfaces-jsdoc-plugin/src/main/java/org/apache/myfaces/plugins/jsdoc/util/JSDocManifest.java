@@ -0,0 +1,137 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.plugins.jsdoc.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * @author Werner Punz (latest modification by $Author$)
+ * @version $Revision$ $Date$
+ *          <p/>
+ *          The inputs of a jsdoc run: the options and the digests of the scripts,
+ *          templates and configuration files. The documentation only has to be
+ *          generated again when the manifest of the inputs changes.
+ */
+public class JSDocManifest
+{
+    private final Properties _entries = new Properties();
+
+    public JSDocManifest()
+    {
+    }
+
+    /**
+     * adds an option of the run
+     */
+    public void addOption(String name, String value)
+    {
+        _entries.setProperty("option." + name, String.valueOf(value));
+    }
+
+    /**
+     * adds the digest of a file, a missing file is recorded as such
+     */
+    public void addFile(String name, File file) throws IOException
+    {
+        _entries.setProperty("file." + name, file.isFile() ? FileDigest.digest(file, "MD5") : "-");
+    }
+
+    /**
+     * adds the digests of the files below a directory
+     *
+     * @param name      the name of the directory in the manifest
+     * @param directory the directory, which does not need to exist
+     * @param filter    the filter of the files and directories to add
+     */
+    public void addDirectory(String name, File directory, FileFilter filter) throws IOException
+    {
+        if (directory != null && directory.isDirectory())
+        {
+            _addDirectory(name, directory, filter);
+        }
+    }
+
+    private void _addDirectory(String name, File directory, FileFilter filter) throws IOException
+    {
+        File[] files = directory.listFiles(filter);
+        if (files == null)
+        {
+            return;
+        }
+        Arrays.sort(files);
+        for (int i = 0; i < files.length; i++)
+        {
+            String fileName = name + "/" + files[i].getName();
+            if (files[i].isDirectory())
+            {
+                _addDirectory(fileName, files[i], filter);
+            }
+            else
+            {
+                addFile(fileName, files[i]);
+            }
+        }
+    }
+
+    /**
+     * @return true if the manifest written to a file lists the same inputs
+     */
+    public boolean matches(File manifestFile) throws IOException
+    {
+        if (!manifestFile.isFile())
+        {
+            return false;
+        }
+        Properties written = new Properties();
+        InputStream in = new BufferedInputStream(new FileInputStream(manifestFile));
+        try
+        {
+            written.load(in);
+        }
+        finally
+        {
+            in.close();
+        }
+        return written.equals(_entries);
+    }
+
+    public void write(File manifestFile) throws IOException
+    {
+        manifestFile.getParentFile().mkdirs();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(manifestFile));
+        try
+        {
+            _entries.store(out, "jsdoc inputs");
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
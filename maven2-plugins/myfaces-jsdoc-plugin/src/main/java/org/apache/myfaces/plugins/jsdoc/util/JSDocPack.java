@@ -18,6 +18,8 @@
  */
 package org.apache.myfaces.plugins.jsdoc.util;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.logging.Log;
 
 import java.io.File;
@@ -51,6 +53,67 @@ public abstract class JSDocPack
 
     public abstract void unpack(String targetDir, Log log) throws IOException;
 
+    /**
+     * @return the jar file hosting the jsdoc toolkit
+     * @throws IOException in case of an error
+     */
+    protected abstract File getJarFile() throws IOException;
+
+    /**
+     * unpacks the jsdoc toolkit once into a subdirectory of the cache directory
+     * named after the checksum of the toolkit jar, so that other modules and
+     * later builds can reuse it.
+     * <p/>
+     * The toolkit is unpacked into a temporary directory which then is renamed,
+     * so concurrent builds never see a partially unpacked toolkit.
+     *
+     * @param cacheDir the directory holding the unpacked toolkits
+     * @param log      the target log to log into
+     * @return the directory holding the unpacked toolkit
+     * @throws IOException in case of an error
+     */
+    public File unpackCached(File cacheDir, Log log) throws IOException
+    {
+        File jarFile = getJarFile();
+        File targetDir = new File(cacheDir, "jsdoc-toolkit-" + FileDigest.digest(jarFile, "SHA-1"));
+        if (targetDir.isDirectory())
+        {
+            log.debug("[JSDOC] Reusing the jsdoc toolkit unpacked in " + targetDir);
+            return targetDir;
+        }
+
+        cacheDir.mkdirs();
+        File tempDir = File.createTempFile(targetDir.getName(), ".tmp", cacheDir);
+        tempDir.delete();
+        tempDir.mkdir();
+        try
+        {
+            JarFile jar = new JarFile(jarFile);
+            try
+            {
+                _expandJarFile(tempDir.getPath(), log, jar);
+            }
+            finally
+            {
+                jar.close();
+            }
+
+            if (!tempDir.renameTo(targetDir) && !targetDir.isDirectory())
+            {
+                throw new IOException("Cannot rename " + tempDir + " to " + targetDir);
+            }
+            // if the rename failed, a concurrent build has unpacked the toolkit first
+        }
+        finally
+        {
+            if (tempDir.exists())
+            {
+                FileUtils.deleteDirectory(tempDir);
+            }
+        }
+        return targetDir;
+    }
+
     protected void _expandJarFile(String targetDir, Log log, JarFile jarFile) throws IOException
     {
         Enumeration entries = jarFile.entries();
@@ -61,18 +124,28 @@ public abstract class JSDocPack
             File targetFile = new File(targetDir + File.separator + entry.getName());
             if (entry.isDirectory())
             {
-                targetFile.mkdir();
+                targetFile.mkdirs();
                 continue;
             }
+            targetFile.getParentFile().mkdirs();
             InputStream istr = new BufferedInputStream(jarFile.getInputStream(entry));
-            OutputStream ostr = new BufferedOutputStream(new FileOutputStream(targetFile));
-            log.debug("[JSDOC] Unpacking jar: Writing" + targetFile);
-            while (istr.available() > 0)
+            try
+            {
+                OutputStream ostr = new BufferedOutputStream(new FileOutputStream(targetFile));
+                try
+                {
+                    log.debug("[JSDOC] Unpacking jar: Writing" + targetFile);
+                    IOUtils.copy(istr, ostr);
+                }
+                finally
+                {
+                    ostr.close();
+                }
+            }
+            finally
             {
-                ostr.write(istr.read());
+                istr.close();
             }
-            ostr.close();
-            istr.close();
         }
     }
 
@@ -18,6 +18,7 @@
  */
 package org.apache.myfaces.plugins.jsdoc.util;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.jar.JarFile;
@@ -59,7 +60,19 @@ public class JSDocPackMaven extends JSDocPack
     public void unpack(String targetDir, org.apache.maven.plugin.logging.Log log) throws IOException
     {
         JarFile jarFile = new JarFile(_jarPath);
-        _expandJarFile(targetDir, log, jarFile);
+        try
+        {
+            _expandJarFile(targetDir, log, jarFile);
+        }
+        finally
+        {
+            jarFile.close();
+        }
+    }
+
+    protected File getJarFile()
+    {
+        return new File(_jarPath);
     }
 
     /**
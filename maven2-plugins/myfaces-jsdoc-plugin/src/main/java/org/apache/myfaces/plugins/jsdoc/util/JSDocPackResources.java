@@ -45,17 +45,32 @@ public class JSDocPackResources extends JSDocPack
 
     public void unpack(String targetDir, org.apache.maven.plugin.logging.Log log) throws IOException
     {
-        JarFile jarFile = null;
+        JarFile jarFile = new JarFile(getJarFile());
         try
         {
-            jarFile = new JarFile(fetchJarLocation());
             _expandJarFile(targetDir, log, jarFile);
         }
-        catch (URISyntaxException e)
+        finally
         {
-            throw new IOException(e.getMessage());
+            jarFile.close();
         }
+    }
 
+    protected File getJarFile() throws IOException
+    {
+        // the jar is copied to a temp file only once
+        if (_jsdocContainer == null)
+        {
+            try
+            {
+                _jsdocContainer = fetchJarLocation();
+            }
+            catch (URISyntaxException e)
+            {
+                throw new IOException(e.getMessage());
+            }
+        }
+        return _jsdocContainer;
     }
 
     protected File fetchJarLocation() throws IOException, URISyntaxException
@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.plugins.jsdoc.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * compares HTMLFileContentFilter.removeSubstitutions with removing
+ * the substitution dir and then the substitution name
+ */
+public class HTMLFileContentFilterTest extends TestCase
+{
+    public void testNothingToRemove()
+    {
+        HTMLFileContentFilter filter = new HTMLFileContentFilter("/src/main/");
+        assertNull(filter.removeSubstitutions("<a href=\"symbols/src/util.js.html\">"));
+        assertNull(filter.removeSubstitutions(""));
+    }
+
+    public void testRemoveDirAndName()
+    {
+        HTMLFileContentFilter filter = new HTMLFileContentFilter("/src/main/");
+        assertEquals("<a href=\"symbols/src/util.js.html\">util.js</a>\r\n",
+                filter.removeSubstitutions(
+                        "<a href=\"symbols/src/_src_main_util.js.html\">/src/main/util.js</a>\r\n"));
+    }
+
+    public void testAdjacent()
+    {
+        _assertSequential("/a/", "/a/_a_/a/_a_");
+        _assertSequential("/a/", "_a_/a/_a_/a/");
+        _assertSequential("/a/", "/a//a/_a__a_");
+    }
+
+    public void testNameAppearsOnceDirRemoved()
+    {
+        // "_a" + "/a/" + "_" becomes the name "_a_"
+        _assertSequential("/a/", "_a/a/_");
+        assertEquals("", new HTMLFileContentFilter("/a/").removeSubstitutions("_a/a/_"));
+        _assertSequential("/a/", "x_/a/a_y");
+    }
+
+    public void testOverlapping()
+    {
+        _assertSequential("/a/", "/a/a/");
+        _assertSequential("/a/", "_a_a_");
+        _assertSequential("/a/", "/a_a/");
+        _assertSequential("/a/", "_a/a_");
+        // the dir and the name are the same without separators
+        _assertSequential("aa", "aaaaa");
+    }
+
+    public void testAllShortContents()
+    {
+        HTMLFileContentFilter filter = new HTMLFileContentFilter("/a/");
+        char[] alphabet = {'/', 'a', '_', 'x'};
+        char[] contents = new char[7];
+        int count = 1;
+        for (int i = 0; i < contents.length; i++)
+        {
+            count *= alphabet.length;
+        }
+        for (int n = 0; n < count; n++)
+        {
+            int digits = n;
+            for (int i = 0; i < contents.length; i++)
+            {
+                contents[i] = alphabet[digits % alphabet.length];
+                digits /= alphabet.length;
+            }
+            _assertSequential(filter, new String(contents));
+        }
+    }
+
+    public void testFixDirectory() throws IOException
+    {
+        File directory = _createDirectory("testFixDirectory");
+        File source = new File(directory, "symbols/src/_src_main_util.js.html");
+        FileUtils.writeStringToFile(source, "<pre>/src/main/util.js</pre>");
+        File page = new File(directory, "index.html");
+        FileUtils.writeStringToFile(page, "<a href=\"symbols/src/_src_main_util.js.html\">/src/main/util.js</a>");
+
+        new HTMLFileContentFilter("/src/main/").fixDirectory(directory, 2);
+
+        // the files named after the dir are only renamed
+        assertFalse(source.exists());
+        assertEquals("<pre>/src/main/util.js</pre>",
+                FileUtils.readFileToString(new File(directory, "symbols/src/util.js.html")));
+        assertEquals("<a href=\"symbols/src/util.js.html\">util.js</a>", FileUtils.readFileToString(page));
+    }
+
+    public void testFixDirectoryFailure() throws Exception
+    {
+        File directory = _createDirectory("testFixDirectoryFailure");
+        FileUtils.writeStringToFile(new File(directory, "index.html"), "/src/main/util.js");
+        // a link to a missing file is listed, but cannot be read
+        File broken = new File(directory, "broken.html");
+        Process process = Runtime.getRuntime().exec(new String[] {"ln", "-s",
+                new File(directory, "missing.html").getAbsolutePath(), broken.getAbsolutePath()});
+        assertEquals(0, process.waitFor());
+
+        try
+        {
+            new HTMLFileContentFilter("/src/main/").fixDirectory(directory, 2);
+            fail("the broken file should fail the processing");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    private static File _createDirectory(String name) throws IOException
+    {
+        File directory = new File("target/html-filter-test", name);
+        FileUtils.deleteDirectory(directory);
+        directory.mkdirs();
+        return directory;
+    }
+
+    private static void _assertSequential(String substitutionDir, String contents)
+    {
+        _assertSequential(new HTMLFileContentFilter(substitutionDir), contents);
+    }
+
+    private static void _assertSequential(HTMLFileContentFilter filter, String contents)
+    {
+        String expected = contents.replace(filter.substitutionDir, "")
+                .replace(filter.substitutionName, "");
+        String actual = filter.removeSubstitutions(contents);
+        assertEquals(contents, expected, actual == null ? contents : actual);
+        assertEquals(contents, expected.equals(contents), actual == null);
+    }
+}
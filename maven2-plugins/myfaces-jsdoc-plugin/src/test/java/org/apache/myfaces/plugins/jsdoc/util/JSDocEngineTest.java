@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.plugins.jsdoc.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.myfaces.plugins.jsdoc.JSDocMojoConst;
+
+/**
+ * runs the real jsdoc toolkit with the JSDocEngine
+ */
+public class JSDocEngineTest extends TestCase
+{
+    private File _directory;
+    private File _toolkit;
+
+    protected void setUp() throws IOException
+    {
+        _directory = new File("target/jsdoc-engine-test", getName());
+        FileUtils.deleteDirectory(_directory);
+        _toolkit = new JSDocPackMaven().unpackCached(new File(_directory, "toolkit"),
+                new SystemStreamLog());
+    }
+
+    protected void tearDown()
+    {
+        _directory = null;
+        _toolkit = null;
+    }
+
+    public void testRunTwice() throws IOException
+    {
+        File sourceDir = new File(_directory, "src");
+        FileUtils.writeStringToFile(new File(sourceDir, "shapes.js"),
+                "/**\n" +
+                " * @class a shape\n" +
+                " * @param {Number} sides the number of sides\n" +
+                " */\n" +
+                "function Shape(sides)\n" +
+                "{\n" +
+                "    /** the number of sides */\n" +
+                "    this.sides = sides;\n" +
+                "}\n");
+        FileUtils.writeStringToFile(new File(sourceDir, "circle.js"),
+                "/**\n" +
+                " * @class a round shape\n" +
+                " * @augments Shape\n" +
+                " */\n" +
+                "function Circle()\n" +
+                "{\n" +
+                "}\n");
+
+        // the second run takes the toolkit scripts from the cache
+        for (int run = 1; run <= 2; run++)
+        {
+            File outputDir = new File(_directory, "doc" + run);
+            JSDocEngine.run(_getRunJs(), _getArguments(sourceDir, outputDir));
+
+            assertTrue(new File(outputDir, "index.html").isFile());
+            String shape = FileUtils.readFileToString(new File(outputDir, "symbols/Shape.html"));
+            assertTrue(shape.indexOf("a shape") != -1);
+            assertTrue(shape.indexOf("the number of sides") != -1);
+            String circle = FileUtils.readFileToString(new File(outputDir, "symbols/Circle.html"));
+            assertTrue(circle.indexOf("a round shape") != -1);
+        }
+        assertEquals(_readPage(new File(_directory, "doc1/symbols/Shape.html")),
+                _readPage(new File(_directory, "doc2/symbols/Shape.html")));
+    }
+
+    public void testQuit() throws IOException
+    {
+        File script = new File(_directory, "quit.js");
+        FileUtils.writeStringToFile(script, "quit(arguments[0]);\nthrow 'not reached';\n");
+
+        JSDocEngine.run(script.getPath(), new String[] {"0"});
+        try
+        {
+            JSDocEngine.run(script.getPath(), new String[] {"1"});
+            fail("quit(1) should fail the run");
+        }
+        catch (IOException e)
+        {
+            assertEquals("jsdoc ended with exit code 1", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the content of a generated page without the generation date of its footer
+     */
+    private static String _readPage(File page) throws IOException
+    {
+        String content = FileUtils.readFileToString(page);
+        String normalized = content.replaceAll("(JsDoc Toolkit</a> [^ ]+ on ).*", "$1");
+        assertFalse(page + " has no generation date", normalized.equals(content));
+        return normalized;
+    }
+
+    private String _getRunJs()
+    {
+        return new File(_toolkit, JSDocMojoConst.APP + File.separator + JSDocMojoConst.RUN_JS)
+                .getAbsolutePath();
+    }
+
+    /**
+     * @return the arguments the mojo passes for a source directory
+     */
+    private String[] _getArguments(File sourceDir, File outputDir)
+    {
+        List args = new ArrayList();
+        args.add(JSDocMojoConst.PARAM_OUTPUT + JSDocMojoConst.EQUALS + outputDir.getAbsolutePath());
+        args.add(JSDocMojoConst.PARAM_TEMPLATE + JSDocMojoConst.EQUALS
+                + new File(_toolkit, JSDocMojoConst.TEMPLATES_JSDOC).getAbsolutePath());
+        args.add(new File(sourceDir, "shapes.js").getAbsolutePath());
+        args.add(new File(sourceDir, "circle.js").getAbsolutePath());
+        args.add(JSDocMojoConst.PARAM_JS_FLAG + JSDocMojoConst.EQUALS + _getRunJs());
+        return (String[]) args.toArray(new String[args.size()]);
+    }
+}
@@ -18,12 +18,29 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.wagon;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
 
 import org.apache.maven.artifact.manager.WagonManager;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.wagon.CommandExecutionException;
+import org.apache.maven.wagon.CommandExecutor;
 import org.apache.maven.wagon.ConnectionException;
 import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.TransferFailedException;
@@ -42,6 +59,10 @@ import org.apache.maven.wagon.repository.Repository;
  * This method of deployment should normally be much faster
  * then making file by file copy.  For file protocol, the files are copied
  * directly to the destination directory.
+ * <p>
+ * A manifest of the uploaded files (path, size and digest) is stored next
+ * to the uploaded content. When a previous manifest is found, only the new
+ * and changed files are uploaded, one by one.
  *
  * @version 
  * @goal deploy
@@ -71,6 +92,31 @@ public class WagonMojo extends AbstractMojo
      * @required
      */
     private String url;
+
+    /**
+     * Upload only the files that changed since the last deployment,
+     * using the manifest stored with the uploaded content.
+     *
+     * @parameter default-value="true"
+     */
+    private boolean deltaUpload;
+
+    /**
+     * Remove the files of the last deployment which are no longer in
+     * the inputDirectory. Only used for delta uploads, and supported
+     * for the file protocol and wagons executing shell commands.
+     *
+     * @parameter default-value="false"
+     */
+    private boolean removeDeletedFiles;
+
+    /**
+     * Name of the manifest stored with the uploaded content.
+     *
+     * @parameter default-value=".wagon-manifest.properties"
+     */
+    private String manifestName;
+
     /**
      * @parameter expression="${project}"
      * @required
@@ -83,6 +129,11 @@ public class WagonMojo extends AbstractMojo
      */
     private WagonManager wagonManager;
 
+    /**
+     * Maximum length of the shell commands removing files.
+     */
+    private static final int MAX_COMMAND_LENGTH = 8192;
+
     public void execute()
         throws MojoExecutionException
     {
@@ -104,12 +155,13 @@ public class WagonMojo extends AbstractMojo
             throw new MojoExecutionException( "Unsupported protocol: '" + repository.getProtocol() + "'", e );
         }
 
-        if ( !wagon.supportsDirectoryCopy() )
+        if ( !deltaUpload && !wagon.supportsDirectoryCopy() )
         {
             throw new MojoExecutionException(
                 "Wagon protocol '" + repository.getProtocol() + "' doesn't support directory copying" );
         }
 
+        File manifestFile = null;
         try
         {
             Debug debug = new Debug();
@@ -120,9 +172,21 @@ public class WagonMojo extends AbstractMojo
 
             wagon.connect( repository, wagonManager.getAuthenticationInfo( id ) );
 
-            wagon.putDirectory( inputDirectory, "." );
+            if ( deltaUpload )
+            {
+                manifestFile = File.createTempFile( "wagon-manifest", ".properties" );
+                deployDelta( wagon, repository, manifestFile );
+            }
+            else
+            {
+                wagon.putDirectory( inputDirectory, "." );
+            }
 
         }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error uploading", e );
+        }
         catch ( ResourceDoesNotExistException e )
         {
             throw new MojoExecutionException( "Error uploading", e );
@@ -145,6 +209,11 @@ public class WagonMojo extends AbstractMojo
         }
         finally
         {
+            if ( manifestFile != null )
+            {
+                manifestFile.delete();
+            }
+
             try
             {
                 wagon.disconnect();
@@ -155,4 +224,289 @@ public class WagonMojo extends AbstractMojo
             }
         }
     }
+
+    /**
+     * Uploads the files missing from or changed since the manifest of the
+     * last deployment, then the new manifest. The manifest goes last, so an
+     * interrupted deployment is completed by the next one.
+     */
+    private void deployDelta( Wagon wagon, Repository repository, File manifestFile )
+        throws IOException, TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+    {
+        Properties manifest = new Properties();
+        List paths = new ArrayList();
+        addFiles( inputDirectory, "", manifest, paths );
+
+        Properties previousManifest = getPreviousManifest( wagon, manifestFile );
+        if ( previousManifest == null )
+        {
+            if ( wagon.supportsDirectoryCopy() )
+            {
+                getLog().info( "No previous manifest found, uploading the whole directory" );
+                wagon.putDirectory( inputDirectory, "." );
+            }
+            else
+            {
+                getLog().info( "No previous manifest found, uploading " + paths.size() + " files" );
+                putFiles( wagon, paths );
+            }
+        }
+        else
+        {
+            List changedPaths = new ArrayList();
+            for ( Iterator i = paths.iterator(); i.hasNext(); )
+            {
+                String path = (String) i.next();
+                if ( !manifest.getProperty( path ).equals( previousManifest.getProperty( path ) ) )
+                {
+                    changedPaths.add( path );
+                }
+            }
+
+            getLog().info( "Uploading " + changedPaths.size() + " new or changed files of " + paths.size() );
+            putFiles( wagon, changedPaths );
+
+            List deletedPaths = new ArrayList( previousManifest.keySet() );
+            deletedPaths.removeAll( manifest.keySet() );
+            Collections.sort( deletedPaths );
+
+            // a corrupted or edited manifest must not remove files outside the deployment
+            for ( Iterator i = deletedPaths.iterator(); i.hasNext(); )
+            {
+                String path = (String) i.next();
+                if ( !isRelativePath( path ) )
+                {
+                    getLog().warn( "Ignoring the path '" + path + "' of the previous manifest" );
+                    i.remove();
+                }
+            }
+
+            // files left on the server stay in the manifest, so a later
+            // deployment can still remove them
+            if ( !removeDeletedFiles || !removeFiles( wagon, repository, deletedPaths ) )
+            {
+                for ( Iterator i = deletedPaths.iterator(); i.hasNext(); )
+                {
+                    String path = (String) i.next();
+                    manifest.setProperty( path, previousManifest.getProperty( path ) );
+                }
+            }
+        }
+
+        OutputStream out = new BufferedOutputStream( new FileOutputStream( manifestFile ) );
+        try
+        {
+            manifest.store( out, "Files deployed from " + inputDirectory );
+        }
+        finally
+        {
+            out.close();
+        }
+        wagon.put( manifestFile, manifestName );
+    }
+
+    /**
+     * @return the manifest of the last deployment, or null if there is none
+     */
+    private Properties getPreviousManifest( Wagon wagon, File manifestFile )
+        throws IOException, TransferFailedException, AuthorizationException
+    {
+        try
+        {
+            wagon.get( manifestName, manifestFile );
+        }
+        catch ( ResourceDoesNotExistException e )
+        {
+            return null;
+        }
+
+        Properties manifest = new Properties();
+        InputStream in = new BufferedInputStream( new FileInputStream( manifestFile ) );
+        try
+        {
+            manifest.load( in );
+        }
+        finally
+        {
+            in.close();
+        }
+        return manifest;
+    }
+
+    private void putFiles( Wagon wagon, List paths )
+        throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+    {
+        for ( Iterator i = paths.iterator(); i.hasNext(); )
+        {
+            String path = (String) i.next();
+            wagon.put( new File( inputDirectory, path ), path );
+        }
+    }
+
+    /**
+     * Removes the files directly for the file protocol, and with a shell
+     * command for the wagons supporting it.
+     *
+     * @return false if the wagon cannot remove files
+     */
+    private boolean removeFiles( Wagon wagon, Repository repository, List paths )
+        throws IOException
+    {
+        if ( paths.isEmpty() )
+        {
+            return true;
+        }
+
+        if ( "file".equals( repository.getProtocol() ) )
+        {
+            File basedir = new File( repository.getBasedir() );
+            for ( Iterator i = paths.iterator(); i.hasNext(); )
+            {
+                String path = (String) i.next();
+                File file = new File( basedir, path );
+                if ( file.exists() && !file.delete() )
+                {
+                    throw new IOException( "Cannot delete " + file );
+                }
+            }
+        }
+        else if ( wagon instanceof CommandExecutor )
+        {
+            // the files are removed by batches, as the length of a command line is limited
+            String prefix = "rm -f";
+            StringBuffer command = new StringBuffer( prefix );
+            for ( Iterator i = paths.iterator(); i.hasNext(); )
+            {
+                String path = (String) i.next();
+                String file = " " + quote( repository.getBasedir() + "/" + path );
+                if ( command.length() > prefix.length() && command.length() + file.length() > MAX_COMMAND_LENGTH )
+                {
+                    executeCommand( (CommandExecutor) wagon, command.toString() );
+                    command.setLength( prefix.length() );
+                }
+                command.append( file );
+            }
+            executeCommand( (CommandExecutor) wagon, command.toString() );
+        }
+        else
+        {
+            getLog().warn( "Wagon protocol '" + repository.getProtocol() + "' cannot delete files, "
+                + paths.size() + " removed files are left on the server" );
+            return false;
+        }
+
+        getLog().info( "Removed " + paths.size() + " deleted files" );
+        return true;
+    }
+
+    private static void executeCommand( CommandExecutor executor, String command )
+        throws IOException
+    {
+        try
+        {
+            executor.executeCommand( command );
+        }
+        catch ( CommandExecutionException e )
+        {
+            throw new IOException( "Cannot delete removed files: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * @return true if the path is relative and stays below the directory it is relative to
+     */
+    private static boolean isRelativePath( String path )
+    {
+        // a drive letter is absolute on the server even if not on this machine
+        if ( path.length() == 0 || new File( path ).isAbsolute() || path.startsWith( "/" )
+            || path.startsWith( "\\" ) || ( path.length() > 1 && path.charAt( 1 ) == ':' ) )
+        {
+            return false;
+        }
+
+        String[] segments = path.split( "[/\\\\]" );
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            if ( "..".equals( segments[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Quotes an argument of a shell command.
+     */
+    private static String quote( String argument )
+    {
+        return "'" + argument.replace( "'", "'\\''" ) + "'";
+    }
+
+    /**
+     * Adds the size and digest of the files below a directory to the manifest,
+     * and their paths in the order of the directory tree.
+     */
+    private void addFiles( File directory, String prefix, Properties manifest, List paths )
+        throws IOException
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        Arrays.sort( files );
+
+        for ( int i = 0; i < files.length; i++ )
+        {
+            String path = prefix + files[i].getName();
+            if ( files[i].isDirectory() )
+            {
+                addFiles( files[i], path + "/", manifest, paths );
+            }
+            else if ( !path.equals( manifestName ) )
+            {
+                manifest.setProperty( path, files[i].length() + "," + getDigest( files[i] ) );
+                paths.add( path );
+            }
+        }
+    }
+
+    private static String getDigest( File file )
+        throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( "MD5" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IOException( e.getMessage() );
+        }
+
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int length;
+            while ( ( length = in.read( buffer ) ) != -1 )
+            {
+                digest.update( buffer, 0, length );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+
+        byte[] hash = digest.digest();
+        StringBuffer hex = new StringBuffer( hash.length * 2 );
+        for ( int i = 0; i < hash.length; i++ )
+        {
+            hex.append( Character.forDigit( ( hash[i] >> 4 ) & 0xf, 16 ) );
+            hex.append( Character.forDigit( hash[i] & 0xf, 16 ) );
+        }
+        return hex.toString();
+    }
 }
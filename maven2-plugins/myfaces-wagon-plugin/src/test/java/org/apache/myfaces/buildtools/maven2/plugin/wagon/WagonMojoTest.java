@@ -0,0 +1,414 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.wagon;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.artifact.manager.WagonManager;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.wagon.CommandExecutionException;
+import org.apache.maven.wagon.CommandExecutor;
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.providers.file.FileWagon;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the delta uploads with the file wagon.
+ */
+public class WagonMojoTest
+    extends TestCase
+{
+    private File inputDirectory;
+
+    private File remoteDirectory;
+
+    private RecordingWagon wagon;
+
+    private boolean commandWagon;
+
+    protected void setUp()
+        throws Exception
+    {
+        File directory = new File( "target/wagon-test", getName() );
+        FileUtils.deleteDirectory( directory );
+        inputDirectory = new File( directory, "input" );
+        // the file wagon creates the remote directory on the first deployment
+        remoteDirectory = new File( directory, "remote" );
+
+        write( "index.html", "index" );
+        write( "css/site.css", "css" );
+        write( "images/logo.png", "logo" );
+    }
+
+    public void testFirstDeployUsesPutDirectory()
+        throws Exception
+    {
+        deploy( false );
+
+        assertEquals( Arrays.asList( new String[] { "putDirectory", ".wagon-manifest.properties" } ), wagon.calls );
+        assertRemoteEqualsInput();
+        assertTrue( new File( remoteDirectory, ".wagon-manifest.properties" ).isFile() );
+    }
+
+    public void testSecondDeployPutsChangedFiles()
+        throws Exception
+    {
+        deploy( false );
+
+        write( "css/site.css", "changed css" );
+        write( "about.html", "about" );
+        deploy( false );
+
+        assertEquals( Arrays.asList( new String[] { "about.html", "css/site.css", ".wagon-manifest.properties" } ),
+                      wagon.calls );
+        assertRemoteEqualsInput();
+
+        deploy( false );
+        assertEquals( Arrays.asList( new String[] { ".wagon-manifest.properties" } ), wagon.calls );
+    }
+
+    public void testRemoveDeletedFiles()
+        throws Exception
+    {
+        deploy( false );
+
+        new File( inputDirectory, "images/logo.png" ).delete();
+        deploy( false );
+        assertTrue( new File( remoteDirectory, "images/logo.png" ).isFile() );
+
+        deploy( true );
+        assertFalse( new File( remoteDirectory, "images/logo.png" ).exists() );
+        assertEquals( Arrays.asList( new String[] { ".wagon-manifest.properties" } ), wagon.calls );
+
+        // the removed file is no longer in the manifest
+        assertEquals( -1, FileUtils.fileRead( new File( remoteDirectory, ".wagon-manifest.properties" ) )
+            .indexOf( "logo.png" ) );
+    }
+
+    public void testInterruptedDeployIsCompleted()
+        throws Exception
+    {
+        deploy( false );
+
+        write( "css/site.css", "changed css" );
+        write( "index.html", "changed index" );
+        try
+        {
+            deploy( false, "index.html" );
+            fail( "The upload of index.html should have failed" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            // expected
+        }
+        assertEquals( "changed css", FileUtils.fileRead( new File( remoteDirectory, "css/site.css" ) ) );
+        assertEquals( "index", FileUtils.fileRead( new File( remoteDirectory, "index.html" ) ) );
+
+        // the manifest was not uploaded, so the changed files are uploaded again
+        deploy( false );
+        assertEquals( Arrays.asList( new String[] { "css/site.css", "index.html", ".wagon-manifest.properties" } ),
+                      wagon.calls );
+        assertRemoteEqualsInput();
+    }
+
+    public void testInterruptedFirstDeployIsCompleted()
+        throws Exception
+    {
+        try
+        {
+            deploy( false, "putDirectory" );
+            fail( "The upload of the directory should have failed" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            // expected
+        }
+        assertFalse( new File( remoteDirectory, ".wagon-manifest.properties" ).exists() );
+
+        deploy( false );
+        assertEquals( Arrays.asList( new String[] { "putDirectory", ".wagon-manifest.properties" } ), wagon.calls );
+        assertRemoteEqualsInput();
+    }
+
+    public void testRemoveDeletedFilesWithCommands()
+        throws Exception
+    {
+        // the removed files are quoted in the shell commands
+        remoteDirectory = new File( remoteDirectory.getParentFile(), "remote 'dir'" );
+        commandWagon = true;
+
+        List paths = new ArrayList();
+        for ( int i = 0; i < 500; i++ )
+        {
+            String path = "pages/page-" + i + " 'copy'.html";
+            write( path, "page " + i );
+            paths.add( path );
+        }
+        deploy( false );
+        assertRemoteEqualsInput();
+
+        FileUtils.deleteDirectory( new File( inputDirectory, "pages" ) );
+        deploy( true );
+
+        // the command line is too long for a single command
+        List commands = ( (CommandWagon) wagon ).commands;
+        assertTrue( commands.size() > 1 );
+        for ( int i = 0; i < commands.size(); i++ )
+        {
+            assertTrue( ( (String) commands.get( i ) ).length() <= 8192 );
+        }
+        for ( int i = 0; i < paths.size(); i++ )
+        {
+            assertFalse( (String) paths.get( i ), new File( remoteDirectory, (String) paths.get( i ) ).exists() );
+        }
+        assertTrue( new File( remoteDirectory, "index.html" ).isFile() );
+    }
+
+    public void testManifestPathsOutsideAreIgnored()
+        throws Exception
+    {
+        assertManifestPathsOutsideAreIgnored();
+    }
+
+    public void testManifestPathsOutsideAreIgnoredWithCommands()
+        throws Exception
+    {
+        commandWagon = true;
+        assertManifestPathsOutsideAreIgnored();
+    }
+
+    /**
+     * Adds paths leading outside of the remote directory to its manifest,
+     * the files they point to must survive the removal of the deleted files.
+     */
+    private void assertManifestPathsOutsideAreIgnored()
+        throws Exception
+    {
+        deploy( false );
+
+        File outside = new File( remoteDirectory.getParentFile(), "outside.txt" );
+        File absolute = new File( remoteDirectory.getParentFile(), "absolute.txt" );
+        FileUtils.fileWrite( outside.getPath(), "outside" );
+        FileUtils.fileWrite( absolute.getPath(), "absolute" );
+
+        File manifestFile = new File( remoteDirectory, ".wagon-manifest.properties" );
+        Properties manifest = new Properties();
+        InputStream in = new FileInputStream( manifestFile );
+        try
+        {
+            manifest.load( in );
+        }
+        finally
+        {
+            in.close();
+        }
+        manifest.setProperty( "../outside.txt", "1 0" );
+        manifest.setProperty( "css/../../outside.txt", "1 0" );
+        manifest.setProperty( "css\\..\\..\\outside.txt", "1 0" );
+        manifest.setProperty( absolute.getAbsolutePath(), "1 0" );
+        manifest.setProperty( "images/logo.png", "1 0" );
+        OutputStream out = new FileOutputStream( manifestFile );
+        try
+        {
+            manifest.store( out, null );
+        }
+        finally
+        {
+            out.close();
+        }
+        new File( inputDirectory, "images/logo.png" ).delete();
+
+        deploy( true );
+
+        assertEquals( "outside", FileUtils.fileRead( outside ) );
+        assertEquals( "absolute", FileUtils.fileRead( absolute ) );
+        assertFalse( new File( remoteDirectory, "images/logo.png" ).exists() );
+        assertRemoteEqualsInput();
+
+        // the paths are not kept in the new manifest either
+        String newManifest = FileUtils.fileRead( manifestFile );
+        assertEquals( -1, newManifest.indexOf( "outside.txt" ) );
+        assertEquals( -1, newManifest.indexOf( "absolute.txt" ) );
+    }
+
+    private void deploy( boolean removeDeletedFiles )
+        throws Exception
+    {
+        deploy( removeDeletedFiles, null );
+    }
+
+    private void deploy( boolean removeDeletedFiles, String failingPut )
+        throws Exception
+    {
+        wagon = commandWagon ? new CommandWagon( failingPut ) : new RecordingWagon( failingPut );
+
+        WagonMojo mojo = new WagonMojo();
+        setField( mojo, "inputDirectory", inputDirectory );
+        setField( mojo, "id", "test" );
+        setField( mojo, "url", ( commandWagon ? "scpexe://localhost" : "file://" ) + remoteDirectory.getAbsolutePath() );
+        setField( mojo, "deltaUpload", Boolean.TRUE );
+        setField( mojo, "removeDeletedFiles", Boolean.valueOf( removeDeletedFiles ) );
+        setField( mojo, "manifestName", ".wagon-manifest.properties" );
+        setField( mojo, "wagonManager", createWagonManager( wagon ) );
+        mojo.execute();
+    }
+
+    private void assertRemoteEqualsInput()
+        throws IOException
+    {
+        List paths = FileUtils.getFileNames( inputDirectory, null, null, false );
+        assertFalse( paths.isEmpty() );
+        for ( int i = 0; i < paths.size(); i++ )
+        {
+            String path = (String) paths.get( i );
+            File remoteFile = new File( remoteDirectory, path );
+            assertTrue( path, remoteFile.isFile() );
+            assertEquals( path, FileUtils.fileRead( new File( inputDirectory, path ) ), FileUtils.fileRead( remoteFile ) );
+        }
+    }
+
+    private void write( String path, String content )
+        throws IOException
+    {
+        File file = new File( inputDirectory, path );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getPath(), content );
+    }
+
+    private static void setField( Object object, String name, Object value )
+        throws Exception
+    {
+        Field field = object.getClass().getDeclaredField( name );
+        field.setAccessible( true );
+        field.set( object, value );
+    }
+
+    /**
+     * Creates a wagon manager handing out the given wagon.
+     */
+    private static WagonManager createWagonManager( final RecordingWagon wagon )
+    {
+        return (WagonManager) Proxy.newProxyInstance( WagonManager.class.getClassLoader(),
+                                                      new Class[] { WagonManager.class }, new InvocationHandler()
+        {
+            public Object invoke( Object proxy, Method method, Object[] args )
+            {
+                if ( "getWagon".equals( method.getName() ) )
+                {
+                    return wagon;
+                }
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * A file wagon recording the uploads, which can fail one of them.
+     */
+    private static class RecordingWagon
+        extends FileWagon
+    {
+        private final String failingPut;
+
+        private final List calls = new ArrayList();
+
+        RecordingWagon( String failingPut )
+        {
+            this.failingPut = failingPut;
+        }
+
+        public void put( File source, String destination )
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+        {
+            record( destination );
+            super.put( source, destination );
+        }
+
+        public void putDirectory( File sourceDirectory, String destinationDirectory )
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+        {
+            record( "putDirectory" );
+            super.putDirectory( sourceDirectory, destinationDirectory );
+        }
+
+        private void record( String call )
+            throws TransferFailedException
+        {
+            if ( call.equals( failingPut ) )
+            {
+                throw new TransferFailedException( "Upload of " + call + " interrupted" );
+            }
+            calls.add( call );
+        }
+    }
+
+    /**
+     * A wagon running its commands with the local shell.
+     */
+    private static class CommandWagon
+        extends RecordingWagon
+        implements CommandExecutor
+    {
+        private final List commands = new ArrayList();
+
+        CommandWagon( String failingPut )
+        {
+            super( failingPut );
+        }
+
+        public void executeCommand( String command )
+            throws CommandExecutionException
+        {
+            commands.add( command );
+            try
+            {
+                Process process = Runtime.getRuntime().exec( new String[] { "sh", "-c", command } );
+                if ( process.waitFor() != 0 )
+                {
+                    throw new CommandExecutionException( "Command failed: " + command );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new CommandExecutionException( "Cannot run " + command, e );
+            }
+            catch ( InterruptedException e )
+            {
+                throw new CommandExecutionException( "Interrupted running " + command, e );
+            }
+        }
+    }
+}
@@ -21,7 +21,9 @@ package org.apache.myfaces.buildtools.maven2.plugin.xrts;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
@@ -29,6 +31,13 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
@@ -38,6 +47,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.codehaus.plexus.util.DirectoryScanner;
 
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 /**
  * @version $Id$
@@ -73,6 +83,10 @@ abstract public class AbstractGenerateSourcesMojo extends AbstractMojo
 
   abstract protected void addCompileSourceRoot() throws IOException;
 
+  abstract protected void addResourceRoot() throws IOException;
+
+  abstract protected int getGenerationThreads();
+
   private void generateBundles() throws IOException, MojoExecutionException
   {
     File sourceDirectory = getSourceDirectory();
@@ -81,6 +95,13 @@ abstract public class AbstractGenerateSourcesMojo extends AbstractMojo
       // Include generated sources in compilation
       addCompileSourceRoot();
 
+      // Indexed bundles read their strings from resources next to the sources
+      boolean indexed = INDEXED_TARGET_TYPE.equals(getTargetType());
+      if (indexed)
+      {
+        addResourceRoot();
+      }
+
       // Scan for .xrts sources
       DirectoryScanner scanner = new DirectoryScanner();
       scanner.setBasedir(sourceDirectory);
@@ -93,18 +114,13 @@ abstract public class AbstractGenerateSourcesMojo extends AbstractMojo
       String[] xrtsFiles = scanner.getIncludedFiles();
       if (xrtsFiles.length > 0)
       {
-        RTSWriter writer = getRTSWriter();
-        Map params = new HashMap();
-
         List dirtyXRTS = new LinkedList(Arrays.asList(xrtsFiles));
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        factory.setValidating(false);
-
         for (Iterator i=dirtyXRTS.iterator(); i.hasNext();)
         {
           String xrtsFile = (String)i.next();
           File targetFile = getTargetFile(xrtsFile);
-          if (targetFile.exists())
+          if (targetFile.exists() &&
+              (!indexed || getResourceFile(targetFile).exists()))
           {
             File sourceFile = getSourceFile(xrtsFile);
             if (targetFile.lastModified() >= sourceFile.lastModified())
@@ -122,37 +138,32 @@ abstract public class AbstractGenerateSourcesMojo extends AbstractMojo
         {
           getLog().info("Generating " + dirtyXRTS.size() + " XRTS bundles to " + getTargetDirectory());
 
+          // fail on an unknown target type before starting any thread
+          getRTSWriter();
+
+          List tasks = new ArrayList(dirtyXRTS.size());
           for (Iterator i=dirtyXRTS.iterator(); i.hasNext();)
           {
-            String xrtsFile = (String)i.next();
-            File sourceFile = getSourceFile(xrtsFile);
-            File targetFile = getTargetFile(xrtsFile);
-            String baseName = getBasename(xrtsFile);
-
-            params.put("outFile", targetFile);
-            params.put("outName", baseName);
-            params.put("srcName", baseName);
-            params.put("quietMode", Boolean.TRUE);
-            params.put("defaultLocales", getDefaultLocales());
-            InputSource source = new InputSource(new FileInputStream(sourceFile));
-            // setup relative systemId resolution for local rts.dtd files.
-            source.setSystemId(sourceFile.getParentFile().toURL().toString());
-
-            try
+            final String xrtsFile = (String)i.next();
+            tasks.add(new Callable()
             {
-              if (targetFile.exists())
+              public Object call() throws Exception
               {
-                targetFile.delete();
+                return generateBundle(xrtsFile);
               }
+            });
+          }
 
-              SAXParser parser = factory.newSAXParser();
-              targetFile.getParentFile().mkdirs();
-              XRTSGenerator.generate(parser, source, writer, params);
-              targetFile.setReadOnly();
-            }
-            catch (Throwable t)
+          List warnings = invokeAll(tasks);
+
+          // the warnings are logged in the order of the bundles,
+          // whatever the order they were generated in
+          for (int i = 0; i < warnings.size(); i++)
+          {
+            List bundleWarnings = (List)warnings.get(i);
+            for (int j = 0; j < bundleWarnings.size(); j++)
             {
-              throw new MojoExecutionException(t.getMessage());
+              getLog().warn(dirtyXRTS.get(i) + ": " + bundleWarnings.get(j));
             }
           }
         }
@@ -160,6 +171,135 @@ abstract public class AbstractGenerateSourcesMojo extends AbstractMojo
     }
   }
 
+  /**
+   * Generates the bundle of an XRTS source.
+   *
+   * @return the warnings about the source
+   */
+  private List generateBundle(String xrtsFile)
+    throws IOException, MojoExecutionException
+  {
+    File sourceFile = getSourceFile(xrtsFile);
+    File targetFile = getTargetFile(xrtsFile);
+    String baseName = getBasename(xrtsFile);
+    List warnings = new ArrayList();
+
+    // the writers keep the state of the bundle they write,
+    // so each bundle has its own
+    Map params = new HashMap();
+    params.put("outFile", targetFile);
+    params.put("outName", baseName);
+    params.put("srcName", baseName);
+    params.put("quietMode", Boolean.TRUE);
+    params.put("defaultLocales", getDefaultLocales());
+    params.put("warnings", warnings);
+
+    if (targetFile.exists())
+    {
+      targetFile.delete();
+    }
+    targetFile.getParentFile().mkdirs();
+
+    InputStream in = new FileInputStream(sourceFile);
+    try
+    {
+      InputSource source = new InputSource(in);
+      // setup relative systemId resolution for local rts.dtd files.
+      source.setSystemId(sourceFile.getParentFile().toURL().toString());
+
+      SAXParser parser = getParser();
+      try
+      {
+        XRTSGenerator.generate(parser, source, getRTSWriter(), params);
+      }
+      finally
+      {
+        parser.reset();
+      }
+    }
+    catch (Throwable t)
+    {
+      throw new MojoExecutionException(t.getMessage());
+    }
+    finally
+    {
+      in.close();
+    }
+
+    targetFile.setReadOnly();
+    return warnings;
+  }
+
+  /**
+   * Runs the tasks on a pool of threads.
+   *
+   * @return the results of the tasks, in the same order as the tasks
+   */
+  private List invokeAll(List tasks) throws MojoExecutionException
+  {
+    List results = new ArrayList(tasks.size());
+
+    int threads = getGenerationThreads();
+    if (threads <= 0)
+    {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    threads = Math.min(threads, tasks.size());
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try
+    {
+      List futures = new ArrayList(tasks.size());
+      for (int i = 0; i < tasks.size(); i++)
+      {
+        futures.add(executor.submit((Callable)tasks.get(i)));
+      }
+
+      for (int i = 0; i < futures.size(); i++)
+      {
+        results.add(((Future)futures.get(i)).get());
+      }
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Interrupted generating XRTS bundles");
+    }
+    catch (ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      if (cause instanceof MojoExecutionException)
+      {
+        throw (MojoExecutionException)cause;
+      }
+      throw new MojoExecutionException(cause.getMessage());
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    return results;
+  }
+
+  /**
+   * Returns the parser of the current thread.
+   */
+  private SAXParser getParser() throws ParserConfigurationException, SAXException
+  {
+    SAXParser parser = (SAXParser)_parser.get();
+    if (parser == null)
+    {
+      // factories are not thread-safe
+      synchronized (_factory)
+      {
+        parser = _factory.newSAXParser();
+      }
+      _parser.set(parser);
+    }
+    return parser;
+  }
+
   private RTSWriter getRTSWriter() throws IOException, MojoExecutionException
   {
     String implClassName;
@@ -175,6 +315,10 @@ abstract public class AbstractGenerateSourcesMojo extends AbstractMojo
       {
         return new ListRTSWriter();
       }
+      if (INDEXED_TARGET_TYPE.equals(targetType))
+      {
+        return new IndexedRTSWriter();
+      }
       throw new MojoExecutionException("Unknown bundle type: " + targetType);
     }
 
@@ -211,10 +355,31 @@ abstract public class AbstractGenerateSourcesMojo extends AbstractMojo
     return sourcePath.substring(start, sourcePath.length() - ".xrts".length());
   }
 
+  private File getResourceFile(File targetFile)
+  {
+    String name = targetFile.getName();
+    name = name.substring(0, name.length() - ".java".length());
+    return new File(targetFile.getParentFile(),
+                    name + IndexedRTSWriter.RESOURCE_EXTENSION);
+  }
+
   private File getTargetFile(String sourcePath)
   {
     String basename = sourcePath.substring(0, sourcePath.length() - ".xrts".length());
     String targetPath = basename + ".java";
     return new File(getTargetDirectory(), targetPath);
   }
+
+  private final SAXParserFactory _factory = createParserFactory();
+  private final ThreadLocal _parser = new ThreadLocal();
+
+  static private SAXParserFactory createParserFactory()
+  {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setValidating(false);
+    factory.setNamespaceAware(false);
+    return factory;
+  }
+
+  static private final String INDEXED_TARGET_TYPE = "indexed";
 }
@@ -21,6 +21,7 @@ package org.apache.myfaces.buildtools.maven2.plugin.xrts;
 import java.io.File;
 import java.io.IOException;
 
+import org.apache.maven.model.Resource;
 import org.apache.maven.project.MavenProject;
 
 /**
@@ -39,6 +40,10 @@ public class GenerateTestSourcesMojo extends AbstractGenerateSourcesMojo
   private MavenProject project;
 
   /**
+   * The type of bundle to generate: "list" for a ListResourceBundle,
+   * "indexed" for a bundle reading its strings from a binary resource,
+   * or "class:" followed by the name of an RTSWriter implementation.
+   *
    * @parameter expression="list"
    * @required
    */
@@ -66,6 +71,14 @@ public class GenerateTestSourcesMojo extends AbstractGenerateSourcesMojo
    */
   private File targetDirectory;
 
+  /**
+   * Number of threads used to generate the bundles. Defaults to the
+   * number of available processors.
+   *
+   * @parameter expression="${maven.xrts.generationThreads}"
+   */
+  private int generationThreads;
+
   protected String[] getDefaultLocales()
   {
     return defaultLocales;
@@ -81,6 +94,14 @@ public class GenerateTestSourcesMojo extends AbstractGenerateSourcesMojo
     project.addTestCompileSourceRoot(targetDirectory.getCanonicalPath());
   }
 
+  protected void addResourceRoot() throws IOException
+  {
+    Resource resource = new Resource();
+    resource.setDirectory(targetDirectory.getCanonicalPath());
+    resource.addInclude("**/*" + IndexedRTSWriter.RESOURCE_EXTENSION);
+    project.addTestResource(resource);
+  }
+
   protected String getTargetType()
   {
     return targetType;
@@ -91,6 +112,11 @@ public class GenerateTestSourcesMojo extends AbstractGenerateSourcesMojo
     return testSourceDirectory;
   }
 
+  protected int getGenerationThreads()
+  {
+    return generationThreads;
+  }
+
   protected File getTargetDirectory()
   {
     return targetDirectory;
@@ -0,0 +1,412 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.xrts;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The <code>IndexedRTSWriter</code> class is an implementation of the
+ * <code>RTSWriter</code> interface used to create a
+ * <code>ResourceBundle</code> backed by a binary resource. <p>
+ *
+ * The resource, written next to the generated source with the
+ * <code>.res</code> extension, holds the keys sorted by their UTF-8 bytes,
+ * an offset table, and the UTF-8 keys and values. The bundle finds a key
+ * with a binary search over the resource, and decodes a value each time
+ * it is looked up, so only the UTF-8 data is kept in memory.  The generated class does not contain the strings,
+ * so bundles of any size compile. <p>
+ *
+ * Resource layout: the number of keys, the offsets of the keys and the
+ * offsets of the values (each one entry longer than the number of keys,
+ * the last entry being the end of the data), then the keys and the values.
+ *
+ * @since RTS 2.0
+ */
+public class IndexedRTSWriter implements RTSWriter
+{
+
+  /**
+   * Empty constructor for the indexed <code>ResourceBundle</code>
+   * implementation
+   */
+  public IndexedRTSWriter()
+  {
+  }
+
+  /**
+   * <code>RTSWriter</code> method implementation to write the
+   * <code>ResourceBundle</code> class.
+   *
+   * @param parms a <code>Map</code> of command line parameters.
+   * @param meta a <code>Map</code> of parsed non-resource data
+   * (e.g., authors).
+   */
+  public void startBundle(Map parms, Map meta)
+    throws Throwable
+  {
+    File outFile = (File)parms.get("outFile");
+    String outName = (String)parms.get("outName");
+    String srcName = (String)parms.get("srcName");
+
+    Boolean b = (Boolean)parms.get("quietMode");
+    boolean quietMode = b.booleanValue();
+    if (!quietMode)
+    {
+      System.out.println("  " + outFile);
+    }
+
+    _resourceFile = new File(outFile.getParentFile(),
+                             outName + RESOURCE_EXTENSION);
+    _entries = new LinkedHashMap();
+
+    _pw = new PrintWriter(new BufferedWriter(new FileWriter(outFile)));
+
+    _pw.println("// Do not edit this file!");
+    _pw.println("// This file has been automatically generated.");
+
+    String rtsFileType = "xrts";
+    if (meta != null)
+    {
+      rtsFileType = (String)meta.get("fileType");
+    }
+    _pw.println("// Edit " + srcName + "." + rtsFileType + " and run the " +
+      rtsFileType.toUpperCase() + "MakeBundle tool instead.");
+    _pw.println("// ");
+
+    String packageName = (String)parms.get("pkgName");
+    boolean validPackage = false;
+    if (packageName == null)
+    {
+      if (meta != null)
+      {
+        if (meta.get("package") != null)
+        {
+          packageName = (String)meta.get("package");
+        }
+      }
+    }
+
+    if (packageName != null &&
+      (!packageName.equals("") || !packageName.trim().equals("")))
+    {
+      _pw.println("package " + packageName + ";");
+      _pw.println("");
+      validPackage = true;
+    }
+
+    _pw.println("import java.io.DataInputStream;");
+    _pw.println("import java.io.IOException;");
+    _pw.println("import java.io.InputStream;");
+    _pw.println("import java.io.UnsupportedEncodingException;");
+    _pw.println("import java.lang.ref.SoftReference;");
+    _pw.println("import java.util.Collections;");
+    _pw.println("import java.util.Enumeration;");
+    _pw.println("import java.util.HashSet;");
+    _pw.println("import java.util.MissingResourceException;");
+    _pw.println("import java.util.ResourceBundle;");
+    _pw.println("import java.util.Set;");
+    _pw.println("");
+    _pw.println("public class " + outName + " extends ResourceBundle {");
+    _pw.println("  @Override");
+    _pw.println("  protected Object handleGetObject(String key) {");
+    _pw.println("    if (key == null)");
+    _pw.println("      throw new NullPointerException();");
+    _pw.println("    Index index = _getIndex();");
+    _pw.println("    int i = index.find(key);");
+    _pw.println("    return (i < 0) ? null : index.getValue(i);");
+    _pw.println("  }");
+    _pw.println("");
+    _pw.println("  @Override");
+    _pw.println("  public Enumeration<String> getKeys() {");
+    _pw.println("    Set<String> keys = new HashSet<String>(handleKeySet());");
+    _pw.println("    if (parent != null)");
+    _pw.println("      keys.addAll(Collections.list(parent.getKeys()));");
+    _pw.println("    return Collections.enumeration(keys);");
+    _pw.println("  }");
+    _pw.println("");
+    _pw.println("  @Override");
+    _pw.println("  protected Set<String> handleKeySet() {");
+    _pw.println("    return _getIndex().getKeys();");
+    _pw.println("  }");
+    _pw.println("");
+    _pw.println("  private static Index _getIndex() {");
+    _pw.println("    Index index = _index;");
+    _pw.println("    if (index == null) {");
+    _pw.println("      synchronized (" + outName + ".class) {");
+    _pw.println("        index = _index;");
+    _pw.println("        if (index == null) {");
+    _pw.println("          index = new Index(" + outName + ".class, \"" +
+                outName + RESOURCE_EXTENSION + "\");");
+    _pw.println("          _index = index;");
+    _pw.println("        }");
+    _pw.println("      }");
+    _pw.println("    }");
+    _pw.println("    return index;");
+    _pw.println("  }");
+    _pw.println("");
+    _pw.println("  private static volatile Index _index;");
+    _pw.println("");
+    _pw.println("  private static final class Index {");
+    _pw.println("    Index(Class<?> owner, String name) {");
+    _pw.println("      InputStream in = owner.getResourceAsStream(name);");
+    _pw.println("      if (in == null)");
+    _pw.println("        throw new MissingResourceException(\"Missing \" + name, owner.getName(), \"\");");
+    _pw.println("      try {");
+    _pw.println("        try {");
+    _pw.println("          DataInputStream data = new DataInputStream(in);");
+    _pw.println("          int count = data.readInt();");
+    _pw.println("          _keyOffsets = new int[count + 1];");
+    _pw.println("          _valueOffsets = new int[count + 1];");
+    _pw.println("          for (int i = 0; i <= count; i++)");
+    _pw.println("            _keyOffsets[i] = data.readInt();");
+    _pw.println("          for (int i = 0; i <= count; i++)");
+    _pw.println("            _valueOffsets[i] = data.readInt();");
+    _pw.println("          _data = new byte[_valueOffsets[count]];");
+    _pw.println("          data.readFully(_data);");
+    _pw.println("        } finally {");
+    _pw.println("          in.close();");
+    _pw.println("        }");
+    _pw.println("      } catch (IOException e) {");
+    _pw.println("        throw new MissingResourceException(e.toString(), owner.getName(), \"\");");
+    _pw.println("      }");
+    _pw.println("    }");
+    _pw.println("");
+    _pw.println("    int find(String key) {");
+    _pw.println("      byte[] bytes = _encode(key);");
+    _pw.println("      int low = 0;");
+    _pw.println("      int high = _keyOffsets.length - 2;");
+    _pw.println("      while (low <= high) {");
+    _pw.println("        int mid = (low + high) >>> 1;");
+    _pw.println("        int cmp = _compare(mid, bytes);");
+    _pw.println("        if (cmp < 0)");
+    _pw.println("          low = mid + 1;");
+    _pw.println("        else if (cmp > 0)");
+    _pw.println("          high = mid - 1;");
+    _pw.println("        else");
+    _pw.println("          return mid;");
+    _pw.println("      }");
+    _pw.println("      return -1;");
+    _pw.println("    }");
+    _pw.println("");
+    _pw.println("    String getValue(int i) {");
+    _pw.println("      // decoded on each lookup, so only the UTF-8 data is retained");
+    _pw.println("      return _decode(_valueOffsets[i], _valueOffsets[i + 1]);");
+    _pw.println("    }");
+    _pw.println("");
+    _pw.println("    synchronized Set<String> getKeys() {");
+    _pw.println("      // the decoded keys can be collected, they are rarely needed");
+    _pw.println("      Set<String> keys = (_keys == null) ? null : _keys.get();");
+    _pw.println("      if (keys == null) {");
+    _pw.println("        keys = new HashSet<String>();");
+    _pw.println("        for (int i = 0; i < _keyOffsets.length - 1; i++)");
+    _pw.println("          keys.add(_decode(_keyOffsets[i], _keyOffsets[i + 1]));");
+    _pw.println("        keys = Collections.unmodifiableSet(keys);");
+    _pw.println("        _keys = new SoftReference<Set<String>>(keys);");
+    _pw.println("      }");
+    _pw.println("      return keys;");
+    _pw.println("    }");
+    _pw.println("");
+    _pw.println("    private int _compare(int i, byte[] key) {");
+    _pw.println("      int start = _keyOffsets[i];");
+    _pw.println("      int length = _keyOffsets[i + 1] - start;");
+    _pw.println("      int n = Math.min(length, key.length);");
+    _pw.println("      for (int j = 0; j < n; j++) {");
+    _pw.println("        int diff = (_data[start + j] & 0xff) - (key[j] & 0xff);");
+    _pw.println("        if (diff != 0)");
+    _pw.println("          return diff;");
+    _pw.println("      }");
+    _pw.println("      return length - key.length;");
+    _pw.println("    }");
+    _pw.println("");
+    _pw.println("    private String _decode(int start, int end) {");
+    _pw.println("      try {");
+    _pw.println("        return new String(_data, start, end - start, \"UTF-8\");");
+    _pw.println("      } catch (UnsupportedEncodingException e) {");
+    _pw.println("        throw new IllegalStateException(e.toString());");
+    _pw.println("      }");
+    _pw.println("    }");
+    _pw.println("");
+    _pw.println("    private static byte[] _encode(String s) {");
+    _pw.println("      try {");
+    _pw.println("        return s.getBytes(\"UTF-8\");");
+    _pw.println("      } catch (UnsupportedEncodingException e) {");
+    _pw.println("        throw new IllegalStateException(e.toString());");
+    _pw.println("      }");
+    _pw.println("    }");
+    _pw.println("");
+    _pw.println("    private int[] _keyOffsets;");
+    _pw.println("    private int[] _valueOffsets;");
+    _pw.println("    private byte[] _data;");
+    _pw.println("    private SoftReference<Set<String>> _keys;");
+    _pw.println("  }");
+
+    if (outName.indexOf('_') < 0)
+    {
+      // This is the base bundle. If any default locales are requested,
+      // they'll extend this bundle and share its resource.
+      String[] locales = (String[]) parms.get("defaultLocales");
+      File targDir = outFile.getParentFile();
+      if ((locales != null) && (targDir != null))
+      {
+        for (int l = 0; l < locales.length; l++)
+        {
+          String cName = outName + '_' + locales[l];
+          File locF = new File(targDir, cName + ".java");
+
+          PrintWriter locWri;
+          locWri = new PrintWriter(new BufferedWriter(new FileWriter(locF)));
+
+          locWri.println("// Do not edit this file!");
+          locWri.println("// This file has been automatically generated.");
+
+          if (validPackage)
+          {
+            locWri.println("package " + packageName + ";");
+            locWri.println("");
+          }
+          locWri.println("public class " + cName + " extends " + outName);
+          locWri.println("{");
+          locWri.println("}");
+          locWri.close();
+        }
+      }
+    }
+  }
+
+  public void writeString(Map parms, Map meta, String key,
+    String value) throws Throwable
+  {
+    // as in a ListResourceBundle, the last value of a key wins
+    _entries.put(key, value);
+  }
+
+  /**
+   * <code>RTSWriter</code> method implementation to close the
+   * <code>ResourceBundle</code> class and write its resource.
+   *
+   * @param meta a <code>Map</code> of parsed non-resource data
+   * (e.g., authors).
+   */
+  public void endBundle(Map parms, Map meta) throws Throwable
+  {
+    _pw.println("}");
+    _pw.close();
+
+    byte[][] keys = new byte[_entries.size()][];
+    byte[][] values = new byte[keys.length][];
+    Integer[] order = new Integer[keys.length];
+    Iterator iter = _entries.entrySet().iterator();
+    for (int i = 0; iter.hasNext(); i++)
+    {
+      Map.Entry entry = (Map.Entry)iter.next();
+      keys[i] = ((String)entry.getKey()).getBytes("UTF-8");
+      values[i] = ((String)entry.getValue()).getBytes("UTF-8");
+      order[i] = new Integer(i);
+    }
+    Arrays.sort(order, new KeyOrder(keys));
+
+    if (_resourceFile.exists())
+    {
+      _resourceFile.delete();
+    }
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                                     new FileOutputStream(_resourceFile)));
+    try
+    {
+      out.writeInt(order.length);
+
+      int offset = 0;
+      for (int i = 0; i < order.length; i++)
+      {
+        out.writeInt(offset);
+        offset += keys[order[i].intValue()].length;
+      }
+      out.writeInt(offset);
+      for (int i = 0; i < order.length; i++)
+      {
+        out.writeInt(offset);
+        offset += values[order[i].intValue()].length;
+      }
+      out.writeInt(offset);
+
+      for (int i = 0; i < order.length; i++)
+      {
+        out.write(keys[order[i].intValue()]);
+      }
+      for (int i = 0; i < order.length; i++)
+      {
+        out.write(values[order[i].intValue()]);
+      }
+    }
+    finally
+    {
+      out.close();
+    }
+
+    _entries = null;
+  }
+
+  /**
+   * The extension of the binary resources.
+   */
+  static public final String RESOURCE_EXTENSION = ".res";
+
+  private PrintWriter _pw;
+  private File        _resourceFile;
+  private Map         _entries;
+
+  // unsigned comparison of the UTF-8 keys, as in the generated lookup
+  static private final class KeyOrder implements Comparator
+  {
+    public KeyOrder(byte[][] keys)
+    {
+      _keys = keys;
+    }
+
+    public int compare(Object o1, Object o2)
+    {
+      byte[] k1 = _keys[((Integer)o1).intValue()];
+      byte[] k2 = _keys[((Integer)o2).intValue()];
+      int n = Math.min(k1.length, k2.length);
+      for (int i = 0; i < n; i++)
+      {
+        int diff = (k1[i] & 0xff) - (k2[i] & 0xff);
+        if (diff != 0)
+        {
+          return diff;
+        }
+      }
+      return k1.length - k2.length;
+    }
+
+    private final byte[][] _keys;
+  }
+}
@@ -155,8 +155,11 @@ public class ListRTSWriter implements RTSWriter
   public void writeString(Map parms, Map meta, String key,
     String value) throws Throwable
   {
-    _pw.println("    {\"" + UnicodeEscapes.convert(key) + "\", \"" +
-                UnicodeEscapes.convert(value) + "\"},");
+    _pw.print("    {\"");
+    UnicodeEscapes.convert(key, _pw);
+    _pw.print("\", \"");
+    UnicodeEscapes.convert(value, _pw);
+    _pw.println("\"},");
   }
 
 
@@ -18,6 +18,10 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.xrts;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
 /**
  * The <code>UnicodeEscapes</code> class converts bytes and characters outside
  * the ASCII character set to Java usable '\\u' Unicode escapes characters.  This
@@ -34,53 +38,104 @@ public final class UnicodeEscapes
 
   static public String convert(String s)
   {
-    StringBuffer buffer = new StringBuffer(s.length());
-    for(int i = 0; i < s.length(); i++)
+    int i = _indexOfEscape(s, 0);
+    if (i < 0)
+    {
+      return s;
+    }
+
+    StringWriter out = new StringWriter(s.length() + 16);
+    try
+    {
+      _convert(s, i, out);
+    }
+    catch (IOException e)
+    {
+      // StringWriter does not throw IOExceptions
+      throw new IllegalStateException(e.getMessage());
+    }
+    return out.toString();
+  }
+
+  /**
+   * Writes a string with the characters outside the ASCII character set
+   * and the special characters of Java string literals escaped.  Strings
+   * that need no escape are written as they are.
+   *
+   * @param s the string to convert
+   * @param out the writer the converted string is written to
+   */
+  static public void convert(String s, Writer out) throws IOException
+  {
+    int i = _indexOfEscape(s, 0);
+    if (i < 0)
     {
+      out.write(s);
+    }
+    else
+    {
+      _convert(s, i, out);
+    }
+  }
+
+  static private void _convert(String s, int first, Writer out)
+    throws IOException
+  {
+    // the converted characters are written in chunks, instead of
+    // one write per escape
+    int length = s.length();
+    char[] buffer = (char[])_BUFFER.get();
+    int count = 0;
+
+    out.write(s, 0, first);
+    for (int i = first; i < length; i++)
+    {
+      if (count > buffer.length - 6)
+      {
+        out.write(buffer, 0, count);
+        count = 0;
+      }
+
       char c = s.charAt(i);
-      if (c < 128)
+      if (c >= 128)
+      {
+        buffer[count++] = '\\';
+        buffer[count++] = 'u';
+        buffer[count++] = _HEX[(c>>12)& 0x0f];
+        buffer[count++] = _HEX[(c>>8)& 0x0f];
+        buffer[count++] = _HEX[(c>>4)& 0x0f];
+        buffer[count++] = _HEX[c & 0x0f];
+      }
+      else if (_ESCAPES[c] != 0)
       {
-        switch (c)
-        {
-        case '\b':
-          buffer.append("\\b");
-          break;
-        case '\t':
-          buffer.append("\\t");
-          break;
-        case '\n':
-          buffer.append("\\n");
-          break;
-        case '\f':
-          buffer.append("\\f");
-          break;
-        case '\r':
-          buffer.append("\\r");
-          break;
-        case '\"':
-          buffer.append("\\\"");
-          break;
-        case '\'':
-          buffer.append("\\\'");
-          break;
-        case '\\':
-          buffer.append("\\\\");
-          break;
-        default:
-          buffer.append(c);
-          break;
-        }
+        buffer[count++] = '\\';
+        buffer[count++] = _ESCAPES[c];
       }
       else
       {
-        buffer.append("\\u");
-        buffer.append(_HEX[(c>>12)& 0x0f]);
-        buffer.append(_HEX[(c>>8)& 0x0f]);
-        buffer.append(_HEX[(c>>4)& 0x0f]);
-        buffer.append(_HEX[c & 0x0f]);
+        buffer[count++] = c;
+      }
+    }
+
+    out.write(buffer, 0, count);
+  }
+
+  /**
+   * Returns the index of the first character to escape from an index,
+   * or -1 if there is none.
+   */
+  static private int _indexOfEscape(String s, int from)
+  {
+    int length = s.length();
+    for (int i = from; i < length; i++)
+    {
+      char c = s.charAt(i);
+      if ((c >= 128) || (_ESCAPES[c] != 0))
+      {
+        return i;
       }
     }
-    return buffer.toString();
+    return -1;
   }
 
 //  String byteToHex(byte b) {
@@ -100,7 +155,32 @@ public final class UnicodeEscapes
 //    return byteToHex(hi) + byteToHex(lo);
 //  }
 
-  private static final String[] _HEX =
-    {"0", "1", "2", "3", "4", "5", "6", "7",
-     "8", "9", "a", "b", "c", "d", "e", "f"};
+  // bundles are generated on several threads
+  private static final ThreadLocal _BUFFER = new ThreadLocal()
+  {
+    protected Object initialValue()
+    {
+      return new char[512];
+    }
+  };
+
+  private static final char[] _HEX =
+    {'0', '1', '2', '3', '4', '5', '6', '7',
+     '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+  // the character following the backslash for the ASCII characters
+  // that are escaped, 0 for the others
+  private static final char[] _ESCAPES = new char[128];
+
+  static
+  {
+    _ESCAPES['\b'] = 'b';
+    _ESCAPES['\t'] = 't';
+    _ESCAPES['\n'] = 'n';
+    _ESCAPES['\f'] = 'f';
+    _ESCAPES['\r'] = 'r';
+    _ESCAPES['\"'] = '"';
+    _ESCAPES['\''] = '\'';
+    _ESCAPES['\\'] = '\\';
+  }
 }
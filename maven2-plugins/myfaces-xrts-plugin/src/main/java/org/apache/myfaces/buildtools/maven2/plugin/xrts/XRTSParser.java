@@ -18,19 +18,20 @@
  */
 package org.apache.myfaces.buildtools.maven2.plugin.xrts;
 
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.xml.sax.AttributeList;
-import org.xml.sax.HandlerBase;
+import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * */
-final class XRTSParser extends HandlerBase
+final class XRTSParser extends DefaultHandler
 {
 
   /**
@@ -91,10 +92,13 @@ final class XRTSParser extends HandlerBase
   /**
    * Receive notification of the start of an element.
    *
+   * @param uri the namespace URI, unused.
+   * @param localName the local name, unused.
    * @param name the element type name.
-   * @param attributes the specified or defaulted attributes.
+   * @param atts the specified or defaulted attributes.
    */
-  public void startElement(String name, AttributeList atts) throws SAXException
+  public void startElement(String uri, String localName, String name,
+    Attributes atts) throws SAXException
   {
     _nestingLevel++;
 
@@ -119,7 +123,7 @@ final class XRTSParser extends HandlerBase
       _currentResourceKey = atts.getValue("key");
       if (_uniqKeys.contains(_currentResourceKey))
       {
-        System.err.println("Duplicate id \"" + _currentResourceKey + "\"");
+        _warn("Duplicate id \"" + _currentResourceKey + "\"");
       }
 
       _uniqKeys.add(_currentResourceKey);
@@ -143,9 +147,12 @@ final class XRTSParser extends HandlerBase
 
   /**
    * Receive notification of the end of an element.
+   * @param uri the namespace URI, unused.
+   * @param localName the local name, unused.
    * @param name the element type name.
    */
-  public void endElement(String name) throws SAXException
+  public void endElement(String uri, String localName, String name)
+    throws SAXException
   {
     if ((_nestingLevel == 2) && name.equals("resource"))
     {
@@ -191,6 +198,23 @@ final class XRTSParser extends HandlerBase
     }
   }
 
+  /**
+   * Adds a warning to the "warnings" <code>List</code> of the parameters,
+   * so the caller can report the warnings of each bundle in order, or
+   * prints it when there is no such list.
+   */
+  private void _warn(String message)
+  {
+    List warnings = (_parms != null) ? (List)_parms.get("warnings") : null;
+    if (warnings != null)
+    {
+      warnings.add(message);
+    }
+    else
+    {
+      System.err.println(message);
+    }
+  }
 
   // Store the locator
   private Locator _locator;
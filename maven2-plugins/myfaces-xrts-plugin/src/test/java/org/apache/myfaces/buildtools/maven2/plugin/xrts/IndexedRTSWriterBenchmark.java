@@ -0,0 +1,189 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.xrts;
+
+import java.io.File;
+import java.util.ResourceBundle;
+
+import junit.framework.AssertionFailedError;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Measures the load time, the retained heap and the lookup time of the
+ * bundles generated by the list and indexed writers.  It is not run by the
+ * build; after <code>mvn test-compile</code>, run it with:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;junit and plexus-utils jars&gt;
+ *   org.apache.myfaces.buildtools.maven2.plugin.xrts.IndexedRTSWriterBenchmark [entries]
+ * </pre>
+ * The default is 2500 entries.  Each bundle is measured in a JVM of its
+ * own, without the garbage of the compiler: the string literals of a list
+ * bundle are interned, and would not be counted if another bundle with
+ * the same literals had been loaded before.  The retained heap is the
+ * heap freed when the bundle and its class are unloaded, once all the
+ * values were looked up.
+ */
+public class IndexedRTSWriterBenchmark
+{
+  static public void main(
+    String[] args) throws Throwable
+  {
+    int count = (args.length > 0) ? Integer.parseInt(args[0]) : 2500;
+    String[][] entries = new String[count][];
+    for (int i = 0; i < count; i++)
+    {
+      entries[i] = new String[] { "benchmark.key." + i,
+                                  "The value of the benchmark key " + i };
+    }
+
+    if (args.length > 1)
+    {
+      File classesDir = new File(args[2]);
+      if (!classesDir.isDirectory())
+      {
+        System.out.println(args[1] + ": the bundle cannot be compiled");
+        return;
+      }
+
+      // the first pass warms up the loading and the measures
+      String measures = null;
+      for (int pass = 0; pass < 2; pass++)
+      {
+        measures = _run(classesDir, entries);
+      }
+      System.out.println(args[1] + ": " + measures);
+      return;
+    }
+
+    File directory = new File("target/indexed-rts-benchmark");
+    FileUtils.deleteDirectory(directory);
+
+    // the bundles are compiled here, the compiler leaves garbage behind
+    File listDir = _generateBundle(new ListRTSWriter(),
+                                   new File(directory, "list"), entries);
+    File indexedDir = _generateBundle(new IndexedRTSWriter(),
+                                      new File(directory, "indexed"), entries);
+
+    System.out.println(count + " entries");
+    _runProcess(count, "list", listDir);
+    _runProcess(count, "indexed", indexedDir);
+  }
+
+  /**
+   * Measures a bundle in a new JVM.
+   */
+  static private void _runProcess(
+    int    count,
+    String name,
+    File   classesDir) throws Exception
+  {
+    String java = System.getProperty("java.home") + File.separator +
+                  "bin" + File.separator + "java";
+    ProcessBuilder builder = new ProcessBuilder(new String[] {
+      java, "-XX:+UseSerialGC", "-Xms256m", "-Xmx256m",
+      "-cp", System.getProperty("java.class.path"),
+      IndexedRTSWriterBenchmark.class.getName(),
+      String.valueOf(count), name,
+      (classesDir == null) ? "" : classesDir.getPath() });
+    builder.redirectErrorStream(true);
+    Process process = builder.start();
+    IOUtil.copy(process.getInputStream(), System.out);
+    process.waitFor();
+  }
+
+  /**
+   * @return the directory of the compiled bundle, or null if the bundle
+   *         cannot be compiled
+   */
+  static private File _generateBundle(
+    RTSWriter  writer,
+    File       directory,
+    String[][] entries) throws Throwable
+  {
+    try
+    {
+      return IndexedRTSWriterTest.generateBundle(writer, directory, entries);
+    }
+    catch (AssertionFailedError e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * @return the measures of a bundle
+   */
+  static private String _run(
+    File       classesDir,
+    String[][] entries) throws Exception
+  {
+    long start = System.nanoTime();
+    ResourceBundle bundle = IndexedRTSWriterTest.loadBundle(classesDir);
+    bundle.getString(entries[0][0]);
+    long loadTime = System.nanoTime() - start;
+
+    // the fastest round, once the lookups are compiled
+    long lookupTime = Long.MAX_VALUE;
+    for (int round = 0; round < _ROUNDS; round++)
+    {
+      start = System.nanoTime();
+      for (int i = 0; i < entries.length; i++)
+      {
+        bundle.getString(entries[i][0]);
+      }
+      lookupTime = Math.min(lookupTime, System.nanoTime() - start);
+    }
+
+    // the heap retained once all the values were looked up is the heap
+    // freed when the bundle and its class are unloaded
+    long heap = _usedHeap();
+    ResourceBundle.clearCache(bundle.getClass().getClassLoader());
+    bundle = null;
+    long retained = heap - _usedHeap();
+
+    return "loaded in " + (loadTime / 1000000) + "ms, " +
+           (retained / 1024) + "KB retained, " +
+           (lookupTime / entries.length) + "ns per lookup";
+  }
+
+  /**
+   * Returns the used heap once it no longer shrinks.
+   */
+  static private long _usedHeap() throws InterruptedException
+  {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    while (true)
+    {
+      System.gc();
+      System.runFinalization();
+      Thread.sleep(100);
+      long newUsed = runtime.totalMemory() - runtime.freeMemory();
+      if (newUsed >= used)
+      {
+        return used;
+      }
+      used = newUsed;
+    }
+  }
+
+  static private final int _ROUNDS = 20;
+}
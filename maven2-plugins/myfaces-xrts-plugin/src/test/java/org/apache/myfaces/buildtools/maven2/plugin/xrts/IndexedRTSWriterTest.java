@@ -0,0 +1,208 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.xrts;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Compares the bundles generated by the indexed writer with the
+ * <code>ListResourceBundle</code> generated by the list writer.
+ */
+public class IndexedRTSWriterTest extends TestCase
+{
+  public IndexedRTSWriterTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void setUp() throws Exception
+  {
+    _directory = new File("target/indexed-rts-test");
+    FileUtils.deleteDirectory(_directory);
+  }
+
+  public void tearDown()
+  {
+    _directory = null;
+  }
+
+  public void testSameBundles() throws Throwable
+  {
+    ResourceBundle list = loadBundle(generateBundle(
+      new ListRTSWriter(), new File(_directory, "list"), _ENTRIES));
+    ResourceBundle indexed = loadBundle(generateBundle(
+      new IndexedRTSWriter(), new File(_directory, "indexed"), _ENTRIES));
+
+    // the default locale subclass, with the base bundle as parent
+    assertEquals(_BUNDLE_NAME + "_en", list.getClass().getName());
+    assertEquals(_BUNDLE_NAME + "_en", indexed.getClass().getName());
+
+    Set keys = new HashSet();
+    for (int i = 0; i < _ENTRIES.length; i++)
+    {
+      keys.add(_ENTRIES[i][0]);
+    }
+
+    assertEquals(keys, new HashSet(Collections.list(list.getKeys())));
+    assertEquals(keys, new HashSet(Collections.list(indexed.getKeys())));
+    assertEquals(_handleKeySet(list), _handleKeySet(indexed));
+    assertEquals(keys, _handleKeySet(indexed));
+
+    for (Object key : keys)
+    {
+      String value = list.getString((String)key);
+      assertEquals((String)key, value, indexed.getString((String)key));
+    }
+
+    // the last value of a duplicate key wins
+    assertEquals("second", list.getString("duplicate"));
+    assertEquals("second", indexed.getString("duplicate"));
+
+    _assertMissing(list, "missing");
+    _assertMissing(indexed, "missing");
+    _assertMissing(indexed, "caf");
+    _assertMissing(indexed, "\u65e5\u672c");
+  }
+
+  /**
+   * Generates and compiles the test.bundles.Messages bundle, with an
+   * "en" default locale subclass.
+   *
+   * @return the directory of the compiled classes and resources
+   */
+  static File generateBundle(
+    RTSWriter  writer,
+    File       directory,
+    String[][] entries) throws Throwable
+  {
+    File sourceDir = new File(directory, "src");
+    File classesDir = new File(directory, "classes");
+    File packageDir = new File(sourceDir, _PACKAGE_NAME.replace('.', '/'));
+    packageDir.mkdirs();
+    classesDir.mkdirs();
+
+    Map parms = new HashMap();
+    parms.put("outFile", new File(packageDir, "Messages.java"));
+    parms.put("outName", "Messages");
+    parms.put("srcName", "Messages");
+    parms.put("pkgName", _PACKAGE_NAME);
+    parms.put("quietMode", Boolean.TRUE);
+    parms.put("defaultLocales", new String[] { "en" });
+
+    writer.startBundle(parms, null);
+    for (int i = 0; i < entries.length; i++)
+    {
+      writer.writeString(parms, null, entries[i][0], entries[i][1]);
+    }
+    writer.endBundle(parms, null);
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assertNotNull("The tests need a JDK", compiler);
+    int result = compiler.run(null, null, null,
+                              "-d", classesDir.getPath(),
+                              new File(packageDir, "Messages.java").getPath(),
+                              new File(packageDir, "Messages_en.java").getPath());
+    assertEquals("Compilation of " + packageDir + " failed", 0, result);
+
+    File resourceFile = new File(packageDir, "Messages" +
+                                 IndexedRTSWriter.RESOURCE_EXTENSION);
+    if (resourceFile.exists())
+    {
+      FileUtils.copyFileToDirectory(resourceFile,
+        new File(classesDir, _PACKAGE_NAME.replace('.', '/')));
+    }
+
+    return classesDir;
+  }
+
+  /**
+   * Loads the "en" bundle in a class loader of its own.
+   */
+  static ResourceBundle loadBundle(
+    File classesDir) throws Exception
+  {
+    ClassLoader loader = new URLClassLoader(
+                           new URL[] { classesDir.toURI().toURL() },
+                           IndexedRTSWriterTest.class.getClassLoader());
+    return ResourceBundle.getBundle(_BUNDLE_NAME, new Locale("en"), loader);
+  }
+
+  static private Set _handleKeySet(
+    ResourceBundle bundle) throws Exception
+  {
+    Method method = ResourceBundle.class.getDeclaredMethod("handleKeySet");
+    method.setAccessible(true);
+    return new HashSet((Set)method.invoke(bundle));
+  }
+
+  static private void _assertMissing(
+    ResourceBundle bundle,
+    String         key)
+  {
+    try
+    {
+      bundle.getString(key);
+      fail("Found " + key);
+    }
+    catch (MissingResourceException e)
+    {
+      // expected
+    }
+  }
+
+  private File _directory;
+
+  static private final String _PACKAGE_NAME = "test.bundles";
+  static private final String _BUNDLE_NAME = _PACKAGE_NAME + ".Messages";
+
+  static private final String[][] _ENTRIES = new String[][]
+  {
+    { "title", "Title" },
+    { "duplicate", "first" },
+    { "caf\u00e9", "Caf\u00e9 cr\u00e8me" },
+    { "cafe", "plain" },
+    { "\u00e9", "e acute" },
+    { "\u65e5\u672c\u8a9e", "\u65e5\u672c\u8a9e\u306e\u6587" },
+    { "emoji.\ud83d\ude00", "smile \ud83d\ude00" },
+    { "Zulu", "upper case" },
+    { "quoted", "\"quotes\", \\backslash\\ and\nnew line" },
+    { "empty", "" },
+    { "duplicate", "second" },
+    { "a", "single letter" }
+  };
+}
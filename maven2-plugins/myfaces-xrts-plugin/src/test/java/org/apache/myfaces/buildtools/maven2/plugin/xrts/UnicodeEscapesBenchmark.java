@@ -0,0 +1,200 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.xrts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Measures the time and the allocations of the escapes of the entries of
+ * CJK-heavy and ASCII bundles, written through a <code>PrintWriter</code>
+ * as <code>ListRTSWriter</code> writes them.  It is not run by the build;
+ * after <code>mvn test-compile</code>, run it with:
+ * <pre>
+ * java -cp target/classes:target/test-classes:&lt;junit jar&gt;
+ *   org.apache.myfaces.buildtools.maven2.plugin.xrts.UnicodeEscapesBenchmark [entries]
+ * </pre>
+ * The default is 40000 entries.  The escapes written straight to the
+ * writer are compared with the escapes built in a
+ * <code>StringBuffer</code> first, one append per character, as they were
+ * before.  The allocations are only measured on JVMs that count them.
+ */
+public class UnicodeEscapesBenchmark
+{
+  static public void main(
+    String[] args) throws Throwable
+  {
+    int count = (args.length > 0) ? Integer.parseInt(args[0]) : 40000;
+    String[][] cjk = new String[count][];
+    String[][] ascii = new String[count][];
+    for (int i = 0; i < count; i++)
+    {
+      cjk[i] = new String[] { "benchmark.key." + i,
+                              "\u30d9\u30f3\u30c1\u30de\u30fc\u30af\u306e" +
+                              "\u30ad\u30fc " + i + " \u306e\u5024\u3067" +
+                              "\u3059\u3002\u300c" + i + "\u300d" };
+      ascii[i] = new String[] { "benchmark.key." + i,
+                                "The value of the benchmark key " + i };
+    }
+
+    // the first rounds warm up the escapes
+    for (int round = 0; round < 5; round++)
+    {
+      System.out.println("CJK: " + _run(cjk, true) + " before, " +
+                         _run(cjk, false) + " after");
+      System.out.println("ASCII: " + _run(ascii, true) + " before, " +
+                         _run(ascii, false) + " after");
+    }
+  }
+
+  /**
+   * @return the measures of the escapes of the entries
+   */
+  static private String _run(
+    String[][] entries,
+    boolean    before) throws IOException
+  {
+    long allocated = _allocatedBytes();
+    long start = System.nanoTime();
+
+    PrintWriter pw = new PrintWriter(
+      new OutputStreamWriter(new NullOutputStream(), "ISO-8859-1"));
+    for (int i = 0; i < entries.length; i++)
+    {
+      pw.write("{\"");
+      if (before)
+      {
+        pw.write(_convertBefore(entries[i][0]));
+        pw.write("\", \"");
+        pw.write(_convertBefore(entries[i][1]));
+      }
+      else
+      {
+        UnicodeEscapes.convert(entries[i][0], pw);
+        pw.write("\", \"");
+        UnicodeEscapes.convert(entries[i][1], pw);
+      }
+      pw.println("\"},");
+    }
+    pw.flush();
+
+    long time = System.nanoTime() - start;
+    allocated = _allocatedBytes() - allocated;
+    return (time / 1000000) + "ms" +
+           ((allocated < 0) ? "" : (" and " + (allocated / 1024) + "KB"));
+  }
+
+  /**
+   * The escapes as they were built before.
+   */
+  static private String _convertBefore(
+    String s)
+  {
+    StringBuffer buffer = new StringBuffer(s.length());
+    for (int i = 0; i < s.length(); i++)
+    {
+      char c = s.charAt(i);
+      if (c < 128)
+      {
+        switch (c)
+        {
+        case '\b':
+          buffer.append("\\b");
+          break;
+        case '\t':
+          buffer.append("\\t");
+          break;
+        case '\n':
+          buffer.append("\\n");
+          break;
+        case '\f':
+          buffer.append("\\f");
+          break;
+        case '\r':
+          buffer.append("\\r");
+          break;
+        case '\"':
+          buffer.append("\\\"");
+          break;
+        case '\'':
+          buffer.append("\\\'");
+          break;
+        case '\\':
+          buffer.append("\\\\");
+          break;
+        default:
+          buffer.append(c);
+          break;
+        }
+      }
+      else
+      {
+        buffer.append("\\u");
+        buffer.append(_HEX[(c>>12)& 0x0f]);
+        buffer.append(_HEX[(c>>8)& 0x0f]);
+        buffer.append(_HEX[(c>>4)& 0x0f]);
+        buffer.append(_HEX[c & 0x0f]);
+      }
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * Returns the bytes allocated by the current thread, or -1 if the JVM
+   * does not count them.
+   */
+  static private long _allocatedBytes()
+  {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    try
+    {
+      Method method = bean.getClass().getMethod("getThreadAllocatedBytes",
+                                                new Class[] { long.class });
+      method.setAccessible(true);
+      Long allocated = (Long) method.invoke(bean, new Object[] {
+                         Long.valueOf(Thread.currentThread().getId()) });
+      return allocated.longValue();
+    }
+    catch (Exception e)
+    {
+      return -1;
+    }
+  }
+
+  static private class NullOutputStream extends OutputStream
+  {
+    public void write(int b)
+    {
+    }
+
+    public void write(byte[] b, int off, int len)
+    {
+    }
+  }
+
+  private static final String[] _HEX =
+    {"0", "1", "2", "3", "4", "5", "6", "7",
+     "8", "9", "a", "b", "c", "d", "e", "f"};
+}
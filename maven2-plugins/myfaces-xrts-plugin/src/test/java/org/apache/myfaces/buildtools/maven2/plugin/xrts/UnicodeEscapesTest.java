@@ -0,0 +1,185 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.myfaces.buildtools.maven2.plugin.xrts;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the escapes of <code>convert(String)</code> and
+ * <code>convert(String, Writer)</code> with the expected escapes.
+ */
+public class UnicodeEscapesTest extends TestCase
+{
+  public UnicodeEscapesTest(
+    String testName)
+  {
+    super(testName);
+  }
+
+  public void testNothingToEscape() throws IOException
+  {
+    String s = "The quick brown fox {0} jumps over the lazy dog.";
+    assertSame(s, UnicodeEscapes.convert(s));
+    _assertConvert(s, s);
+    _assertConvert("", "");
+  }
+
+  public void testSpecialCharacters() throws IOException
+  {
+    _assertConvert("a\\bb\\tc\\nd\\fe\\rf", "a\bb\tc\nd\fe\rf");
+    _assertConvert("\\\"quoted\\\" and \\'quoted\\'", "\"quoted\" and 'quoted'");
+    _assertConvert("C:\\\\temp\\\\", "C:\\temp\\");
+
+    // the other control characters are written as they are
+    _assertConvert("\u0000\u001b\u007f", "\u0000\u001b\u007f");
+  }
+
+  public void testUnicodeCharacters() throws IOException
+  {
+    _assertConvert("caf\\u00e9", "caf\u00e9");
+    _assertConvert("\\u65e5\\u672c\\u8a9e", "\u65e5\u672c\u8a9e");
+    _assertConvert("\\u0080\\uffff", "\u0080\uffff");
+
+    // the surrogates of a supplementary character are escaped one by one
+    _assertConvert("\\ud83d\\ude00 \\ud800", "\ud83d\ude00 \ud800");
+  }
+
+  public void testAllCharacters() throws IOException
+  {
+    StringBuffer buffer = new StringBuffer(0x10000);
+    for (int c = 0; c <= 0xffff; c++)
+    {
+      buffer.append((char) c);
+    }
+
+    String s = buffer.toString();
+    _assertConvert(convertExpected(s), s);
+  }
+
+  public void testLongStrings() throws IOException
+  {
+    // the escapes end on and around the end of the buffer of the writer
+    String[] parts = { "a", "\u4e2d", "\\", "\n", "\u6587" };
+    for (int length = 490; length < 1100; length++)
+    {
+      for (int p = 0; p < parts.length; p++)
+      {
+        StringBuffer buffer = new StringBuffer(length);
+        for (int i = 0; buffer.length() < length; i++)
+        {
+          buffer.append(parts[(p + i) % parts.length]);
+        }
+
+        String s = buffer.toString();
+        _assertConvert(convertExpected(s), s);
+      }
+    }
+
+    // every count of buffered characters before an escape
+    StringBuffer buffer = new StringBuffer("\u4e2d");
+    for (int length = 0; length < 1100; length++)
+    {
+      String s = buffer + "\u6587\n\u6587";
+      _assertConvert(convertExpected(s), s);
+      buffer.append('a');
+    }
+  }
+
+  public void testLeadingAsciiCharacters() throws IOException
+  {
+    StringBuffer buffer = new StringBuffer();
+    for (int i = 0; i < 1000; i++)
+    {
+      buffer.append('x');
+    }
+    buffer.append("\u4e2d\u6587");
+
+    String s = buffer.toString();
+    _assertConvert(convertExpected(s), s);
+  }
+
+  /**
+   * Returns the escapes of a string, one character at a time.
+   */
+  static String convertExpected(
+    String s)
+  {
+    StringBuffer buffer = new StringBuffer(s.length());
+    for (int i = 0; i < s.length(); i++)
+    {
+      char c = s.charAt(i);
+      switch (c)
+      {
+      case '\b':
+        buffer.append("\\b");
+        break;
+      case '\t':
+        buffer.append("\\t");
+        break;
+      case '\n':
+        buffer.append("\\n");
+        break;
+      case '\f':
+        buffer.append("\\f");
+        break;
+      case '\r':
+        buffer.append("\\r");
+        break;
+      case '\"':
+        buffer.append("\\\"");
+        break;
+      case '\'':
+        buffer.append("\\\'");
+        break;
+      case '\\':
+        buffer.append("\\\\");
+        break;
+      default:
+        if (c < 128)
+        {
+          buffer.append(c);
+        }
+        else
+        {
+          String hex = Integer.toHexString(c);
+          buffer.append("\\u");
+          buffer.append("0000".substring(hex.length()));
+          buffer.append(hex);
+        }
+        break;
+      }
+    }
+    return buffer.toString();
+  }
+
+  static private void _assertConvert(
+    String expected,
+    String s) throws IOException
+  {
+    assertEquals(expected, UnicodeEscapes.convert(s));
+
+    StringWriter out = new StringWriter();
+    out.write("prefix:");
+    UnicodeEscapes.convert(s, out);
+    assertEquals("prefix:" + expected, out.toString());
+  }
+}